@@ -2,36 +2,96 @@ package com.hieu.cfquest;
 
 import com.hieu.cfquest.api.CodeforcesAPI;
 import com.hieu.cfquest.api.CodeforcesPoller;
+import com.hieu.cfquest.api.HandleVerifier;
 import com.hieu.cfquest.command.CFAdminCommand;
 import com.hieu.cfquest.command.CFLinkCommand;
 import com.hieu.cfquest.command.CFQuestCommand;
+import com.hieu.cfquest.config.ConfigSnapshot;
+import com.hieu.cfquest.config.ConfigStore;
 import com.hieu.cfquest.config.ModConfig;
+import com.hieu.cfquest.engine.EngineClock;
+import com.hieu.cfquest.engine.QuestEventBus;
+import com.hieu.cfquest.engine.QuestEvent;
+import com.hieu.cfquest.engine.QuestNotifier;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.metrics.MetricsExporter;
+import com.hieu.cfquest.quest.QuestAnnouncer;
 import com.hieu.cfquest.quest.QuestManager;
 import com.hieu.cfquest.quest.QuestScheduler;
+import com.hieu.cfquest.replay.TraceRecorder;
+import com.hieu.cfquest.reward.RewardDistributor;
 import com.hieu.cfquest.reward.RewardManager;
+import com.hieu.cfquest.storage.DataFiles;
 import com.hieu.cfquest.storage.PlayerDataManager;
+import com.hieu.cfquest.storage.ProblemCatalog;
 import com.hieu.cfquest.storage.QuestHistory;
+import com.hieu.cfquest.storage.RewardMailbox;
+import com.hieu.cfquest.storage.ServerPlayerDirectory;
+import com.hieu.cfquest.storage.SolvedProblemIndex;
+import com.hieu.cfquest.tick.MainThreadQueue;
+import com.hieu.cfquest.util.Deadline;
+import com.hieu.cfquest.util.TimerWheel;
+import com.hieu.cfquest.web.ApiSnapshots;
+import com.hieu.cfquest.web.ScoreboardStream;
+import com.hieu.cfquest.web.WebApiServer;
+import com.hieu.cfquest.webhook.WebhookNotifier;
 import net.fabricmc.api.DedicatedServerModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.util.WorldSavePath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 public class CFQuestMod implements DedicatedServerModInitializer {
     public static final String MOD_ID = "cfquest";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 
+    private static final int SCOREBOARD_QUEUE_CAPACITY = 256;
+
     private static CFQuestMod instance;
     private MinecraftServer server;
 
-    private ModConfig config;
+    private ConfigStore configStore;
     private PlayerDataManager playerDataManager;
     private QuestManager questManager;
     private QuestScheduler questScheduler;
     private CodeforcesPoller codeforcesPoller;
+    private HandleVerifier handleVerifier;
+    private ProblemCatalog problemCatalog;
+    private SolvedProblemIndex solvedIndex;
     private RewardManager rewardManager;
+    private RewardMailbox rewardMailbox;
+    private RewardDistributor rewardDistributor;
     private QuestHistory questHistory;
+    private MetricsExporter metricsExporter;
+    private ApiSnapshots apiSnapshots;
+    private ScoreboardStream scoreboardStream;
+    private WebApiServer webApiServer;
+    private MainThreadQueue mainThreadQueue;
+    private TimerWheel timerWheel;
+    private QuestEventBus questEvents;
+    private WebhookNotifier webhookNotifier;
+    private TraceRecorder traceRecorder;
+
+    // Server thread only: set once startServices has run / once shutdown has begun
+    private boolean started = false;
+    private boolean stopping = false;
 
     @Override
     public void onInitializeServer() {
@@ -42,6 +102,9 @@ public class CFQuestMod implements DedicatedServerModInitializer {
         ServerLifecycleEvents.SERVER_STARTING.register(this::onServerStarting);
         ServerLifecycleEvents.SERVER_STARTED.register(this::onServerStarted);
         ServerLifecycleEvents.SERVER_STOPPING.register(this::onServerStopping);
+        ServerTickEvents.END_SERVER_TICK.register(this::onEndTick);
+        ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> onPlayerJoin(handler.getPlayer()));
+        ServerPlayConnectionEvents.DISCONNECT.register((handler, server) -> onPlayerLeave(handler.getPlayer()));
 
         // Register commands
         CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> {
@@ -55,64 +118,266 @@ public class CFQuestMod implements DedicatedServerModInitializer {
 
     private void onServerStarting(MinecraftServer server) {
         this.server = server;
+        Path dataDir = server.getSavePath(WorldSavePath.ROOT).resolve("cfquest");
+        EngineClock clock = EngineClock.SYSTEM;
 
         // Load configuration
-        this.config = ModConfig.load(server);
+        this.configStore = new ConfigStore(dataDir);
+        ModConfig config = configStore.current();
+
+        // Minecraft side of the engine ports
+        this.mainThreadQueue = new MainThreadQueue(server, config.getPerformance().getTickBudgetMillis());
+        ServerPlayerDirectory serverPlayers = new ServerPlayerDirectory(server);
 
         // Initialize managers
-        this.playerDataManager = new PlayerDataManager(server);
-        this.questHistory = new QuestHistory(server);
-        this.rewardManager = new RewardManager(config);
-        this.questManager = new QuestManager(server, playerDataManager, rewardManager, questHistory, config);
-        this.codeforcesPoller = new CodeforcesPoller(config, questManager, playerDataManager);
-        this.questScheduler = new QuestScheduler(server, questManager, config);
+        this.timerWheel = new TimerWheel(config.getPerformance().getTimerTickMillis(), clock);
+        this.playerDataManager = new PlayerDataManager(dataDir, serverPlayers, clock);
+        this.questHistory = new QuestHistory(dataDir);
+        this.solvedIndex = new SolvedProblemIndex(dataDir, new CodeforcesAPI(configStore));
+        this.rewardManager = new RewardManager(configStore);
+        this.rewardMailbox = new RewardMailbox(dataDir);
+        this.rewardDistributor = new RewardDistributor(mainThreadQueue, playerDataManager, serverPlayers,
+                rewardManager, rewardMailbox);
+        QuestNotifier notifier = new QuestAnnouncer(mainThreadQueue, serverPlayers);
+        if (config.getCodeforces().isRecordTrace()) {
+            try {
+                this.traceRecorder = TraceRecorder.open(dataDir);
+                CodeforcesAPI.setResponseListener(traceRecorder);
+                notifier = traceRecorder.recording(notifier, playerDataManager::getAllLinkedPlayers, configStore);
+            } catch (IOException e) {
+                LOGGER.error("Không tạo được file trace: {}", e.getMessage());
+            }
+        }
+
+        // Quest side effects run as event subscribers: rewards, then the announcement, then history
+        this.questEvents = new QuestEventBus(mainThreadQueue);
+        questEvents.subscribeMainThread("rewards", rewardDistributor::onEvent);
+        questEvents.subscribeMainThread("announcer", notifier::onEvent);
+        // One event per finished quest, so the unbounded lane stays tiny and history never misses one
+        questEvents.subscribeAsyncLossless("history",
+                event -> event instanceof QuestEvent.Ended ended && !ended.cancelled(),
+                event -> questHistory.addQuest(event.quest(), event.at()));
+        if (!config.getWebhooks().getEndpoints().isEmpty()) {
+            this.webhookNotifier = new WebhookNotifier(dataDir, configStore);
+            // Only start/solve/end (at most maxWinners + 2 per quest), and the notifier hands them
+            // straight to its own bounded, spooling queues: a lossless lane never drops a solve
+            questEvents.subscribeAsyncLossless("webhooks",
+                    event -> !(event instanceof QuestEvent.WrongAnswer), webhookNotifier::onEvent);
+        }
+
+        this.questManager = new QuestManager(dataDir, clock, mainThreadQueue, timerWheel, questEvents, notifier,
+                playerDataManager, serverPlayers, solvedIndex, configStore);
+        this.codeforcesPoller = new CodeforcesPoller(dataDir, clock, mainThreadQueue, configStore,
+                new CodeforcesAPI(configStore), questManager, playerDataManager, solvedIndex);
+        questManager.setFinalPoll(codeforcesPoller::finalPoll);
+        this.handleVerifier = new HandleVerifier(codeforcesPoller.getApi(),
+                config.getCodeforces().getHandleBatchWindowMillis());
+        this.problemCatalog = new ProblemCatalog(dataDir, codeforcesPoller.getApi(),
+                config.getSchedule().getCatalogRefreshHours());
+        this.questScheduler = new QuestScheduler(clock, mainThreadQueue, timerWheel, questManager,
+                playerDataManager, problemCatalog, solvedIndex, codeforcesPoller, configStore);
+        this.metricsExporter = new MetricsExporter(dataDir, configStore);
+
+        this.apiSnapshots = new ApiSnapshots(questManager, questHistory);
+        questEvents.subscribeMainThread("web", apiSnapshots::onEvent);
+        this.scoreboardStream = new ScoreboardStream(clock, configStore);
+        questEvents.subscribeAsync("scoreboard", SCOREBOARD_QUEUE_CAPACITY, scoreboardStream::wants,
+                scoreboardStream::onEvent, () -> scoreboardStream.resync(questManager.getActiveQuest()));
+        this.webApiServer = new WebApiServer(configStore, apiSnapshots, scoreboardStream);
 
         LOGGER.info("Đã tải cấu hình và khởi tạo các manager.");
     }
 
     private void onServerStarted(MinecraftServer server) {
+        // Data files have been loading in parallel while the world loaded; usually already done.
+        // The rest of startup is queued behind them instead of blocking the server thread. The
+        // solved index is only a pre-filter and keeps loading/syncing on its own thread.
+        long waitStart = System.nanoTime();
+        CompletableFuture.allOf(playerDataManager.ready(), questManager.ready(), rewardMailbox.ready())
+                .thenRun(() -> mainThreadQueue.submit("startup", () -> startServices(waitStart)));
+    }
+
+    /**
+     * Start the poller, timers, scheduler and HTTP servers once the stores they read are loaded
+     * (server thread).
+     */
+    private void startServices(long waitStart) {
+        if (stopping) {
+            return;
+        }
+        LOGGER.info("Dữ liệu đã sẵn sàng (chờ thêm {} ms)", (System.nanoTime() - waitStart) / 1_000_000);
+
+        metricsExporter.start();
+
+        // A quest restored from disk has no start event
+        apiSnapshots.refreshQuest();
+        scoreboardStream.restore(questManager.getActiveQuest());
+        webApiServer.start();
+
         // Start the poller
         codeforcesPoller.start();
 
+        // Start deadline timers (quest end, reminders) once the poller can run a final poll
+        timerWheel.start();
+
         // Start scheduler if enabled
-        if (config.getSchedule().isEnabled()) {
+        if (configStore.current().getSchedule().isEnabled()) {
+            problemCatalog.start();
             questScheduler.start();
             LOGGER.info("Đã bật lịch trình quest tự động.");
         }
 
+        // Players who joined while the stores were loading were not tracked yet
+        started = true;
+        for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
+            onPlayerJoin(player);
+        }
+
         LOGGER.info("Codeforces Quest Mod đã sẵn sàng!");
     }
 
+    private void onPlayerJoin(ServerPlayerEntity player) {
+        // Touching a player's entry before players.json is loaded would shadow the saved one
+        if (!started) {
+            return;
+        }
+        if (playerDataManager != null) {
+            playerDataManager.markSeen(player);
+        }
+        if (codeforcesPoller != null) {
+            codeforcesPoller.getPollTiers().onPlayerJoin(playerDataManager.getPlayerIdentifier(player));
+        }
+        if (rewardDistributor != null) {
+            rewardDistributor.onPlayerJoin(player);
+        }
+        if (solvedIndex != null && playerDataManager.isLinked(player)) {
+            solvedIndex.onPlayerOnline(playerDataManager.getCfHandle(player));
+        }
+    }
+
+    private void onPlayerLeave(ServerPlayerEntity player) {
+        if (!started) {
+            return;
+        }
+        if (playerDataManager != null) {
+            playerDataManager.markSeen(player);
+        }
+        if (codeforcesPoller != null) {
+            codeforcesPoller.getPollTiers().onPlayerLeave(playerDataManager.getPlayerIdentifier(player));
+        }
+        if (solvedIndex != null && playerDataManager.isLinked(player)) {
+            solvedIndex.onPlayerOffline(playerDataManager.getCfHandle(player));
+        }
+    }
+
+    private void onEndTick(MinecraftServer server) {
+        if (mainThreadQueue != null) {
+            mainThreadQueue.tick();
+        }
+    }
+
     private void onServerStopping(MinecraftServer server) {
         LOGGER.info("Đang dừng Codeforces Quest Mod...");
+        // A startup still queued behind the data loads must not run while draining below
+        stopping = true;
 
-        // Stop poller and scheduler first
-        if (codeforcesPoller != null) {
-            codeforcesPoller.stop();
+        // One budget for the whole phase; every blocking step below waits only for what is left
+        long shutdownStart = System.nanoTime();
+        Deadline deadline = Deadline.after(configStore.current().getPerformance().getShutdownTimeoutSeconds() * 1000L);
+
+        // Stop timers, poller and scheduler first
+        if (timerWheel != null) {
+            timerWheel.stop(deadline);
         }
+        CompletableFuture<Void> inFlight = codeforcesPoller != null
+                ? codeforcesPoller.stop(deadline)
+                : CompletableFuture.completedFuture(null);
         if (questScheduler != null) {
-            questScheduler.stop();
+            questScheduler.stop(deadline);
+        }
+
+        // Let in-flight polls land: their results (poll processing, solve verification) are
+        // applied through the main thread queue, so keep draining it while waiting
+        if (mainThreadQueue != null) {
+            while (!inFlight.isDone() && !deadline.isExpired()) {
+                mainThreadQueue.drainAll();
+                try {
+                    inFlight.get(Math.min(20, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException | ExecutionException | CancellationException e) {
+                    // Keep draining until done or out of time
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (!inFlight.isDone()) {
+                LOGGER.warn("Hết thời gian chờ poll đang chạy, bỏ qua kết quả muộn");
+                codeforcesPoller.cancelInFlight();
+            }
+
+            // Apply anything still queued for the main thread (poll results, quest end)
+            mainThreadQueue.drainAll();
+        }
+
+        if (handleVerifier != null) {
+            handleVerifier.shutdown();
+        }
+        if (problemCatalog != null) {
+            problemCatalog.shutdown();
+        }
+
+        // Let the history subscriber write out the last ended quest before the flush below
+        if (questEvents != null) {
+            questEvents.shutdown(deadline);
+        }
+        if (webhookNotifier != null) {
+            webhookNotifier.shutdown(deadline);
         }
 
         // Shutdown API client
         CodeforcesAPI.shutdown();
+        if (traceRecorder != null) {
+            CodeforcesAPI.setResponseListener(null);
+            traceRecorder.close(deadline);
+        }
 
-        // Save quest state
+        // Flush every store in parallel; each write is atomic, so a store cut off by the
+        // deadline keeps its previous file
+        Map<String, Runnable> flushes = new LinkedHashMap<>();
         if (questManager != null && questManager.hasActiveQuest()) {
-            questManager.saveActiveQuest();
+            flushes.put("active_quest", questManager::saveActiveQuest);
+        }
+        if (codeforcesPoller != null) {
+            flushes.put("poller_state", codeforcesPoller::saveCheckpoint);
         }
-
-        // Save history
         if (questHistory != null) {
-            questHistory.save();
+            flushes.put("history", questHistory::save);
+        }
+        if (solvedIndex != null) {
+            flushes.put("solved_index", () -> solvedIndex.shutdown(deadline));
+        }
+        if (rewardMailbox != null) {
+            flushes.put("pending_rewards", () -> rewardMailbox.shutdown(deadline));
         }
-
-        // Shutdown player data manager (handles its own save)
         if (playerDataManager != null) {
-            playerDataManager.shutdown();
+            flushes.put("players", () -> playerDataManager.shutdown(deadline));
         }
 
-        LOGGER.info("Codeforces Quest Mod đã dừng.");
+        List<String> unfinished = DataFiles.flushAll(flushes, deadline);
+        if (!unfinished.isEmpty()) {
+            LOGGER.warn("Hết thời gian lưu dữ liệu khi tắt server: {}", unfinished);
+        }
+
+        Metrics.SHUTDOWN.observeNanosSince(shutdownStart);
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+        if (webApiServer != null) {
+            webApiServer.stop();
+            scoreboardStream.shutdown();
+        }
+
+        LOGGER.info("Codeforces Quest Mod đã dừng ({} ms).", (System.nanoTime() - shutdownStart) / 1_000_000);
     }
 
     public static CFQuestMod getInstance() {
@@ -123,8 +388,94 @@ public class CFQuestMod implements DedicatedServerModInitializer {
         return server;
     }
 
+    /**
+     * @return whether the data stores are loaded and the services are running (server thread);
+     *         until then commands must not touch quest or player state
+     */
+    public boolean isStarted() {
+        return started;
+    }
+
+    /**
+     * @return the current config snapshot; do not cache it across operations, a reload replaces it
+     */
     public ModConfig getConfig() {
-        return config;
+        return configStore.current();
+    }
+
+    /**
+     * Re-read config.json and apply it to the running components (server thread).
+     * The active quest, its timers and the poller's diff state are kept.
+     *
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is invalid; the current config stays in place
+     */
+    public ConfigSnapshot reloadConfig() throws IOException {
+        ModConfig previous = configStore.current();
+        ConfigSnapshot snapshot = configStore.reload();
+        ModConfig config = snapshot.config();
+
+        mainThreadQueue.setTickBudgetMillis(config.getPerformance().getTickBudgetMillis());
+        handleVerifier.setWindowMillis(config.getCodeforces().getHandleBatchWindowMillis());
+        problemCatalog.setRefreshHours(config.getSchedule().getCatalogRefreshHours());
+        rewardManager.reload();
+        codeforcesPoller.reconfigure();
+
+        if (config.getSchedule().isEnabled()) {
+            problemCatalog.start();
+        }
+        questScheduler.reconfigure();
+
+        if (!sameMetricsConfig(previous.getMetrics(), config.getMetrics())) {
+            metricsExporter.stop();
+            metricsExporter.start();
+        }
+        if (!sameWebConfig(previous.getWeb(), config.getWeb())) {
+            webApiServer.stop();
+            webApiServer.start();
+        }
+
+        if (previous.getPerformance().getTimerTickMillis() != config.getPerformance().getTimerTickMillis()) {
+            LOGGER.warn("performance.timerTickMillis chỉ có hiệu lực sau khi restart server");
+        }
+        if (previous.getCodeforces().isRecordTrace() != config.getCodeforces().isRecordTrace()) {
+            LOGGER.warn("codeforces.recordTrace chỉ có hiệu lực sau khi restart server");
+        }
+        if (!sameWebhookEndpoints(previous.getWebhooks(), config.getWebhooks())) {
+            LOGGER.warn("webhooks.endpoints chỉ có hiệu lực sau khi restart server");
+        }
+
+        LOGGER.info("Đã reload cấu hình (phiên bản {})", snapshot.version());
+        return snapshot;
+    }
+
+    private static boolean sameMetricsConfig(ModConfig.MetricsConfig a, ModConfig.MetricsConfig b) {
+        return a.getHttpPort() == b.getHttpPort()
+                && a.getDumpIntervalSeconds() == b.getDumpIntervalSeconds()
+                && Objects.equals(a.getHttpHost(), b.getHttpHost());
+    }
+
+    private static boolean sameWebConfig(ModConfig.WebConfig a, ModConfig.WebConfig b) {
+        // corsOrigin is read per request
+        return a.getHttpPort() == b.getHttpPort() && Objects.equals(a.getHttpHost(), b.getHttpHost());
+    }
+
+    private static boolean sameWebhookEndpoints(ModConfig.WebhookConfig a, ModConfig.WebhookConfig b) {
+        List<ModConfig.WebhookEndpoint> left = a.getEndpoints();
+        List<ModConfig.WebhookEndpoint> right = b.getEndpoints();
+        if (left.size() != right.size()) {
+            return false;
+        }
+        for (int i = 0; i < left.size(); i++) {
+            ModConfig.WebhookEndpoint x = left.get(i);
+            ModConfig.WebhookEndpoint y = right.get(i);
+            if (!Objects.equals(x.getName(), y.getName()) || !Objects.equals(x.getUrl(), y.getUrl())
+                    || !Objects.equals(x.getFormat(), y.getFormat())
+                    || x.getMinIntervalMillis() != y.getMinIntervalMillis()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public PlayerDataManager getPlayerDataManager() {
@@ -143,11 +494,43 @@ public class CFQuestMod implements DedicatedServerModInitializer {
         return codeforcesPoller;
     }
 
+    public HandleVerifier getHandleVerifier() {
+        return handleVerifier;
+    }
+
+    public ProblemCatalog getProblemCatalog() {
+        return problemCatalog;
+    }
+
+    public SolvedProblemIndex getSolvedIndex() {
+        return solvedIndex;
+    }
+
     public RewardManager getRewardManager() {
         return rewardManager;
     }
 
+    public RewardDistributor getRewardDistributor() {
+        return rewardDistributor;
+    }
+
     public QuestHistory getQuestHistory() {
         return questHistory;
     }
+
+    public QuestEventBus getQuestEvents() {
+        return questEvents;
+    }
+
+    public TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
+    public MainThreadQueue getMainThreadQueue() {
+        return mainThreadQueue;
+    }
+
+    public MetricsExporter getMetricsExporter() {
+        return metricsExporter;
+    }
 }
@@ -8,41 +8,40 @@ import com.hieu.cfquest.CFQuestMod;
 import com.hieu.cfquest.api.model.Contest;
 import com.hieu.cfquest.api.model.Problem;
 import com.hieu.cfquest.api.model.Submission;
+import com.hieu.cfquest.config.ConfigStore;
 import com.hieu.cfquest.config.ModConfig;
+import com.hieu.cfquest.metrics.Metrics;
 
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Codeforces API client với các tối ưu:
- * - Shared HttpClient (thread-safe, connection pooling)
+ * - Shared HttpTransport (HTTP/2, keep-alive, gzip giải nén dạng stream vào JSON parser)
  * - Dedicated executor để không block server thread
  * - Non-blocking rate limiting
  * - Proper resource cleanup
+ * - Cache danh sách bài theo contest (TTL ngắn)
+ * - Metrics cho latency, rate limit queue và payload size
+ * - Tùy chọn ghi lại request/response (trace) để replay offline; replay thay transport bằng một {@link Backend}
  */
 public class CodeforcesAPI {
     private static final String BASE_URL = "https://codeforces.com/api";
     private static final Gson GSON = new Gson();
-    private static final long MIN_REQUEST_INTERVAL_MS = 2000; // CF rate limit: 1 req/2s
-
-    // Shared HttpClient - thread-safe, reuses connections
-    private static final HttpClient HTTP_CLIENT = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .executor(Executors.newFixedThreadPool(2, r -> {
-                Thread t = new Thread(r, "CFQuest-HTTP");
-                t.setDaemon(true);
-                return t;
-            }))
-            .build();
+    private static final Pattern MISSING_HANDLE =
+            Pattern.compile("User with handle (\\S+) not found");
+
+    // Shared transport - thread-safe, reuses connections
+    private static final HttpTransport TRANSPORT = new HttpTransport(Duration.ofSeconds(10));
 
     // Dedicated executor for API calls - prevents blocking server threads
     private static final ExecutorService API_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
@@ -54,56 +53,151 @@ public class CodeforcesAPI {
     // Rate limiting with atomic operations (thread-safe)
     private static final AtomicLong lastRequestTime = new AtomicLong(0);
     private static final Semaphore rateLimitSemaphore = new Semaphore(1);
+    private static final AtomicInteger rateLimitQueueDepth = new AtomicInteger(0);
+    // Acquisitions not yet picked up by the API thread; failed at shutdown so no caller waits forever
+    private static final Set<CompletableFuture<Void>> pendingSlots = ConcurrentHashMap.newKeySet();
+
+    // Problem list per contest rarely changes; avoids a full standings download per /cf quest start
+    private static final long PROBLEM_CACHE_TTL_MS = 10 * 60 * 1000;
+    private static final ConcurrentHashMap<Integer, CachedProblems> problemCache = new ConcurrentHashMap<>();
+
+    public record CachedProblems(List<Problem> problems, long fetchedAt) {
+        boolean isFresh() {
+            return System.currentTimeMillis() - fetchedAt < PROBLEM_CACHE_TTL_MS;
+        }
+    }
 
-    private final ModConfig config;
+    static {
+        Metrics.REGISTRY.gauge("cfquest_api_ratelimit_queue_depth",
+                "Requests waiting for a Codeforces rate-limit slot", rateLimitQueueDepth::get);
+        Metrics.REGISTRY.gauge("cfquest_api_cache_entries",
+                "Contests with a cached problem list", problemCache::size);
+    }
+
+    /**
+     * Answers requests instead of the network, e.g. from a recorded trace.
+     */
+    @FunctionalInterface
+    public interface Backend {
+        /**
+         * @return the response envelope (status OK or FAILED), or null for a failed request
+         */
+        CompletableFuture<JsonObject> send(String method, Map<String, String> params);
+    }
+
+    /**
+     * Sees every live response; called on the decode thread, so it must not block.
+     */
+    @FunctionalInterface
+    public interface ResponseListener {
+        /**
+         * @param params   request parameters without credentials
+         * @param envelope the parsed envelope, or null if the request failed
+         */
+        void onResponse(String method, Map<String, String> params, long sentAt, long receivedAt,
+                        JsonObject envelope);
+    }
+
+    private static volatile ResponseListener responseListener;
+
+    private final ConfigStore config;
+    private final Backend backend;
     private volatile boolean shutdown = false;
 
-    public CodeforcesAPI(ModConfig config) {
+    public CodeforcesAPI(ConfigStore config) {
+        this(config, null);
+    }
+
+    /**
+     * @param backend answers every request instead of the network (no rate limit); null for live
+     */
+    public CodeforcesAPI(ConfigStore config, Backend backend) {
         this.config = config;
+        this.backend = backend;
+    }
+
+    /**
+     * Register the listener for live responses of every client (null to remove).
+     */
+    public static void setResponseListener(ResponseListener listener) {
+        responseListener = listener;
     }
 
     /**
-     * Shutdown API client - call when mod unloads
+     * Shutdown API client - call when mod unloads, after the poller's in-flight requests have
+     * been drained; anything still waiting for a rate-limit slot is cancelled.
      */
     public static void shutdown() {
-        API_EXECUTOR.shutdown();
-        try {
-            if (!API_EXECUTOR.awaitTermination(5, TimeUnit.SECONDS)) {
-                API_EXECUTOR.shutdownNow();
+        API_EXECUTOR.shutdownNow();
+        for (CompletableFuture<Void> slot : pendingSlots) {
+            if (pendingSlots.remove(slot)) {
+                rateLimitQueueDepth.decrementAndGet();
+                slot.completeExceptionally(new CancellationException("Codeforces API client is shut down"));
             }
-        } catch (InterruptedException e) {
-            API_EXECUTOR.shutdownNow();
-            Thread.currentThread().interrupt();
         }
+        TRANSPORT.shutdown();
+    }
+
+    /**
+     * @return requests currently waiting for a rate-limit slot; background work yields while non-zero
+     */
+    public static int getRateLimitQueueDepth() {
+        return rateLimitQueueDepth.get();
     }
 
     /**
      * Non-blocking rate limit wait using semaphore
      */
     private CompletableFuture<Void> acquireRateLimit() {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                rateLimitSemaphore.acquire();
-                long now = System.currentTimeMillis();
-                long lastTime = lastRequestTime.get();
-                long waitTime = MIN_REQUEST_INTERVAL_MS - (now - lastTime);
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        pendingSlots.add(slot);
+        rateLimitQueueDepth.incrementAndGet();
+        long queuedAt = System.nanoTime();
 
-                if (waitTime > 0) {
-                    Thread.sleep(waitTime);
+        try {
+            API_EXECUTOR.execute(() -> {
+                // Whoever removes the slot owns it: this task, or shutdown() failing it
+                if (!pendingSlots.remove(slot)) {
+                    return;
                 }
-                lastRequestTime.set(System.currentTimeMillis());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                try {
+                    try {
+                        rateLimitSemaphore.acquire();
+                    } finally {
+                        rateLimitQueueDepth.decrementAndGet();
+                    }
+                    long now = System.currentTimeMillis();
+                    long lastTime = lastRequestTime.get();
+                    long minInterval = config.current().getCodeforces().getMinRequestIntervalMillis();
+                    long waitTime = minInterval - (now - lastTime);
+
+                    if (waitTime > 0) {
+                        Thread.sleep(waitTime);
+                    }
+                    lastRequestTime.set(System.currentTimeMillis());
+                    Metrics.API_RATE_LIMIT_WAIT.observeNanosSince(queuedAt);
+                    slot.complete(null);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    slot.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (pendingSlots.remove(slot)) {
+                rateLimitQueueDepth.decrementAndGet();
             }
-        }, API_EXECUTOR);
+            slot.completeExceptionally(e);
+        }
+        return slot;
     }
 
     private void releaseRateLimit() {
         rateLimitSemaphore.release();
     }
 
-    private String generateApiSig(String methodName, Map<String, String> params) {
-        if (!config.getCodeforces().hasCredentials()) {
+    private String generateApiSig(ModConfig.CodeforcesConfig credentials, String methodName,
+                                  Map<String, String> params) {
+        if (!credentials.hasCredentials()) {
             return null;
         }
 
@@ -111,7 +205,7 @@ public class CodeforcesAPI {
         long time = System.currentTimeMillis() / 1000;
 
         TreeMap<String, String> sortedParams = new TreeMap<>(params);
-        sortedParams.put("apiKey", config.getCodeforces().getApiKey());
+        sortedParams.put("apiKey", credentials.getApiKey());
         sortedParams.put("time", String.valueOf(time));
 
         StringBuilder paramString = new StringBuilder();
@@ -122,7 +216,7 @@ public class CodeforcesAPI {
             paramString.append(entry.getKey()).append("=").append(entry.getValue());
         }
 
-        String toHash = rand + "/" + methodName + "?" + paramString + "#" + config.getCodeforces().getApiSecret();
+        String toHash = rand + "/" + methodName + "?" + paramString + "#" + credentials.getApiSecret();
 
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-512");
@@ -143,12 +237,14 @@ public class CodeforcesAPI {
 
         TreeMap<String, String> allParams = new TreeMap<>(params);
 
-        if (config.getCodeforces().hasCredentials()) {
+        // Key and secret from the same snapshot, even if a reload lands meanwhile
+        ModConfig.CodeforcesConfig credentials = config.current().getCodeforces();
+        if (credentials.hasCredentials()) {
             long time = System.currentTimeMillis() / 1000;
-            allParams.put("apiKey", config.getCodeforces().getApiKey());
+            allParams.put("apiKey", credentials.getApiKey());
             allParams.put("time", String.valueOf(time));
 
-            String apiSig = generateApiSig(method, params);
+            String apiSig = generateApiSig(credentials, method, params);
             if (apiSig != null) {
                 allParams.put("apiSig", apiSig);
             }
@@ -169,65 +265,135 @@ public class CodeforcesAPI {
     }
 
     private CompletableFuture<JsonObject> makeRequest(String method, Map<String, String> params) {
+        return sendRequest(method, params).thenApply(json -> {
+            if (json == null) {
+                return null;
+            }
+
+            if (!"OK".equals(json.get("status").getAsString())) {
+                CFQuestMod.LOGGER.error("CF API Error: {}", getComment(json));
+                return null;
+            }
+
+            return json;
+        });
+    }
+
+    /**
+     * Perform a request and return the parsed envelope whether its status is OK or FAILED.
+     * Returns null for transport, HTTP or parse errors.
+     */
+    private CompletableFuture<JsonObject> sendRequest(String method, Map<String, String> params) {
         if (shutdown) {
             return CompletableFuture.completedFuture(null);
         }
+        if (backend != null) {
+            return backend.send(method, params);
+        }
 
         return acquireRateLimit()
                 .thenCompose(v -> {
                     String url = buildUrl(method, params);
                     CFQuestMod.LOGGER.debug("CF API Request: {}", method);
 
-                    HttpRequest request = HttpRequest.newBuilder()
-                            .uri(URI.create(url))
-                            .timeout(Duration.ofSeconds(30))
-                            .GET()
-                            .build();
+                    long startNanos = System.nanoTime();
+                    long sentAt = System.currentTimeMillis();
 
-                    return HTTP_CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                            .thenApply(response -> {
+                    return TRANSPORT.get(URI.create(url), Duration.ofSeconds(30))
+                            .thenApplyAsync(response -> {
                                 releaseRateLimit();
-
-                                if (response.statusCode() != 200) {
-                                    CFQuestMod.LOGGER.error("CF API Error: HTTP {}", response.statusCode());
-                                    return null;
-                                }
-
-                                try {
-                                    JsonObject json = GSON.fromJson(response.body(), JsonObject.class);
-
-                                    if (json == null || !json.has("status")) {
-                                        CFQuestMod.LOGGER.error("CF API Error: Invalid response");
-                                        return null;
-                                    }
-
-                                    if (!"OK".equals(json.get("status").getAsString())) {
-                                        String comment = json.has("comment") ? json.get("comment").getAsString() : "Unknown error";
-                                        CFQuestMod.LOGGER.error("CF API Error: {}", comment);
-                                        return null;
-                                    }
-
-                                    return json;
-                                } catch (Exception e) {
-                                    CFQuestMod.LOGGER.error("CF API Parse Error: {}", e.getMessage());
-                                    return null;
-                                }
-                            });
+                                JsonObject json = readEnvelope(method, response, startNanos);
+                                notifyListener(method, params, sentAt, json);
+                                return json;
+                            }, TRANSPORT.getDecodeExecutor());
                 })
                 .exceptionally(e -> {
                     releaseRateLimit();
+                    Metrics.apiRequests(method, "failed").inc();
                     CFQuestMod.LOGGER.error("CF API Request failed: {}", e.getMessage());
+                    notifyListener(method, params, System.currentTimeMillis(), null);
                     return null;
                 });
     }
 
+    private static void notifyListener(String method, Map<String, String> params, long sentAt, JsonObject json) {
+        ResponseListener listener = responseListener;
+        if (listener != null) {
+            try {
+                listener.onResponse(method, params, sentAt, System.currentTimeMillis(), json);
+            } catch (Exception e) {
+                CFQuestMod.LOGGER.error("Lỗi khi ghi trace API: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Runs on the decode thread and never throws: the rate-limit slot is already released.
+     */
+    private static JsonObject readEnvelope(String method, HttpTransport.Response response, long startNanos) {
+        // Codeforces answers FAILED requests with HTTP 400 and a JSON envelope
+        if (response.statusCode() != 200 && response.statusCode() != 400) {
+            response.discard();
+            CFQuestMod.LOGGER.error("CF API Error: HTTP {}", response.statusCode());
+            recordRequest(method, "http_error", startNanos);
+            return null;
+        }
+
+        try {
+            JsonObject json;
+            try {
+                json = response.readJson();
+            } finally {
+                Metrics.apiWireBytes(method).add(response.getWireBytes());
+                Metrics.apiResponseBytes(method).add(response.getDecodedBytes());
+                if ("contest.standings".equals(method)) {
+                    Metrics.STANDINGS_BYTES.observe(response.getDecodedBytes());
+                }
+            }
+
+            if (json == null || !json.has("status")) {
+                CFQuestMod.LOGGER.error("CF API Error: Invalid response");
+                recordRequest(method, "invalid", startNanos);
+                return null;
+            }
+
+            boolean ok = "OK".equals(json.get("status").getAsString());
+            recordRequest(method, ok ? "ok" : "api_error", startNanos);
+            return json;
+        } catch (Exception e) {
+            CFQuestMod.LOGGER.error("CF API Parse Error: {}", e.getMessage());
+            recordRequest(method, "parse_error", startNanos);
+            return null;
+        }
+    }
+
+    private static String getComment(JsonObject json) {
+        return json.has("comment") ? json.get("comment").getAsString() : "Unknown error";
+    }
+
+    private static void recordRequest(String method, String outcome, long startNanos) {
+        Metrics.apiLatency(method).observeNanosSince(startNanos);
+        Metrics.apiRequests(method, outcome).inc();
+    }
+
     public CompletableFuture<List<Submission>> getUserSubmissions(String handle, int count) {
+        return getUserSubmissions(handle, 1, count)
+                .thenApply(submissions -> submissions != null ? submissions : Collections.emptyList());
+    }
+
+    /**
+     * One page of {@code user.status}, newest first. {@code from} is 1-based.
+     *
+     * @return the page, or null if the request failed (so paging callers can tell failure from the end)
+     */
+    public CompletableFuture<List<Submission>> getUserSubmissions(String handle, int from, int count) {
         Map<String, String> params = new HashMap<>();
         params.put("handle", handle);
+        params.put("from", String.valueOf(from));
         params.put("count", String.valueOf(count));
 
         return makeRequest("user.status", params).thenApply(json -> {
-            if (json == null) return Collections.emptyList();
+            if (json == null) return null;
 
             List<Submission> submissions = new ArrayList<>();
             JsonArray result = json.getAsJsonArray("result");
@@ -276,6 +442,13 @@ public class CodeforcesAPI {
     }
 
     public CompletableFuture<List<Problem>> getContestProblems(int contestId) {
+        CachedProblems cached = problemCache.get(contestId);
+        if (cached != null && cached.isFresh()) {
+            Metrics.API_CACHE_HITS.inc();
+            return CompletableFuture.completedFuture(copyProblems(cached.problems()));
+        }
+        Metrics.API_CACHE_MISSES.inc();
+
         Map<String, String> params = new HashMap<>();
         params.put("contestId", String.valueOf(contestId));
 
@@ -291,10 +464,40 @@ public class CodeforcesAPI {
                 problems.add(problem);
             }
 
-            return problems;
+            if (!problems.isEmpty()) {
+                problemCache.put(contestId, new CachedProblems(problems, System.currentTimeMillis()));
+            }
+
+            // Callers may mutate (e.g. rating override) so never hand out the cached instances
+            return copyProblems(problems);
         });
     }
 
+    /**
+     * @return the cached problem list for a contest (fresh or not), or null
+     */
+    public CachedProblems peekProblemCache(int contestId) {
+        CachedProblems cached = problemCache.get(contestId);
+        return cached != null ? new CachedProblems(copyProblems(cached.problems()), cached.fetchedAt()) : null;
+    }
+
+    /**
+     * Restore a problem list from a checkpoint; kept only while it is still within the TTL.
+     */
+    public void primeProblemCache(int contestId, CachedProblems cached) {
+        if (cached != null && cached.problems() != null && !cached.problems().isEmpty() && cached.isFresh()) {
+            problemCache.putIfAbsent(contestId, cached);
+        }
+    }
+
+    private static List<Problem> copyProblems(List<Problem> problems) {
+        List<Problem> copies = new ArrayList<>(problems.size());
+        for (Problem problem : problems) {
+            copies.add(problem.copy());
+        }
+        return copies;
+    }
+
     public CompletableFuture<Problem> getProblem(int contestId, String index) {
         return getContestProblems(contestId).thenApply(problems -> {
             for (Problem problem : problems) {
@@ -306,11 +509,90 @@ public class CodeforcesAPI {
         });
     }
 
+    /**
+     * Full {@code problemset.problems} dataset: every problem plus its solved count.
+     *
+     * @return the problemset, or null on failure
+     */
+    public CompletableFuture<Problemset> getProblemset() {
+        return makeRequest("problemset.problems", new HashMap<>()).thenApply(json -> {
+            if (json == null) return null;
+
+            JsonObject result = json.getAsJsonObject("result");
+            Problemset problemset = new Problemset();
+
+            for (JsonElement element : result.getAsJsonArray("problems")) {
+                problemset.problems.add(GSON.fromJson(element, Problem.class));
+            }
+
+            for (JsonElement element : result.getAsJsonArray("problemStatistics")) {
+                JsonObject stats = element.getAsJsonObject();
+                if (stats.has("contestId") && stats.has("index")) {
+                    problemset.solvedCounts.put(stats.get("contestId").getAsInt() + "/" + stats.get("index").getAsString(),
+                            stats.has("solvedCount") ? stats.get("solvedCount").getAsInt() : 0);
+                }
+            }
+
+            return problemset;
+        });
+    }
+
     public CompletableFuture<Boolean> verifyHandle(String handle) {
+        return lookupHandles(List.of(handle)).thenApply(lookup -> lookup != null && lookup.isOk());
+    }
+
+    /**
+     * One {@code user.info} call for many handles. Codeforces fails the whole request if any
+     * handle does not exist; in that case the offending handle is reported in
+     * {@link HandleLookup#getMissingHandle()} so the caller can drop it and retry.
+     *
+     * @return the lookup, or null on transport/parse errors
+     */
+    public CompletableFuture<HandleLookup> lookupHandles(Collection<String> handles) {
         Map<String, String> params = new HashMap<>();
-        params.put("handles", handle);
+        params.put("handles", String.join(";", handles));
 
-        return makeRequest("user.info", params).thenApply(json -> json != null);
+        return sendRequest("user.info", params).thenApply(json -> {
+            if (json == null) return null;
+
+            if (!"OK".equals(json.get("status").getAsString())) {
+                String comment = getComment(json);
+                Matcher matcher = MISSING_HANDLE.matcher(comment);
+                if (matcher.find()) {
+                    return HandleLookup.missing(matcher.group(1));
+                }
+                CFQuestMod.LOGGER.error("CF API Error: {}", comment);
+                return null;
+            }
+
+            Map<String, String> found = new HashMap<>();
+            for (JsonElement element : json.getAsJsonArray("result")) {
+                String canonical = element.getAsJsonObject().get("handle").getAsString();
+                found.put(canonical.toLowerCase(), canonical);
+            }
+            return HandleLookup.ok(found);
+        });
+    }
+
+    /**
+     * Poll standings for {@code handles} and diff them through {@code engine}.
+     *
+     * @return change events since the engine's previous snapshot, or null on failure
+     */
+    public CompletableFuture<List<StandingsEvent>> getStandingsEvents(int contestId, Set<String> handles,
+                                                                      StandingsDiffEngine engine) {
+        Map<String, String> params = new HashMap<>();
+        params.put("contestId", String.valueOf(contestId));
+        params.put("showUnofficial", "true");
+
+        if (!handles.isEmpty()) {
+            params.put("handles", String.join(";", handles));
+        }
+
+        return makeRequest("contest.standings", params).thenApply(json -> {
+            if (json == null) return null;
+            return engine.apply(json.getAsJsonObject("result"), handles);
+        });
     }
 
     public CompletableFuture<Map<String, StandingsEntry>> getContestStandings(int contestId, Set<String> handles) {
@@ -329,6 +611,7 @@ public class CodeforcesAPI {
             JsonObject result = json.getAsJsonObject("result");
             JsonArray rows = result.getAsJsonArray("rows");
             JsonArray problems = result.getAsJsonArray("problems");
+            Metrics.STANDINGS_ROWS.add(rows.size());
 
             for (JsonElement rowElement : rows) {
                 JsonObject row = rowElement.getAsJsonObject();
@@ -371,6 +654,45 @@ public class CodeforcesAPI {
         this.shutdown = true;
     }
 
+    public static class Problemset {
+        public final List<Problem> problems = new ArrayList<>();
+        // "contestId/index" → solvedCount
+        public final Map<String, Integer> solvedCounts = new HashMap<>();
+    }
+
+    public static class HandleLookup {
+        private final Map<String, String> found;
+        private final String missingHandle;
+
+        private HandleLookup(Map<String, String> found, String missingHandle) {
+            this.found = found;
+            this.missingHandle = missingHandle;
+        }
+
+        static HandleLookup ok(Map<String, String> found) {
+            return new HandleLookup(found, null);
+        }
+
+        static HandleLookup missing(String handle) {
+            return new HandleLookup(Collections.emptyMap(), handle);
+        }
+
+        public boolean isOk() {
+            return missingHandle == null;
+        }
+
+        /**
+         * Lowercase handle → canonical handle, for every handle that exists.
+         */
+        public Map<String, String> getFound() {
+            return found;
+        }
+
+        public String getMissingHandle() {
+            return missingHandle;
+        }
+    }
+
     public static class StandingsEntry {
         public String handle;
         public int rank;
@@ -1,16 +1,37 @@
 package com.hieu.cfquest.api;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.hieu.cfquest.CFQuestMod;
-import com.hieu.cfquest.config.ModConfig;
+import com.hieu.cfquest.api.model.Problem;
+import com.hieu.cfquest.api.model.Submission;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.engine.EngineClock;
+import com.hieu.cfquest.engine.MainThreadExecutor;
+import com.hieu.cfquest.metrics.Metrics;
 import com.hieu.cfquest.quest.Quest;
 import com.hieu.cfquest.quest.QuestManager;
+import com.hieu.cfquest.storage.DataFiles;
 import com.hieu.cfquest.storage.PlayerDataManager;
-import net.minecraft.server.MinecraftServer;
-
+import com.hieu.cfquest.storage.SolvedProblemIndex;
+import com.hieu.cfquest.util.Deadline;
+import com.hieu.cfquest.util.HandleDictionary;
+import com.hieu.cfquest.util.IntIntMap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -20,26 +41,73 @@ import java.util.concurrent.TimeUnit;
  *
  * Optimizations:
  * - Chạy trên dedicated daemon thread
- * - Sử dụng server.execute() cho Minecraft operations
+ * - Áp dụng kết quả qua main-thread executor (MainThreadQueue có budget mỗi tick trên server)
  * - Không block server tick
+ * - Standings được diff với lần poll trước; quest logic chỉ xử lý các event thay đổi
+ * - Chỉ hỏi standings cho người chơi theo tier (online mỗi chu kỳ, gần đây mỗi N chu kỳ, còn lại khi kết thúc)
+ * - Checkpoint trạng thái diff, chu kỳ và danh sách bài của contest vào poller_state.json: sau restart
+ *   poll đầu tiên tiếp tục diff thay vì coi mọi dòng standings là mới
+ * - Quest theo lịch bắt đầu diff từ standings đã prefetch, không phải từ bảng rỗng
  */
 public class CodeforcesPoller {
-    private final ModConfig config;
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private final Path dataDir;
+    private final EngineClock clock;
+    private final ConfigStore config;
     private final QuestManager questManager;
     private final PlayerDataManager playerDataManager;
     private final CodeforcesAPI api;
-    private final MinecraftServer server;
+    private final MainThreadExecutor mainThread;
+    private final SolvedProblemIndex solvedIndex;
+    private final PollTiers pollTiers;
+
+    // Standings polls (incl. their solve verifications) that have not been applied yet
+    private final Set<CompletableFuture<Void>> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Handles whose solve is being checked against submission times
+    private final Set<String> verifying = ConcurrentHashMap.newKeySet();
+    // Handles whose pre-quest rejected attempts are being counted from their submissions
+    private final Set<String> countingRejects = ConcurrentHashMap.newKeySet();
+
+    // Main thread only, for baselineQuest: standings rejected count per handle id (latest, and
+    // the part of it made before the quest started)
+    private final IntIntMap reportedRejected = new IntIntMap();
+    private final IntIntMap rejectedBaseline = new IntIntMap();
+    private Quest baselineQuest;
+
+    // Diff state for the active quest; replaced when a new quest starts
+    private StandingsDiffEngine engine;
+    private Quest engineQuest;
+    // Standings prefetched for the next quest; its engine starts from them
+    private StandingsSeed pendingSeed;
+
+    private record StandingsSeed(int contestId, String problemIndex, List<StandingsDiffEngine.Row> rows) {
+    }
 
     private ScheduledExecutorService executor;
     private ScheduledFuture<?> pollTask;
     private volatile boolean running = false;
-
-    public CodeforcesPoller(ModConfig config, QuestManager questManager, PlayerDataManager playerDataManager) {
+    private long cycle = 0; // poller thread only
+    private int intervalSeconds;
+    // Set when a cycle produced events; the checkpoint is written at the start of the next cycle
+    private volatile boolean checkpointDirty = false;
+
+    /**
+     * @param dataDir the {@code cfquest} data directory
+     */
+    public CodeforcesPoller(Path dataDir, EngineClock clock, MainThreadExecutor mainThread, ConfigStore config,
+                            CodeforcesAPI api, QuestManager questManager, PlayerDataManager playerDataManager,
+                            SolvedProblemIndex solvedIndex) {
+        this.dataDir = dataDir;
+        this.clock = clock;
+        this.mainThread = mainThread;
         this.config = config;
+        this.api = api;
         this.questManager = questManager;
         this.playerDataManager = playerDataManager;
-        this.api = new CodeforcesAPI(config);
-        this.server = CFQuestMod.getInstance().getServer();
+        this.solvedIndex = solvedIndex;
+        this.pollTiers = new PollTiers(playerDataManager, config);
     }
 
     public void start() {
@@ -48,19 +116,42 @@ public class CodeforcesPoller {
         }
 
         running = true;
+        restoreCheckpoint();
         executor = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "CFQuest-Poller");
             t.setDaemon(true);
             return t;
         });
 
-        int intervalSeconds = config.getCodeforces().getPollIntervalSeconds();
+        intervalSeconds = Math.max(1, config.current().getCodeforces().getPollIntervalSeconds());
         pollTask = executor.scheduleAtFixedRate(this::poll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
 
         CFQuestMod.LOGGER.info("Đã bắt đầu Codeforces Poller (interval: {}s)", intervalSeconds);
     }
 
-    public void stop() {
+    /**
+     * Apply a reloaded poll interval; the next poll runs one new interval from now. Diff state,
+     * tiers and in-flight polls are untouched. Server thread, like start/stop.
+     */
+    public void reconfigure() {
+        int interval = Math.max(1, config.current().getCodeforces().getPollIntervalSeconds());
+        if (!running || executor == null || pollTask == null || interval == intervalSeconds) {
+            return;
+        }
+
+        pollTask.cancel(false);
+        pollTask = executor.scheduleAtFixedRate(this::poll, interval, interval, TimeUnit.SECONDS);
+        CFQuestMod.LOGGER.info("Đổi interval của Codeforces Poller: {}s → {}s", intervalSeconds, interval);
+        intervalSeconds = interval;
+    }
+
+    /**
+     * Stop scheduling polls. Polls already sent keep running: their results reach the main
+     * thread through the main-thread executor, so the caller must keep draining it while it waits.
+     *
+     * @return a future that completes once every in-flight poll has been applied
+     */
+    public CompletableFuture<Void> stop(Deadline deadline) {
         running = false;
 
         if (pollTask != null) {
@@ -69,139 +160,567 @@ public class CodeforcesPoller {
         }
 
         if (executor != null) {
-            executor.shutdown();
-            try {
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+            deadline.awaitTermination(executor);
             executor = null;
         }
 
-        CFQuestMod.LOGGER.info("Đã dừng Codeforces Poller");
+        CFQuestMod.LOGGER.info("Đã dừng Codeforces Poller ({} poll đang chờ)", inFlight.size());
+        return CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Give up on polls that did not finish before the shutdown deadline; their late results
+     * are ignored.
+     */
+    public void cancelInFlight() {
+        for (CompletableFuture<Void> poll : inFlight) {
+            poll.cancel(false);
+        }
+        inFlight.clear();
     }
 
     public CodeforcesAPI getApi() {
         return api;
     }
 
-    private void poll() {
+    public PollTiers getPollTiers() {
+        return pollTiers;
+    }
+
+    /**
+     * Run one poll cycle on the calling thread, for a replay that drives the poller itself
+     * instead of calling {@link #start}.
+     *
+     * @return a future that completes once the cycle's results have been applied
+     */
+    public CompletableFuture<Void> runCycle() {
+        return poll();
+    }
+
+    /**
+     * Run the deadline poll for {@code quest} on the calling thread; the replay counterpart of
+     * {@link #finalPoll}.
+     */
+    public CompletableFuture<Void> runFinalPoll(Quest quest) {
+        return pollStandings(quest, PollTiers.Tier.COLD);
+    }
+
+    private CompletableFuture<Void> poll() {
+        if (checkpointDirty) {
+            saveCheckpoint();
+        }
+
         if (!questManager.hasActiveQuest()) {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         Quest quest = questManager.getActiveQuest();
 
-        // Check if quest has timed out
-        if (quest.isExpired()) {
-            CFQuestMod.LOGGER.info("Quest đã hết thời gian, đang kết thúc...");
-            questManager.endQuest(false);
-            return;
+        // The deadline timer owns expiry and runs its own final poll
+        if (quest.isExpired(clock.currentTimeMillis())) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // All winner slots filled: the quest closes through its final poll (started once)
+        if (quest.getWinners().size() >= config.current().getQuest().getMaxWinners()) {
+            questManager.finishQuest(quest);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Warm tier rides along every N-th cycle; cold tier waits for the final poll
+        int warmEvery = Math.max(1, config.current().getCodeforces().getWarmPollEveryCycles());
+        return pollStandings(quest, ++cycle % warmEvery == 0 ? PollTiers.Tier.WARM : PollTiers.Tier.HOT);
+    }
+
+    /**
+     * Run one last standings poll for a quest whose deadline has passed.
+     *
+     * @return a future that completes once the results have been applied on the main thread
+     *         (or immediately if the poller is not running)
+     */
+    public CompletableFuture<Void> finalPoll(Quest quest) {
+        ScheduledExecutorService exec = executor;
+        if (!running || exec == null) {
+            return CompletableFuture.completedFuture(null);
         }
 
-        // Check if all winner slots are filled
-        if (quest.getWinners().size() >= config.getQuest().getMaxWinners()) {
-            CFQuestMod.LOGGER.info("Đã đủ người thắng, đang kết thúc quest...");
-            questManager.endQuest(false);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        try {
+            exec.execute(() -> pollStandings(quest, PollTiers.Tier.COLD).whenComplete((v, e) -> done.complete(null)));
+        } catch (RejectedExecutionException e) {
+            done.complete(null);
+        }
+        return done;
+    }
+
+    private synchronized StandingsDiffEngine engineFor(Quest quest) {
+        if (engineQuest != quest) {
+            engine = new StandingsDiffEngine(HandleDictionary.GLOBAL, quest.getProblemIndex());
+            engineQuest = quest;
+
+            StandingsSeed seed = pendingSeed;
+            pendingSeed = null;
+            if (seed != null && seed.contestId() == quest.getContestId()
+                    && seed.problemIndex().equalsIgnoreCase(quest.getProblemIndex())) {
+                // Handles that had accepted in the seed are the quest's pre-solved ones; nothing to retry
+                engine.importRows(seed.rows());
+            }
+        }
+        return engine;
+    }
+
+    /**
+     * Hand over standings fetched while preparing a quest that is about to start: the quest's
+     * diff engine starts from these rows, so the first poll only reports what changed since
+     * then instead of every earlier reject and accept. Call before the quest starts.
+     */
+    public synchronized void seedStandings(int contestId, String problemIndex,
+                                           Map<String, CodeforcesAPI.StandingsEntry> standings) {
+        List<StandingsDiffEngine.Row> rows = new ArrayList<>(standings.size());
+        for (CodeforcesAPI.StandingsEntry entry : standings.values()) {
+            CodeforcesAPI.ProblemResult result = entry.problemResults.get(problemIndex);
+            if (result == null) {
+                continue;
+            }
+            StandingsDiffEngine.Row row = new StandingsDiffEngine.Row();
+            row.handle = entry.handle;
+            row.rank = entry.rank;
+            row.points = result.points;
+            row.rejected = result.rejectedAttemptCount;
+            row.bestTimeSeconds = result.bestSubmissionTimeSeconds;
+            rows.add(row);
+        }
+        pendingSeed = rows.isEmpty() ? null : new StandingsSeed(contestId, problemIndex, rows);
+    }
+
+    /**
+     * Poller state persisted between restarts; only valid for the quest named by {@link #quest}.
+     */
+    private static final class Checkpoint {
+        String quest;
+        long cycle;
+        List<StandingsDiffEngine.Row> rows = new ArrayList<>();
+        int contestId;
+        List<Problem> problems;
+        long problemsFetchedAt;
+    }
+
+    private static String questKey(Quest quest) {
+        return quest.getProblemIdentifier() + "@" + quest.getStartTime();
+    }
+
+    public void saveCheckpoint() {
+        checkpointDirty = false;
+        Path path = getCheckpointPath();
+
+        Quest quest;
+        StandingsDiffEngine diffEngine;
+        synchronized (this) {
+            quest = engineQuest;
+            diffEngine = engine;
+        }
+
+        try {
+            if (quest == null || quest != questManager.getActiveQuest()) {
+                Files.deleteIfExists(path);
+                return;
+            }
+
+            Checkpoint checkpoint = new Checkpoint();
+            checkpoint.quest = questKey(quest);
+            checkpoint.cycle = cycle;
+            checkpoint.rows = diffEngine.exportRows();
+            checkpoint.contestId = quest.getContestId();
+            CodeforcesAPI.CachedProblems cached = api.peekProblemCache(quest.getContestId());
+            if (cached != null) {
+                checkpoint.problems = cached.problems();
+                checkpoint.problemsFetchedAt = cached.fetchedAt();
+            }
+
+            DataFiles.writeString(path, GSON.toJson(checkpoint), "poller_state");
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi lưu trạng thái poller: {}", e.getMessage());
+        }
+    }
+
+    private void restoreCheckpoint() {
+        Path path = getCheckpointPath();
+        if (!Files.exists(path)) {
             return;
         }
 
-        // Get all linked handles that haven't won yet
+        Quest quest = questManager.getActiveQuest();
+        try {
+            Checkpoint checkpoint = GSON.fromJson(Files.readString(path), Checkpoint.class);
+            if (checkpoint == null || quest == null || !questKey(quest).equals(checkpoint.quest)) {
+                CFQuestMod.LOGGER.info("Trạng thái poller đã lưu không khớp quest hiện tại, bỏ qua.");
+                Files.deleteIfExists(path);
+                return;
+            }
+
+            if (checkpoint.problems != null && checkpoint.contestId == quest.getContestId()) {
+                api.primeProblemCache(checkpoint.contestId,
+                        new CodeforcesAPI.CachedProblems(checkpoint.problems, checkpoint.problemsFetchedAt));
+            }
+
+            StandingsDiffEngine diffEngine = engineFor(quest);
+            int pending = 0;
+            for (int handleId : diffEngine.importRows(checkpoint.rows)) {
+                // An accept seen before the restart may not have been verified yet; report it again
+                if (!quest.hasWon(handleId) && !quest.isPreSolved(handleId)) {
+                    diffEngine.retryAccept(handleId);
+                    pending++;
+                }
+            }
+            cycle = checkpoint.cycle;
+
+            CFQuestMod.LOGGER.info("Đã khôi phục trạng thái poller: {} dòng standings, {} AC chờ xác minh",
+                    checkpoint.rows.size(), pending);
+        } catch (IOException | JsonParseException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi tải trạng thái poller: {}", e.getMessage());
+        }
+    }
+
+    private Path getCheckpointPath() {
+        return dataDir.resolve("poller_state.json");
+    }
+
+    /**
+     * @param coldest the coldest tier included in this request
+     */
+    private CompletableFuture<Void> pollStandings(Quest quest, PollTiers.Tier coldest) {
+        // Linked handles that haven't won yet; handle id → slot in playerIds
         Set<String> handlesToCheck = new HashSet<>();
-        Map<String, String> linkedPlayers = playerDataManager.getAllLinkedPlayers();
+        PlayersByHandle players = new PlayersByHandle();
+        long now = clock.currentTimeMillis();
+        int[] tierCounts = new int[PollTiers.Tier.values().length];
 
-        for (Map.Entry<String, String> entry : linkedPlayers.entrySet()) {
+        for (Map.Entry<String, String> entry : playerDataManager.getAllLinkedPlayers().entrySet()) {
             String cfHandle = entry.getValue();
-            if (!quest.hasWon(cfHandle)) {
+            int handleId = HandleDictionary.GLOBAL.intern(cfHandle);
+            if (quest.hasWon(handleId) || quest.isPreSolved(handleId)) {
+                continue;
+            }
+
+            PollTiers.Tier tier = pollTiers.tierOf(entry.getKey(), quest, now);
+            if (tier.ordinal() <= coldest.ordinal()) {
                 handlesToCheck.add(cfHandle);
+                players.put(handleId, entry.getKey());
+                tierCounts[tier.ordinal()]++;
             }
         }
 
+        for (PollTiers.Tier tier : PollTiers.Tier.values()) {
+            Metrics.pollHandles(tier).add(tierCounts[tier.ordinal()]);
+        }
+
         if (handlesToCheck.isEmpty()) {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
+        StandingsDiffEngine diffEngine = engineFor(quest);
+
         // Poll contest standings
+        long cycleStart = System.nanoTime();
         try {
-            api.getContestStandings(quest.getContestId(), handlesToCheck)
-                    .thenAccept(standings -> processStandings(quest, standings, linkedPlayers))
+            CompletableFuture<Void> poll = api.getStandingsEvents(quest.getContestId(), handlesToCheck, diffEngine)
+                    .thenCompose(events -> processEvents(quest, diffEngine, events, players, cycleStart))
                     .exceptionally(e -> {
                         CFQuestMod.LOGGER.error("Lỗi khi poll standings: {}", e.getMessage());
                         return null;
                     });
+            inFlight.add(poll);
+            poll.whenComplete((v, e) -> inFlight.remove(poll));
+            return poll;
         } catch (Exception e) {
             CFQuestMod.LOGGER.error("Lỗi khi poll Codeforces: {}", e.getMessage());
+            return CompletableFuture.completedFuture(null);
         }
     }
 
-    private void processStandings(Quest quest, Map<String, CodeforcesAPI.StandingsEntry> standings,
-                                  Map<String, String> linkedPlayers) {
-        if (standings.isEmpty()) {
-            return;
+    private CompletableFuture<Void> processEvents(Quest quest, StandingsDiffEngine diffEngine,
+                                                  List<StandingsEvent> events, PlayersByHandle players,
+                                                  long cycleStart) {
+        if (events == null || events.isEmpty()) {
+            Metrics.POLL_CYCLE.observeNanosSince(cycleStart);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        checkpointDirty = true;
+
+        CompletableFuture<Void> applied = new CompletableFuture<>();
+
+        // Process on the main thread, which owns quest state
+        mainThread.submit("poll_process", () -> {
+            List<CompletableFuture<Void>> verifications = List.of();
+            try {
+                verifications = applyEvents(quest, diffEngine, events, players);
+            } finally {
+                Metrics.POLL_CYCLE.observeNanosSince(cycleStart);
+                // Final poll must also wait for solve verifications started by this cycle
+                CompletableFuture.allOf(verifications.toArray(new CompletableFuture[0]))
+                        .whenComplete((v, e) -> applied.complete(null));
+            }
+        });
+
+        return applied;
+    }
+
+    /**
+     * @return futures for solve verifications started by this cycle
+     */
+    private List<CompletableFuture<Void>> applyEvents(Quest quest, StandingsDiffEngine diffEngine,
+                                                      List<StandingsEvent> events,
+                                                      PlayersByHandle players) {
+        List<CompletableFuture<Void>> verifications = new ArrayList<>();
+        if (baselineQuest != quest) {
+            reportedRejected.clear();
+            rejectedBaseline.clear();
+            baselineQuest = quest;
         }
 
-        // Process on server main thread to ensure thread-safety for Minecraft operations
-        server.execute(() -> {
-            String problemIndex = quest.getProblemIndex();
+        for (StandingsEvent event : events) {
+            int handleId = event.handleId();
+            String playerUuid = players.get(handleId);
 
-            for (Map.Entry<String, String> entry : linkedPlayers.entrySet()) {
-                String playerUuid = entry.getKey();
-                String cfHandle = entry.getValue().toLowerCase();
+            // Skip handles we didn't ask about, or that won / solved before the quest meanwhile
+            if (playerUuid == null || quest.hasWon(handleId) || quest.isPreSolved(handleId)) {
+                continue;
+            }
 
-                // Skip if already won
-                if (quest.hasWon(cfHandle)) {
-                    continue;
+            String cfHandle = HandleDictionary.GLOBAL.handle(handleId);
+
+            switch (event.type()) {
+                case WRONG_ANSWER -> {
+                    reportedRejected.put(handleId, (int) event.value());
+                    int baseline = rejectedBaseline.get(handleId, -1);
+                    if (baseline >= 0) {
+                        applyRejected(quest, handleId, playerUuid, cfHandle);
+                    } else if (countingRejects.add(cfHandle)) {
+                        // Standings also count attempts from before the quest; split those off once
+                        verifications.add(countPreQuestRejects(quest, handleId, playerUuid, cfHandle));
+                    }
                 }
+                case ACCEPTED -> {
+                    // Standings only say "solved at some point"; check submission times before counting it
+                    if (verifying.add(cfHandle)) {
+                        verifications.add(verifySolve(quest, diffEngine, handleId, playerUuid, cfHandle));
+                    }
+                }
+                case RANK_CHANGED -> {
+                    // Not used by quest logic yet
+                }
+            }
+        }
+
+        return verifications;
+    }
+
+    /**
+     * Tell the player about rejected attempts made since the quest started, i.e. the ones that
+     * count towards the penalty. Main thread; needs the handle's baseline.
+     */
+    private void applyRejected(Quest quest, int handleId, String playerUuid, String cfHandle) {
+        int questRejected = reportedRejected.get(handleId, 0) - rejectedBaseline.get(handleId, 0);
+
+        // The quest's own count guards against re-reports (e.g. after a restart)
+        int currentWrongCount = quest.getPenaltyCount(handleId);
+        if (questRejected > currentWrongCount) {
+            quest.setPenaltyCount(handleId, questRejected);
+            questManager.notifyWrongAnswer(playerUuid, cfHandle, questRejected - currentWrongCount, questRejected);
+        }
+    }
 
-                CodeforcesAPI.StandingsEntry standingsEntry = standings.get(cfHandle);
-                if (standingsEntry == null) {
-                    continue;
+    /**
+     * Count the handle's rejected attempts from before the quest started, once per quest, then
+     * report the rest. If the submissions can't be fetched, the next rejected attempt tries again.
+     */
+    private CompletableFuture<Void> countPreQuestRejects(Quest quest, int handleId, String playerUuid,
+                                                         String cfHandle) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        api.getContestSubmissions(quest.getContestId(), cfHandle).whenComplete((submissions, error) -> {
+            int preQuest = error == null && submissions != null
+                    ? SolveCheck.rejectedBeforeQuest(submissions, quest)
+                    : -1;
+
+            mainThread.submit("poll_count_rejects", () -> {
+                try {
+                    if (preQuest >= 0 && baselineQuest == quest && questManager.getActiveQuest() == quest) {
+                        rejectedBaseline.put(handleId, preQuest);
+                        applyRejected(quest, handleId, playerUuid, cfHandle);
+                    }
+                } finally {
+                    countingRejects.remove(cfHandle);
+                    done.complete(null);
                 }
+            });
+        });
+
+        return done;
+    }
 
-                CodeforcesAPI.ProblemResult problemResult = standingsEntry.getProblemResult(problemIndex);
-                if (problemResult == null) {
-                    continue;
+    /**
+     * Look up the handle's submissions for the quest problem and record the solve only if the
+     * first accept was made after the quest started. Solve time and penalty are taken from the
+     * submissions themselves (bestSubmissionTimeSeconds is relative to the contest start, not
+     * the quest start).
+     */
+    private CompletableFuture<Void> verifySolve(Quest quest, StandingsDiffEngine diffEngine, int handleId,
+                                                String playerUuid, String cfHandle) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+
+        api.getContestSubmissions(quest.getContestId(), cfHandle).whenComplete((submissions, error) -> {
+            SolveCheck check = error == null && submissions != null
+                    ? SolveCheck.evaluate(submissions, quest)
+                    : SolveCheck.UNKNOWN;
+
+            if (check.outcome == SolveCheck.Outcome.UNKNOWN) {
+                diffEngine.retryAccept(handleId);
+            }
+
+            mainThread.submit("poll_verify_solve", () -> {
+                try {
+                    applySolveCheck(quest, playerUuid, cfHandle, check);
+                } finally {
+                    verifying.remove(cfHandle);
+                    done.complete(null);
                 }
+            });
+        });
+
+        return done;
+    }
 
-                // Check for new wrong answers
-                int currentWrongCount = quest.getPenaltyCount(cfHandle);
-                int newWrongCount = problemResult.rejectedAttemptCount;
+    private void applySolveCheck(Quest quest, String playerUuid, String cfHandle, SolveCheck check) {
+        if (questManager.getActiveQuest() != quest) {
+            return;
+        }
 
-                if (newWrongCount > currentWrongCount) {
-                    // New wrong answers detected
-                    int newWrongs = newWrongCount - currentWrongCount;
-                    quest.setPenaltyCount(cfHandle, newWrongCount);
+        String problemKey = SolvedProblemIndex.key(quest.getContestId(), quest.getProblemIndex());
+
+        switch (check.outcome) {
+            case PRE_QUEST -> {
+                quest.markPreSolved(cfHandle);
+                questManager.saveActiveQuest();
+                solvedIndex.recordSolve(cfHandle, problemKey);
+                CFQuestMod.LOGGER.info("Bỏ qua {}: đã giải bài này trước khi quest bắt đầu", cfHandle);
+            }
+            case ACCEPTED -> {
+                solvedIndex.recordSolve(cfHandle, problemKey);
 
-                    // Notify player about wrong answer
-                    questManager.notifyWrongAnswer(playerUuid, cfHandle, newWrongs, newWrongCount);
+                // Calculate penalty time
+                int penaltyMinutes = check.rejectedAttempts * config.current().getQuest().getPenaltyMinutes();
+
+                // Record the solve
+                int place = questManager.recordSolve(playerUuid, cfHandle, check.solveTimeSeconds, penaltyMinutes);
+
+                if (place > 0) {
+                    CFQuestMod.LOGGER.info("Người chơi {} ({}) đã giải bài! Hạng: {}, Thời gian: {}s, Phạt: {}m",
+                            playerUuid, cfHandle, place, check.solveTimeSeconds, penaltyMinutes);
                 }
+            }
+            case UNKNOWN -> {
+                // Submission list not available yet (API error or lag); the engine re-reports the
+                // accept on the next poll
+            }
+        }
+    }
+
+    private static final class SolveCheck {
+        enum Outcome { ACCEPTED, PRE_QUEST, UNKNOWN }
 
-                // Check if solved
-                if (problemResult.isSolved()) {
-                    long solveTimeSeconds = problemResult.bestSubmissionTimeSeconds;
+        static final SolveCheck UNKNOWN = new SolveCheck(Outcome.UNKNOWN, 0, 0);
 
-                    // Check if this submission was made after quest started
-                    long questStartTime = quest.getStartTime();
-                    long submissionAbsoluteTime = questStartTime + (solveTimeSeconds * 1000);
+        final Outcome outcome;
+        final long solveTimeSeconds;
+        final int rejectedAttempts;
+
+        private SolveCheck(Outcome outcome, long solveTimeSeconds, int rejectedAttempts) {
+            this.outcome = outcome;
+            this.solveTimeSeconds = solveTimeSeconds;
+            this.rejectedAttempts = rejectedAttempts;
+        }
 
-                    if (submissionAbsoluteTime >= questStartTime) {
-                        // Calculate penalty time
-                        int penaltyMinutes = newWrongCount * config.getQuest().getPenaltyMinutes();
+        static SolveCheck evaluate(List<Submission> submissions, Quest quest) {
+            long questStartSeconds = quest.getStartTime() / 1000;
+            int rejected = 0;
 
-                        // Record the solve
-                        int place = questManager.recordSolve(playerUuid, cfHandle, solveTimeSeconds, penaltyMinutes);
+            for (Submission submission : attempts(submissions, quest)) {
+                long created = submission.getCreationTimeSeconds();
 
-                        if (place > 0) {
-                            CFQuestMod.LOGGER.info("Người chơi {} ({}) đã giải bài! Hạng: {}, Thời gian: {}s, Phạt: {}m",
-                                    playerUuid, cfHandle, place, solveTimeSeconds, penaltyMinutes);
-                        }
+                if (submission.isAccepted()) {
+                    if (created < questStartSeconds) {
+                        return new SolveCheck(Outcome.PRE_QUEST, 0, 0);
                     }
+                    return new SolveCheck(Outcome.ACCEPTED, created - questStartSeconds, rejected);
+                }
+
+                if (created >= questStartSeconds && countsAsRejected(submission)) {
+                    rejected++;
                 }
             }
-        });
+
+            return UNKNOWN;
+        }
+
+        /**
+         * @return rejected attempts on the quest problem made before the quest started, counted
+         *         like standings do (up to the first accept)
+         */
+        static int rejectedBeforeQuest(List<Submission> submissions, Quest quest) {
+            long questStartSeconds = quest.getStartTime() / 1000;
+            int rejected = 0;
+
+            for (Submission submission : attempts(submissions, quest)) {
+                if (submission.isAccepted() || submission.getCreationTimeSeconds() >= questStartSeconds) {
+                    break;
+                }
+                if (countsAsRejected(submission)) {
+                    rejected++;
+                }
+            }
+            return rejected;
+        }
+
+        /**
+         * @return submissions on the quest problem, oldest first
+         */
+        private static List<Submission> attempts(List<Submission> submissions, Quest quest) {
+            List<Submission> attempts = new ArrayList<>();
+            for (Submission submission : submissions) {
+                if (submission.getProblem() != null
+                        && quest.getProblemIndex().equalsIgnoreCase(submission.getProblem().getIndex())) {
+                    attempts.add(submission);
+                }
+            }
+            attempts.sort(Comparator.comparingLong(Submission::getCreationTimeSeconds));
+            return attempts;
+        }
+
+        private static boolean countsAsRejected(Submission submission) {
+            // Codeforces rules: compilation errors and judging-in-progress don't add penalty
+            String verdict = submission.getVerdict();
+            return !submission.isPending() && !"COMPILATION_ERROR".equals(verdict) && !"SKIPPED".equals(verdict);
+        }
+    }
+
+    /**
+     * Player identifiers for one poll, keyed by handle id without boxing.
+     */
+    private static final class PlayersByHandle {
+        private final IntIntMap slots = new IntIntMap();
+        private final List<String> playerIds = new ArrayList<>();
+
+        void put(int handleId, String playerUuid) {
+            slots.put(handleId, playerIds.size());
+            playerIds.add(playerUuid);
+        }
+
+        String get(int handleId) {
+            int slot = slots.get(handleId, -1);
+            return slot >= 0 ? playerIds.get(slot) : null;
+        }
     }
 
     public void forcePoll() {
@@ -0,0 +1,187 @@
+package com.hieu.cfquest.api;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.metrics.Counter;
+import com.hieu.cfquest.metrics.Histogram;
+import com.hieu.cfquest.metrics.Metrics;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Batches Codeforces handle verification for /cf link.
+ *
+ * Optimizations:
+ * - Gom các yêu cầu trong một cửa sổ ngắn, bỏ trùng, rồi gọi một lần {@code user.info?handles=a;b;c}
+ * - Mỗi người chơi vẫn nhận future riêng
+ * - Cache kết quả (handle tồn tại: lâu, không tồn tại: ngắn)
+ */
+public class HandleVerifier {
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final long VALID_TTL_MS = 24 * 60 * 60 * 1000L;
+    private static final long INVALID_TTL_MS = 10 * 60 * 1000L;
+    private static final Pattern HANDLE_PATTERN = Pattern.compile("[A-Za-z0-9_.\\-]{1,64}");
+
+    private static final Counter CACHE_HITS = Metrics.REGISTRY.counter(
+            "cfquest_handle_verify_total", "Handle verifications by source", "source", "cache");
+    private static final Counter BATCHED = Metrics.REGISTRY.counter(
+            "cfquest_handle_verify_total", "Handle verifications by source", "source", "batch");
+    private static final Histogram BATCH_SIZE = Metrics.REGISTRY.histogram(
+            "cfquest_handle_verify_batch_size", "Distinct handles resolved per user.info call",
+            new double[]{1, 2, 5, 10, 25, 50, 100, 200});
+
+    private final CodeforcesAPI api;
+    private volatile long windowMillis;
+    private final ScheduledExecutorService executor;
+    private final ConcurrentHashMap<String, CachedHandle> cache = new ConcurrentHashMap<>();
+
+    // Lowercase handle → shared future for everyone waiting on it
+    private Map<String, CompletableFuture<Boolean>> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> flushTask;
+
+    private record CachedHandle(boolean exists, long checkedAt) {
+        boolean isFresh() {
+            long ttl = exists ? VALID_TTL_MS : INVALID_TTL_MS;
+            return System.currentTimeMillis() - checkedAt < ttl;
+        }
+    }
+
+    public HandleVerifier(CodeforcesAPI api, long windowMillis) {
+        this.api = api;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "CFQuest-HandleVerifier");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void setWindowMillis(long windowMillis) {
+        this.windowMillis = Math.max(0, windowMillis);
+    }
+
+    /**
+     * @return a future completing with whether the handle exists; completes exceptionally
+     *         if Codeforces could not be reached
+     */
+    public CompletableFuture<Boolean> verify(String handle) {
+        // Also keeps ';' out of the batched handles parameter
+        if (!HANDLE_PATTERN.matcher(handle).matches()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        String key = handle.toLowerCase();
+
+        CachedHandle cached = cache.get(key);
+        if (cached != null && cached.isFresh()) {
+            CACHE_HITS.inc();
+            return CompletableFuture.completedFuture(cached.exists());
+        }
+
+        synchronized (this) {
+            CompletableFuture<Boolean> future = pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+
+            if (pending.size() >= MAX_BATCH_SIZE) {
+                cancelFlushTask();
+                executor.execute(this::flush);
+            } else if (flushTask == null) {
+                flushTask = executor.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+            }
+
+            return future;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+
+        Map<String, CompletableFuture<Boolean>> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        failAll(batch, new IllegalStateException("Server đang tắt"));
+    }
+
+    private void cancelFlushTask() {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+            flushTask = null;
+        }
+    }
+
+    private void flush() {
+        Map<String, CompletableFuture<Boolean>> batch;
+        synchronized (this) {
+            flushTask = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        BATCHED.add(batch.size());
+        resolve(batch);
+    }
+
+    /**
+     * Resolve a batch, dropping one unknown handle per round trip until the rest succeed.
+     */
+    private void resolve(Map<String, CompletableFuture<Boolean>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        BATCH_SIZE.observe(batch.size());
+
+        api.lookupHandles(batch.keySet()).whenComplete((lookup, error) -> {
+            if (error != null || lookup == null) {
+                failAll(batch, new IllegalStateException("Không thể kết nối Codeforces"));
+                return;
+            }
+
+            if (!lookup.isOk()) {
+                String missing = lookup.getMissingHandle().toLowerCase();
+                Map<String, CompletableFuture<Boolean>> rest = new HashMap<>(batch);
+                CompletableFuture<Boolean> missingFuture = rest.remove(missing);
+
+                if (missingFuture == null) {
+                    // Comment named a handle we did not send; don't loop forever
+                    failAll(batch, new IllegalStateException("Phản hồi user.info không hợp lệ"));
+                    return;
+                }
+
+                complete(missing, missingFuture, false);
+                resolve(rest);
+                return;
+            }
+
+            for (Map.Entry<String, CompletableFuture<Boolean>> entry : batch.entrySet()) {
+                complete(entry.getKey(), entry.getValue(), lookup.getFound().containsKey(entry.getKey()));
+            }
+        });
+    }
+
+    private void complete(String key, CompletableFuture<Boolean> future, boolean exists) {
+        cache.put(key, new CachedHandle(exists, System.currentTimeMillis()));
+        future.complete(exists);
+    }
+
+    private static void failAll(Map<String, CompletableFuture<Boolean>> batch, Throwable error) {
+        if (!batch.isEmpty()) {
+            CFQuestMod.LOGGER.warn("Không thể xác minh {} handle: {}", batch.size(), error.getMessage());
+        }
+        for (CompletableFuture<Boolean> future : batch.values()) {
+            future.completeExceptionally(error);
+        }
+    }
+}
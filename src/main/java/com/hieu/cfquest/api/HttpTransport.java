@@ -0,0 +1,190 @@
+package com.hieu.cfquest.api;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.hieu.cfquest.metrics.Metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP transport for the Codeforces client.
+ *
+ * Optimizations:
+ * - HTTP/2 (tự fallback về HTTP/1.1); kết nối được giữ lại và dùng chung giữa các lần poll
+ * - Gửi {@code Accept-Encoding: gzip, deflate}; body được giải nén dạng stream thẳng vào JSON parser,
+ *   không có byte[]/String trung gian
+ * - Đếm byte trên dây (nén) và byte sau giải mã cho từng method
+ */
+public final class HttpTransport {
+    private final HttpClient client;
+    private final ExecutorService decodeExecutor;
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong decodedBytes = new AtomicLong();
+
+    public HttpTransport(Duration connectTimeout) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .executor(Executors.newFixedThreadPool(2, r -> {
+                    Thread t = new Thread(r, "CFQuest-HTTP");
+                    t.setDaemon(true);
+                    return t;
+                }))
+                .build();
+
+        // Reading a streamed body blocks, so keep it off the client's own threads
+        this.decodeExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "CFQuest-HTTP-Decode");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Metrics.REGISTRY.gauge("cfquest_api_compression_ratio",
+                "Decoded bytes per byte on the wire for Codeforces API responses", this::getCompressionRatio);
+    }
+
+    /**
+     * Send a GET and hand back the response once headers arrive; the body is still unread.
+     */
+    public CompletableFuture<Response> get(URI uri, Duration timeout) {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(timeout)
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET()
+                .build();
+
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(Response::new);
+    }
+
+    /**
+     * Executor for {@link Response#readJson}, which blocks while the body streams in.
+     */
+    public ExecutorService getDecodeExecutor() {
+        return decodeExecutor;
+    }
+
+    public void shutdown() {
+        decodeExecutor.shutdownNow();
+    }
+
+    public double getCompressionRatio() {
+        long wire = wireBytes.get();
+        return wire == 0 ? 0.0 : (double) decodedBytes.get() / wire;
+    }
+
+    public final class Response {
+        private final HttpResponse<InputStream> response;
+        private final CountingInputStream wire;
+        private CountingInputStream decoded;
+
+        private Response(HttpResponse<InputStream> response) {
+            this.response = response;
+            this.wire = new CountingInputStream(response.body());
+        }
+
+        public int statusCode() {
+            return response.statusCode();
+        }
+
+        /**
+         * Decode and parse the body in one streaming pass, then close it.
+         *
+         * @return the top-level JSON object, or null if the body is not an object
+         */
+        public JsonObject readJson() throws IOException {
+            try (InputStream raw = wire; InputStream body = decode(raw)) {
+                decoded = new CountingInputStream(body);
+                JsonReader reader = new JsonReader(new InputStreamReader(decoded, StandardCharsets.UTF_8));
+                JsonElement element = JsonParser.parseReader(reader);
+                return element.isJsonObject() ? element.getAsJsonObject() : null;
+            } finally {
+                wireBytes.addAndGet(getWireBytes());
+                decodedBytes.addAndGet(getDecodedBytes());
+            }
+        }
+
+        /**
+         * Release the connection without reading the body.
+         */
+        public void discard() {
+            try {
+                wire.close();
+            } catch (IOException ignored) {
+                // Nothing to recover
+            }
+        }
+
+        public long getWireBytes() {
+            return wire.count;
+        }
+
+        public long getDecodedBytes() {
+            return decoded != null ? decoded.count : 0;
+        }
+
+        private InputStream decode(InputStream body) throws IOException {
+            String encoding = response.headers().firstValue("Content-Encoding").orElse("identity")
+                    .trim().toLowerCase(Locale.ROOT);
+
+            return switch (encoding) {
+                case "gzip", "x-gzip" -> new GZIPInputStream(body, 16 * 1024);
+                // zlib-wrapped, as RFC 9110 specifies for "deflate"
+                case "deflate" -> new InflaterInputStream(body);
+                default -> body;
+            };
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
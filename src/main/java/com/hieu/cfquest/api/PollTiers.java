@@ -0,0 +1,61 @@
+package com.hieu.cfquest.api;
+
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.quest.Quest;
+import com.hieu.cfquest.storage.PlayerDataManager;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sorts linked players into polling tiers from join/leave events.
+ *
+ * Optimizations:
+ * - HOT (đang online, hoặc đã vào server kể từ khi quest bắt đầu): poll mọi chu kỳ
+ * - WARM (thấy gần đây): poll mỗi {@code warmPollEveryCycles} chu kỳ
+ * - COLD: chỉ kiểm tra ở lần poll cuối khi quest kết thúc
+ *
+ * A handle left out of a cycle keeps its last row in {@link StandingsDiffEngine}, so moving
+ * between tiers (or skipping WARM/COLD cycles) never reports it as new or as dropped.
+ * Keeps standings requests small on servers where most registered players are inactive.
+ */
+public class PollTiers {
+    public enum Tier { HOT, WARM, COLD }
+
+    private final PlayerDataManager playerDataManager;
+    private final ConfigStore config;
+    private final Set<String> online = ConcurrentHashMap.newKeySet();
+
+    public PollTiers(PlayerDataManager playerDataManager, ConfigStore config) {
+        this.playerDataManager = playerDataManager;
+        this.config = config;
+    }
+
+    public void onPlayerJoin(String identifier) {
+        online.add(identifier);
+    }
+
+    public void onPlayerLeave(String identifier) {
+        online.remove(identifier);
+    }
+
+    public Tier tierOf(String identifier, Quest quest, long now) {
+        if (online.contains(identifier)) {
+            return Tier.HOT;
+        }
+
+        PlayerDataManager.PlayerData data = playerDataManager.getPlayerDataByIdentifier(identifier);
+        if (data == null) {
+            return Tier.COLD;
+        }
+
+        // A fresh /cf link counts as being seen
+        long seen = Math.max(data.getLastSeen(), data.getLinkTime());
+        if (seen >= quest.getStartTime()) {
+            return Tier.HOT;
+        }
+
+        long warmMillis = config.current().getCodeforces().getWarmTierHours() * 60 * 60 * 1000L;
+        return now - seen <= warmMillis ? Tier.WARM : Tier.COLD;
+    }
+}
@@ -0,0 +1,213 @@
+package com.hieu.cfquest.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.hieu.cfquest.metrics.Counter;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.util.HandleDictionary;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Turns successive {@code contest.standings} responses for one problem into change events.
+ *
+ * Optimizations:
+ * - Standings lưu dạng cột (mảng primitive theo handle id) thay vì Map + HashMap mỗi entry
+ * - Hai snapshot được dùng luân phiên (double buffering): mỗi poll ghi đè snapshot cũ, không cấp phát lại
+ * - Chỉ phát ra event cho những gì thay đổi (WA mới, AC mới, đổi hạng); chỉ duyệt các row trả về
+ *   và các row được giữ lại từ snapshot trước
+ *
+ * Not thread-safe on its own; callers serialize {@link #apply} (the poller does so per quest).
+ */
+public final class StandingsDiffEngine {
+    private static final Counter WRONG_ANSWER_EVENTS = Metrics.REGISTRY.counter(
+            "cfquest_standings_events_total", "Standings change events by type", "type", "wrong_answer");
+    private static final Counter ACCEPTED_EVENTS = Metrics.REGISTRY.counter(
+            "cfquest_standings_events_total", "Standings change events by type", "type", "accepted");
+    private static final Counter RANK_EVENTS = Metrics.REGISTRY.counter(
+            "cfquest_standings_events_total", "Standings change events by type", "type", "rank_changed");
+
+    private final HandleDictionary handles;
+    private final String problemIndex;
+
+    private StandingsSnapshot current = new StandingsSnapshot();
+    private StandingsSnapshot spare = new StandingsSnapshot();
+
+    public StandingsDiffEngine(HandleDictionary handles, String problemIndex) {
+        this.handles = handles;
+        this.problemIndex = problemIndex;
+    }
+
+    /**
+     * Load a {@code contest.standings} result into the spare snapshot, diff it against the
+     * current one and swap.
+     *
+     * Handles that were not part of this request keep their last known row, so a handle that
+     * is only polled now and then (colder poll tiers) is diffed against that row instead of
+     * looking new every time it comes back.
+     *
+     * @param requestedHandles the {@code handles} filter of the request; empty = whole contest
+     * @return events in row order; empty if nothing changed or the problem is not in the result
+     */
+    public synchronized List<StandingsEvent> apply(JsonObject result, Collection<String> requestedHandles) {
+        JsonArray problems = result.getAsJsonArray("problems");
+        JsonArray rows = result.getAsJsonArray("rows");
+
+        int column = -1;
+        for (int i = 0; i < problems.size(); i++) {
+            if (problemIndex.equalsIgnoreCase(problems.get(i).getAsJsonObject().get("index").getAsString())) {
+                column = i;
+                break;
+            }
+        }
+        if (column < 0) {
+            return List.of();
+        }
+
+        Metrics.STANDINGS_ROWS.add(rows.size());
+
+        StandingsSnapshot next = spare;
+        next.clear();
+
+        for (JsonElement rowElement : rows) {
+            JsonObject row = rowElement.getAsJsonObject();
+            JsonArray members = row.getAsJsonObject("party").getAsJsonArray("members");
+            JsonArray problemResults = row.getAsJsonArray("problemResults");
+            if (members.size() == 0 || column >= problemResults.size()) {
+                continue;
+            }
+
+            int handleId = handles.intern(members.get(0).getAsJsonObject().get("handle").getAsString());
+            JsonObject cell = problemResults.get(column).getAsJsonObject();
+
+            next.put(handleId,
+                    row.get("rank").getAsInt(),
+                    cell.get("points").getAsDouble(),
+                    cell.get("rejectedAttemptCount").getAsInt(),
+                    cell.has("bestSubmissionTimeSeconds") ? cell.get("bestSubmissionTimeSeconds").getAsLong() : -1);
+        }
+
+        if (!requestedHandles.isEmpty()) {
+            carryForward(requestedHandles, next);
+        }
+
+        List<StandingsEvent> events = diff(current, next);
+
+        spare = current;
+        current = next;
+        return events;
+    }
+
+    private void carryForward(Collection<String> requestedHandles, StandingsSnapshot next) {
+        BitSet requested = new BitSet();
+        for (String handle : requestedHandles) {
+            requested.set(handles.intern(handle));
+        }
+
+        for (int i = 0; i < current.rowCount(); i++) {
+            int id = current.rowId(i);
+            if (!requested.get(id) && !next.contains(id)) {
+                next.put(id, current.rank(id), current.points(id), current.rejected(id), current.bestTimeSeconds(id));
+            }
+        }
+    }
+
+    /**
+     * Forget a reported accept so that the next {@link #apply} emits it again (e.g. when it
+     * could not be verified yet).
+     */
+    public synchronized void retryAccept(int handleId) {
+        current.forgetAccept(handleId);
+    }
+
+    /**
+     * Checkpoint form of one row of the current snapshot.
+     */
+    public static class Row {
+        String handle;
+        int rank;
+        double points;
+        int rejected;
+        long bestTimeSeconds;
+    }
+
+    public synchronized List<Row> exportRows() {
+        List<Row> rows = new ArrayList<>(current.rowCount());
+        for (int i = 0; i < current.rowCount(); i++) {
+            int id = current.rowId(i);
+            Row row = new Row();
+            row.handle = handles.handle(id);
+            row.rank = current.rank(id);
+            row.points = current.points(id);
+            row.rejected = current.rejected(id);
+            row.bestTimeSeconds = current.bestTimeSeconds(id);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Restore a checkpointed snapshot as the baseline for the next diff.
+     *
+     * @return handle ids whose accept was in the checkpoint
+     */
+    public synchronized List<Integer> importRows(List<Row> rows) {
+        current.clear();
+        List<Integer> accepted = new ArrayList<>();
+
+        for (Row row : rows) {
+            if (row.handle == null) {
+                continue;
+            }
+            int id = handles.intern(row.handle);
+            current.put(id, row.rank, row.points, row.rejected, row.bestTimeSeconds);
+            if (row.points > 0) {
+                accepted.add(id);
+            }
+        }
+        return accepted;
+    }
+
+    private static List<StandingsEvent> diff(StandingsSnapshot previous, StandingsSnapshot next) {
+        List<StandingsEvent> events = null;
+
+        for (int row = 0; row < next.rowCount(); row++) {
+            int id = next.rowId(row);
+            boolean known = previous.contains(id);
+
+            int oldRejected = known ? previous.rejected(id) : 0;
+            if (next.rejected(id) > oldRejected) {
+                events = add(events, new StandingsEvent(StandingsEvent.Type.WRONG_ANSWER, id,
+                        next.rejected(id), oldRejected));
+                WRONG_ANSWER_EVENTS.inc();
+            }
+
+            boolean wasSolved = known && previous.points(id) > 0;
+            if (next.points(id) > 0 && !wasSolved) {
+                events = add(events, new StandingsEvent(StandingsEvent.Type.ACCEPTED, id,
+                        next.bestTimeSeconds(id), known ? previous.bestTimeSeconds(id) : -1));
+                ACCEPTED_EVENTS.inc();
+            }
+
+            if (known && next.rank(id) != previous.rank(id)) {
+                events = add(events, new StandingsEvent(StandingsEvent.Type.RANK_CHANGED, id,
+                        next.rank(id), previous.rank(id)));
+                RANK_EVENTS.inc();
+            }
+        }
+
+        return events != null ? events : List.of();
+    }
+
+    private static List<StandingsEvent> add(List<StandingsEvent> events, StandingsEvent event) {
+        if (events == null) {
+            events = new ArrayList<>();
+        }
+        events.add(event);
+        return events;
+    }
+}
@@ -0,0 +1,13 @@
+package com.hieu.cfquest.api;
+
+/**
+ * A change between two consecutive standings snapshots for one handle.
+ *
+ * @param handleId {@link com.hieu.cfquest.util.HandleDictionary} id
+ * @param value    WRONG_ANSWER: total rejected attempts; ACCEPTED: best submission time (seconds
+ *                 from contest start); RANK_CHANGED: new rank
+ * @param previous the same quantity in the previous snapshot (0 / -1 if the handle was absent)
+ */
+public record StandingsEvent(Type type, int handleId, long value, long previous) {
+    public enum Type { WRONG_ANSWER, ACCEPTED, RANK_CHANGED }
+}
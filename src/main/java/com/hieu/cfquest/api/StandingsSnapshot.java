@@ -0,0 +1,99 @@
+package com.hieu.cfquest.api;
+
+import java.util.Arrays;
+
+/**
+ * One problem's column of a {@code contest.standings} response, stored as primitive arrays
+ * indexed by {@link com.hieu.cfquest.util.HandleDictionary} id.
+ *
+ * Only rows that came back in the response (or were carried forward from the previous
+ * snapshot) are present; {@link #clear()} resets exactly those rows so a snapshot can be
+ * refilled without reallocating.
+ */
+final class StandingsSnapshot {
+    private static final int ABSENT = -1;
+
+    private int[] rowIds = new int[16];
+    private int rowCount = 0;
+
+    // Columns by handle id; rank == ABSENT marks a handle missing from this snapshot
+    private int[] rank = new int[0];
+    private double[] points = new double[0];
+    private int[] rejected = new int[0];
+    private long[] bestTimeSeconds = new long[0];
+
+    void clear() {
+        for (int i = 0; i < rowCount; i++) {
+            rank[rowIds[i]] = ABSENT;
+        }
+        rowCount = 0;
+    }
+
+    void put(int handleId, int rowRank, double rowPoints, int rowRejected, long rowBestTime) {
+        ensureCapacity(handleId + 1);
+
+        if (rank[handleId] == ABSENT) {
+            if (rowCount == rowIds.length) {
+                rowIds = Arrays.copyOf(rowIds, rowCount * 2);
+            }
+            rowIds[rowCount++] = handleId;
+        }
+
+        rank[handleId] = rowRank;
+        points[handleId] = rowPoints;
+        rejected[handleId] = rowRejected;
+        bestTimeSeconds[handleId] = rowBestTime;
+    }
+
+    /**
+     * Make {@code handleId} look unsolved so the next diff reports its accept again.
+     */
+    void forgetAccept(int handleId) {
+        if (contains(handleId)) {
+            points[handleId] = 0;
+        }
+    }
+
+    boolean contains(int handleId) {
+        return handleId < rank.length && rank[handleId] != ABSENT;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    int rowId(int row) {
+        return rowIds[row];
+    }
+
+    int rank(int handleId) {
+        return rank[handleId];
+    }
+
+    double points(int handleId) {
+        return points[handleId];
+    }
+
+    int rejected(int handleId) {
+        return rejected[handleId];
+    }
+
+    long bestTimeSeconds(int handleId) {
+        return bestTimeSeconds[handleId];
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= rank.length) {
+            return;
+        }
+
+        int newLength = Math.max(capacity, Math.max(16, rank.length * 2));
+        int oldLength = rank.length;
+
+        rank = Arrays.copyOf(rank, newLength);
+        Arrays.fill(rank, oldLength, newLength, ABSENT);
+        points = Arrays.copyOf(points, newLength);
+        rejected = Arrays.copyOf(rejected, newLength);
+        bestTimeSeconds = Arrays.copyOf(bestTimeSeconds, newLength);
+    }
+}
@@ -65,6 +65,18 @@ public class Problem {
         this.tags = tags;
     }
 
+    public Problem copy() {
+        Problem copy = new Problem();
+        copy.contestId = contestId;
+        copy.index = index;
+        copy.name = name;
+        copy.type = type;
+        copy.points = points;
+        copy.rating = rating;
+        copy.tags = tags != null ? tags.clone() : null;
+        return copy;
+    }
+
     public String getProblemUrl() {
         return String.format("https://codeforces.com/contest/%d/problem/%s", contestId, index);
     }
@@ -2,6 +2,10 @@ package com.hieu.cfquest.command;
 
 import com.hieu.cfquest.CFQuestMod;
 import com.hieu.cfquest.api.model.Problem;
+import com.hieu.cfquest.config.ConfigSnapshot;
+import com.hieu.cfquest.metrics.Histogram;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.metrics.MetricsRegistry;
 import com.hieu.cfquest.quest.QuestManager;
 import com.hieu.cfquest.storage.PlayerDataManager;
 import com.mojang.brigadier.CommandDispatcher;
@@ -14,6 +18,8 @@ import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Map;
 
 public class CFAdminCommand {
@@ -58,25 +64,29 @@ public class CFAdminCommand {
                                         .requires(CFAdminCommand::hasAdminPermission)
                                         .then(CommandManager.argument("contestId", IntegerArgumentType.integer(1))
                                                 .then(CommandManager.argument("problemIndex", StringArgumentType.word())
-                                                        .executes(CFAdminCommand::executeStart)
+                                                        .executes(StartupGate.whenStarted(CFAdminCommand::executeStart))
                                                         .then(CommandManager.argument("timeout", IntegerArgumentType.integer(1, 180))
-                                                                .executes(CFAdminCommand::executeStartWithTimeout)
+                                                                .executes(StartupGate.whenStarted(CFAdminCommand::executeStartWithTimeout))
                                                                 .then(CommandManager.argument("rating", IntegerArgumentType.integer(800, 3500))
-                                                                        .executes(CFAdminCommand::executeStartWithRating)))))))
+                                                                        .executes(StartupGate.whenStarted(CFAdminCommand::executeStartWithRating)))))))
                                 .then(CommandManager.literal("stop")
                                         .requires(CFAdminCommand::hasAdminPermission)
-                                        .executes(CFAdminCommand::executeStop)))
+                                        .executes(StartupGate.whenStarted(CFAdminCommand::executeStop))))
                         .then(CommandManager.literal("admin")
                                 .requires(CFAdminCommand::hasAdminPermission)
                                 .then(CommandManager.literal("reload")
-                                        .executes(CFAdminCommand::executeReload))
+                                        .executes(StartupGate.whenStarted(CFAdminCommand::executeReload)))
                                 .then(CommandManager.literal("players")
-                                        .executes(CFAdminCommand::executeListPlayers))
+                                        .executes(StartupGate.whenStarted(CFAdminCommand::executeListPlayers)))
                                 .then(CommandManager.literal("forcepoll")
-                                        .executes(CFAdminCommand::executeForcePoll))
+                                        .executes(StartupGate.whenStarted(CFAdminCommand::executeForcePoll)))
+                                .then(CommandManager.literal("metrics")
+                                        .executes(StartupGate.whenStarted(CFAdminCommand::executeMetrics))
+                                        .then(CommandManager.literal("dump")
+                                                .executes(StartupGate.whenStarted(CFAdminCommand::executeMetricsDump))))
                                 .then(CommandManager.literal("unlink")
                                         .then(CommandManager.argument("player", StringArgumentType.word())
-                                                .executes(CFAdminCommand::executeAdminUnlink))))
+                                                .executes(StartupGate.whenStarted(CFAdminCommand::executeAdminUnlink)))))
         );
     }
 
@@ -114,14 +124,14 @@ public class CFAdminCommand {
                 .getProblem(contestId, problemIndex)
                 .thenAccept(problem -> {
                     if (problem == null) {
-                        source.getServer().execute(() -> {
+                        source.getServer().execute(Metrics.timed("command_quest_start", () -> {
                             source.sendError(Text.literal("Không tìm thấy bài " + problemIndex +
                                     " trong contest " + contestId));
-                        });
+                        }));
                         return;
                     }
 
-                    source.getServer().execute(() -> {
+                    source.getServer().execute(Metrics.timed("command_quest_start", () -> {
                         // Override rating if specified (for private contests without rating)
                         if (overrideRating > 0) {
                             problem.setRating(overrideRating);
@@ -140,12 +150,12 @@ public class CFAdminCommand {
                         } else {
                             source.sendError(Text.literal("Không thể bắt đầu quest!"));
                         }
-                    });
+                    }));
                 })
                 .exceptionally(e -> {
-                    source.getServer().execute(() -> {
+                    source.getServer().execute(Metrics.timed("command_quest_start", () -> {
                         source.sendError(Text.literal("Lỗi khi lấy thông tin bài: " + e.getMessage()));
-                    });
+                    }));
                     return null;
                 });
 
@@ -171,14 +181,17 @@ public class CFAdminCommand {
     private static int executeReload(CommandContext<ServerCommandSource> context) {
         ServerCommandSource source = context.getSource();
 
-        // Note: Full reload would require restarting managers
-        // For now, just inform the user
-        source.sendFeedback(() -> Text.literal("Để reload config, hãy restart server.")
-                .formatted(Formatting.YELLOW), false);
-        source.sendFeedback(() -> Text.literal("Config path: <world>/cfquest/config.json")
-                .formatted(Formatting.GRAY), false);
-
-        return 1;
+        try {
+            ConfigSnapshot snapshot = CFQuestMod.getInstance().reloadConfig();
+            source.sendFeedback(() -> Text.literal("Đã reload config (phiên bản " + snapshot.version() + ")")
+                    .formatted(Formatting.GREEN), true);
+            return 1;
+        } catch (IOException e) {
+            source.sendError(Text.literal("Không đọc được <world>/cfquest/config.json: " + e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            source.sendError(Text.literal("Config không hợp lệ, giữ nguyên cấu hình cũ: " + e.getMessage()));
+        }
+        return 0;
     }
 
     private static int executeListPlayers(CommandContext<ServerCommandSource> context) {
@@ -236,6 +249,80 @@ public class CFAdminCommand {
         return 1;
     }
 
+    private static int executeMetrics(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+
+        source.sendFeedback(() -> Text.literal("═══ CF Quest Metrics ═══")
+                .formatted(Formatting.GOLD, Formatting.BOLD), false);
+
+        sendHistogramFamily(source, "cfquest_api_request_seconds", "API ");
+        sendHistogramFamily(source, "cfquest_main_thread_task_seconds", "Tick ");
+        sendHistogramFamily(source, "cfquest_save_seconds", "Save ");
+
+        Histogram poll = Metrics.POLL_CYCLE;
+        source.sendFeedback(() -> Text.literal("Poll cycle: ")
+                .formatted(Formatting.WHITE)
+                .append(Text.literal(formatHistogram(poll))
+                        .formatted(Formatting.AQUA)), false);
+
+        String cacheLine = String.format("%.0f%% (%d hit / %d miss)", Metrics.getCacheHitRatio() * 100,
+                Metrics.API_CACHE_HITS.get(), Metrics.API_CACHE_MISSES.get());
+        source.sendFeedback(() -> Text.literal("Cache hit: ")
+                .formatted(Formatting.WHITE)
+                .append(Text.literal(cacheLine)
+                        .formatted(Formatting.AQUA)), false);
+
+        String standingsLine = Metrics.STANDINGS_ROWS.get() + " rows, "
+                + String.format("%.1f KB", Metrics.STANDINGS_BYTES.getAverage() / 1024) + " TB/response";
+        source.sendFeedback(() -> Text.literal("Standings: ")
+                .formatted(Formatting.WHITE)
+                .append(Text.literal(standingsLine)
+                        .formatted(Formatting.AQUA)), false);
+
+        source.sendFeedback(() -> Text.literal("Dùng /cf admin metrics dump để xuất file Prometheus.")
+                .formatted(Formatting.GRAY), false);
+
+        return 1;
+    }
+
+    private static void sendHistogramFamily(ServerCommandSource source, String familyName, String prefix) {
+        MetricsRegistry.Family family = Metrics.REGISTRY.getFamily(familyName);
+        if (family == null) {
+            return;
+        }
+
+        for (Map.Entry<String, Object> entry : family.getSeries().entrySet()) {
+            Histogram histogram = (Histogram) entry.getValue();
+            // Label string looks like method="user.info" -> show only the value
+            String label = entry.getKey().replaceAll("^[^=]*=\"|\"$", "");
+
+            source.sendFeedback(() -> Text.literal(prefix + label + ": ")
+                    .formatted(Formatting.WHITE)
+                    .append(Text.literal(formatHistogram(histogram))
+                            .formatted(Formatting.AQUA)), false);
+        }
+    }
+
+    private static String formatHistogram(Histogram histogram) {
+        return String.format("%d lần, TB %.2fms, max %.2fms, tổng %.1fms",
+                histogram.getCount(), histogram.getAverage() * 1000, histogram.getMax() * 1000,
+                histogram.getSum() * 1000);
+    }
+
+    private static int executeMetricsDump(CommandContext<ServerCommandSource> context) {
+        ServerCommandSource source = context.getSource();
+
+        try {
+            Path path = CFQuestMod.getInstance().getMetricsExporter().dump();
+            source.sendFeedback(() -> Text.literal("Đã xuất metrics: " + path)
+                    .formatted(Formatting.GREEN), false);
+            return 1;
+        } catch (IOException e) {
+            source.sendError(Text.literal("Lỗi khi xuất metrics: " + e.getMessage()));
+            return 0;
+        }
+    }
+
     private static int executeAdminUnlink(CommandContext<ServerCommandSource> context) {
         ServerCommandSource source = context.getSource();
         String playerName = StringArgumentType.getString(context, "player");
@@ -1,6 +1,7 @@
 package com.hieu.cfquest.command;
 
 import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.metrics.Metrics;
 import com.hieu.cfquest.storage.PlayerDataManager;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.arguments.StringArgumentType;
@@ -22,11 +23,11 @@ public class CFLinkCommand {
                 CommandManager.literal("cf")
                         .then(CommandManager.literal("link")
                                 .then(CommandManager.argument("handle", StringArgumentType.word())
-                                        .executes(CFLinkCommand::executeLink)))
+                                        .executes(StartupGate.whenStarted(CFLinkCommand::executeLink))))
                         .then(CommandManager.literal("unlink")
-                                .executes(CFLinkCommand::executeUnlink))
+                                .executes(StartupGate.whenStarted(CFLinkCommand::executeUnlink)))
                         .then(CommandManager.literal("status")
-                                .executes(CFLinkCommand::executeStatus))
+                                .executes(StartupGate.whenStarted(CFLinkCommand::executeStatus)))
         );
     }
 
@@ -64,35 +65,48 @@ public class CFLinkCommand {
         source.sendFeedback(() -> Text.literal("Đang xác minh tài khoản Codeforces...")
                 .formatted(Formatting.GRAY), false);
 
-        CFQuestMod.getInstance().getCodeforcesPoller().getApi().verifyHandle(handle)
-                .thenAccept(valid -> {
-                    if (valid) {
-                        // Link the account
-                        dataManager.linkPlayer(player, handle);
-
-                        source.getServer().execute(() -> {
-                            Text successMsg = Text.literal("Đã liên kết thành công với tài khoản Codeforces: ")
-                                    .formatted(Formatting.GREEN)
-                                    .append(Text.literal(handle)
-                                            .formatted(Formatting.AQUA, Formatting.BOLD)
-                                            .styled(style -> style
-                                                    .withClickEvent(new ClickEvent.OpenUrl(URI.create("https://codeforces.com/profile/" + handle)))
-                                                    .withHoverEvent(new HoverEvent.ShowText(Text.literal("Click để xem profile")))));
-
-                            player.sendMessage(successMsg, false);
-                        });
-                    } else {
-                        source.getServer().execute(() -> {
-                            player.sendMessage(Text.literal("Không tìm thấy tài khoản Codeforces: " + handle)
-                                    .formatted(Formatting.RED), false);
-                        });
+        CFQuestMod.getInstance().getHandleVerifier().verify(handle)
+                .thenAccept(valid -> source.getServer().execute(Metrics.timed("command_link", () -> {
+                    if (!valid) {
+                        player.sendMessage(Text.literal("Không tìm thấy tài khoản Codeforces: " + handle)
+                                .formatted(Formatting.RED), false);
+                        return;
+                    }
+
+                    // Checked again on the server thread: requests for one handle are merged into
+                    // one verification, so several players (or the same one twice) finish together
+                    if (dataManager.isLinked(player)) {
+                        player.sendMessage(Text.literal("Bạn đã liên kết với tài khoản: ")
+                                .formatted(Formatting.YELLOW)
+                                .append(Text.literal(dataManager.getCfHandle(player))
+                                        .formatted(Formatting.AQUA, Formatting.BOLD)), false);
+                        return;
+                    }
+                    if (dataManager.isHandleLinked(handle)) {
+                        player.sendMessage(Text.literal("Tài khoản Codeforces này đã được liên kết với người chơi khác!")
+                                .formatted(Formatting.RED), false);
+                        return;
                     }
-                })
+
+                    // Link the account
+                    dataManager.linkPlayer(player, handle);
+                    CFQuestMod.getInstance().getSolvedIndex().onPlayerOnline(handle);
+
+                    Text successMsg = Text.literal("Đã liên kết thành công với tài khoản Codeforces: ")
+                            .formatted(Formatting.GREEN)
+                            .append(Text.literal(handle)
+                                    .formatted(Formatting.AQUA, Formatting.BOLD)
+                                    .styled(style -> style
+                                            .withClickEvent(new ClickEvent.OpenUrl(URI.create("https://codeforces.com/profile/" + handle)))
+                                            .withHoverEvent(new HoverEvent.ShowText(Text.literal("Click để xem profile")))));
+
+                    player.sendMessage(successMsg, false);
+                })))
                 .exceptionally(e -> {
-                    source.getServer().execute(() -> {
+                    source.getServer().execute(Metrics.timed("command_link", () -> {
                         player.sendMessage(Text.literal("Lỗi khi xác minh tài khoản: " + e.getMessage())
                                 .formatted(Formatting.RED), false);
-                    });
+                    }));
                     return null;
                 });
 
@@ -117,6 +131,7 @@ public class CFLinkCommand {
 
         String oldHandle = dataManager.getCfHandle(player);
         dataManager.unlinkPlayer(player);
+        CFQuestMod.getInstance().getSolvedIndex().onPlayerOffline(oldHandle);
 
         source.sendFeedback(() -> Text.literal("Đã hủy liên kết với tài khoản: ")
                 .formatted(Formatting.YELLOW)
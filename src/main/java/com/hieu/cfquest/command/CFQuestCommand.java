@@ -25,11 +25,11 @@ public class CFQuestCommand {
                 CommandManager.literal("cf")
                         .then(CommandManager.literal("quest")
                                 .then(CommandManager.literal("info")
-                                        .executes(CFQuestCommand::executeInfo)))
+                                        .executes(StartupGate.whenStarted(CFQuestCommand::executeInfo))))
                         .then(CommandManager.literal("leaderboard")
-                                .executes(CFQuestCommand::executeLeaderboard))
+                                .executes(StartupGate.whenStarted(CFQuestCommand::executeLeaderboard)))
                         .then(CommandManager.literal("history")
-                                .executes(CFQuestCommand::executeHistory))
+                                .executes(StartupGate.whenStarted(CFQuestCommand::executeHistory)))
         );
     }
 
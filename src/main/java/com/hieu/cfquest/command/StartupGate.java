@@ -0,0 +1,26 @@
+package com.hieu.cfquest.command;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.mojang.brigadier.Command;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.Text;
+
+/**
+ * Commands are registered before the data stores finish loading. Until the mod has started,
+ * a command could start a quest the saved one then overwrites, or create a player entry the
+ * loaded players.json no longer replaces, so every command is refused until then.
+ */
+final class StartupGate {
+    private StartupGate() {
+    }
+
+    static Command<ServerCommandSource> whenStarted(Command<ServerCommandSource> command) {
+        return context -> {
+            if (!CFQuestMod.getInstance().isStarted()) {
+                context.getSource().sendError(Text.literal("Codeforces Quest Mod đang khởi động, vui lòng thử lại sau giây lát."));
+                return 0;
+            }
+            return command.run(context);
+        };
+    }
+}
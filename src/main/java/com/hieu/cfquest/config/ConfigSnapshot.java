@@ -0,0 +1,273 @@
+package com.hieu.cfquest.config;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.util.CronExpression;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One validated version of config.json.
+ *
+ * Pure data: nothing here touches Minecraft registries, so the config can be loaded headless
+ * (replay, tests). Minecraft-side structures such as the reward table are built from it by their
+ * owners and rebuilt on reload.
+ *
+ * A snapshot is built once and never modified afterwards: it holds its own deep copy of the
+ * parsed config (no setters, unmodifiable collections), so readers on any thread take the
+ * current one from {@link ConfigStore} and see a consistent config for the whole operation,
+ * and a reload publishes a new snapshot instead of editing the old one. Values that are costly
+ * to parse (cron expressions, time zones, webhook URIs) are parsed here, once per version.
+ */
+public final class ConfigSnapshot {
+    private final ModConfig config;
+    private final long version;
+    private final List<Schedule> schedules;
+    private final List<Webhook> webhooks;
+
+    /**
+     * A named quest schedule with its cron parsed and its zone resolved.
+     */
+    public record Schedule(String name, CronExpression cron, ZoneId zone, ModConfig.NamedSchedule settings) {
+    }
+
+    /**
+     * A webhook endpoint with its URL parsed.
+     */
+    public record Webhook(ModConfig.WebhookEndpoint settings, URI uri) {
+    }
+
+    ConfigSnapshot(ModConfig config, long version) {
+        this.config = config.frozenCopy();
+        this.version = version;
+        this.schedules = parseSchedules(this.config.getSchedule());
+        this.webhooks = parseWebhooks(this.config.getWebhooks());
+    }
+
+    public ModConfig config() {
+        return config;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return the quest schedules in config order; a config without named schedules yields one
+     *         {@code default} schedule from the legacy single-schedule fields
+     */
+    public List<Schedule> schedules() {
+        return schedules;
+    }
+
+    public List<Webhook> webhooks() {
+        return webhooks;
+    }
+
+    // Invalid entries are only possible at startup (reload rejects them) and were reported by validate
+    private static List<Schedule> parseSchedules(ModConfig.ScheduleConfig config) {
+        if (config == null) {
+            return List.of();
+        }
+
+        List<ModConfig.NamedSchedule> configured = config.getSchedules();
+        if (configured == null || configured.isEmpty()) {
+            configured = List.of(new ModConfig.NamedSchedule("default", config.getCron(), "", 0,
+                    config.getMinRating(), config.getMaxRating(), config.getTags(), config.getProblemPool()));
+        }
+
+        ZoneId defaultZone = parseZone(config.getTimezone(), ZoneId.systemDefault());
+        List<Schedule> schedules = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        for (ModConfig.NamedSchedule settings : configured) {
+            String name = settings.getName() != null && !settings.getName().isBlank()
+                    ? settings.getName() : "schedule-" + (schedules.size() + 1);
+
+            if (!names.add(name)) {
+                CFQuestMod.LOGGER.error("Trùng tên lịch '{}', bỏ qua", name);
+                continue;
+            }
+
+            try {
+                schedules.add(new Schedule(name, CronExpression.parse(settings.getCron()),
+                        parseZone(settings.getTimezone(), defaultZone), settings));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                CFQuestMod.LOGGER.error("Lỗi parse cron của lịch '{}': {}", name, e.getMessage());
+            }
+        }
+        return Collections.unmodifiableList(schedules);
+    }
+
+    private static ZoneId parseZone(String zoneId, ZoneId fallback) {
+        if (zoneId == null || zoneId.isBlank()) {
+            return fallback;
+        }
+        try {
+            return ZoneId.of(zoneId);
+        } catch (Exception e) {
+            CFQuestMod.LOGGER.error("Timezone không hợp lệ '{}', dùng {}", zoneId, fallback);
+            return fallback;
+        }
+    }
+
+    private static List<Webhook> parseWebhooks(ModConfig.WebhookConfig config) {
+        if (config == null || config.getEndpoints() == null) {
+            return List.of();
+        }
+
+        List<Webhook> webhooks = new ArrayList<>();
+        for (ModConfig.WebhookEndpoint endpoint : config.getEndpoints()) {
+            try {
+                webhooks.add(new Webhook(endpoint, new URI(endpoint.getUrl())));
+            } catch (URISyntaxException | NullPointerException e) {
+                // The URL itself is a secret: do not echo it back
+                CFQuestMod.LOGGER.error("Webhook {}: URL không hợp lệ, bỏ qua", endpoint.getName());
+            }
+        }
+        return Collections.unmodifiableList(webhooks);
+    }
+
+    /**
+     * @return human-readable problems; empty if the config can be applied
+     */
+    static List<String> validate(ModConfig config) {
+        List<String> problems = new ArrayList<>();
+
+        ModConfig.CodeforcesConfig codeforces = config.getCodeforces();
+        ModConfig.QuestConfig quest = config.getQuest();
+        ModConfig.ScheduleConfig schedule = config.getSchedule();
+        ModConfig.MetricsConfig metrics = config.getMetrics();
+        ModConfig.PerformanceConfig performance = config.getPerformance();
+        ModConfig.WebhookConfig webhooks = config.getWebhooks();
+        ModConfig.WebConfig web = config.getWeb();
+        if (codeforces == null || quest == null || config.getRewards() == null || schedule == null
+                || metrics == null || performance == null || webhooks == null || web == null) {
+            problems.add("thiếu một mục cấu hình (codeforces/quest/rewards/schedule/metrics/performance/webhooks/web)");
+            return problems;
+        }
+
+        check(problems, codeforces.getPollIntervalSeconds() >= 1, "codeforces.pollIntervalSeconds phải >= 1");
+        check(problems, codeforces.getMinRequestIntervalMillis() >= 0,
+                "codeforces.minRequestIntervalMillis phải >= 0");
+        check(problems, codeforces.getHandleBatchWindowMillis() >= 0,
+                "codeforces.handleBatchWindowMillis phải >= 0");
+        check(problems, codeforces.getWarmPollEveryCycles() >= 1, "codeforces.warmPollEveryCycles phải >= 1");
+        check(problems, codeforces.getWarmTierHours() >= 0, "codeforces.warmTierHours phải >= 0");
+
+        check(problems, quest.getDefaultTimeoutMinutes() >= 1, "quest.defaultTimeoutMinutes phải >= 1");
+        check(problems, quest.getMaxWinners() >= 1, "quest.maxWinners phải >= 1");
+        check(problems, quest.getPenaltyMinutes() >= 0, "quest.penaltyMinutes phải >= 0");
+
+        check(problems, schedule.getCatalogRefreshHours() >= 1, "schedule.catalogRefreshHours phải >= 1");
+        check(problems, schedule.getMaxSolvedFraction() >= 0 && schedule.getMaxSolvedFraction() <= 1,
+                "schedule.maxSolvedFraction phải trong khoảng 0-1");
+        checkZone(problems, "schedule.timezone", schedule.getTimezone());
+        if (schedule.isEnabled()) {
+            validateSchedules(problems, schedule);
+        }
+
+        check(problems, metrics.getHttpPort() >= 0 && metrics.getHttpPort() <= 65535,
+                "metrics.httpPort không hợp lệ");
+        check(problems, web.getHttpPort() >= 0 && web.getHttpPort() <= 65535, "web.httpPort không hợp lệ");
+        check(problems, web.getHttpPort() == 0 || web.getHttpPort() != metrics.getHttpPort(),
+                "web.httpPort trùng với metrics.httpPort");
+        check(problems, web.getMaxStreamClients() >= 0, "web.maxStreamClients phải >= 0");
+
+        check(problems, performance.getTickBudgetMillis() >= 1, "performance.tickBudgetMillis phải >= 1");
+        check(problems, performance.getTimerTickMillis() >= 1, "performance.timerTickMillis phải >= 1");
+        check(problems, performance.getShutdownTimeoutSeconds() >= 1,
+                "performance.shutdownTimeoutSeconds phải >= 1");
+
+        validateWebhooks(problems, webhooks);
+
+        return problems;
+    }
+
+    private static void validateWebhooks(List<String> problems, ModConfig.WebhookConfig webhooks) {
+        check(problems, webhooks.getCoalesceMillis() >= 0, "webhooks.coalesceMillis phải >= 0");
+        check(problems, webhooks.getQueueCapacity() >= 1, "webhooks.queueCapacity phải >= 1");
+        check(problems, webhooks.getMaxAttempts() >= 1, "webhooks.maxAttempts phải >= 1");
+        check(problems, webhooks.getMaxMessageAgeMinutes() >= 1, "webhooks.maxMessageAgeMinutes phải >= 1");
+
+        Set<String> names = new HashSet<>();
+        for (ModConfig.WebhookEndpoint endpoint : webhooks.getEndpoints()) {
+            String name = endpoint.getName();
+            String label = "webhooks.endpoints[" + name + "]";
+            if (name == null || !name.matches("[A-Za-z0-9_-]+")) {
+                problems.add(label + ": name chỉ được gồm chữ, số, '_' và '-'");
+            } else if (!names.add(name)) {
+                problems.add(label + ": trùng tên webhook");
+            }
+            checkWebhookUrl(problems, label + ".url", endpoint.getUrl());
+            check(problems, "discord".equals(endpoint.getFormat()) || "slack".equals(endpoint.getFormat()),
+                    label + ".format phải là discord hoặc slack");
+            check(problems, endpoint.getMinIntervalMillis() >= 0, label + ".minIntervalMillis phải >= 0");
+        }
+    }
+
+    private static void checkWebhookUrl(List<String> problems, String field, String url) {
+        try {
+            URI uri = new URI(url);
+            if (!"https".equals(uri.getScheme()) && !"http".equals(uri.getScheme()) || uri.getHost() == null) {
+                problems.add(field + ": phải là URL http(s)");
+            }
+        } catch (URISyntaxException | NullPointerException e) {
+            // The URL itself is a secret: do not echo it back
+            problems.add(field + ": URL không hợp lệ");
+        }
+    }
+
+    private static void validateSchedules(List<String> problems, ModConfig.ScheduleConfig schedule) {
+        if (schedule.getSchedules().isEmpty()) {
+            checkCron(problems, "schedule.cron", schedule.getCron());
+            checkRatings(problems, "schedule", schedule.getMinRating(), schedule.getMaxRating());
+            return;
+        }
+
+        Set<String> names = new HashSet<>();
+        for (ModConfig.NamedSchedule named : schedule.getSchedules()) {
+            String label = "schedule.schedules[" + named.getName() + "]";
+            if (named.getName() != null && !named.getName().isBlank() && !names.add(named.getName())) {
+                problems.add(label + ": trùng tên lịch");
+            }
+            checkCron(problems, label + ".cron", named.getCron());
+            checkZone(problems, label + ".timezone", named.getTimezone());
+            checkRatings(problems, label, named.getMinRating(), named.getMaxRating());
+        }
+    }
+
+    private static void checkCron(List<String> problems, String field, String cron) {
+        try {
+            CronExpression.parse(cron);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            problems.add(field + ": " + e.getMessage());
+        }
+    }
+
+    private static void checkZone(List<String> problems, String field, String zone) {
+        if (zone == null || zone.isBlank()) {
+            return;
+        }
+        try {
+            ZoneId.of(zone);
+        } catch (Exception e) {
+            problems.add(field + ": timezone không hợp lệ '" + zone + "'");
+        }
+    }
+
+    private static void checkRatings(List<String> problems, String field, int minRating, int maxRating) {
+        check(problems, maxRating <= 0 || minRating <= maxRating, field + ": minRating lớn hơn maxRating");
+    }
+
+    private static void check(List<String> problems, boolean ok, String problem) {
+        if (!ok) {
+            problems.add(problem);
+        }
+    }
+}
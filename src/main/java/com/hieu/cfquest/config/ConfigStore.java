@@ -0,0 +1,86 @@
+package com.hieu.cfquest.config;
+
+import com.google.gson.JsonParseException;
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.metrics.Counter;
+import com.hieu.cfquest.metrics.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link ConfigSnapshot}.
+ *
+ * Optimizations:
+ * - Đọc config chỉ là một lần đọc AtomicReference, không lock; mỗi thao tác lấy snapshot một lần
+ *   và dùng nhất quán
+ * - Reload parse + validate bên ngoài, chỉ swap reference khi mọi thứ hợp lệ
+ */
+public final class ConfigStore {
+    private static final Counter RELOAD_OK = Metrics.REGISTRY.counter(
+            "cfquest_config_reloads_total", "Config reloads by result", "result", "ok");
+    private static final Counter RELOAD_FAILED = Metrics.REGISTRY.counter(
+            "cfquest_config_reloads_total", "Config reloads by result", "result", "failed");
+
+    private final Path dataDir;
+    private final AtomicReference<ConfigSnapshot> current;
+
+    /**
+     * @param dataDir the {@code cfquest} data directory holding config.json
+     */
+    public ConfigStore(Path dataDir) {
+        this.dataDir = dataDir;
+
+        // At startup an invalid value is reported but still used, as before; only reload is strict
+        ModConfig config = ModConfig.load(dataDir);
+        for (String problem : ConfigSnapshot.validate(config)) {
+            CFQuestMod.LOGGER.error("Cấu hình không hợp lệ: {}", problem);
+        }
+        this.current = new AtomicReference<>(new ConfigSnapshot(config, 1));
+    }
+
+    public ConfigSnapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Shorthand for {@code snapshot().config()}.
+     */
+    public ModConfig current() {
+        return current.get().config();
+    }
+
+    /**
+     * Re-read config.json and publish it if it is valid. On any error the current snapshot
+     * stays in place.
+     *
+     * @return the published snapshot
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file does not parse or does not validate
+     */
+    public synchronized ConfigSnapshot reload() throws IOException {
+        try {
+            ModConfig config;
+            try {
+                config = ModConfig.read(dataDir);
+            } catch (JsonParseException e) {
+                throw new IllegalArgumentException("JSON không hợp lệ: " + e.getMessage(), e);
+            }
+
+            List<String> problems = ConfigSnapshot.validate(config);
+            if (!problems.isEmpty()) {
+                throw new IllegalArgumentException(String.join("; ", problems));
+            }
+
+            ConfigSnapshot next = new ConfigSnapshot(config, current.get().version() + 1);
+            current.set(next);
+            RELOAD_OK.inc();
+            return next;
+        } catch (IOException | RuntimeException e) {
+            RELOAD_FAILED.inc();
+            throw e;
+        }
+    }
+}
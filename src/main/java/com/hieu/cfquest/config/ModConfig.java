@@ -2,17 +2,24 @@ package com.hieu.cfquest.config;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.hieu.cfquest.CFQuestMod;
-import net.minecraft.server.MinecraftServer;
-import net.minecraft.util.WorldSavePath;
+import com.hieu.cfquest.storage.DataFiles;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * The config.json schema. Read-only once parsed: there are no setters, and the copy held by a
+ * {@link ConfigSnapshot} also has unmodifiable collections.
+ */
 public class ModConfig {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
 
@@ -20,68 +27,95 @@ public class ModConfig {
     private QuestConfig quest = new QuestConfig();
     private RewardsConfig rewards = new RewardsConfig();
     private ScheduleConfig schedule = new ScheduleConfig();
+    private MetricsConfig metrics = new MetricsConfig();
+    private PerformanceConfig performance = new PerformanceConfig();
+    private WebhookConfig webhooks = new WebhookConfig();
+    private WebConfig web = new WebConfig();
 
     public static class CodeforcesConfig {
         private String apiKey = "";
         private String apiSecret = "";
         private int pollIntervalSeconds = 30;
+        private int handleBatchWindowMillis = 500;
+        private int warmPollEveryCycles = 4;
+        private int warmTierHours = 72;
+        private int minRequestIntervalMillis = 2000;
+        private boolean recordTrace = false;
 
         public String getApiKey() {
             return apiKey;
         }
 
-        public void setApiKey(String apiKey) {
-            this.apiKey = apiKey;
-        }
-
         public String getApiSecret() {
             return apiSecret;
         }
 
-        public void setApiSecret(String apiSecret) {
-            this.apiSecret = apiSecret;
-        }
-
         public int getPollIntervalSeconds() {
             return pollIntervalSeconds;
         }
 
-        public void setPollIntervalSeconds(int pollIntervalSeconds) {
-            this.pollIntervalSeconds = pollIntervalSeconds;
-        }
-
         public boolean hasCredentials() {
             return apiKey != null && !apiKey.isEmpty() && apiSecret != null && !apiSecret.isEmpty();
         }
+
+        /**
+         * How long /cf link requests are collected before one batched user.info call.
+         */
+        public int getHandleBatchWindowMillis() {
+            return handleBatchWindowMillis;
+        }
+
+        /**
+         * Offline players seen within {@link #getWarmTierHours()} are polled every N-th cycle;
+         * online players every cycle; everyone else only at quest end.
+         */
+        public int getWarmPollEveryCycles() {
+            return warmPollEveryCycles;
+        }
+
+        public int getWarmTierHours() {
+            return warmTierHours;
+        }
+
+        /**
+         * Minimum spacing between Codeforces API requests (their limit is 1 request / 2s).
+         */
+        public int getMinRequestIntervalMillis() {
+            return minRequestIntervalMillis;
+        }
+
+        /**
+         * Record quests and their contest.* API responses to cfquest/traces for offline replay.
+         * Read at server start only.
+         */
+        public boolean isRecordTrace() {
+            return recordTrace;
+        }
     }
 
     public static class QuestConfig {
         private int defaultTimeoutMinutes = 60;
         private int penaltyMinutes = 20;
         private int maxWinners = 3;
+        private List<Integer> reminderMinutes = List.of(10, 5, 1);
 
         public int getDefaultTimeoutMinutes() {
             return defaultTimeoutMinutes;
         }
 
-        public void setDefaultTimeoutMinutes(int defaultTimeoutMinutes) {
-            this.defaultTimeoutMinutes = defaultTimeoutMinutes;
-        }
-
         public int getPenaltyMinutes() {
             return penaltyMinutes;
         }
 
-        public void setPenaltyMinutes(int penaltyMinutes) {
-            this.penaltyMinutes = penaltyMinutes;
-        }
-
         public int getMaxWinners() {
             return maxWinners;
         }
 
-        public void setMaxWinners(int maxWinners) {
-            this.maxWinners = maxWinners;
+        /**
+         * Minutes before the quest deadline at which a reminder is broadcast.
+         */
+        public List<Integer> getReminderMinutes() {
+            return reminderMinutes != null ? reminderMinutes : List.of();
         }
     }
 
@@ -106,18 +140,10 @@ public class ModConfig {
             return tiers;
         }
 
-        public void setTiers(Map<String, RewardTier> tiers) {
-            this.tiers = tiers;
-        }
-
         public Map<String, Double> getPlacementMultipliers() {
             return placementMultipliers;
         }
 
-        public void setPlacementMultipliers(Map<String, Double> placementMultipliers) {
-            this.placementMultipliers = placementMultipliers;
-        }
-
         public double getMultiplierForPlace(int place) {
             return placementMultipliers.getOrDefault(String.valueOf(place), 0.0);
         }
@@ -155,26 +181,14 @@ public class ModConfig {
             return minRating;
         }
 
-        public void setMinRating(int minRating) {
-            this.minRating = minRating;
-        }
-
         public List<String> getItems() {
             return items;
         }
 
-        public void setItems(List<String> items) {
-            this.items = items;
-        }
-
         public String getEffect() {
             return effect;
         }
 
-        public void setEffect(String effect) {
-            this.effect = effect;
-        }
-
         public boolean hasEffect() {
             return effect != null && !effect.isEmpty();
         }
@@ -184,29 +198,323 @@ public class ModConfig {
         private boolean enabled = false;
         private String cron = "0 18 * * SAT";
         private List<Integer> problemPool = List.of();
+        private int minRating = 0;
+        private int maxRating = 0;
+        private List<String> tags = List.of();
+        private int catalogRefreshHours = 24;
+        private double maxSolvedFraction = 0.5;
+        private int prefetchMinutes = 5;
+        private List<Integer> countdownSeconds = List.of(300, 60, 30, 10, 5, 4, 3, 2, 1);
+        private String timezone = "";
+        private List<NamedSchedule> schedules = List.of();
 
         public boolean isEnabled() {
             return enabled;
         }
 
-        public void setEnabled(boolean enabled) {
-            this.enabled = enabled;
+        public String getCron() {
+            return cron;
+        }
+
+        public List<Integer> getProblemPool() {
+            return problemPool;
+        }
+
+        /**
+         * Lowest problem rating for scheduled quests, 0 = no lower bound.
+         */
+        public int getMinRating() {
+            return minRating;
+        }
+
+        /**
+         * Highest problem rating for scheduled quests, 0 = no upper bound.
+         */
+        public int getMaxRating() {
+            return maxRating;
+        }
+
+        /**
+         * Scheduled quests pick a problem having at least one of these tags (empty = any).
+         */
+        public List<String> getTags() {
+            return tags != null ? tags : List.of();
+        }
+
+        /**
+         * How often the local problemset catalog is refreshed from problemset.problems.
+         */
+        public int getCatalogRefreshHours() {
+            return catalogRefreshHours;
+        }
+
+        /**
+         * Skip problems already solved by more than this fraction of online linked players.
+         */
+        public double getMaxSolvedFraction() {
+            return maxSolvedFraction;
+        }
+
+        /**
+         * How long before the start time the next quest's problem is picked and its caches warmed.
+         */
+        public int getPrefetchMinutes() {
+            return prefetchMinutes;
+        }
+
+        /**
+         * Seconds before the start time at which the upcoming quest is announced.
+         */
+        public List<Integer> getCountdownSeconds() {
+            return countdownSeconds != null ? countdownSeconds : List.of();
+        }
+
+        /**
+         * Zone id for cron expressions (e.g. "Asia/Ho_Chi_Minh"), empty = server default.
+         */
+        public String getTimezone() {
+            return timezone != null ? timezone : "";
+        }
+
+        /**
+         * Named schedules. When empty, the top-level cron/rating/tags/problemPool act as a single
+         * schedule named "default".
+         */
+        public List<NamedSchedule> getSchedules() {
+            return schedules != null ? schedules : List.of();
+        }
+    }
+
+    public static class NamedSchedule {
+        private String name;
+        private String cron;
+        private String timezone = "";
+        private int timeoutMinutes = 0;
+        private int minRating = 0;
+        private int maxRating = 0;
+        private List<String> tags = List.of();
+        private List<Integer> problemPool = List.of();
+
+        public NamedSchedule() {
+        }
+
+        public NamedSchedule(String name, String cron, String timezone, int timeoutMinutes, int minRating,
+                             int maxRating, List<String> tags, List<Integer> problemPool) {
+            this.name = name;
+            this.cron = cron;
+            this.timezone = timezone;
+            this.timeoutMinutes = timeoutMinutes;
+            this.minRating = minRating;
+            this.maxRating = maxRating;
+            this.tags = tags;
+            this.problemPool = problemPool;
+        }
+
+        public String getName() {
+            return name;
         }
 
         public String getCron() {
             return cron;
         }
 
-        public void setCron(String cron) {
-            this.cron = cron;
+        /**
+         * Overrides schedule.timezone for this schedule, empty = inherit.
+         */
+        public String getTimezone() {
+            return timezone != null ? timezone : "";
+        }
+
+        /**
+         * Quest length, 0 = quest.defaultTimeoutMinutes.
+         */
+        public int getTimeoutMinutes() {
+            return timeoutMinutes;
+        }
+
+        public int getMinRating() {
+            return minRating;
+        }
+
+        public int getMaxRating() {
+            return maxRating;
+        }
+
+        public List<String> getTags() {
+            return tags != null ? tags : List.of();
         }
 
+        /**
+         * Contests this schedule draws from, empty = the whole catalog.
+         */
         public List<Integer> getProblemPool() {
-            return problemPool;
+            return problemPool != null ? problemPool : List.of();
+        }
+    }
+
+    public static class MetricsConfig {
+        private int httpPort = 0;
+        private String httpHost = "127.0.0.1";
+        private int dumpIntervalSeconds = 0;
+
+        /**
+         * Port for the Prometheus {@code /metrics} endpoint, 0 = disabled.
+         */
+        public int getHttpPort() {
+            return httpPort;
         }
 
-        public void setProblemPool(List<Integer> problemPool) {
-            this.problemPool = problemPool;
+        public String getHttpHost() {
+            return httpHost;
+        }
+
+        /**
+         * Interval for writing {@code metrics.prom}, 0 = only on {@code /cf admin metrics dump}.
+         */
+        public int getDumpIntervalSeconds() {
+            return dumpIntervalSeconds;
+        }
+    }
+
+    public static class PerformanceConfig {
+        private int tickBudgetMillis = 2;
+        private int timerTickMillis = 50;
+        private int shutdownTimeoutSeconds = 10;
+
+        /**
+         * Max time per server tick spent on queued cfquest work (broadcasts, poll results).
+         */
+        public int getTickBudgetMillis() {
+            return tickBudgetMillis;
+        }
+
+        /**
+         * Resolution of the deadline timer wheel (quest end, reminders).
+         */
+        public int getTimerTickMillis() {
+            return timerTickMillis;
+        }
+
+        /**
+         * Overall budget for server shutdown: draining in-flight polls and flushing every store.
+         */
+        public int getShutdownTimeoutSeconds() {
+            return shutdownTimeoutSeconds;
+        }
+    }
+
+    public static class WebConfig {
+        private int httpPort = 0;
+        private String httpHost = "127.0.0.1";
+        private String corsOrigin = "";
+        private int maxStreamClients = 500;
+
+        /**
+         * Port for the read-only JSON API ({@code /api/...}), 0 = disabled.
+         */
+        public int getHttpPort() {
+            return httpPort;
+        }
+
+        public String getHttpHost() {
+            return httpHost;
+        }
+
+        /**
+         * Value for {@code Access-Control-Allow-Origin} so that a dashboard on another origin can
+         * read the API; empty = header not sent.
+         */
+        public String getCorsOrigin() {
+            return corsOrigin != null ? corsOrigin : "";
+        }
+
+        /**
+         * Most clients connected to the live scoreboard stream at once; 0 = stream disabled.
+         */
+        public int getMaxStreamClients() {
+            return maxStreamClients;
+        }
+    }
+
+    public static class WebhookConfig {
+        private List<WebhookEndpoint> endpoints = List.of();
+        private int coalesceMillis = 3000;
+        private int queueCapacity = 100;
+        private int maxAttempts = 8;
+        private int maxMessageAgeMinutes = 60;
+
+        /**
+         * Chat webhooks that mirror quest start, solves and results; empty = disabled.
+         */
+        public List<WebhookEndpoint> getEndpoints() {
+            return endpoints != null ? endpoints : List.of();
+        }
+
+        /**
+         * Solves within this window after the first one are sent as a single message.
+         */
+        public int getCoalesceMillis() {
+            return coalesceMillis;
+        }
+
+        /**
+         * Messages kept in memory per endpoint; the rest wait in {@code webhooks/<name>.jsonl}.
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        /**
+         * Messages still undelivered after this long (e.g. spooled across a long downtime) are dropped.
+         */
+        public int getMaxMessageAgeMinutes() {
+            return maxMessageAgeMinutes;
+        }
+    }
+
+    public static class WebhookEndpoint {
+        private String name;
+        private String url;
+        private String format = "discord";
+        private int minIntervalMillis = 1000;
+
+        public WebhookEndpoint() {
+        }
+
+        public WebhookEndpoint(String name, String url, String format, int minIntervalMillis) {
+            this.name = name;
+            this.url = url;
+            this.format = format;
+            this.minIntervalMillis = minIntervalMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Webhook URL; it usually contains a secret token, so it is never logged.
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Payload shape: {@code discord} or {@code slack}.
+         */
+        public String getFormat() {
+            return format;
+        }
+
+        /**
+         * Minimum time between two requests to this endpoint.
+         */
+        public int getMinIntervalMillis() {
+            return minIntervalMillis;
         }
     }
 
@@ -226,13 +534,31 @@ public class ModConfig {
         return schedule;
     }
 
-    public static ModConfig load(MinecraftServer server) {
-        Path configPath = getConfigPath(server);
+    public MetricsConfig getMetrics() {
+        return metrics;
+    }
+
+    public PerformanceConfig getPerformance() {
+        return performance;
+    }
+
+    public WebhookConfig getWebhooks() {
+        return webhooks;
+    }
+
+    public WebConfig getWeb() {
+        return web;
+    }
+
+    /**
+     * @param dataDir the {@code cfquest} data directory
+     */
+    public static ModConfig load(Path dataDir) {
+        Path configPath = getConfigPath(dataDir);
 
         if (Files.exists(configPath)) {
             try {
-                String json = Files.readString(configPath);
-                ModConfig config = GSON.fromJson(json, ModConfig.class);
+                ModConfig config = read(dataDir);
                 CFQuestMod.LOGGER.info("Đã tải cấu hình từ: {}", configPath);
                 return config;
             } catch (IOException e) {
@@ -242,24 +568,86 @@ public class ModConfig {
 
         // Create default config
         ModConfig config = new ModConfig();
-        config.save(server);
+        config.save(dataDir);
+        return config;
+    }
+
+    /**
+     * Parse config.json without any fallback (used by reload, which must not replace a working
+     * config with defaults).
+     *
+     * @throws JsonParseException if the file is not valid JSON for this schema
+     */
+    public static ModConfig read(Path dataDir) throws IOException {
+        ModConfig config = GSON.fromJson(Files.readString(getConfigPath(dataDir)), ModConfig.class);
+        if (config == null) {
+            throw new JsonParseException("config.json rỗng");
+        }
         return config;
     }
 
-    public void save(MinecraftServer server) {
-        Path configPath = getConfigPath(server);
+    public void save(Path dataDir) {
+        Path configPath = getConfigPath(dataDir);
 
         try {
-            Files.createDirectories(configPath.getParent());
             String json = GSON.toJson(this);
-            Files.writeString(configPath, json);
+            DataFiles.writeString(configPath, json, "config");
             CFQuestMod.LOGGER.info("Đã lưu cấu hình vào: {}", configPath);
         } catch (IOException e) {
             CFQuestMod.LOGGER.error("Lỗi khi lưu cấu hình: {}", e.getMessage());
         }
     }
 
-    private static Path getConfigPath(MinecraftServer server) {
-        return server.getSavePath(WorldSavePath.ROOT).resolve("cfquest").resolve("config.json");
+    /**
+     * A deep copy whose lists and maps cannot be modified, so that nothing holding the parsed
+     * original can change what a {@link ConfigSnapshot} publishes.
+     */
+    ModConfig frozenCopy() {
+        ModConfig copy = GSON.fromJson(GSON.toJson(this), ModConfig.class);
+        if (copy.quest != null) {
+            copy.quest.reminderMinutes = frozen(copy.quest.reminderMinutes);
+        }
+        if (copy.rewards != null) {
+            copy.rewards.tiers = frozen(copy.rewards.tiers);
+            if (copy.rewards.tiers != null) {
+                for (RewardTier tier : copy.rewards.tiers.values()) {
+                    if (tier != null) {
+                        tier.items = frozen(tier.items);
+                    }
+                }
+            }
+            copy.rewards.placementMultipliers = frozen(copy.rewards.placementMultipliers);
+        }
+        if (copy.schedule != null) {
+            copy.schedule.problemPool = frozen(copy.schedule.problemPool);
+            copy.schedule.tags = frozen(copy.schedule.tags);
+            copy.schedule.countdownSeconds = frozen(copy.schedule.countdownSeconds);
+            copy.schedule.schedules = frozen(copy.schedule.schedules);
+            if (copy.schedule.schedules != null) {
+                for (NamedSchedule named : copy.schedule.schedules) {
+                    if (named != null) {
+                        named.tags = frozen(named.tags);
+                        named.problemPool = frozen(named.problemPool);
+                    }
+                }
+            }
+        }
+        if (copy.webhooks != null) {
+            copy.webhooks.endpoints = frozen(copy.webhooks.endpoints);
+        }
+        return copy;
+    }
+
+    // Null-tolerant, unlike List.copyOf: an invalid startup config is reported but still used
+    private static <T> List<T> frozen(List<T> list) {
+        return list == null ? null : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    private static <K, V> Map<K, V> frozen(Map<K, V> map) {
+        return map == null ? null : Collections.unmodifiableMap(new LinkedHashMap<>(map));
+    }
+
+    private static Path getConfigPath(Path dataDir) {
+        return dataDir.resolve("config.json");
     }
 }
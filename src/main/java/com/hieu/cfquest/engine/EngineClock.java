@@ -0,0 +1,17 @@
+package com.hieu.cfquest.engine;
+
+/**
+ * Wall-clock source for the quest engine (quest start/end, deadlines, poll tiers).
+ *
+ * The server uses {@link #SYSTEM}; a simulation or benchmark can pass a clock it advances
+ * itself.
+ */
+@FunctionalInterface
+public interface EngineClock {
+    EngineClock SYSTEM = System::currentTimeMillis;
+
+    /**
+     * @return epoch millis
+     */
+    long currentTimeMillis();
+}
@@ -0,0 +1,17 @@
+package com.hieu.cfquest.engine;
+
+/**
+ * The single thread that owns quest state changes.
+ *
+ * On the server this is the {@code MainThreadQueue} drained at the end of each tick; headless
+ * runs can execute tasks inline or on a queue they drain themselves.
+ */
+@FunctionalInterface
+public interface MainThreadExecutor {
+    /**
+     * Run {@code task} later on the main thread, in submission order.
+     *
+     * @param name metric label for the task
+     */
+    void submit(String name, Runnable task);
+}
@@ -0,0 +1,31 @@
+package com.hieu.cfquest.engine;
+
+/**
+ * Who is online right now, by player identifier (UUID string or {@code offline:<name>}).
+ */
+public interface PlayerDirectory {
+    /**
+     * Nobody is ever online; identifiers are UUID-based.
+     */
+    PlayerDirectory EMPTY = new PlayerDirectory() {
+        @Override
+        public boolean isOnlineMode() {
+            return true;
+        }
+
+        @Override
+        public String getOnlineName(String identifier) {
+            return null;
+        }
+    };
+
+    /**
+     * @return true if players are identified by UUID, false for {@code offline:} identifiers
+     */
+    boolean isOnlineMode();
+
+    /**
+     * @return the display name of the player if online, otherwise null
+     */
+    String getOnlineName(String identifier);
+}
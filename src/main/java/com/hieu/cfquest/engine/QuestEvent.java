@@ -0,0 +1,60 @@
+package com.hieu.cfquest.engine;
+
+import com.hieu.cfquest.quest.Quest;
+
+/**
+ * Quest lifecycle events published by the quest manager on the {@link QuestEventBus}.
+ *
+ * {@link #quest()} is the live quest object: it is only changed on the main thread, so an
+ * async subscriber should read what the event itself carries (or a quest that has ended)
+ * rather than the quest's current winners.
+ */
+public sealed interface QuestEvent {
+    Quest quest();
+
+    /**
+     * Epoch millis (engine clock) at which the event happened.
+     */
+    long at();
+
+    /**
+     * Short name used for metric labels and main-thread job names.
+     */
+    String type();
+
+    record Started(Quest quest, long at) implements QuestEvent {
+        @Override
+        public String type() {
+            return "started";
+        }
+    }
+
+    record WrongAnswer(Quest quest, long at, String playerIdentifier, String cfHandle, int penaltyMinutes,
+                       int newWrongs, int totalWrongs) implements QuestEvent {
+        @Override
+        public String type() {
+            return "wrong_answer";
+        }
+    }
+
+    /**
+     * @param place the winner's place when it solved; later solves re-rank the live
+     *              {@link Quest.Winner} on the main thread, so subscribers use this instead
+     */
+    record Solved(Quest quest, long at, Quest.Winner winner, int place) implements QuestEvent {
+        @Override
+        public String type() {
+            return "solved";
+        }
+    }
+
+    /**
+     * @param cancelled true if an admin cancelled the quest; no rewards or history then
+     */
+    record Ended(Quest quest, long at, boolean cancelled) implements QuestEvent {
+        @Override
+        public String type() {
+            return "ended";
+        }
+    }
+}
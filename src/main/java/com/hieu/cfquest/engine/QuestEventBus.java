@@ -0,0 +1,245 @@
+package com.hieu.cfquest.engine;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.metrics.Counter;
+import com.hieu.cfquest.metrics.Histogram;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.util.Deadline;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Delivers {@link QuestEvent}s from the quest manager to the components that react to them
+ * (announcements, rewards, history, ...), so that none of them runs inside the quest manager.
+ *
+ * Two kinds of subscriber:
+ * - main thread: called through the {@link MainThreadExecutor}, for work that touches the game
+ * - async: own daemon thread and bounded queue, for slow work such as disk or network I/O
+ *
+ * Every subscriber sees events in publish order, so a quest's events always arrive as
+ * started → wrong answers/solves → ended. A full async queue drops events; a subscriber that
+ * cannot lose any uses the unbounded lane ({@link #subscribeAsyncLossless}) for the few events it
+ * needs, or resyncs from the live quest state after a drop.
+ *
+ * Optimizations:
+ * - Publish chỉ enqueue, không bao giờ block: subscriber async đầy hàng đợi thì event bị bỏ (có metric),
+ *   poller và tick loop không phải chờ subscriber chậm
+ * - Filter của subscriber chạy trước khi enqueue: event không cần thiết không chiếm chỗ trong hàng đợi
+ * - Mọi subscriber main-thread của một event chạy chung một job trên MainThreadQueue
+ * - Danh sách subscriber là copy-on-write: publish không lock danh sách
+ */
+public final class QuestEventBus {
+    private final MainThreadExecutor mainThread;
+    private final List<Subscriber> mainThreadSubscribers = new CopyOnWriteArrayList<>();
+    private final List<AsyncSubscriber> asyncSubscribers = new CopyOnWriteArrayList<>();
+
+    public QuestEventBus(MainThreadExecutor mainThread) {
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Subscribe {@code handler} on the main thread. For each event, main-thread subscribers
+     * are called one after another in subscription order.
+     */
+    public void subscribeMainThread(String name, Consumer<? super QuestEvent> handler) {
+        mainThreadSubscribers.add(new Subscriber(name, handler));
+    }
+
+    /**
+     * Subscribe {@code handler} on its own daemon thread {@code CFQuest-Events-<name>}.
+     *
+     * @param capacity events that may wait for the handler; further events are dropped until
+     *                 it catches up
+     */
+    public void subscribeAsync(String name, int capacity, Consumer<? super QuestEvent> handler) {
+        subscribeAsync(name, capacity, event -> true, handler);
+    }
+
+    /**
+     * @param filter events {@code handler} wants; checked on the publishing thread, so the others
+     *               never take a queue slot
+     */
+    public void subscribeAsync(String name, int capacity, Predicate<? super QuestEvent> filter,
+                               Consumer<? super QuestEvent> handler) {
+        asyncSubscribers.add(new AsyncSubscriber(name, new ArrayBlockingQueue<>(Math.max(1, capacity)), filter,
+                handler, null));
+    }
+
+    /**
+     * For a subscriber that keeps its own copy of the quest state. After events were dropped,
+     * {@code resync} is called on the main thread once the subscriber has made room again; the
+     * task it returns (built from the live quest state, which already reflects every event
+     * published so far) runs on the subscriber's thread in place of the lost events.
+     */
+    public void subscribeAsync(String name, int capacity, Predicate<? super QuestEvent> filter,
+                               Consumer<? super QuestEvent> handler, Supplier<Runnable> resync) {
+        asyncSubscribers.add(new AsyncSubscriber(name, new ArrayBlockingQueue<>(Math.max(1, capacity)), filter,
+                handler, resync));
+    }
+
+    /**
+     * Subscribe on an unbounded queue: no event is ever dropped. Only for rare events (e.g. the
+     * quest end, written to history), selected by {@code filter}.
+     */
+    public void subscribeAsyncLossless(String name, Predicate<? super QuestEvent> filter,
+                                       Consumer<? super QuestEvent> handler) {
+        asyncSubscribers.add(new AsyncSubscriber(name, new LinkedBlockingQueue<>(), filter, handler, null));
+    }
+
+    /**
+     * Hand {@code event} to every subscriber. Never blocks on a subscriber; synchronized only
+     * so that concurrent publishers enqueue in the same order everywhere.
+     */
+    public synchronized void publish(QuestEvent event) {
+        Metrics.REGISTRY.counter("cfquest_quest_events_total", "Quest events published by type",
+                "type", event.type()).inc();
+        long publishedAt = System.nanoTime();
+
+        if (!mainThreadSubscribers.isEmpty()) {
+            mainThread.submit("quest_event_" + event.type(), () -> {
+                for (Subscriber subscriber : mainThreadSubscribers) {
+                    subscriber.deliver(event, publishedAt);
+                }
+            });
+        }
+        for (AsyncSubscriber subscriber : asyncSubscribers) {
+            if (subscriber.filter.test(event)) {
+                subscriber.offer(event, publishedAt);
+            }
+        }
+    }
+
+    /**
+     * Let async subscribers work through their queues until the deadline; whatever is left
+     * after that is dropped.
+     */
+    public void shutdown(Deadline deadline) {
+        for (AsyncSubscriber subscriber : asyncSubscribers) {
+            if (!deadline.awaitTermination(subscriber.executor)) {
+                CFQuestMod.LOGGER.warn("Subscriber {} chưa xử lý hết quest event khi tắt server", subscriber.name);
+            }
+        }
+    }
+
+    private static class Subscriber {
+        final String name;
+        private final Consumer<? super QuestEvent> handler;
+        private final Histogram latency;
+
+        Subscriber(String name, Consumer<? super QuestEvent> handler) {
+            this.name = name;
+            this.handler = handler;
+            this.latency = Metrics.REGISTRY.histogram("cfquest_quest_event_delivery_seconds",
+                    "Time from publishing a quest event to the subscriber finishing it", Metrics.LATENCY_BUCKETS,
+                    "subscriber", name);
+        }
+
+        void deliver(QuestEvent event, long publishedAt) {
+            try {
+                handler.accept(event);
+            } catch (Exception e) {
+                CFQuestMod.LOGGER.error("Lỗi khi xử lý quest event {} ở subscriber {}: {}",
+                        event.type(), name, e.getMessage());
+            }
+            latency.observeNanosSince(publishedAt);
+        }
+    }
+
+    private final class AsyncSubscriber extends Subscriber {
+        private final ThreadPoolExecutor executor;
+        private final Predicate<? super QuestEvent> filter;
+        private final Supplier<Runnable> resync;
+        private final Counter dropped;
+        private final Counter resyncs;
+        private final AtomicBoolean resyncQueued = new AtomicBoolean(false);
+        private volatile boolean gap = false;
+        private volatile boolean warnedDrop = false;
+
+        AsyncSubscriber(String name, BlockingQueue<Runnable> queue, Predicate<? super QuestEvent> filter,
+                        Consumer<? super QuestEvent> handler, Supplier<Runnable> resync) {
+            super(name, handler);
+            this.filter = filter;
+            this.resync = resync;
+            this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queue, r -> {
+                Thread t = new Thread(r, "CFQuest-Events-" + name);
+                t.setDaemon(true);
+                return t;
+            });
+            this.dropped = Metrics.REGISTRY.counter("cfquest_quest_events_dropped_total",
+                    "Quest events dropped because an async subscriber's queue was full", "subscriber", name);
+            this.resyncs = Metrics.REGISTRY.counter("cfquest_quest_event_resyncs_total",
+                    "Async subscribers rebuilt from the live quest state after dropping events", "subscriber", name);
+
+            Metrics.REGISTRY.gauge("cfquest_quest_event_queue_depth",
+                    "Quest events waiting for an async subscriber", () -> executor.getQueue().size(),
+                    "subscriber", name);
+        }
+
+        void offer(QuestEvent event, long publishedAt) {
+            try {
+                executor.execute(() -> {
+                    deliver(event, publishedAt);
+                    afterDelivery();
+                });
+            } catch (RejectedExecutionException e) {
+                dropped.inc();
+                if (resync != null) {
+                    gap = true;
+                }
+                if (!warnedDrop) {
+                    warnedDrop = true;
+                    CFQuestMod.LOGGER.warn("Subscriber {} không theo kịp, đang bỏ bớt quest event", name);
+                }
+            }
+        }
+
+        /**
+         * Subscriber thread: a slot has just been freed, so this is the time to try a resync.
+         */
+        private void afterDelivery() {
+            if (gap && resyncQueued.compareAndSet(false, true)) {
+                mainThread.submit("quest_event_resync", this::resync);
+            }
+        }
+
+        /**
+         * Main thread, under the publish lock: nothing can be published between taking the state
+         * and queueing it.
+         */
+        private void resync() {
+            synchronized (QuestEventBus.this) {
+                resyncQueued.set(false);
+                gap = false;
+                Runnable task = resync.get();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            task.run();
+                        } catch (Exception e) {
+                            CFQuestMod.LOGGER.error("Lỗi khi đồng bộ lại subscriber {}: {}", name, e.getMessage());
+                        }
+                        afterDelivery();
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Full again (the next delivered event retries) or shutting down
+                    gap = true;
+                    return;
+                }
+            }
+            resyncs.inc();
+            warnedDrop = false;
+            CFQuestMod.LOGGER.info("Subscriber {} đã đồng bộ lại từ trạng thái quest hiện tại", name);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.hieu.cfquest.engine;
+
+import com.hieu.cfquest.quest.Quest;
+
+/**
+ * Player-facing side of quest events. Calls come from the main thread, except
+ * {@link #announceReminder} and {@link #announceUpcoming} which the timer thread sends; an
+ * implementation must hand real work off instead of blocking.
+ *
+ * Lifecycle announcements reach the notifier as {@link QuestEvent}s through {@link #onEvent},
+ * subscribed on the main thread of the {@link QuestEventBus}.
+ */
+public interface QuestNotifier {
+    QuestNotifier NONE = new QuestNotifier() {
+    };
+
+    default void announceQuestStart(Quest quest) {
+    }
+
+    default void announceSolve(Quest.Winner winner, int place) {
+    }
+
+    default void announceWrongAnswer(String playerIdentifier, int penaltyMinutes, int newWrongs, int totalWrongs) {
+    }
+
+    default void announceReminder(int minutesLeft) {
+    }
+
+    /**
+     * @param rating the upcoming problem's rating, or 0 if it has not been picked yet
+     */
+    default void announceUpcoming(int secondsLeft, int rating) {
+    }
+
+    default void announceQuestEnd(Quest quest) {
+    }
+
+    default void announceCancelled() {
+    }
+
+    /**
+     * Route a quest event to the matching announcement.
+     */
+    default void onEvent(QuestEvent event) {
+        switch (event) {
+            case QuestEvent.Started started -> announceQuestStart(started.quest());
+            case QuestEvent.Solved solved -> announceSolve(solved.winner(), solved.place());
+            case QuestEvent.WrongAnswer wrong -> announceWrongAnswer(wrong.playerIdentifier(),
+                    wrong.penaltyMinutes(), wrong.newWrongs(), wrong.totalWrongs());
+            case QuestEvent.Ended ended -> {
+                if (ended.cancelled()) {
+                    announceCancelled();
+                } else {
+                    announceQuestEnd(ended.quest());
+                }
+            }
+        }
+    }
+}
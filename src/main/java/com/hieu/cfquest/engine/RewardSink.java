@@ -0,0 +1,24 @@
+package com.hieu.cfquest.engine;
+
+import com.hieu.cfquest.quest.Quest;
+
+/**
+ * Receives every quest that ended normally, on the main thread. On the server this resolves
+ * item rewards and delivers them through the mailbox.
+ */
+@FunctionalInterface
+public interface RewardSink {
+    RewardSink NONE = quest -> {
+    };
+
+    void distribute(Quest quest);
+
+    /**
+     * Quest event bus subscriber: distributes on every normal {@link QuestEvent.Ended}.
+     */
+    default void onEvent(QuestEvent event) {
+        if (event instanceof QuestEvent.Ended ended && !ended.cancelled()) {
+            distribute(ended.quest());
+        }
+    }
+}
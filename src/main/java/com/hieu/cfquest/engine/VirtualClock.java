@@ -0,0 +1,26 @@
+package com.hieu.cfquest.engine;
+
+/**
+ * A clock that only moves when told to, for replays and simulations.
+ */
+public final class VirtualClock implements EngineClock {
+    private volatile long now;
+
+    public VirtualClock(long startMillis) {
+        this.now = startMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * Move to {@code millis}; never goes backwards.
+     */
+    public void advanceTo(long millis) {
+        if (millis > now) {
+            now = millis;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.hieu.cfquest.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket histogram (Prometheus semantics: bucket counts are exported cumulatively).
+ */
+public class Histogram {
+    private final double[] bounds;
+    private final LongAdder[] buckets;
+    private final LongAdder count = new LongAdder();
+    private final DoubleAdder sum = new DoubleAdder();
+    private final AtomicLong maxBits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+    public Histogram(double[] bounds) {
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void observe(double value) {
+        for (int i = 0; i < bounds.length; i++) {
+            if (value <= bounds[i]) {
+                buckets[i].increment();
+                break;
+            }
+        }
+        count.increment();
+        sum.add(value);
+
+        long current;
+        do {
+            current = maxBits.get();
+            if (value <= Double.longBitsToDouble(current)) {
+                break;
+            }
+        } while (!maxBits.compareAndSet(current, Double.doubleToLongBits(value)));
+    }
+
+    /**
+     * Observe the elapsed time since {@code startNanos} (from System.nanoTime()) in seconds.
+     */
+    public void observeNanosSince(long startNanos) {
+        observe((System.nanoTime() - startNanos) / 1_000_000_000.0);
+    }
+
+    public double[] getBounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * Non-cumulative count of the given bucket.
+     */
+    public long getBucketCount(int index) {
+        return buckets[index].sum();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    public double getMax() {
+        return Double.longBitsToDouble(maxBits.get());
+    }
+
+    public double getAverage() {
+        long c = getCount();
+        return c == 0 ? 0.0 : getSum() / c;
+    }
+}
@@ -0,0 +1,109 @@
+package com.hieu.cfquest.metrics;
+
+/**
+ * Global metrics cho cfquest.
+ *
+ * Chứa registry dùng chung và các metric thường dùng để callers không phải
+ * lookup theo tên trên hot path.
+ */
+public final class Metrics {
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    /** Latency buckets (seconds) cho HTTP calls tới Codeforces. */
+    public static final double[] LATENCY_BUCKETS = {0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+
+    /** Buckets (seconds) cho công việc trên server thread — MSPT budget là 50ms. */
+    public static final double[] TICK_BUCKETS = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1};
+
+    /** Buckets (seconds) cho disk writes. */
+    public static final double[] SAVE_BUCKETS = {0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 1};
+
+    public static final double[] BYTES_BUCKETS = {1024, 16 * 1024, 128 * 1024, 1024 * 1024, 8 * 1024 * 1024, 64 * 1024 * 1024};
+
+    public static final Counter API_CACHE_HITS = REGISTRY.counter(
+            "cfquest_api_cache_hits_total", "Codeforces API responses served from the local cache");
+    public static final Counter API_CACHE_MISSES = REGISTRY.counter(
+            "cfquest_api_cache_misses_total", "Codeforces API lookups that required a request");
+    public static final Histogram API_RATE_LIMIT_WAIT = REGISTRY.histogram(
+            "cfquest_api_ratelimit_wait_seconds", "Time spent waiting for a rate-limit slot", LATENCY_BUCKETS);
+
+    public static final Histogram POLL_CYCLE = REGISTRY.histogram(
+            "cfquest_poll_cycle_seconds", "Duration of a poll cycle from request to processed standings",
+            LATENCY_BUCKETS);
+    public static final Counter STANDINGS_ROWS = REGISTRY.counter(
+            "cfquest_standings_rows_total", "Standings rows parsed from contest.standings responses");
+    public static final Histogram STANDINGS_BYTES = REGISTRY.histogram(
+            "cfquest_standings_payload_bytes", "Decoded size of contest.standings response bodies", BYTES_BUCKETS);
+
+    public static final Histogram SHUTDOWN = REGISTRY.histogram(
+            "cfquest_shutdown_seconds", "Duration of the shutdown phase (drain and flush)", LATENCY_BUCKETS);
+
+    private Metrics() {
+    }
+
+    public static Histogram apiLatency(String method) {
+        return REGISTRY.histogram("cfquest_api_request_seconds",
+                "Codeforces API request latency (after rate limiting) by method", LATENCY_BUCKETS, "method", method);
+    }
+
+    public static Counter apiRequests(String method, String outcome) {
+        return REGISTRY.counter("cfquest_api_requests_total",
+                "Codeforces API requests by method and outcome", "method", method, "outcome", outcome);
+    }
+
+    public static Counter apiResponseBytes(String method) {
+        return REGISTRY.counter("cfquest_api_response_bytes_total",
+                "Decoded response bytes from the Codeforces API by method", "method", method);
+    }
+
+    public static Counter apiWireBytes(String method) {
+        return REGISTRY.counter("cfquest_api_wire_bytes_total",
+                "Response body bytes on the wire (before decompression) by method", "method", method);
+    }
+
+    public static Counter pollHandles(Enum<?> tier) {
+        return REGISTRY.counter("cfquest_poll_handles_total",
+                "Handles included in standings polls by presence tier", "tier", tier.name().toLowerCase());
+    }
+
+    public static Histogram mainThreadTask(String task) {
+        return REGISTRY.histogram("cfquest_main_thread_task_seconds",
+                "Time spent inside cfquest tasks on the server thread", TICK_BUCKETS, "task", task);
+    }
+
+    public static Histogram saveDuration(String store) {
+        return REGISTRY.histogram("cfquest_save_seconds", "Duration of data file writes by store",
+                SAVE_BUCKETS, "store", store);
+    }
+
+    public static Counter saveBytes(String store) {
+        return REGISTRY.counter("cfquest_save_bytes_total", "Bytes written to data files by store",
+                "store", store);
+    }
+
+    /**
+     * Wrap a task destined for {@code server.execute()} so its run time is recorded.
+     */
+    public static Runnable timed(String task, Runnable runnable) {
+        Histogram histogram = mainThreadTask(task);
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                runnable.run();
+            } finally {
+                histogram.observeNanosSince(start);
+            }
+        };
+    }
+
+    public static void recordSave(String store, long startNanos, long bytes) {
+        saveDuration(store).observeNanosSince(startNanos);
+        saveBytes(store).add(bytes);
+    }
+
+    public static double getCacheHitRatio() {
+        long hits = API_CACHE_HITS.get();
+        long total = hits + API_CACHE_MISSES.get();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+}
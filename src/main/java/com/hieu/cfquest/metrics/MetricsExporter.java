@@ -0,0 +1,132 @@
+package com.hieu.cfquest.metrics;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.config.ModConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export metrics ra ngoài server:
+ * - File dump {@code <world>/cfquest/metrics.prom} (định kỳ hoặc qua lệnh admin),
+ *   dùng được với node_exporter textfile collector
+ * - HTTP endpoint {@code /metrics} chỉ bind vào host cấu hình (mặc định 127.0.0.1)
+ *
+ * Cả hai đều chạy trên daemon threads riêng, không đụng tới server thread.
+ */
+public class MetricsExporter {
+    private final ConfigStore configStore;
+    private ModConfig.MetricsConfig config;
+    private final Path dumpPath;
+
+    private ScheduledExecutorService dumpExecutor;
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+
+    /**
+     * @param dataDir the {@code cfquest} data directory
+     */
+    public MetricsExporter(Path dataDir, ConfigStore configStore) {
+        this.configStore = configStore;
+        this.dumpPath = dataDir.resolve("metrics.prom");
+    }
+
+    /**
+     * Start with the current metrics config; stop() + start() applies a reloaded one.
+     */
+    public void start() {
+        config = configStore.current().getMetrics();
+        int dumpInterval = config.getDumpIntervalSeconds();
+        if (dumpInterval > 0) {
+            dumpExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "CFQuest-MetricsDump");
+                t.setDaemon(true);
+                return t;
+            });
+            dumpExecutor.scheduleAtFixedRate(this::dumpQuietly, dumpInterval, dumpInterval, TimeUnit.SECONDS);
+        }
+
+        int port = config.getHttpPort();
+        if (port > 0) {
+            try {
+                httpServer = HttpServer.create(new InetSocketAddress(config.getHttpHost(), port), 0);
+                httpServer.createContext("/metrics", this::handleMetrics);
+                httpExecutor = Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "CFQuest-MetricsHttp");
+                    t.setDaemon(true);
+                    return t;
+                });
+                httpServer.setExecutor(httpExecutor);
+                httpServer.start();
+                CFQuestMod.LOGGER.info("Metrics endpoint: http://{}:{}/metrics", config.getHttpHost(), port);
+            } catch (IOException e) {
+                CFQuestMod.LOGGER.error("Không thể mở metrics endpoint: {}", e.getMessage());
+                httpServer = null;
+            }
+        }
+    }
+
+    public void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        if (httpExecutor != null) {
+            httpExecutor.shutdownNow();
+            httpExecutor = null;
+        }
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+            dumpExecutor = null;
+            // Last dump so the shutdown metrics survive the process
+            dumpQuietly();
+        }
+    }
+
+    /**
+     * Write the current metrics to {@code metrics.prom}, replacing the previous dump atomically.
+     */
+    public Path dump() throws IOException {
+        Files.createDirectories(dumpPath.getParent());
+        Path tmp = dumpPath.resolveSibling(dumpPath.getFileName() + ".tmp");
+        Files.writeString(tmp, Metrics.REGISTRY.toPrometheusText());
+        Files.move(tmp, dumpPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return dumpPath;
+    }
+
+    private void dumpQuietly() {
+        try {
+            dump();
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi ghi metrics: {}", e.getMessage());
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = Metrics.REGISTRY.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.hieu.cfquest.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * In-process metrics registry với output theo Prometheus text format (version 0.0.4).
+ *
+ * Metrics được nhóm theo family (name + type + help). Labels truyền vào dưới dạng
+ * cặp key/value xen kẽ, ví dụ {@code counter("x_total", "...", "method", "user.info")}.
+ * Callers trên hot path nên giữ lại handle thay vì lookup mỗi lần.
+ */
+public class MetricsRegistry {
+
+    public enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        HISTOGRAM("histogram");
+
+        private final String exposition;
+
+        Type(String exposition) {
+            this.exposition = exposition;
+        }
+    }
+
+    public static class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final double[] buckets;
+        private final Map<String, Object> series = new ConcurrentSkipListMap<>();
+
+        private Family(String name, String help, Type type, double[] buckets) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.buckets = buckets;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Rendered label string (e.g. {@code method="user.info"}) -> Counter/Histogram/DoubleSupplier.
+         */
+        public Map<String, Object> getSeries() {
+            return series;
+        }
+    }
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+    private final Map<String, Object> lookup = new ConcurrentHashMap<>();
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) getOrCreate(name, help, Type.COUNTER, null, labels, Counter::new);
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) getOrCreate(name, help, Type.HISTOGRAM, buckets, labels, () -> new Histogram(buckets));
+    }
+
+    /**
+     * Register (or replace) a gauge whose value is read at export time.
+     */
+    public void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        Family family = family(name, help, Type.GAUGE, null);
+        String labelString = renderLabels(labels);
+        family.series.put(labelString, supplier);
+        lookup.put(name + "{" + labelString + "}", supplier);
+    }
+
+    private Object getOrCreate(String name, String help, Type type, double[] buckets, String[] labels,
+                               java.util.function.Supplier<Object> factory) {
+        String labelString = renderLabels(labels);
+        String key = name + "{" + labelString + "}";
+
+        Object existing = lookup.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        Family family = family(name, help, type, buckets);
+        Object metric = family.series.computeIfAbsent(labelString, k -> factory.get());
+        lookup.put(key, metric);
+        return metric;
+    }
+
+    private Family family(String name, String help, Type type, double[] buckets) {
+        Family family = families.computeIfAbsent(name, k -> new Family(name, help, type, buckets));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " đã được đăng ký với type " + family.type);
+        }
+        return family;
+    }
+
+    public List<Family> getFamilies() {
+        return new ArrayList<>(families.values());
+    }
+
+    public Family getFamily(String name) {
+        return families.get(name);
+    }
+
+    /**
+     * Render every metric in Prometheus text exposition format.
+     */
+    public String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.exposition).append('\n');
+
+            for (Map.Entry<String, Object> entry : family.series.entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+
+                switch (family.type) {
+                    case COUNTER -> appendSample(out, family.name, labels, ((Counter) metric).get());
+                    case GAUGE -> appendSample(out, family.name, labels, ((DoubleSupplier) metric).getAsDouble());
+                    case HISTOGRAM -> appendHistogram(out, family, labels, (Histogram) metric);
+                }
+            }
+        }
+
+        return out.toString();
+    }
+
+    private void appendHistogram(StringBuilder out, Family family, String labels, Histogram histogram) {
+        double[] bounds = family.buckets;
+        long cumulative = 0;
+
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += histogram.getBucketCount(i);
+            appendSample(out, family.name + "_bucket", joinLabels(labels, "le=\"" + formatDouble(bounds[i]) + "\""),
+                    cumulative);
+        }
+
+        long count = histogram.getCount();
+        appendSample(out, family.name + "_bucket", joinLabels(labels, "le=\"+Inf\""), count);
+        appendSample(out, family.name + "_sum", labels, histogram.getSum());
+        appendSample(out, family.name + "_count", labels, count);
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(formatDouble(value)).append('\n');
+    }
+
+    private static String joinLabels(String labels, String extra) {
+        return labels.isEmpty() ? extra : labels + "," + extra;
+    }
+
+    private static String formatDouble(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String renderLabels(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels phải là cặp key/value");
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
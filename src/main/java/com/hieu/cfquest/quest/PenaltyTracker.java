@@ -1,13 +1,17 @@
 package com.hieu.cfquest.quest;
 
+import com.hieu.cfquest.util.HandleDictionary;
+import com.hieu.cfquest.util.IntIntMap;
+
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Tracks wrong answer penalties for players during a quest (ICPC-style).
+ * Counts are keyed by {@link HandleDictionary} id.
  */
 public class PenaltyTracker {
-    private final Map<String, Integer> penaltyCounts = new HashMap<>();
+    private final IntIntMap penaltyCounts = new IntIntMap();
     private final int penaltyMinutes;
 
     public PenaltyTracker(int penaltyMinutes) {
@@ -19,9 +23,12 @@ public class PenaltyTracker {
      * @return the new penalty count
      */
     public int recordWrongAnswer(String cfHandle) {
-        String key = cfHandle.toLowerCase();
-        int newCount = penaltyCounts.getOrDefault(key, 0) + 1;
-        penaltyCounts.put(key, newCount);
+        return recordWrongAnswer(HandleDictionary.GLOBAL.intern(cfHandle));
+    }
+
+    public int recordWrongAnswer(int handleId) {
+        int newCount = penaltyCounts.get(handleId, 0) + 1;
+        penaltyCounts.put(handleId, newCount);
         return newCount;
     }
 
@@ -29,7 +36,11 @@ public class PenaltyTracker {
      * Get the current wrong answer count for a handle.
      */
     public int getWrongAnswerCount(String cfHandle) {
-        return penaltyCounts.getOrDefault(cfHandle.toLowerCase(), 0);
+        return getWrongAnswerCount(HandleDictionary.GLOBAL.lookup(cfHandle));
+    }
+
+    public int getWrongAnswerCount(int handleId) {
+        return penaltyCounts.get(handleId, 0);
     }
 
     /**
@@ -50,7 +61,7 @@ public class PenaltyTracker {
      * Set the penalty count for a handle (used when loading from API).
      */
     public void setPenaltyCount(String cfHandle, int count) {
-        penaltyCounts.put(cfHandle.toLowerCase(), count);
+        penaltyCounts.put(HandleDictionary.GLOBAL.intern(cfHandle), count);
     }
 
     /**
@@ -61,10 +72,12 @@ public class PenaltyTracker {
     }
 
     /**
-     * Get all penalty counts.
+     * Get all penalty counts, keyed by lowercase handle.
      */
     public Map<String, Integer> getAllPenalties() {
-        return new HashMap<>(penaltyCounts);
+        Map<String, Integer> result = new HashMap<>();
+        penaltyCounts.forEach((id, count) -> result.put(HandleDictionary.GLOBAL.handle(id), count));
+        return result;
     }
 
     /**
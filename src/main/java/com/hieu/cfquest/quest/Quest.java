@@ -1,9 +1,21 @@
 package com.hieu.cfquest.quest;
 
 import com.hieu.cfquest.api.model.Problem;
+import com.hieu.cfquest.util.HandleDictionary;
+import com.hieu.cfquest.util.IntIntMap;
 
 import java.util.*;
 
+/**
+ * An active or finished quest.
+ *
+ * Per-handle state (penalties, winners, pre-solved) is kept keyed by {@link HandleDictionary} id
+ * so lookups during polling don't allocate; the lowercase-handle collections are only the
+ * persisted form and are rebuilt by {@link #syncPersistedFields()} right before serialization.
+ *
+ * The main thread changes the quest while the poller and web threads read it, so the per-handle
+ * state and the winners are only touched under the quest's lock (uncontended almost always).
+ */
 public class Quest {
     private int contestId;
     private String problemIndex;
@@ -16,20 +28,35 @@ public class Quest {
     private int timeoutMinutes;
 
     private List<Winner> winners = new ArrayList<>();
+
+    // Persisted form, lowercase handles
     private Map<String, Integer> penaltyCounts = new HashMap<>(); // cfHandle -> wrongCount
     private Set<String> solvedHandles = new HashSet<>();
+    private Set<String> preSolvedHandles = new HashSet<>(); // solved before the quest started
+
+    // Runtime form by handle id; built from the persisted form on first use after loading
+    private transient IntIntMap penalties;
+    private transient volatile BitSet solvedIds; // written last: non-null means indexed
+    private transient BitSet preSolvedIds;
 
     public Quest() {
     }
 
     public Quest(int contestId, Problem problem, int timeoutMinutes) {
+        this(contestId, problem, timeoutMinutes, System.currentTimeMillis());
+    }
+
+    /**
+     * @param startTime epoch millis, from the engine clock
+     */
+    public Quest(int contestId, Problem problem, int timeoutMinutes, long startTime) {
         this.contestId = contestId;
         this.problemIndex = problem.getIndex();
         this.problemName = problem.getName();
         this.problemRating = problem.getRating();
         this.problemUrl = contestId >= 100000 ? problem.getGymUrl() : problem.getProblemUrl();
         this.timeoutMinutes = timeoutMinutes;
-        this.startTime = System.currentTimeMillis();
+        this.startTime = startTime;
         this.endTime = startTime + (timeoutMinutes * 60 * 1000L);
     }
 
@@ -194,32 +221,105 @@ public class Quest {
         this.timeoutMinutes = timeoutMinutes;
     }
 
-    public List<Winner> getWinners() {
+    public synchronized List<Winner> getWinners() {
         return new ArrayList<>(winners);
     }
 
-    public void setWinners(List<Winner> winners) {
+    public synchronized void setWinners(List<Winner> winners) {
         this.winners = new ArrayList<>(winners);
     }
 
-    public Map<String, Integer> getPenaltyCounts() {
+    public synchronized Map<String, Integer> getPenaltyCounts() {
+        syncPersistedFields();
         return new HashMap<>(penaltyCounts);
     }
 
-    public void setPenaltyCounts(Map<String, Integer> penaltyCounts) {
+    public synchronized void setPenaltyCounts(Map<String, Integer> penaltyCounts) {
         this.penaltyCounts = new HashMap<>(penaltyCounts);
+        reindex();
     }
 
-    public Set<String> getSolvedHandles() {
+    public synchronized Set<String> getSolvedHandles() {
+        syncPersistedFields();
         return new HashSet<>(solvedHandles);
     }
 
-    public void setSolvedHandles(Set<String> solvedHandles) {
+    public synchronized void setSolvedHandles(Set<String> solvedHandles) {
         this.solvedHandles = new HashSet<>(solvedHandles);
+        reindex();
+    }
+
+    public synchronized Set<String> getPreSolvedHandles() {
+        syncPersistedFields();
+        return new HashSet<>(preSolvedHandles);
+    }
+
+    /**
+     * Copy the id-keyed state back into the lowercase-handle collections that get serialized.
+     */
+    public synchronized void syncPersistedFields() {
+        ensureIndexed();
+        HandleDictionary handles = HandleDictionary.GLOBAL;
+
+        Map<String, Integer> penaltyMap = new HashMap<>();
+        penalties.forEach((id, count) -> penaltyMap.put(handles.handle(id), count));
+        penaltyCounts = penaltyMap;
+        solvedHandles = toHandles(solvedIds);
+        preSolvedHandles = toHandles(preSolvedIds);
+    }
+
+    private static Set<String> toHandles(BitSet ids) {
+        Set<String> result = new HashSet<>();
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            result.add(HandleDictionary.GLOBAL.handle(id));
+        }
+        return result;
+    }
+
+    private synchronized void reindex() {
+        solvedIds = null;
+        ensureIndexed();
+    }
+
+    private void ensureIndexed() {
+        if (solvedIds == null) {
+            buildIndex();
+        }
+    }
+
+    private synchronized void buildIndex() {
+        if (solvedIds != null) {
+            return;
+        }
+
+        HandleDictionary handles = HandleDictionary.GLOBAL;
+
+        IntIntMap penaltyMap = new IntIntMap();
+        if (penaltyCounts != null) {
+            penaltyCounts.forEach((handle, count) -> penaltyMap.put(handles.intern(handle), count));
+        }
+
+        BitSet preSolved = new BitSet();
+        if (preSolvedHandles != null) {
+            preSolvedHandles.forEach(handle -> preSolved.set(handles.intern(handle)));
+        }
+
+        BitSet solved = new BitSet();
+        if (solvedHandles != null) {
+            solvedHandles.forEach(handle -> solved.set(handles.intern(handle)));
+        }
+
+        penalties = penaltyMap;
+        preSolvedIds = preSolved;
+        solvedIds = solved;
     }
 
     public boolean isExpired() {
-        return System.currentTimeMillis() >= endTime;
+        return isExpired(System.currentTimeMillis());
+    }
+
+    public boolean isExpired(long now) {
+        return now >= endTime;
     }
 
     public long getRemainingTimeMillis() {
@@ -234,24 +334,58 @@ public class Quest {
     }
 
     public int getPenaltyCount(String cfHandle) {
-        return penaltyCounts.getOrDefault(cfHandle.toLowerCase(), 0);
+        return getPenaltyCount(HandleDictionary.GLOBAL.lookup(cfHandle));
+    }
+
+    public synchronized int getPenaltyCount(int handleId) {
+        ensureIndexed();
+        return penalties.get(handleId, 0);
     }
 
     public void setPenaltyCount(String cfHandle, int count) {
-        penaltyCounts.put(cfHandle.toLowerCase(), count);
+        setPenaltyCount(HandleDictionary.GLOBAL.intern(cfHandle), count);
+    }
+
+    public synchronized void setPenaltyCount(int handleId, int count) {
+        ensureIndexed();
+        penalties.put(handleId, count);
+    }
+
+    /**
+     * Handles that had already solved this problem before the quest started; their
+     * accepts never count.
+     */
+    public boolean isPreSolved(String cfHandle) {
+        return isPreSolved(HandleDictionary.GLOBAL.lookup(cfHandle));
+    }
+
+    public synchronized boolean isPreSolved(int handleId) {
+        ensureIndexed();
+        return handleId >= 0 && preSolvedIds.get(handleId);
+    }
+
+    public synchronized void markPreSolved(String cfHandle) {
+        ensureIndexed();
+        preSolvedIds.set(HandleDictionary.GLOBAL.intern(cfHandle));
     }
 
     public boolean hasWon(String cfHandle) {
-        return solvedHandles.contains(cfHandle.toLowerCase());
+        return hasWon(HandleDictionary.GLOBAL.lookup(cfHandle));
+    }
+
+    public synchronized boolean hasWon(int handleId) {
+        ensureIndexed();
+        return handleId >= 0 && solvedIds.get(handleId);
     }
 
-    public Winner addWinner(String playerUuid, String playerName, String cfHandle,
-                            long solveTimeSeconds, int penaltyMinutes) {
-        if (hasWon(cfHandle)) {
+    public synchronized Winner addWinner(String playerUuid, String playerName, String cfHandle,
+                                         long solveTimeSeconds, int penaltyMinutes) {
+        int handleId = HandleDictionary.GLOBAL.intern(cfHandle);
+        if (hasWon(handleId)) {
             return null;
         }
 
-        solvedHandles.add(cfHandle.toLowerCase());
+        solvedIds.set(handleId);
 
         int place = winners.size() + 1;
         Winner winner = new Winner(playerUuid, playerName, cfHandle, place, solveTimeSeconds, penaltyMinutes);
@@ -266,7 +400,7 @@ public class Quest {
         return winner;
     }
 
-    public Winner getWinner(int place) {
+    public synchronized Winner getWinner(int place) {
         for (Winner winner : winners) {
             if (winner.getPlace() == place) {
                 return winner;
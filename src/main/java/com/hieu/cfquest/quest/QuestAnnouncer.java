@@ -0,0 +1,248 @@
+package com.hieu.cfquest.quest;
+
+import com.hieu.cfquest.engine.QuestNotifier;
+import com.hieu.cfquest.storage.ServerPlayerDirectory;
+import com.hieu.cfquest.tick.MainThreadQueue;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.packet.s2c.play.GameMessageS2CPacket;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.sound.SoundEvents;
+import net.minecraft.text.MutableText;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders quest announcements.
+ *
+ * Optimizations:
+ * - Mỗi thông báo chỉ được render một lần cho mỗi event (không build Text trong vòng lặp player)
+ * - Text được đóng gói sẵn thành chat packets và gửi qua {@code PlayerManager.sendToAll}
+ * - Các dòng cố định (header, tiêu đề) được build một lần khi khởi tạo
+ */
+public class QuestAnnouncer implements QuestNotifier {
+    private final MainThreadQueue mainThreadQueue;
+    private final ServerPlayerDirectory players;
+
+    private final Packet<?> headerPacket;
+    private final Packet<?> startTitlePacket;
+    private final Packet<?> instructionPacket;
+    private final Packet<?> endTitlePacket;
+    private final Packet<?> noWinnersPacket;
+    private final Packet<?> leaderboardTitlePacket;
+    private final Packet<?> cancelledPacket;
+
+    public QuestAnnouncer(MainThreadQueue mainThreadQueue, ServerPlayerDirectory players) {
+        this.mainThreadQueue = mainThreadQueue;
+        this.players = players;
+
+        this.headerPacket = chat(Text.literal("═══════════════════════════════════════")
+                .formatted(Formatting.GOLD));
+
+        this.startTitlePacket = chat(prefix()
+                .append(Text.literal("NHIỆM VỤ MỚI!")
+                        .formatted(Formatting.YELLOW, Formatting.BOLD)));
+
+        this.instructionPacket = chat(prefix()
+                .append(Text.literal("Giải bài và nộp trên Codeforces để nhận phần thưởng!")
+                        .formatted(Formatting.GRAY)));
+
+        this.endTitlePacket = chat(prefix()
+                .append(Text.literal("KẾT THÚC NHIỆM VỤ!")
+                        .formatted(Formatting.YELLOW, Formatting.BOLD)));
+
+        this.noWinnersPacket = chat(prefix()
+                .append(Text.literal("Không có ai giải được bài!")
+                        .formatted(Formatting.RED)));
+
+        this.leaderboardTitlePacket = chat(prefix()
+                .append(Text.literal("Bảng xếp hạng:")
+                        .formatted(Formatting.WHITE, Formatting.BOLD)));
+
+        this.cancelledPacket = chat(prefix()
+                .append(Text.literal("Nhiệm vụ đã bị hủy bởi admin.")
+                        .formatted(Formatting.RED)));
+    }
+
+    @Override
+    public void announceQuestStart(Quest quest) {
+        int rating = quest.getProblemRating();
+
+        List<Packet<?>> packets = new ArrayList<>(7);
+        packets.add(headerPacket);
+        packets.add(startTitlePacket);
+        packets.add(chat(prefix()
+                .append(Text.literal("Bài: ")
+                        .formatted(Formatting.WHITE))
+                .append(Text.literal(quest.getProblemDisplayName())
+                        .formatted(Formatting.AQUA, Formatting.BOLD))));
+        packets.add(chat(prefix()
+                .append(Text.literal("Link: ")
+                        .formatted(Formatting.WHITE))
+                .append(Text.literal(quest.getProblemUrl())
+                        .formatted(Formatting.BLUE, Formatting.UNDERLINE))));
+        packets.add(chat(prefix()
+                .append(Text.literal("Độ khó: ")
+                        .formatted(Formatting.WHITE))
+                .append(Text.literal(String.valueOf(rating))
+                        .formatted(getRatingColor(rating), Formatting.BOLD))
+                .append(Text.literal(" | Thời gian: ")
+                        .formatted(Formatting.WHITE))
+                .append(Text.literal(quest.getTimeoutMinutes() + " phút")
+                        .formatted(Formatting.GREEN))));
+        packets.add(instructionPacket);
+        packets.add(headerPacket);
+
+        mainThreadQueue.broadcastPackets("announce_quest_start", packets, SoundEvents.ENTITY_PLAYER_LEVELUP);
+    }
+
+    @Override
+    public void announceSolve(Quest.Winner winner, int place) {
+        Packet<?> message = chat(prefix()
+                .append(Text.literal(winner.getPlayerName())
+                        .formatted(Formatting.GREEN, Formatting.BOLD))
+                .append(Text.literal(" đã giải được bài!")
+                        .formatted(Formatting.YELLOW))
+                .append(Text.literal(" Hạng " + place)
+                        .formatted(getPlaceColor(place), Formatting.BOLD))
+                .append(Text.literal(" | Thời gian: ")
+                        .formatted(Formatting.WHITE))
+                .append(Text.literal(winner.getFormattedTime())
+                        .formatted(Formatting.AQUA))
+                .append(Text.literal(" | Phạt: ")
+                        .formatted(Formatting.WHITE))
+                .append(Text.literal(winner.getPenaltyMinutes() + " phút")
+                        .formatted(Formatting.RED)));
+
+        mainThreadQueue.broadcastPackets("announce_solve", List.of(message), SoundEvents.ENTITY_FIREWORK_ROCKET_BLAST);
+    }
+
+    @Override
+    public void announceQuestEnd(Quest quest) {
+        List<Quest.Winner> winners = quest.getWinners();
+
+        List<Packet<?>> packets = new ArrayList<>(6 + winners.size());
+        packets.add(headerPacket);
+        packets.add(endTitlePacket);
+        packets.add(chat(prefix()
+                .append(Text.literal("Bài: ")
+                        .formatted(Formatting.WHITE))
+                .append(Text.literal(quest.getProblemDisplayName())
+                        .formatted(Formatting.AQUA))));
+
+        if (winners.isEmpty()) {
+            packets.add(noWinnersPacket);
+        } else {
+            packets.add(leaderboardTitlePacket);
+
+            for (Quest.Winner winner : winners) {
+                packets.add(chat(Text.literal("  " + winner.getPlace() + ". ")
+                        .formatted(getPlaceColor(winner.getPlace()), Formatting.BOLD)
+                        .append(Text.literal(winner.getPlayerName())
+                                .formatted(Formatting.GREEN))
+                        .append(Text.literal(" - " + winner.getFormattedTotalTime())
+                                .formatted(Formatting.AQUA))
+                        .append(Text.literal(" (Phạt: " + winner.getPenaltyMinutes() + "m)")
+                                .formatted(Formatting.GRAY))));
+            }
+        }
+
+        packets.add(headerPacket);
+
+        mainThreadQueue.broadcastPackets("announce_quest_end", packets, SoundEvents.UI_TOAST_CHALLENGE_COMPLETE);
+    }
+
+    @Override
+    public void announceReminder(int minutesLeft) {
+        Packet<?> message = chat(prefix()
+                .append(Text.literal("Còn ")
+                        .formatted(Formatting.WHITE))
+                .append(Text.literal(minutesLeft + " phút")
+                        .formatted(Formatting.YELLOW, Formatting.BOLD))
+                .append(Text.literal(" trước khi nhiệm vụ kết thúc!")
+                        .formatted(Formatting.WHITE)));
+
+        mainThreadQueue.broadcastPackets("announce_reminder", List.of(message), SoundEvents.ENTITY_EXPERIENCE_ORB_PICKUP);
+    }
+
+    @Override
+    public void announceUpcoming(int secondsLeft, int rating) {
+        String remaining = secondsLeft >= 60 && secondsLeft % 60 == 0
+                ? (secondsLeft / 60) + " phút"
+                : secondsLeft + " giây";
+
+        MutableText text = prefix()
+                .append(Text.literal("Nhiệm vụ mới bắt đầu sau ")
+                        .formatted(Formatting.WHITE))
+                .append(Text.literal(remaining)
+                        .formatted(Formatting.YELLOW, Formatting.BOLD));
+        if (rating > 0) {
+            text.append(Text.literal(" | Độ khó: ")
+                            .formatted(Formatting.WHITE))
+                    .append(Text.literal(String.valueOf(rating))
+                            .formatted(getRatingColor(rating), Formatting.BOLD));
+        }
+        Packet<?> message = chat(text);
+
+        mainThreadQueue.broadcastPackets("announce_upcoming", List.of(message),
+                secondsLeft <= 5 ? SoundEvents.BLOCK_NOTE_BLOCK_PLING.value() : null);
+    }
+
+    @Override
+    public void announceCancelled() {
+        mainThreadQueue.broadcastPackets("announce_cancelled", List.of(cancelledPacket), null);
+    }
+
+    @Override
+    public void announceWrongAnswer(String playerIdentifier, int penaltyMinutes, int newWrongs, int totalWrongs) {
+        ServerPlayerEntity player = players.getPlayer(playerIdentifier);
+        if (player != null) {
+            sendWrongAnswer(player, penaltyMinutes, newWrongs, totalWrongs);
+        }
+    }
+
+    /**
+     * Personal wrong-answer notice. Must be called on the server thread.
+     */
+    public void sendWrongAnswer(ServerPlayerEntity player, int penaltyMinutes, int newWrongs, int totalWrongs) {
+        Text message = prefix()
+                .append(Text.literal("Bạn nộp sai! ")
+                        .formatted(Formatting.RED))
+                .append(Text.literal("Phạt +" + (newWrongs * penaltyMinutes) + " phút. ")
+                        .formatted(Formatting.YELLOW))
+                .append(Text.literal("Tổng phạt: " + (totalWrongs * penaltyMinutes) + " phút. Cố gắng lên!")
+                        .formatted(Formatting.GRAY));
+
+        player.sendMessage(message, false);
+        player.playSound(SoundEvents.ENTITY_VILLAGER_NO, 1.0f, 1.0f);
+    }
+
+    private static MutableText prefix() {
+        return Text.literal("[QUEST] ").formatted(Formatting.GOLD);
+    }
+
+    private static Packet<?> chat(Text text) {
+        return new GameMessageS2CPacket(text, false);
+    }
+
+    static Formatting getPlaceColor(int place) {
+        return switch (place) {
+            case 1 -> Formatting.GOLD;
+            case 2 -> Formatting.GRAY;
+            case 3 -> Formatting.RED;
+            default -> Formatting.WHITE;
+        };
+    }
+
+    static Formatting getRatingColor(int rating) {
+        if (rating >= 2400) return Formatting.RED;
+        if (rating >= 2100) return Formatting.GOLD;
+        if (rating >= 1900) return Formatting.LIGHT_PURPLE;
+        if (rating >= 1600) return Formatting.BLUE;
+        if (rating >= 1400) return Formatting.AQUA;
+        if (rating >= 1200) return Formatting.GREEN;
+        return Formatting.GRAY;
+    }
+}
@@ -4,43 +4,94 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.hieu.cfquest.CFQuestMod;
 import com.hieu.cfquest.api.model.Problem;
-import com.hieu.cfquest.config.ModConfig;
-import com.hieu.cfquest.reward.RewardManager;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.engine.EngineClock;
+import com.hieu.cfquest.engine.MainThreadExecutor;
+import com.hieu.cfquest.engine.PlayerDirectory;
+import com.hieu.cfquest.engine.QuestEvent;
+import com.hieu.cfquest.engine.QuestEventBus;
+import com.hieu.cfquest.engine.QuestNotifier;
+import com.hieu.cfquest.storage.DataFiles;
 import com.hieu.cfquest.storage.PlayerDataManager;
-import com.hieu.cfquest.storage.QuestHistory;
-import net.minecraft.server.MinecraftServer;
-import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.sound.SoundEvents;
-import net.minecraft.text.Text;
-import net.minecraft.util.Formatting;
-import net.minecraft.util.WorldSavePath;
+import com.hieu.cfquest.storage.SolvedProblemIndex;
+import com.hieu.cfquest.util.TimerWheel;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.UUID;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Owns the active quest: start, solves, wrong answers, deadline and end.
+ *
+ * Depends only on the engine ports (clock, data directory, main-thread executor, notifier,
+ * player directory), so it runs without a Minecraft server, e.g. in a simulation.
+ *
+ * Side effects of a quest (announcements, rewards, history) are not done here: every state
+ * change is published on the {@link QuestEventBus} and the subscribers react to it.
+ */
 public class QuestManager {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-
-    private final MinecraftServer server;
+    private static final int FINAL_POLL_TIMEOUT_SECONDS = 15;
+
+    private final Path dataDir;
+    private final EngineClock clock;
+    private final MainThreadExecutor mainThread;
+    private final TimerWheel timerWheel;
+    private final QuestEventBus events;
+    private final QuestNotifier notifier;
     private final PlayerDataManager playerDataManager;
-    private final RewardManager rewardManager;
-    private final QuestHistory questHistory;
-    private final ModConfig config;
+    private final PlayerDirectory players;
+    private final SolvedProblemIndex solvedIndex;
+    private final ConfigStore config;
 
-    private Quest activeQuest;
+    private final List<TimerWheel.Timeout> deadlines = new ArrayList<>();
 
-    public QuestManager(MinecraftServer server, PlayerDataManager playerDataManager,
-                        RewardManager rewardManager, QuestHistory questHistory, ModConfig config) {
-        this.server = server;
+    private volatile Quest activeQuest;
+    // The quest whose final poll is running; makes finishQuest run once per quest
+    private final AtomicReference<Quest> finishing = new AtomicReference<>();
+    private volatile Function<Quest, CompletableFuture<Void>> finalPoll =
+            quest -> CompletableFuture.completedFuture(null);
+    private final CompletableFuture<Void> ready;
+
+    /**
+     * @param dataDir  the {@code cfquest} data directory
+     * @param notifier receives the timer-driven reminders; lifecycle announcements go through {@code events}
+     */
+    public QuestManager(Path dataDir, EngineClock clock, MainThreadExecutor mainThread, TimerWheel timerWheel,
+                        QuestEventBus events, QuestNotifier notifier, PlayerDataManager playerDataManager,
+                        PlayerDirectory players, SolvedProblemIndex solvedIndex, ConfigStore config) {
+        this.dataDir = dataDir;
+        this.clock = clock;
+        this.mainThread = mainThread;
+        this.timerWheel = timerWheel;
+        this.events = events;
+        this.notifier = notifier;
         this.playerDataManager = playerDataManager;
-        this.rewardManager = rewardManager;
-        this.questHistory = questHistory;
+        this.players = players;
+        this.solvedIndex = solvedIndex;
         this.config = config;
 
-        // Load any saved active quest
-        loadActiveQuest();
+        // Load any saved active quest in the background; the timer wheel only starts at SERVER_STARTED
+        this.ready = DataFiles.loadAsync("active_quest", () -> {
+            loadActiveQuest();
+            if (activeQuest != null) {
+                scheduleDeadlines(activeQuest);
+            }
+        });
+    }
+
+    /**
+     * @return a future that completes once the saved active quest (if any) has been restored
+     */
+    public CompletableFuture<Void> ready() {
+        return ready;
     }
 
     public boolean hasActiveQuest() {
@@ -51,16 +102,46 @@ public class QuestManager {
         return activeQuest;
     }
 
+    public QuestNotifier getNotifier() {
+        return notifier;
+    }
+
+    /**
+     * Set the standings poll run at a quest's deadline before it is closed (the poller's
+     * {@code finalPoll}); without one the quest closes right away.
+     */
+    public void setFinalPoll(Function<Quest, CompletableFuture<Void>> finalPoll) {
+        this.finalPoll = finalPoll;
+    }
+
     public boolean startQuest(int contestId, Problem problem, int timeoutMinutes) {
+        return startQuest(contestId, problem, timeoutMinutes, Set.of());
+    }
+
+    /**
+     * @param knownPreSolved handles already seen with an accept on this problem (e.g. from a
+     *                       standings baseline taken while prefetching)
+     */
+    public boolean startQuest(int contestId, Problem problem, int timeoutMinutes, Set<String> knownPreSolved) {
         if (hasActiveQuest()) {
             return false;
         }
 
-        activeQuest = new Quest(contestId, problem, timeoutMinutes);
+        Quest quest = new Quest(contestId, problem, timeoutMinutes, clock.currentTimeMillis());
+
+        // Snapshot who had already solved it; those accepts never count for this quest
+        String problemKey = SolvedProblemIndex.key(contestId, problem.getIndex());
+        for (String cfHandle : playerDataManager.getAllLinkedPlayers().values()) {
+            if (solvedIndex.isSolved(cfHandle, problemKey) || knownPreSolved.contains(cfHandle.toLowerCase())) {
+                quest.markPreSolved(cfHandle);
+            }
+        }
+
+        activeQuest = quest;
         saveActiveQuest();
+        scheduleDeadlines(activeQuest);
 
-        // Announce quest to all players
-        announceQuestStart();
+        events.publish(new QuestEvent.Started(quest, clock.currentTimeMillis()));
 
         CFQuestMod.LOGGER.info("Đã bắt đầu quest: {} (Contest: {}, Timeout: {}m)",
                 problem.getName(), contestId, timeoutMinutes);
@@ -75,22 +156,13 @@ public class QuestManager {
 
         Quest quest = activeQuest;
         activeQuest = null;
+        cancelDeadlines();
 
         // Delete saved quest file
         deleteSavedQuest();
 
-        if (cancelled) {
-            announceCancelled();
-        } else {
-            // Distribute rewards
-            distributeRewards(quest);
-
-            // Announce results
-            announceQuestEnd(quest);
-
-            // Save to history
-            questHistory.addQuest(quest);
-        }
+        // Rewards, results announcement and history are subscribers of this event
+        events.publish(new QuestEvent.Ended(quest, clock.currentTimeMillis(), cancelled));
 
         CFQuestMod.LOGGER.info("Đã kết thúc quest: {} (cancelled: {})",
                 quest.getProblemDisplayName(), cancelled);
@@ -117,259 +189,97 @@ public class QuestManager {
 
         saveActiveQuest();
 
-        // Announce solve
-        announceSolve(winner);
+        events.publish(new QuestEvent.Solved(activeQuest, clock.currentTimeMillis(), winner, winner.getPlace()));
 
-        // Check if quest should end
-        if (activeQuest.getWinners().size() >= config.getQuest().getMaxWinners()) {
-            server.execute(() -> endQuest(false));
+        // All slots filled: close through the final poll, like the deadline does
+        if (activeQuest.getWinners().size() >= config.current().getQuest().getMaxWinners()
+                && finishing.get() != activeQuest) {
+            CFQuestMod.LOGGER.info("Đã đủ người thắng, đang poll lần cuối và kết thúc...");
+            finishQuest(activeQuest);
         }
 
         return winner.getPlace();
     }
 
     public void notifyWrongAnswer(String playerUuid, String cfHandle, int newWrongs, int totalWrongs) {
-        ServerPlayerEntity player = getPlayer(playerUuid);
-
-        if (player != null) {
-            int penaltyMinutes = config.getQuest().getPenaltyMinutes();
-
-            Text message = Text.literal("[QUEST] ")
-                    .formatted(Formatting.GOLD)
-                    .append(Text.literal("Bạn nộp sai! ")
-                            .formatted(Formatting.RED))
-                    .append(Text.literal("Phạt +" + (newWrongs * penaltyMinutes) + " phút. ")
-                            .formatted(Formatting.YELLOW))
-                    .append(Text.literal("Tổng phạt: " + (totalWrongs * penaltyMinutes) + " phút. Cố gắng lên!")
-                            .formatted(Formatting.GRAY));
-
-            server.execute(() -> {
-                player.sendMessage(message, false);
-                player.playSound(SoundEvents.ENTITY_VILLAGER_NO, 1.0f, 1.0f);
-            });
-        }
-    }
-
-    private void distributeRewards(Quest quest) {
-        for (Quest.Winner winner : quest.getWinners()) {
-            ServerPlayerEntity player = getPlayer(winner.getPlayerUuid());
-
-            if (player != null) {
-                rewardManager.giveReward(player, quest.getProblemRating(), winner.getPlace());
-            }
+        Quest quest = activeQuest;
+        if (quest == null) {
+            return;
         }
+        events.publish(new QuestEvent.WrongAnswer(quest, clock.currentTimeMillis(), playerUuid, cfHandle,
+                config.current().getQuest().getPenaltyMinutes(), newWrongs, totalWrongs));
     }
 
-    private void announceQuestStart() {
-        Text header = Text.literal("═══════════════════════════════════════")
-                .formatted(Formatting.GOLD);
-
-        Text title = Text.literal("[QUEST] ")
-                .formatted(Formatting.GOLD)
-                .append(Text.literal("NHIỆM VỤ MỚI!")
-                        .formatted(Formatting.YELLOW, Formatting.BOLD));
-
-        Text problemInfo = Text.literal("[QUEST] ")
-                .formatted(Formatting.GOLD)
-                .append(Text.literal("Bài: ")
-                        .formatted(Formatting.WHITE))
-                .append(Text.literal(activeQuest.getProblemDisplayName())
-                        .formatted(Formatting.AQUA, Formatting.BOLD));
-
-        Text linkInfo = Text.literal("[QUEST] ")
-                .formatted(Formatting.GOLD)
-                .append(Text.literal("Link: ")
-                        .formatted(Formatting.WHITE))
-                .append(Text.literal(activeQuest.getProblemUrl())
-                        .formatted(Formatting.BLUE, Formatting.UNDERLINE));
-
-        int rating = activeQuest.getProblemRating();
-        Formatting ratingColor = getRatingColor(rating);
-
-        Text ratingInfo = Text.literal("[QUEST] ")
-                .formatted(Formatting.GOLD)
-                .append(Text.literal("Độ khó: ")
-                        .formatted(Formatting.WHITE))
-                .append(Text.literal(String.valueOf(rating))
-                        .formatted(ratingColor, Formatting.BOLD))
-                .append(Text.literal(" | Thời gian: ")
-                        .formatted(Formatting.WHITE))
-                .append(Text.literal(activeQuest.getTimeoutMinutes() + " phút")
-                        .formatted(Formatting.GREEN));
-
-        Text instruction = Text.literal("[QUEST] ")
-                .formatted(Formatting.GOLD)
-                .append(Text.literal("Giải bài và nộp trên Codeforces để nhận phần thưởng!")
-                        .formatted(Formatting.GRAY));
-
-        server.execute(() -> {
-            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
-                player.sendMessage(header, false);
-                player.sendMessage(title, false);
-                player.sendMessage(problemInfo, false);
-                player.sendMessage(linkInfo, false);
-                player.sendMessage(ratingInfo, false);
-                player.sendMessage(instruction, false);
-                player.sendMessage(header, false);
-
-                // Play sound
-                player.playSound(SoundEvents.ENTITY_PLAYER_LEVELUP, 1.0f, 1.0f);
+    /**
+     * Register the quest's end time and reminder pings with the timer wheel.
+     */
+    private void scheduleDeadlines(Quest quest) {
+        cancelDeadlines();
+
+        long now = clock.currentTimeMillis();
+        synchronized (deadlines) {
+            for (int minutes : config.current().getQuest().getReminderMinutes()) {
+                long at = quest.getEndTime() - minutes * 60_000L;
+                if (minutes > 0 && at > now) {
+                    deadlines.add(timerWheel.schedule("quest_reminder", at, () -> {
+                        if (activeQuest == quest) {
+                            notifier.announceReminder(minutes);
+                        }
+                    }));
+                }
             }
-        });
-    }
 
-    private void announceSolve(Quest.Winner winner) {
-        Formatting placeColor;
-        String placeEmoji;
-        switch (winner.getPlace()) {
-            case 1:
-                placeColor = Formatting.GOLD;
-                placeEmoji = "1";
-                break;
-            case 2:
-                placeColor = Formatting.GRAY;
-                placeEmoji = "2";
-                break;
-            case 3:
-                placeColor = Formatting.RED;
-                placeEmoji = "3";
-                break;
-            default:
-                placeColor = Formatting.WHITE;
-                placeEmoji = String.valueOf(winner.getPlace());
+            deadlines.add(timerWheel.schedule("quest_deadline", quest.getEndTime(), () -> onDeadline(quest)));
         }
-
-        Text message = Text.literal("[QUEST] ")
-                .formatted(Formatting.GOLD)
-                .append(Text.literal(winner.getPlayerName())
-                        .formatted(Formatting.GREEN, Formatting.BOLD))
-                .append(Text.literal(" đã giải được bài!")
-                        .formatted(Formatting.YELLOW))
-                .append(Text.literal(" Hạng " + placeEmoji)
-                        .formatted(placeColor, Formatting.BOLD))
-                .append(Text.literal(" | Thời gian: ")
-                        .formatted(Formatting.WHITE))
-                .append(Text.literal(winner.getFormattedTime())
-                        .formatted(Formatting.AQUA))
-                .append(Text.literal(" | Phạt: ")
-                        .formatted(Formatting.WHITE))
-                .append(Text.literal(winner.getPenaltyMinutes() + " phút")
-                        .formatted(Formatting.RED));
-
-        server.execute(() -> {
-            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
-                player.sendMessage(message, false);
-                player.playSound(SoundEvents.ENTITY_FIREWORK_ROCKET_BLAST, 1.0f, 1.0f);
-            }
-        });
     }
 
-    private void announceQuestEnd(Quest quest) {
-        Text header = Text.literal("═══════════════════════════════════════")
-                .formatted(Formatting.GOLD);
-
-        Text title = Text.literal("[QUEST] ")
-                .formatted(Formatting.GOLD)
-                .append(Text.literal("KẾT THÚC NHIỆM VỤ!")
-                        .formatted(Formatting.YELLOW, Formatting.BOLD));
-
-        Text problemInfo = Text.literal("[QUEST] ")
-                .formatted(Formatting.GOLD)
-                .append(Text.literal("Bài: ")
-                        .formatted(Formatting.WHITE))
-                .append(Text.literal(quest.getProblemDisplayName())
-                        .formatted(Formatting.AQUA));
-
-        server.execute(() -> {
-            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
-                player.sendMessage(header, false);
-                player.sendMessage(title, false);
-                player.sendMessage(problemInfo, false);
-
-                if (quest.getWinners().isEmpty()) {
-                    Text noWinners = Text.literal("[QUEST] ")
-                            .formatted(Formatting.GOLD)
-                            .append(Text.literal("Không có ai giải được bài!")
-                                    .formatted(Formatting.RED));
-                    player.sendMessage(noWinners, false);
-                } else {
-                    Text leaderboard = Text.literal("[QUEST] ")
-                            .formatted(Formatting.GOLD)
-                            .append(Text.literal("Bảng xếp hạng:")
-                                    .formatted(Formatting.WHITE, Formatting.BOLD));
-                    player.sendMessage(leaderboard, false);
-
-                    for (Quest.Winner winner : quest.getWinners()) {
-                        Formatting placeColor;
-                        switch (winner.getPlace()) {
-                            case 1:
-                                placeColor = Formatting.GOLD;
-                                break;
-                            case 2:
-                                placeColor = Formatting.GRAY;
-                                break;
-                            case 3:
-                                placeColor = Formatting.RED;
-                                break;
-                            default:
-                                placeColor = Formatting.WHITE;
-                        }
-
-                        Text winnerLine = Text.literal("  " + winner.getPlace() + ". ")
-                                .formatted(placeColor, Formatting.BOLD)
-                                .append(Text.literal(winner.getPlayerName())
-                                        .formatted(Formatting.GREEN))
-                                .append(Text.literal(" - " + winner.getFormattedTotalTime())
-                                        .formatted(Formatting.AQUA))
-                                .append(Text.literal(" (Phạt: " + winner.getPenaltyMinutes() + "m)")
-                                        .formatted(Formatting.GRAY));
-                        player.sendMessage(winnerLine, false);
-                    }
-                }
-
-                player.sendMessage(header, false);
-                player.playSound(SoundEvents.UI_TOAST_CHALLENGE_COMPLETE, 1.0f, 1.0f);
+    private void cancelDeadlines() {
+        synchronized (deadlines) {
+            for (TimerWheel.Timeout timeout : deadlines) {
+                timeout.cancel();
             }
-        });
+            deadlines.clear();
+        }
     }
 
-    private void announceCancelled() {
-        Text message = Text.literal("[QUEST] ")
-                .formatted(Formatting.GOLD)
-                .append(Text.literal("Nhiệm vụ đã bị hủy bởi admin.")
-                        .formatted(Formatting.RED));
-
-        server.execute(() -> {
-            for (ServerPlayerEntity player : server.getPlayerManager().getPlayerList()) {
-                player.sendMessage(message, false);
-            }
-        });
-    }
+    /**
+     * Runs on the timer thread at the quest's end time.
+     */
+    private void onDeadline(Quest quest) {
+        if (activeQuest != quest) {
+            return;
+        }
 
-    private Formatting getRatingColor(int rating) {
-        if (rating >= 2400) return Formatting.RED;
-        if (rating >= 2100) return Formatting.GOLD;
-        if (rating >= 1900) return Formatting.LIGHT_PURPLE;
-        if (rating >= 1600) return Formatting.BLUE;
-        if (rating >= 1400) return Formatting.AQUA;
-        if (rating >= 1200) return Formatting.GREEN;
-        return Formatting.GRAY;
+        CFQuestMod.LOGGER.info("Quest đã hết thời gian, đang poll lần cuối và kết thúc...");
+        finishQuest(quest);
     }
 
     /**
-     * Get player by identifier (supports both UUID and offline username)
+     * Close {@code quest} once: one final standings poll so that accepts from players the tiered
+     * polling skipped still count, then end it on the main thread. Used at the deadline and when
+     * the winner slots fill; later calls for the same quest are ignored. Safe from any thread.
      */
-    private ServerPlayerEntity getPlayer(String playerIdentifier) {
-        return playerDataManager.getOnlinePlayer(playerIdentifier);
+    public void finishQuest(Quest quest) {
+        Quest previous = finishing.get();
+        if (activeQuest != quest || previous == quest || !finishing.compareAndSet(previous, quest)) {
+            return;
+        }
+
+        finalPoll.apply(quest).completeOnTimeout(null, FINAL_POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .whenComplete((v, e) -> mainThread.submit("quest_end", () -> {
+                    if (activeQuest == quest) {
+                        endQuest(false);
+                    }
+                }));
     }
 
     /**
      * Get player name by identifier
      */
     private String getPlayerName(String playerIdentifier) {
-        ServerPlayerEntity player = getPlayer(playerIdentifier);
-        if (player != null) {
-            return player.getName().getString();
+        String onlineName = players.getOnlineName(playerIdentifier);
+        if (onlineName != null) {
+            return onlineName;
         }
 
         // If player is offline, try to get from stored data
@@ -394,9 +304,9 @@ public class QuestManager {
         Path questPath = getActiveQuestPath();
 
         try {
-            Files.createDirectories(questPath.getParent());
+            activeQuest.syncPersistedFields();
             String json = GSON.toJson(activeQuest);
-            Files.writeString(questPath, json);
+            DataFiles.writeString(questPath, json, "active_quest");
         } catch (IOException e) {
             CFQuestMod.LOGGER.error("Lỗi khi lưu active quest: {}", e.getMessage());
         }
@@ -410,7 +320,7 @@ public class QuestManager {
                 String json = Files.readString(questPath);
                 activeQuest = GSON.fromJson(json, Quest.class);
 
-                if (activeQuest.isExpired()) {
+                if (activeQuest.isExpired(clock.currentTimeMillis())) {
                     CFQuestMod.LOGGER.info("Quest đã lưu đã hết hạn, bỏ qua.");
                     activeQuest = null;
                     deleteSavedQuest();
@@ -434,6 +344,6 @@ public class QuestManager {
     }
 
     private Path getActiveQuestPath() {
-        return server.getSavePath(WorldSavePath.ROOT).resolve("cfquest").resolve("active_quest.json");
+        return dataDir.resolve("active_quest.json");
     }
 }
@@ -1,201 +1,538 @@
 package com.hieu.cfquest.quest;
 
+import com.google.gson.Gson;
 import com.hieu.cfquest.CFQuestMod;
 import com.hieu.cfquest.api.CodeforcesAPI;
+import com.hieu.cfquest.api.CodeforcesPoller;
 import com.hieu.cfquest.api.model.Problem;
+import com.hieu.cfquest.config.ConfigSnapshot;
+import com.hieu.cfquest.config.ConfigStore;
 import com.hieu.cfquest.config.ModConfig;
-import net.minecraft.server.MinecraftServer;
-
-import java.time.*;
-import java.time.temporal.ChronoUnit;
+import com.hieu.cfquest.engine.EngineClock;
+import com.hieu.cfquest.engine.MainThreadExecutor;
+import com.hieu.cfquest.metrics.Counter;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.storage.PlayerDataManager;
+import com.hieu.cfquest.storage.ProblemCatalog;
+import com.hieu.cfquest.storage.SolvedProblemIndex;
+import com.hieu.cfquest.util.CronExpression;
+import com.hieu.cfquest.util.Deadline;
+import com.hieu.cfquest.util.TimerWheel;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Starts quests from the configured named cron schedules.
+ *
+ * Optimizations:
+ * - Mọi schedule dùng chung một Timer Wheel; mỗi schedule chỉ giữ đúng một lần chạy kế tiếp
+ * - Cron được parse một lần thành bitmask, lần chạy kế tiếp tính bằng cách nhảy bit (không duyệt từng ngày)
+ * - Bài của quest tiếp theo được chọn và resolve trước giờ bắt đầu {@code prefetchMinutes} phút
+ * - Prefetch làm nóng cache danh sách bài, lấy standings gốc của contest và đồng bộ solved index
+ * - Countdown và giờ bắt đầu chạy trên Timer Wheel dùng chung: quest bắt đầu đúng giây,
+ *   không có API call nào trên critical path
+ *
+ * A failed prefetch is retried until the start time; as a last resort the problem is resolved
+ * at the start time, as before.
+ */
 public class QuestScheduler {
-    private final MinecraftServer server;
+    private static final Gson GSON = new Gson();
+    private static final long PREFETCH_RETRY_MS = 30_000;
+    private static final long PRESOLVED_MAX_AGE_MS = 10 * 60 * 1000L;
+
+    private static final Counter PREFETCH_OK = Metrics.REGISTRY.counter(
+            "cfquest_schedule_prefetch_total", "Scheduled quest prefetch attempts by result", "result", "ok");
+    private static final Counter PREFETCH_FAILED = Metrics.REGISTRY.counter(
+            "cfquest_schedule_prefetch_total", "Scheduled quest prefetch attempts by result", "result", "failed");
+    private static final Counter PREFETCH_LATE = Metrics.REGISTRY.counter(
+            "cfquest_schedule_prefetch_total", "Scheduled quest prefetch attempts by result", "result", "late");
+
+    private final EngineClock clock;
+    private final MainThreadExecutor mainThread;
+    private final TimerWheel timerWheel;
     private final QuestManager questManager;
-    private final ModConfig config;
+    private final PlayerDataManager playerDataManager;
+    private final ConfigStore config;
+    private final CodeforcesPoller poller;
     private final CodeforcesAPI api;
+    private final ProblemCatalog catalog;
+    private final SolvedProblemIndex solvedIndex;
     private final Random random = new Random();
 
-    private ScheduledExecutorService executor;
-    private ScheduledFuture<?> scheduledTask;
+    private volatile ExecutorService executor;
+    // Replaced as a whole on start/reload; read from timer and scheduler threads
+    private volatile Map<String, Schedule> schedules = Map.of();
+    private final ConcurrentHashMap<String, Run> runs = new ConcurrentHashMap<>();
+
+    /**
+     * A named schedule with its cron parsed and its zone resolved.
+     *
+     * @param definition everything that shapes an occurrence; equal definitions across a config
+     *                   reload mean the pending occurrence can be kept
+     */
+    private record Schedule(String name, CronExpression cron, ZoneId zone, ModConfig.NamedSchedule settings,
+                            String definition) {
+    }
+
+    /**
+     * A fully resolved quest waiting for its start time.
+     */
+    private record PreparedQuest(Schedule schedule, int contestId, Problem problem, Set<String> preSolvedHandles,
+                                 Map<String, CodeforcesAPI.StandingsEntry> standings) {
+        PreparedQuest(Schedule schedule, int contestId, Problem problem) {
+            this(schedule, contestId, problem, Set.of(), Map.of());
+        }
+    }
+
+    /**
+     * One scheduled occurrence: its timers and, once prefetched, the prepared quest.
+     */
+    private static final class Run {
+        private final Schedule schedule;
+        private final long startAt;
+        private final List<TimerWheel.Timeout> timers = new ArrayList<>();
+        private volatile PreparedQuest prepared;
+        private volatile boolean cancelled = false;
+
+        Run(Schedule schedule, long startAt) {
+            this.schedule = schedule;
+            this.startAt = startAt;
+        }
 
-    public QuestScheduler(MinecraftServer server, QuestManager questManager, ModConfig config) {
-        this.server = server;
+        synchronized void add(TimerWheel.Timeout timeout) {
+            if (cancelled) {
+                timeout.cancel();
+            } else {
+                timers.add(timeout);
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            timers.forEach(TimerWheel.Timeout::cancel);
+            timers.clear();
+        }
+    }
+
+    /**
+     * @param poller supplies the API client and takes the standings baseline of a prepared quest
+     */
+    public QuestScheduler(EngineClock clock, MainThreadExecutor mainThread, TimerWheel timerWheel,
+                          QuestManager questManager, PlayerDataManager playerDataManager,
+                          ProblemCatalog catalog, SolvedProblemIndex solvedIndex, CodeforcesPoller poller,
+                          ConfigStore config) {
+        this.clock = clock;
+        this.mainThread = mainThread;
+        this.timerWheel = timerWheel;
         this.questManager = questManager;
+        this.playerDataManager = playerDataManager;
+        this.catalog = catalog;
+        this.solvedIndex = solvedIndex;
+        this.poller = poller;
         this.config = config;
-        this.api = new CodeforcesAPI(config);
+        this.api = poller.getApi();
     }
 
-    public void start() {
-        if (!config.getSchedule().isEnabled()) {
+    public synchronized void start() {
+        if (!config.current().getSchedule().isEnabled()) {
             return;
         }
 
-        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        executor = Executors.newSingleThreadExecutor(r -> {
             Thread t = new Thread(r, "CFQuest-Scheduler");
             t.setDaemon(true);
             return t;
         });
 
-        scheduleNextQuest();
+        schedules = loadSchedules();
+        for (Schedule schedule : schedules.values()) {
+            scheduleNext(schedule);
+        }
 
-        CFQuestMod.LOGGER.info("Đã bắt đầu Quest Scheduler");
+        CFQuestMod.LOGGER.info("Đã bắt đầu Quest Scheduler ({} lịch)", schedules.size());
     }
 
-    public void stop() {
-        if (scheduledTask != null) {
-            scheduledTask.cancel(false);
-            scheduledTask = null;
+    /**
+     * Apply a reloaded config. Pending occurrences of unchanged schedules keep their timers and
+     * prefetched quest; changed and new schedules are (re)scheduled, removed ones cancelled.
+     * Enabling or disabling the scheduler starts or stops it.
+     */
+    public synchronized void reconfigure() {
+        if (!config.current().getSchedule().isEnabled()) {
+            if (executor != null) {
+                stop(Deadline.after(0));
+            }
+            return;
+        }
+        if (executor == null) {
+            start();
+            return;
         }
 
-        if (executor != null) {
-            executor.shutdown();
-            try {
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
+        Map<String, Schedule> next = loadSchedules();
+        int kept = 0;
+        for (Run run : runs.values()) {
+            Schedule replacement = next.get(run.schedule.name());
+            if (replacement != null && replacement.definition().equals(run.schedule.definition())) {
+                kept++;
+            } else {
+                runs.remove(run.schedule.name(), run);
+                run.cancel();
+            }
+        }
+
+        schedules = next;
+        for (Schedule schedule : next.values()) {
+            if (!runs.containsKey(schedule.name())) {
+                scheduleNext(schedule);
             }
+        }
+
+        CFQuestMod.LOGGER.info("Đã áp dụng lại lịch quest ({} lịch, giữ nguyên {})", next.size(), kept);
+    }
+
+    public synchronized void stop(Deadline deadline) {
+        runs.values().forEach(Run::cancel);
+        runs.clear();
+
+        if (executor != null) {
+            deadline.awaitTermination(executor);
             executor = null;
         }
 
         CFQuestMod.LOGGER.info("Đã dừng Quest Scheduler");
     }
 
-    private void scheduleNextQuest() {
+    private Map<String, Schedule> loadSchedules() {
+        Map<String, Schedule> schedules = new LinkedHashMap<>();
+        ConfigSnapshot snapshot = config.snapshot();
+        ModConfig.ScheduleConfig scheduleConfig = snapshot.config().getSchedule();
+        String shared = scheduleConfig.getPrefetchMinutes() + "|" + scheduleConfig.getCountdownSeconds();
+
+        // Cron and zones were parsed once when the snapshot was built
+        for (ConfigSnapshot.Schedule parsed : snapshot.schedules()) {
+            String definition = GSON.toJson(parsed.settings()) + "|" + parsed.zone() + "|" + shared;
+            schedules.put(parsed.name(), new Schedule(parsed.name(), parsed.cron(), parsed.zone(),
+                    parsed.settings(), definition));
+        }
+        return schedules;
+    }
+
+    /**
+     * Register the next occurrence of {@code schedule}: a prefetch timer, the countdown timers
+     * and an exact start timer.
+     */
+    private void scheduleNext(Schedule schedule) {
         if (executor == null || executor.isShutdown()) {
             return;
         }
 
-        long delayMs = calculateNextRunDelay();
+        // Follow config reloads: a removed schedule stops, a changed one continues with its new definition
+        schedule = schedules.get(schedule.name());
+        if (schedule == null) {
+            return;
+        }
+
+        long now = clock.currentTimeMillis();
+        ZonedDateTime nextRun = schedule.cron().next(Instant.ofEpochMilli(now).atZone(schedule.zone()));
+        if (nextRun == null) {
+            CFQuestMod.LOGGER.warn("Lịch '{}' ({}) không bao giờ chạy", schedule.name(), schedule.cron());
+            return;
+        }
 
-        if (delayMs > 0) {
-            scheduledTask = executor.schedule(this::runScheduledQuest, delayMs, TimeUnit.MILLISECONDS);
+        int prefetchMinutes = Math.max(0, config.current().getSchedule().getPrefetchMinutes());
+        long startAt = nextRun.toInstant().toEpochMilli();
+        Run run = new Run(schedule, startAt);
 
-            LocalDateTime nextRun = LocalDateTime.now().plus(delayMs, ChronoUnit.MILLIS);
-            CFQuestMod.LOGGER.info("Quest tiếp theo được lên lịch vào: {}", nextRun);
+        Run previous = runs.put(schedule.name(), run);
+        if (previous != null) {
+            previous.cancel();
         }
+
+        // Timer tasks stay tiny: resolution work goes to the scheduler thread
+        run.add(timerWheel.schedule("quest_prefetch", startAt - prefetchMinutes * 60_000L,
+                () -> runAsync(() -> prefetch(run))));
+        scheduleCountdown(run, now);
+        run.add(timerWheel.schedule("scheduled_quest_start", startAt, () -> onStartTime(run)));
+
+        CFQuestMod.LOGGER.info("Quest tiếp theo của lịch '{}' vào: {} (chuẩn bị trước {} phút)",
+                schedule.name(), nextRun, prefetchMinutes);
     }
 
-    private void runScheduledQuest() {
-        if (questManager.hasActiveQuest()) {
-            CFQuestMod.LOGGER.info("Đã có quest đang chạy, bỏ qua quest theo lịch");
-            scheduleNextQuest();
+    private void runAsync(Runnable task) {
+        ExecutorService current = executor;
+        if (current == null) {
             return;
         }
+        try {
+            current.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
 
-        List<Integer> problemPool = config.getSchedule().getProblemPool();
-
-        if (problemPool.isEmpty()) {
-            CFQuestMod.LOGGER.warn("Problem pool trống, không thể bắt đầu quest theo lịch");
-            scheduleNextQuest();
+    private void prefetch(Run run) {
+        if (run.cancelled || run.prepared != null) {
             return;
         }
 
-        // Select random contest from pool
-        int contestId = problemPool.get(random.nextInt(problemPool.size()));
+        resolveQuest(run.schedule).whenComplete((prepared, e) -> {
+            if (run.cancelled) {
+                return;
+            }
 
-        // Get problems from contest and select randomly
-        api.getContestProblems(contestId).thenAccept(problems -> {
-            if (problems.isEmpty()) {
-                CFQuestMod.LOGGER.warn("Không thể lấy bài từ contest {}", contestId);
-                scheduleNextQuest();
+            if (prepared == null) {
+                PREFETCH_FAILED.inc();
+                long retryAt = clock.currentTimeMillis() + PREFETCH_RETRY_MS;
+                if (retryAt < run.startAt) {
+                    CFQuestMod.LOGGER.warn("Chuẩn bị quest theo lịch thất bại, thử lại sau {}s",
+                            PREFETCH_RETRY_MS / 1000);
+                    run.add(timerWheel.schedule("quest_prefetch", retryAt, () -> runAsync(() -> prefetch(run))));
+                }
                 return;
             }
 
-            Problem problem = problems.get(random.nextInt(problems.size()));
+            PREFETCH_OK.inc();
+            run.prepared = prepared;
+
+            CFQuestMod.LOGGER.info("Đã chuẩn bị quest của lịch '{}': {} (contest {}, {} handle đã giải trước)",
+                    run.schedule.name(), prepared.problem().getName(), prepared.contestId(),
+                    prepared.preSolvedHandles().size());
+        });
+    }
 
-            server.execute(() -> {
-                boolean started = questManager.startQuest(
-                        contestId,
-                        problem,
-                        config.getQuest().getDefaultTimeoutMinutes()
-                );
+    /**
+     * Registered together with the start timer, not after the prefetch: with the default
+     * settings the first announcement is due exactly when the prefetch begins.
+     */
+    private void scheduleCountdown(Run run, long now) {
+        for (int seconds : config.current().getSchedule().getCountdownSeconds()) {
+            long announceAt = run.startAt - seconds * 1000L;
+            if (seconds <= 0 || announceAt <= now) {
+                continue;
+            }
 
-                if (started) {
-                    CFQuestMod.LOGGER.info("Đã bắt đầu quest theo lịch: {} từ contest {}",
-                            problem.getName(), contestId);
+            run.add(timerWheel.schedule("quest_countdown", announceAt, () -> {
+                if (!questManager.hasActiveQuest()) {
+                    PreparedQuest prepared = run.prepared;
+                    questManager.getNotifier().announceUpcoming(seconds,
+                            prepared != null ? prepared.problem().getRating() : 0);
                 }
+            }));
+        }
+    }
+
+    /**
+     * Runs on the timer thread at the exact start time. With a prepared quest this is a single
+     * main-thread submit; only a failed prefetch falls back to resolving now.
+     */
+    private void onStartTime(Run run) {
+        if (run.cancelled) {
+            return;
+        }
 
-                scheduleNextQuest();
-            });
-        }).exceptionally(e -> {
-            CFQuestMod.LOGGER.error("Lỗi khi bắt đầu quest theo lịch: {}", e.getMessage());
-            scheduleNextQuest();
-            return null;
+        PreparedQuest prepared = run.prepared;
+        if (prepared != null) {
+            startPrepared(prepared);
+            runAsync(() -> scheduleNext(run.schedule));
+            return;
+        }
+
+        PREFETCH_LATE.inc();
+        CFQuestMod.LOGGER.warn("Quest của lịch '{}' chưa được chuẩn bị kịp, chọn bài ngay bây giờ",
+                run.schedule.name());
+
+        runAsync(() -> resolveQuest(run.schedule).whenComplete((late, e) -> {
+            if (late != null && !run.cancelled) {
+                startPrepared(late);
+            }
+            if (!run.cancelled) {
+                scheduleNext(run.schedule);
+            }
+        }));
+    }
+
+    private void startPrepared(PreparedQuest prepared) {
+        mainThread.submit("scheduled_quest_start", () -> {
+            String name = prepared.schedule().name();
+            if (questManager.hasActiveQuest()) {
+                CFQuestMod.LOGGER.info("Đã có quest đang chạy, bỏ qua quest của lịch '{}'", name);
+                return;
+            }
+
+            // The first poll diffs against the prefetched standings instead of an empty table
+            poller.seedStandings(prepared.contestId(), prepared.problem().getIndex(), prepared.standings());
+
+            int timeoutMinutes = prepared.schedule().settings().getTimeoutMinutes();
+            boolean started = questManager.startQuest(
+                    prepared.contestId(),
+                    prepared.problem(),
+                    timeoutMinutes > 0 ? timeoutMinutes : config.current().getQuest().getDefaultTimeoutMinutes(),
+                    prepared.preSolvedHandles()
+            );
+
+            if (started) {
+                CFQuestMod.LOGGER.info("Đã bắt đầu quest của lịch '{}': {} từ contest {}",
+                        name, prepared.problem().getName(), prepared.contestId());
+            }
         });
     }
 
-    private long calculateNextRunDelay() {
-        String cron = config.getSchedule().getCron();
+    /**
+     * Pick a problem and warm everything the start path and the first poll touch.
+     *
+     * @return the prepared quest, or null if no problem could be resolved
+     */
+    private CompletableFuture<PreparedQuest> resolveQuest(Schedule schedule) {
+        return pickProblem(schedule)
+                .thenCompose(picked -> picked == null
+                        ? CompletableFuture.<PreparedQuest>completedFuture(null)
+                        : warm(picked))
+                .exceptionally(e -> {
+                    CFQuestMod.LOGGER.error("Lỗi khi chuẩn bị quest theo lịch: {}", e.getMessage());
+                    return null;
+                });
+    }
 
-        // Simple cron parser: "minute hour dayOfMonth month dayOfWeek"
-        // Example: "0 18 * * SAT" = Every Saturday at 18:00
-        String[] parts = cron.split("\\s+");
+    private CompletableFuture<PreparedQuest> pickProblem(Schedule schedule) {
+        ModConfig.NamedSchedule settings = schedule.settings();
+        List<Integer> problemPool = settings.getProblemPool();
+
+        // Preferred path: local catalog, no API call to pick
+        if (!catalog.isEmpty()) {
+            double maxSolved = config.current().getSchedule().getMaxSolvedFraction();
+            Problem problem = catalog.pick(settings.getMinRating(), settings.getMaxRating(),
+                    settings.getTags(), problemPool,
+                    entry -> solvedIndex.getOnlineSolvedFraction(
+                            SolvedProblemIndex.key(entry.getContestId(), entry.getIndex())) <= maxSolved,
+                    random);
+
+            if (problem != null) {
+                return CompletableFuture.completedFuture(
+                        new PreparedQuest(schedule, problem.getContestId(), problem));
+            }
 
-        if (parts.length != 5) {
-            CFQuestMod.LOGGER.error("Invalid cron format: {}", cron);
-            return -1;
+            CFQuestMod.LOGGER.warn("Lịch '{}': không có bài nào trong catalog khớp rating {}-{} / tags {}",
+                    schedule.name(), settings.getMinRating(), settings.getMaxRating(), settings.getTags());
         }
 
-        try {
-            int minute = parts[0].equals("*") ? 0 : Integer.parseInt(parts[0]);
-            int hour = parts[1].equals("*") ? 0 : Integer.parseInt(parts[1]);
-            String dayOfMonth = parts[2];
-            String month = parts[3];
-            String dayOfWeek = parts[4];
-
-            LocalDateTime now = LocalDateTime.now();
-            LocalDateTime nextRun = now.withHour(hour).withMinute(minute).withSecond(0).withNano(0);
-
-            // Handle day of week
-            if (!dayOfWeek.equals("*")) {
-                DayOfWeek targetDay = parseDayOfWeek(dayOfWeek);
-
-                if (targetDay != null) {
-                    // Find next occurrence of this day
-                    while (nextRun.getDayOfWeek() != targetDay || !nextRun.isAfter(now)) {
-                        nextRun = nextRun.plusDays(1);
-                    }
-                }
-            } else {
-                // Daily at specified time
-                if (!nextRun.isAfter(now)) {
-                    nextRun = nextRun.plusDays(1);
+        if (problemPool.isEmpty()) {
+            CFQuestMod.LOGGER.warn("Lịch '{}': problem pool trống, không thể bắt đầu quest", schedule.name());
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Fallback while the catalog is still downloading: select random contest from pool
+        int contestId = problemPool.get(random.nextInt(problemPool.size()));
+
+        // Get problems from contest and select randomly among rated ones in range
+        return api.getContestProblems(contestId).thenApply(problems -> {
+            List<Problem> candidates = new ArrayList<>();
+            for (Problem problem : problems) {
+                if (isInRatingRange(problem.getRating(), settings)) {
+                    candidates.add(problem);
                 }
             }
 
-            return ChronoUnit.MILLIS.between(now, nextRun);
-        } catch (Exception e) {
-            CFQuestMod.LOGGER.error("Lỗi parse cron: {}", e.getMessage());
-            return -1;
+            if (candidates.isEmpty()) {
+                CFQuestMod.LOGGER.warn("Không thể lấy bài phù hợp từ contest {}", contestId);
+                return null;
+            }
+
+            return new PreparedQuest(schedule, contestId, candidates.get(random.nextInt(candidates.size())));
+        });
+    }
+
+    /**
+     * Warm the contest's problem list (also confirms the problem still exists), take a standings
+     * baseline for linked handles and refresh the online players' solved bitmaps, so the start
+     * and the first poll hit warm caches.
+     */
+    private CompletableFuture<PreparedQuest> warm(PreparedQuest picked) {
+        int contestId = picked.contestId();
+        String index = picked.problem().getIndex();
+        Set<String> handles = new HashSet<>(playerDataManager.getAllLinkedPlayers().values());
+
+        return api.getProblem(contestId, index).thenCompose(problem -> {
+            if (problem == null) {
+                CFQuestMod.LOGGER.warn("Không tìm thấy bài {}{} trên Codeforces", contestId, index);
+                return CompletableFuture.<PreparedQuest>completedFuture(null);
+            }
+
+            solvedIndex.refreshOnline(PRESOLVED_MAX_AGE_MS);
+
+            if (handles.isEmpty()) {
+                return CompletableFuture.completedFuture(picked);
+            }
+
+            // Baseline is best-effort: submission-time checks still reject pre-quest solves
+            return api.getContestStandings(contestId, handles).thenApply(standings -> {
+                Set<String> preSolved = new HashSet<>();
+                standings.forEach((handle, entry) -> {
+                    CodeforcesAPI.ProblemResult result = entry.problemResults.get(index);
+                    if (result != null && result.points > 0) {
+                        preSolved.add(handle);
+                    }
+                });
+                return new PreparedQuest(picked.schedule(), contestId, picked.problem(), preSolved, standings);
+            }).exceptionally(e -> picked);
+        });
+    }
+
+    private static boolean isInRatingRange(int rating, ModConfig.NamedSchedule schedule) {
+        if (rating <= 0) {
+            return false;
+        }
+        if (schedule.getMinRating() > 0 && rating < schedule.getMinRating()) {
+            return false;
         }
+        return schedule.getMaxRating() <= 0 || rating <= schedule.getMaxRating();
     }
 
-    private DayOfWeek parseDayOfWeek(String day) {
-        return switch (day.toUpperCase()) {
-            case "MON", "1" -> DayOfWeek.MONDAY;
-            case "TUE", "2" -> DayOfWeek.TUESDAY;
-            case "WED", "3" -> DayOfWeek.WEDNESDAY;
-            case "THU", "4" -> DayOfWeek.THURSDAY;
-            case "FRI", "5" -> DayOfWeek.FRIDAY;
-            case "SAT", "6" -> DayOfWeek.SATURDAY;
-            case "SUN", "0", "7" -> DayOfWeek.SUNDAY;
-            default -> null;
-        };
+    public Set<String> getScheduleNames() {
+        return schedules.keySet();
     }
 
+    /**
+     * Start a quest from the first schedule right away (admin command).
+     */
     public void triggerNow() {
-        if (executor != null && !executor.isShutdown()) {
-            executor.execute(this::runScheduledQuest);
+        if (!schedules.isEmpty()) {
+            triggerNow(schedules.keySet().iterator().next());
         }
     }
+
+    /**
+     * Start a quest from the named schedule right away; does not touch its next occurrence.
+     *
+     * @return false if the scheduler is not running or no such schedule exists
+     */
+    public boolean triggerNow(String name) {
+        Schedule schedule = schedules.get(name);
+        if (schedule == null || executor == null || executor.isShutdown()) {
+            return false;
+        }
+
+        runAsync(() -> resolveQuest(schedule).whenComplete((prepared, e) -> {
+            if (prepared != null) {
+                startPrepared(prepared);
+            } else {
+                CFQuestMod.LOGGER.warn("Không thể chọn bài cho lịch '{}'", name);
+            }
+        }));
+        return true;
+    }
 }
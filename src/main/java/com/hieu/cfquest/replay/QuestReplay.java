@@ -0,0 +1,435 @@
+package com.hieu.cfquest.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.api.CodeforcesAPI;
+import com.hieu.cfquest.api.CodeforcesPoller;
+import com.hieu.cfquest.api.model.Problem;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.config.ModConfig;
+import com.hieu.cfquest.engine.EngineClock;
+import com.hieu.cfquest.engine.MainThreadExecutor;
+import com.hieu.cfquest.engine.PlayerDirectory;
+import com.hieu.cfquest.engine.QuestEventBus;
+import com.hieu.cfquest.engine.QuestNotifier;
+import com.hieu.cfquest.engine.VirtualClock;
+import com.hieu.cfquest.quest.Quest;
+import com.hieu.cfquest.quest.QuestManager;
+import com.hieu.cfquest.storage.PlayerDataManager;
+import com.hieu.cfquest.storage.SolvedProblemIndex;
+import com.hieu.cfquest.util.Deadline;
+import com.hieu.cfquest.util.TimerWheel;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Replays a {@link TraceRecorder} trace through a headless quest engine on a virtual clock.
+ *
+ * Each recorded quest gets a fresh engine in a temporary data directory: the quest is started
+ * at its recorded start time with the recorded players and quest config, a poll cycle runs at
+ * every recorded standings request time, Codeforces answers come from the trace, and reminders
+ * and the deadline (with its final poll) fire from the timer wheel as the clock passes them.
+ * The winners are compared with the recorded {@code quest_end}.
+ *
+ * Everything runs on the calling thread, so a 3-hour quest replays in well under a second and
+ * the reported allocation covers the whole engine.
+ *
+ * Usage: {@code QuestReplay <trace.jsonl.gz>}; exits with 1 if any quest's result differs.
+ */
+public final class QuestReplay {
+    private static final Gson GSON = new Gson();
+    private static final long TIMER_TICK_MILLIS = 1000;
+
+    /**
+     * Outcome of one replayed quest.
+     *
+     * @param expected recorded winners, or null if the trace has no end for this quest
+     */
+    public record Result(String quest, JsonArray expected, JsonArray actual, int pollCycles, int served,
+                         int missed, long virtualMillis, long wallNanos, long allocatedBytes) {
+        public boolean matches() {
+            return expected != null && expected.equals(actual);
+        }
+    }
+
+    private QuestReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Cách dùng: QuestReplay <trace.jsonl.gz>");
+            System.exit(2);
+        }
+
+        List<Result> results = replay(Path.of(args[0]));
+        boolean allMatch = !results.isEmpty();
+
+        for (Result result : results) {
+            allMatch &= result.matches();
+            System.out.printf("%s: %s%n", result.quest(), result.expected() == null ? "không có kết quả gốc"
+                    : result.matches() ? "khớp" : "KHÁC");
+            System.out.printf("  %d chu kỳ poll, %d response từ trace, %d request không có trong trace%n",
+                    result.pollCycles(), result.served(), result.missed());
+            System.out.printf("  %.1f phút quest trong %.1f ms (x%.0f), %.1f MB cấp phát%n",
+                    result.virtualMillis() / 60_000.0, result.wallNanos() / 1_000_000.0,
+                    result.virtualMillis() / Math.max(1.0, result.wallNanos() / 1_000_000.0),
+                    result.allocatedBytes() / (1024.0 * 1024.0));
+            if (!result.matches()) {
+                System.out.println("  gốc:    " + result.expected());
+                System.out.println("  replay: " + result.actual());
+            }
+        }
+
+        if (results.isEmpty()) {
+            System.out.println("Trace không có quest nào.");
+        }
+        System.exit(allMatch ? 0 : 1);
+    }
+
+    /**
+     * Replay every quest in {@code trace}; cancelled quests are skipped.
+     */
+    public static List<Result> replay(Path trace) throws IOException {
+        List<Result> results = new ArrayList<>();
+
+        JsonObject start = null;
+        List<JsonObject> requests = new ArrayList<>();
+        for (JsonObject record : read(trace)) {
+            String type = record.get("type").getAsString();
+            switch (type) {
+                case "quest_start" -> {
+                    if (start != null) {
+                        results.add(replayQuest(start, requests, null));
+                    }
+                    start = record;
+                    requests = new ArrayList<>();
+                }
+                case "request" -> {
+                    if (start != null) {
+                        requests.add(record);
+                    }
+                }
+                case "quest_end" -> {
+                    if (start != null) {
+                        results.add(replayQuest(start, requests, record.getAsJsonArray("winners")));
+                        start = null;
+                    }
+                }
+                case "quest_cancelled" -> start = null;
+                default -> {
+                    // session header
+                }
+            }
+        }
+        if (start != null) {
+            results.add(replayQuest(start, requests, null));
+        }
+
+        return results;
+    }
+
+    /**
+     * @return every complete record; a trace cut off by a crash ends at its last flushed record
+     */
+    static List<JsonObject> read(Path trace) throws IOException {
+        List<JsonObject> records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(trace), 64 * 1024), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    records.add(JsonParser.parseString(line).getAsJsonObject());
+                }
+            }
+        } catch (EOFException | ZipException | JsonParseException e) {
+            CFQuestMod.LOGGER.warn("Trace bị cắt ngang sau {} bản ghi: {}", records.size(), e.getMessage());
+        }
+        return records;
+    }
+
+    private static Result replayQuest(JsonObject start, List<JsonObject> requests, JsonArray expected)
+            throws IOException {
+        Quest recorded = GSON.fromJson(start.get("quest"), Quest.class);
+        String label = recorded.getProblemIdentifier() + " @ " + recorded.getStartTime();
+
+        Path dir = Files.createTempDirectory("cfquest-replay");
+        PlayerDataManager players = null;
+        SolvedProblemIndex solvedIndex = null;
+        try {
+            writeConfig(dir, start.getAsJsonObject("questConfig"));
+            ConfigStore config = new ConfigStore(dir);
+
+            VirtualClock clock = new VirtualClock(recorded.getStartTime());
+            InlineMainThread mainThread = new InlineMainThread();
+            TimerWheel timerWheel = new TimerWheel(TIMER_TICK_MILLIS, clock);
+            TraceBackend backend = new TraceBackend(clock, requests);
+            CodeforcesAPI api = new CodeforcesAPI(config, backend);
+
+            players = new PlayerDataManager(dir, PlayerDirectory.EMPTY, clock);
+            solvedIndex = new SolvedProblemIndex(dir, api);
+            ResultNotifier notifier = new ResultNotifier();
+            QuestEventBus events = new QuestEventBus(mainThread);
+            events.subscribeMainThread("replay", notifier::onEvent);
+            QuestManager questManager = new QuestManager(dir, clock, mainThread, timerWheel, events, notifier,
+                    players, PlayerDirectory.EMPTY, solvedIndex, config);
+            CompletableFuture.allOf(players.ready(), solvedIndex.ready(), questManager.ready()).join();
+
+            CodeforcesPoller poller = new CodeforcesPoller(dir, clock, mainThread, config, api, questManager,
+                    players, solvedIndex);
+            questManager.setFinalPoll(poller::runFinalPoll);
+
+            // Every recorded player is polled each cycle: a response only has rows for handles
+            // the server asked about, so this never adds events the server did not see
+            for (Map.Entry<String, JsonElement> entry : start.getAsJsonObject("players").entrySet()) {
+                players.linkPlayer(entry.getKey(), entry.getKey(), entry.getValue().getAsString());
+                poller.getPollTiers().onPlayerJoin(entry.getKey());
+            }
+
+            List<Long> pollTimes = backend.pollTimes(recorded.getContestId(), recorded.getEndTime());
+
+            long allocatedBefore = allocatedBytes();
+            long wallStart = System.nanoTime();
+
+            questManager.startQuest(recorded.getContestId(), problemOf(recorded), recorded.getTimeoutMinutes(),
+                    recorded.getPreSolvedHandles());
+
+            int cycles = 0;
+            for (long at : pollTimes) {
+                if (!questManager.hasActiveQuest()) {
+                    break;
+                }
+                advance(clock, timerWheel, mainThread, at);
+                poller.runCycle();
+                mainThread.drain();
+                cycles++;
+            }
+
+            // Reminders, deadline and its final poll
+            advance(clock, timerWheel, mainThread, recorded.getEndTime() + TIMER_TICK_MILLIS);
+            if (questManager.hasActiveQuest()) {
+                questManager.endQuest(false);
+                mainThread.drain();
+            }
+
+            long wallNanos = System.nanoTime() - wallStart;
+            long allocated = allocatedBytes() - allocatedBefore;
+
+            return new Result(label, expected, notifier.winners, cycles, backend.served, backend.missed,
+                    clock.currentTimeMillis() - recorded.getStartTime(), wallNanos, allocated);
+        } finally {
+            if (players != null) {
+                players.shutdown(Deadline.after(5000));
+            }
+            if (solvedIndex != null) {
+                solvedIndex.shutdown(Deadline.after(5000));
+            }
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void advance(VirtualClock clock, TimerWheel timerWheel, InlineMainThread mainThread, long to) {
+        clock.advanceTo(to);
+        timerWheel.advance();
+        mainThread.drain();
+    }
+
+    private static Problem problemOf(Quest quest) {
+        Problem problem = new Problem();
+        problem.setContestId(quest.getContestId());
+        problem.setIndex(quest.getProblemIndex());
+        problem.setName(quest.getProblemName());
+        problem.setRating(quest.getProblemRating());
+        return problem;
+    }
+
+    /**
+     * Default config with the recorded quest section (winners, penalty, reminders).
+     */
+    private static void writeConfig(Path dir, JsonObject questConfig) throws IOException {
+        JsonObject config = GSON.toJsonTree(new ModConfig()).getAsJsonObject();
+        if (questConfig != null) {
+            config.add("quest", questConfig);
+        }
+        Files.writeString(dir.resolve("config.json"), GSON.toJson(config));
+    }
+
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean sunThreads) {
+            return sunThreads.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.warn("Không xóa được thư mục replay {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * Main thread of the replay: tasks run when the driver drains, in submission order.
+     */
+    private static final class InlineMainThread implements MainThreadExecutor {
+        private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void submit(String name, Runnable task) {
+            tasks.add(task);
+        }
+
+        void drain() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    CFQuestMod.LOGGER.error("Lỗi khi chạy task replay: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers requests from the trace. Responses are matched by method and parameters (except the
+     * handle list, which depends on poll tiers) and served in recorded order; responses recorded
+     * before the virtual clock's current time are skipped, so a cycle never sees stale standings.
+     * A response is never served before the poll cycle it was recorded in, so a request the
+     * recording server did not make (e.g. a trace from an older version) cannot use up the
+     * answer to a later one.
+     */
+    private static final class TraceBackend implements CodeforcesAPI.Backend {
+        private final EngineClock clock;
+        private final Map<String, ArrayDeque<JsonObject>> responses = new HashMap<>();
+        private final List<JsonObject> requests;
+        private final long[] cycleStarts;
+        int served = 0;
+        int missed = 0;
+
+        TraceBackend(EngineClock clock, List<JsonObject> requests) {
+            this.clock = clock;
+            this.requests = requests;
+            for (JsonObject request : requests) {
+                responses.computeIfAbsent(key(request.get("method").getAsString(), params(request)),
+                        k -> new ArrayDeque<>()).add(request);
+            }
+            this.cycleStarts = requests.stream()
+                    .filter(request -> "contest.standings".equals(request.get("method").getAsString())
+                            && params(request).containsKey("handles"))
+                    .mapToLong(request -> request.get("sentAt").getAsLong())
+                    .sorted()
+                    .toArray();
+        }
+
+        /**
+         * Send times of the server's standings polls for the quest, before its deadline.
+         */
+        List<Long> pollTimes(int contestId, long endTime) {
+            List<Long> times = new ArrayList<>();
+            for (JsonObject request : requests) {
+                Map<String, String> params = params(request);
+                long sentAt = request.get("sentAt").getAsLong();
+                if ("contest.standings".equals(request.get("method").getAsString())
+                        && String.valueOf(contestId).equals(params.get("contestId"))
+                        && params.containsKey("handles") && sentAt < endTime) {
+                    times.add(sentAt);
+                }
+            }
+            times.sort(null);
+            return times;
+        }
+
+        @Override
+        public CompletableFuture<JsonObject> send(String method, Map<String, String> params) {
+            ArrayDeque<JsonObject> queue = responses.get(key(method, params));
+            if (queue == null || queue.isEmpty()) {
+                missed++;
+                return CompletableFuture.completedFuture(null);
+            }
+
+            long now = clock.currentTimeMillis();
+            if (queue.peekFirst().get("sentAt").getAsLong() > nextCycleStart(now)) {
+                missed++;
+                return CompletableFuture.completedFuture(null);
+            }
+
+            JsonObject request = queue.pollFirst();
+            while (!queue.isEmpty() && queue.peekFirst().get("sentAt").getAsLong() <= now) {
+                request = queue.pollFirst();
+            }
+
+            served++;
+            JsonElement response = request.get("response");
+            return CompletableFuture.completedFuture(response != null && response.isJsonObject()
+                    ? response.getAsJsonObject() : null);
+        }
+
+        private long nextCycleStart(long now) {
+            int index = Arrays.binarySearch(cycleStarts, now + 1);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < cycleStarts.length ? cycleStarts[index] : Long.MAX_VALUE;
+        }
+
+        private static Map<String, String> params(JsonObject request) {
+            Map<String, String> params = new TreeMap<>();
+            for (Map.Entry<String, JsonElement> entry : request.getAsJsonObject("params").entrySet()) {
+                params.put(entry.getKey(), entry.getValue().getAsString());
+            }
+            return params;
+        }
+
+        private static String key(String method, Map<String, String> params) {
+            StringBuilder key = new StringBuilder(method);
+            new TreeMap<>(params).forEach((name, value) -> {
+                if (!"handles".equals(name)) {
+                    key.append('&').append(name).append('=').append(value);
+                }
+            });
+            return key.toString();
+        }
+    }
+
+    /**
+     * Captures the final standings the engine announces.
+     */
+    private static final class ResultNotifier implements QuestNotifier {
+        JsonArray winners = new JsonArray();
+
+        @Override
+        public void announceQuestEnd(Quest quest) {
+            winners = TraceRecorder.winners(quest);
+        }
+    }
+}
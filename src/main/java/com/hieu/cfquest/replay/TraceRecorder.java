@@ -0,0 +1,231 @@
+package com.hieu.cfquest.replay;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.api.CodeforcesAPI;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.engine.QuestNotifier;
+import com.hieu.cfquest.metrics.Counter;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.quest.Quest;
+import com.hieu.cfquest.util.Deadline;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records quests and the Codeforces responses they were decided on into
+ * {@code cfquest/traces/session-<time>.jsonl.gz}, for {@link QuestReplay}.
+ *
+ * One JSON object per line: {@code session}, then per quest {@code quest_start} (saved quest,
+ * linked players, quest config), its {@code request}s and {@code quest_end}. Only
+ * {@code contest.standings} and {@code contest.status} are recorded; credentials are never
+ * part of the recorded parameters.
+ *
+ * Optimizations:
+ * - Ghi trên daemon thread riêng qua hàng đợi có giới hạn; đầy thì bỏ bản ghi (có metric), không
+ *   bao giờ block thread decode hay server thread
+ * - Response đã parse được ghi thẳng (không parse/serialize lại trên thread gọi)
+ * - Nén gzip với sync flush sau mỗi quest: trace vẫn đọc được nếu server crash
+ */
+public final class TraceRecorder implements CodeforcesAPI.ResponseListener {
+    static final int VERSION = 1;
+
+    private static final Gson GSON = new Gson();
+    private static final Set<String> RECORDED_METHODS = Set.of("contest.standings", "contest.status");
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final Counter RECORDS = Metrics.REGISTRY.counter(
+            "cfquest_trace_records_total", "Records written to the replay trace");
+    private static final Counter DROPPED = Metrics.REGISTRY.counter(
+            "cfquest_trace_dropped_total", "Trace records dropped because the writer fell behind");
+
+    private final Path path;
+    private final Writer out;
+    private final ThreadPoolExecutor writer;
+    private long written = 0; // writer thread only
+    private volatile boolean warnedDrop = false;
+
+    private TraceRecorder(Path path) throws IOException {
+        this.path = path;
+        this.out = new OutputStreamWriter(new GZIPOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)), 64 * 1024, true), StandardCharsets.UTF_8);
+        this.writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "CFQuest-Trace");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Start a new trace file under {@code dataDir/traces}.
+     */
+    public static TraceRecorder open(Path dataDir) throws IOException {
+        Path dir = dataDir.resolve("traces");
+        Files.createDirectories(dir);
+        TraceRecorder recorder = new TraceRecorder(
+                dir.resolve("session-" + LocalDateTime.now().format(FILE_TIME) + ".jsonl.gz"));
+
+        JsonObject session = record("session", System.currentTimeMillis());
+        session.addProperty("version", VERSION);
+        recorder.write(session, false);
+
+        CFQuestMod.LOGGER.info("Đang ghi trace Codeforces API vào {}", recorder.path);
+        return recorder;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public void onResponse(String method, Map<String, String> params, long sentAt, long receivedAt,
+                           JsonObject envelope) {
+        if (!RECORDED_METHODS.contains(method)) {
+            return;
+        }
+
+        JsonObject request = record("request", receivedAt);
+        request.addProperty("method", method);
+        request.add("params", GSON.toJsonTree(new TreeMap<>(params)));
+        request.addProperty("sentAt", sentAt);
+        // Never modified after parsing, so it can be serialized later on the writer thread
+        request.add("response", envelope);
+        write(request, false);
+    }
+
+    /**
+     * Wrap the server's notifier so that quest start and end are recorded as well.
+     *
+     * @param linkedPlayers identifier → handle at quest start
+     */
+    public QuestNotifier recording(QuestNotifier delegate, Supplier<Map<String, String>> linkedPlayers,
+                                   ConfigStore config) {
+        return new QuestNotifier() {
+            @Override
+            public void announceQuestStart(Quest quest) {
+                JsonObject start = record("quest_start", System.currentTimeMillis());
+                quest.syncPersistedFields();
+                start.add("quest", GSON.toJsonTree(quest));
+                start.add("players", GSON.toJsonTree(linkedPlayers.get()));
+                start.add("questConfig", GSON.toJsonTree(config.current().getQuest()));
+                write(start, false);
+
+                delegate.announceQuestStart(quest);
+            }
+
+            @Override
+            public void announceSolve(Quest.Winner winner, int place) {
+                delegate.announceSolve(winner, place);
+            }
+
+            @Override
+            public void announceWrongAnswer(String playerIdentifier, int penaltyMinutes, int newWrongs,
+                                            int totalWrongs) {
+                delegate.announceWrongAnswer(playerIdentifier, penaltyMinutes, newWrongs, totalWrongs);
+            }
+
+            @Override
+            public void announceReminder(int minutesLeft) {
+                delegate.announceReminder(minutesLeft);
+            }
+
+            @Override
+            public void announceUpcoming(int secondsLeft, int rating) {
+                delegate.announceUpcoming(secondsLeft, rating);
+            }
+
+            @Override
+            public void announceQuestEnd(Quest quest) {
+                JsonObject end = record("quest_end", System.currentTimeMillis());
+                end.add("winners", winners(quest));
+                write(end, true);
+
+                delegate.announceQuestEnd(quest);
+            }
+
+            @Override
+            public void announceCancelled() {
+                write(record("quest_cancelled", System.currentTimeMillis()), true);
+                delegate.announceCancelled();
+            }
+        };
+    }
+
+    static JsonArray winners(Quest quest) {
+        JsonArray winners = new JsonArray();
+        for (Quest.Winner winner : quest.getWinners()) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("place", winner.getPlace());
+            entry.addProperty("handle", winner.getCfHandle().toLowerCase());
+            entry.addProperty("solveTimeSeconds", winner.getSolveTimeSeconds());
+            entry.addProperty("penaltyMinutes", winner.getPenaltyMinutes());
+            winners.add(entry);
+        }
+        return winners;
+    }
+
+    private static JsonObject record(String type, long at) {
+        JsonObject record = new JsonObject();
+        record.addProperty("type", type);
+        record.addProperty("at", at);
+        return record;
+    }
+
+    private void write(JsonObject record, boolean flush) {
+        try {
+            writer.execute(() -> {
+                try {
+                    out.write(GSON.toJson(record));
+                    out.write('\n');
+                    if (flush) {
+                        out.flush();
+                    }
+                    written++;
+                    RECORDS.inc();
+                } catch (IOException e) {
+                    CFQuestMod.LOGGER.error("Lỗi khi ghi trace: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            DROPPED.inc();
+            if (!warnedDrop) {
+                warnedDrop = true;
+                CFQuestMod.LOGGER.warn("Trace ghi không kịp, đang bỏ bớt bản ghi; replay của phiên này sẽ không chính xác");
+            }
+        }
+    }
+
+    /**
+     * Write what is queued (until the deadline) and finish the gzip stream.
+     */
+    public void close(Deadline deadline) {
+        deadline.awaitTermination(writer);
+        try {
+            out.close();
+            CFQuestMod.LOGGER.info("Đã đóng trace {} ({} bản ghi)", path.getFileName(), written);
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi đóng trace: {}", e.getMessage());
+        }
+    }
+}
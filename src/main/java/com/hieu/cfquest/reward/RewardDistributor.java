@@ -0,0 +1,121 @@
+package com.hieu.cfquest.reward;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.engine.RewardSink;
+import com.hieu.cfquest.quest.Quest;
+import com.hieu.cfquest.storage.PlayerDataManager;
+import com.hieu.cfquest.storage.RewardMailbox;
+import com.hieu.cfquest.storage.ServerPlayerDirectory;
+import com.hieu.cfquest.tick.MainThreadQueue;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Reward pipeline: winners → mailbox → delivery.
+ *
+ * Optimizations:
+ * - Reward được resolve (tier, multiplier, item counts) ngay khi quest kết thúc
+ * - Mọi reward đi qua mailbox được persist, nên người thắng đang offline nhận thưởng khi join
+ * - Delivery chạy qua MainThreadQueue, mỗi step chỉ trao một reward
+ */
+public class RewardDistributor implements RewardSink {
+    private final MainThreadQueue mainThreadQueue;
+    private final PlayerDataManager playerDataManager;
+    private final ServerPlayerDirectory players;
+    private final RewardManager rewardManager;
+    private final RewardMailbox mailbox;
+
+    public RewardDistributor(MainThreadQueue mainThreadQueue, PlayerDataManager playerDataManager,
+                             ServerPlayerDirectory players, RewardManager rewardManager, RewardMailbox mailbox) {
+        this.mainThreadQueue = mainThreadQueue;
+        this.playerDataManager = playerDataManager;
+        this.players = players;
+        this.rewardManager = rewardManager;
+        this.mailbox = mailbox;
+    }
+
+    /**
+     * Queue rewards for every winner of a finished quest and deliver to those online.
+     */
+    @Override
+    public void distribute(Quest quest) {
+        List<String> recipients = new ArrayList<>();
+
+        for (Quest.Winner winner : quest.getWinners()) {
+            RewardMailbox.PendingReward reward = rewardManager.prepareReward(quest, winner.getPlace());
+            if (reward != null) {
+                mailbox.add(winner.getPlayerUuid(), reward);
+                recipients.add(winner.getPlayerUuid());
+            }
+        }
+
+        if (recipients.isEmpty()) {
+            return;
+        }
+
+        Deque<String> remaining = new ArrayDeque<>(recipients);
+        mainThreadQueue.submitJob("deliver_rewards", () -> {
+            String identifier = remaining.pollFirst();
+            if (identifier != null) {
+                ServerPlayerEntity player = players.getPlayer(identifier);
+                if (player != null) {
+                    deliverPending(player, identifier);
+                } else {
+                    CFQuestMod.LOGGER.info("Người thắng {} đang offline, phần thưởng sẽ được trao khi vào lại",
+                            identifier);
+                }
+            }
+            return remaining.isEmpty();
+        });
+    }
+
+    /**
+     * Deliver any mailbox rewards to a player who just joined.
+     */
+    public void onPlayerJoin(ServerPlayerEntity player) {
+        String identifier = playerDataManager.getPlayerIdentifier(player);
+        if (!mailbox.hasPending(identifier)) {
+            return;
+        }
+
+        mainThreadQueue.submit("mailbox_notice", () -> player.sendMessage(Text.literal("[QUEST] ")
+                .formatted(Formatting.GOLD)
+                .append(Text.literal("Bạn có " + mailbox.getPending(identifier).size()
+                        + " phần thưởng quest đang chờ!").formatted(Formatting.GREEN)), false));
+
+        // Read the mailbox in each step: deliver_rewards may hand out the same rewards meanwhile
+        mainThreadQueue.submitJob("deliver_mailbox", () -> {
+            if (player.isDisconnected()) {
+                return true;
+            }
+            List<RewardMailbox.PendingReward> rewards = mailbox.getPending(identifier);
+            if (!rewards.isEmpty()) {
+                deliver(player, identifier, rewards.get(0));
+            }
+            return rewards.size() <= 1;
+        });
+    }
+
+    private void deliverPending(ServerPlayerEntity player, String identifier) {
+        for (RewardMailbox.PendingReward reward : mailbox.getPending(identifier)) {
+            deliver(player, identifier, reward);
+        }
+    }
+
+    private void deliver(ServerPlayerEntity player, String identifier, RewardMailbox.PendingReward reward) {
+        // Claim the reward first, so that a second delivery job for the same player skips it
+        if (mailbox.remove(identifier, reward.getId())) {
+            rewardManager.deliver(player, reward);
+        }
+    }
+
+    public RewardMailbox getMailbox() {
+        return mailbox;
+    }
+}
@@ -1,42 +1,82 @@
 package com.hieu.cfquest.reward;
 
 import com.hieu.cfquest.CFQuestMod;
-import com.hieu.cfquest.config.ModConfig;
-import net.minecraft.component.DataComponentTypes;
-import net.minecraft.component.type.LoreComponent;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.quest.Quest;
+import com.hieu.cfquest.storage.RewardMailbox;
 import net.minecraft.entity.effect.StatusEffectInstance;
 import net.minecraft.entity.effect.StatusEffects;
-import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
-import net.minecraft.registry.Registries;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.sound.SoundEvents;
 import net.minecraft.text.Text;
 import net.minecraft.util.Formatting;
-import net.minecraft.util.Identifier;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class RewardManager {
-    private final ModConfig config;
+    private final ConfigStore config;
 
-    public RewardManager(ModConfig config) {
+    // Needs the item registry, so it is compiled here rather than in the config snapshot.
+    // Server thread only; rebuilt by reload(), so a reload applies to the next winner
+    private RewardTable table;
+
+    public RewardManager(ConfigStore config) {
         this.config = config;
+        this.table = RewardTable.compile(config.current().getRewards());
+    }
+
+    /**
+     * Recompile the reward table from the current config (server thread, after a config reload).
+     */
+    public void reload() {
+        this.table = RewardTable.compile(config.current().getRewards());
     }
 
-    public void giveReward(ServerPlayerEntity player, int problemRating, int place) {
-        ModConfig.RewardTier tier = config.getRewards().getTierForRating(problemRating);
-        double multiplier = config.getRewards().getMultiplierForPlace(place);
+    /**
+     * Resolve tier, multiplier and item counts for a winner up front so that delivery
+     * (possibly much later, when the player joins) only has to hand out items.
+     *
+     * @return the resolved reward, or null if no tier/multiplier applies
+     */
+    public RewardMailbox.PendingReward prepareReward(Quest quest, int place) {
+        int problemRating = quest.getProblemRating();
+        RewardTable.CompiledTier tier = table.getTierForRating(problemRating);
+        double multiplier = table.getMultiplierForPlace(place);
 
         if (tier == null || multiplier <= 0) {
             CFQuestMod.LOGGER.warn("Không tìm thấy tier phần thưởng cho rating {} hoặc vị trí {}",
                     problemRating, place);
-            return;
+            return null;
+        }
+
+        // Base count varies by place to ensure different rewards
+        int baseCount = switch (place) {
+            case 1 -> 3;  // 1st place gets 3 of each item
+            case 2 -> 2;  // 2nd place gets 2 of each item
+            default -> 1; // 3rd place and below get 1 of each item
+        };
+        int count = Math.max(1, (int) Math.round(baseCount * multiplier));
+
+        List<RewardMailbox.ItemGrant> grants = new ArrayList<>();
+        for (String itemId : tier.getItems()) {
+            grants.add(new RewardMailbox.ItemGrant(itemId, count));
         }
 
+        return new RewardMailbox.PendingReward(quest.getProblemIdentifier() + "@" + quest.getStartTime(),
+                quest.getProblemDisplayName(), problemRating, place, grants, tier.getEffect());
+    }
+
+    /**
+     * Hand a prepared reward to an online player. Must be called on the server thread.
+     */
+    public void deliver(ServerPlayerEntity player, RewardMailbox.PendingReward reward) {
+        int place = reward.getPlace();
+        int problemRating = reward.getProblemRating();
+
         // Give items
-        List<ItemStack> rewards = createRewardItems(tier, multiplier, problemRating, place);
+        List<ItemStack> rewards = createRewardItems(reward);
         for (ItemStack stack : rewards) {
             if (!player.getInventory().insertStack(stack)) {
                 // Drop item if inventory is full
@@ -45,8 +85,8 @@ public class RewardManager {
         }
 
         // Apply effects
-        if (tier.hasEffect()) {
-            applyEffect(player, tier.getEffect(), place);
+        if (reward.hasEffect()) {
+            applyEffect(player, reward.getEffect(), place);
         }
 
         // Play sound and show title
@@ -64,54 +104,15 @@ public class RewardManager {
                 player.getName().getString(), place, problemRating);
     }
 
-    private List<ItemStack> createRewardItems(ModConfig.RewardTier tier, double multiplier,
-                                               int problemRating, int place) {
+    private List<ItemStack> createRewardItems(RewardMailbox.PendingReward reward) {
         List<ItemStack> items = new ArrayList<>();
 
-        for (String itemId : tier.getItems()) {
-            Item item = Registries.ITEM.get(Identifier.of(itemId));
-
-            if (item == null) {
-                CFQuestMod.LOGGER.warn("Không tìm thấy item: {}", itemId);
-                continue;
-            }
-
-            // Calculate count based on multiplier and place
-            // Base count varies by place to ensure different rewards
-            int baseCount;
-            switch (place) {
-                case 1:
-                    baseCount = 3;  // 1st place gets 3 of each item
-                    break;
-                case 2:
-                    baseCount = 2;  // 2nd place gets 2 of each item
-                    break;
-                case 3:
-                    baseCount = 1;  // 3rd place gets 1 of each item
-                    break;
-                default:
-                    baseCount = 1;
+        for (RewardMailbox.ItemGrant grant : reward.getItems()) {
+            ItemStack stack = table.createStack(grant.getItemId(), grant.getCount(),
+                    reward.getPlace(), reward.getProblemRating());
+            if (stack != null) {
+                items.add(stack);
             }
-            int count = Math.max(1, (int) Math.round(baseCount * multiplier));
-
-            ItemStack stack = new ItemStack(item, count);
-
-            // Add custom name and lore
-            Text customName = Text.literal("Phần thưởng Quest")
-                    .formatted(Formatting.GOLD, Formatting.BOLD);
-            stack.set(DataComponentTypes.CUSTOM_NAME, customName);
-
-            List<Text> loreLines = new ArrayList<>();
-            loreLines.add(Text.literal("Hạng " + place)
-                    .formatted(getPlaceFormatting(place)));
-            loreLines.add(Text.literal("Độ khó: " + problemRating)
-                    .formatted(getRatingFormatting(problemRating)));
-            loreLines.add(Text.literal("Codeforces Quest")
-                    .formatted(Formatting.DARK_GRAY, Formatting.ITALIC));
-
-            stack.set(DataComponentTypes.LORE, new LoreComponent(loreLines));
-
-            items.add(stack);
         }
 
         return items;
@@ -166,7 +167,7 @@ public class RewardManager {
         }
     }
 
-    private Formatting getPlaceFormatting(int place) {
+    static Formatting getPlaceFormatting(int place) {
         return switch (place) {
             case 1 -> Formatting.GOLD;
             case 2 -> Formatting.GRAY;
@@ -175,7 +176,7 @@ public class RewardManager {
         };
     }
 
-    private Formatting getRatingFormatting(int rating) {
+    static Formatting getRatingFormatting(int rating) {
         if (rating >= 2400) return Formatting.RED;
         if (rating >= 2100) return Formatting.GOLD;
         if (rating >= 1900) return Formatting.LIGHT_PURPLE;
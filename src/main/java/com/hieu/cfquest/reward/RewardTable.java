@@ -0,0 +1,233 @@
+package com.hieu.cfquest.reward;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.config.ModConfig;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.LoreComponent;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
+import net.minecraft.text.Text;
+import net.minecraft.util.Formatting;
+import net.minecraft.util.Identifier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reward config compiled once at load time.
+ *
+ * Optimizations:
+ * - Tier lookup là binary search trên mảng minRating đã sort
+ * - Multiplier theo hạng là mảng index theo place
+ * - Item ID được validate lúc khởi động; ItemStack template đã gắn sẵn tên
+ * - LoreComponent được cache theo (place, rating)
+ *
+ * Templates and the lore cache are only touched from the server thread.
+ */
+public class RewardTable {
+    private static final Text REWARD_NAME = Text.literal("Phần thưởng Quest")
+            .formatted(Formatting.GOLD, Formatting.BOLD);
+    private static final Text LORE_FOOTER = Text.literal("Codeforces Quest")
+            .formatted(Formatting.DARK_GRAY, Formatting.ITALIC);
+
+    private final int[] minRatings;
+    private final CompiledTier[] tiers;
+    private final CompiledTier fallbackTier;
+    private final double[] placeMultipliers;
+    private final Map<String, ItemStack> templates = new HashMap<>();
+    private final Map<Long, LoreComponent> loreCache = new HashMap<>();
+
+    public static class CompiledTier {
+        private final String name;
+        private final int minRating;
+        private final List<String> items;
+        private final String effect;
+
+        private CompiledTier(String name, int minRating, List<String> items, String effect) {
+            this.name = name;
+            this.minRating = minRating;
+            this.items = items;
+            this.effect = effect;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMinRating() {
+            return minRating;
+        }
+
+        /**
+         * Item IDs that passed validation, in config order.
+         */
+        public List<String> getItems() {
+            return items;
+        }
+
+        public String getEffect() {
+            return effect;
+        }
+    }
+
+    private RewardTable(int[] minRatings, CompiledTier[] tiers, CompiledTier fallbackTier,
+                        double[] placeMultipliers) {
+        this.minRatings = minRatings;
+        this.tiers = tiers;
+        this.fallbackTier = fallbackTier;
+        this.placeMultipliers = placeMultipliers;
+    }
+
+    public static RewardTable compile(ModConfig.RewardsConfig config) {
+        Map<String, ItemStack> templates = new HashMap<>();
+        List<CompiledTier> compiled = new ArrayList<>();
+        CompiledTier fallback = null;
+
+        for (Map.Entry<String, ModConfig.RewardTier> entry : config.getTiers().entrySet()) {
+            ModConfig.RewardTier tier = entry.getValue();
+            if (tier == null) {
+                continue;
+            }
+
+            List<String> validItems = new ArrayList<>();
+            if (tier.getItems() != null) {
+                for (String itemId : tier.getItems()) {
+                    ItemStack template = templates.containsKey(itemId) ? templates.get(itemId) : createTemplate(itemId);
+                    if (template == null) {
+                        CFQuestMod.LOGGER.warn("Item không hợp lệ trong tier phần thưởng '{}': {}",
+                                entry.getKey(), itemId);
+                        continue;
+                    }
+                    templates.put(itemId, template);
+                    validItems.add(itemId);
+                }
+            }
+
+            CompiledTier compiledTier = new CompiledTier(entry.getKey(), tier.getMinRating(),
+                    Collections.unmodifiableList(validItems), tier.hasEffect() ? tier.getEffect() : null);
+            compiled.add(compiledTier);
+
+            if ("basic".equals(entry.getKey())) {
+                fallback = compiledTier;
+            }
+        }
+
+        // Stable sort keeps the first configured tier when two share a minRating
+        compiled.sort(Comparator.comparingInt(CompiledTier::getMinRating));
+        int[] minRatings = new int[compiled.size()];
+        for (int i = 0; i < minRatings.length; i++) {
+            minRatings[i] = compiled.get(i).getMinRating();
+        }
+
+        RewardTable table = new RewardTable(minRatings, compiled.toArray(new CompiledTier[0]), fallback,
+                compileMultipliers(config.getPlacementMultipliers()));
+        table.templates.putAll(templates);
+
+        CFQuestMod.LOGGER.info("Đã biên dịch bảng phần thưởng: {} tier, {} item, {} hạng",
+                compiled.size(), templates.size(), table.placeMultipliers.length - 1);
+        return table;
+    }
+
+    private static double[] compileMultipliers(Map<String, Double> multipliers) {
+        Map<Integer, Double> parsed = new HashMap<>();
+        int maxPlace = 0;
+
+        for (Map.Entry<String, Double> entry : multipliers.entrySet()) {
+            try {
+                int place = Integer.parseInt(entry.getKey().trim());
+                if (place < 1 || entry.getValue() == null) {
+                    throw new NumberFormatException();
+                }
+                parsed.put(place, entry.getValue());
+                maxPlace = Math.max(maxPlace, place);
+            } catch (NumberFormatException e) {
+                CFQuestMod.LOGGER.warn("Bỏ qua placement multiplier không hợp lệ: {}", entry.getKey());
+            }
+        }
+
+        double[] result = new double[maxPlace + 1];
+        parsed.forEach((place, value) -> result[place] = value);
+        return result;
+    }
+
+    private static ItemStack createTemplate(String itemId) {
+        Identifier id = itemId != null ? Identifier.tryParse(itemId) : null;
+        if (id == null || !Registries.ITEM.containsId(id)) {
+            return null;
+        }
+
+        ItemStack template = new ItemStack(Registries.ITEM.get(id), 1);
+        template.set(DataComponentTypes.CUSTOM_NAME, REWARD_NAME);
+        return template;
+    }
+
+    /**
+     * Highest tier whose minRating is at most {@code rating}, or the "basic" tier if none is.
+     */
+    public CompiledTier getTierForRating(int rating) {
+        int lo = 0;
+        int hi = minRatings.length - 1;
+        int found = -1;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (minRatings[mid] <= rating) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        if (found < 0) {
+            return fallbackTier;
+        }
+
+        // Walk back to the first tier sharing this minRating
+        while (found > 0 && minRatings[found - 1] == minRatings[found]) {
+            found--;
+        }
+        return tiers[found];
+    }
+
+    public double getMultiplierForPlace(int place) {
+        return place > 0 && place < placeMultipliers.length ? placeMultipliers[place] : 0.0;
+    }
+
+    /**
+     * Build a reward stack from its template. Items that are not in the compiled table
+     * (e.g. a mailbox entry written under an older config) are resolved once and cached.
+     *
+     * @return the stack, or null if the item ID does not exist
+     */
+    public ItemStack createStack(String itemId, int count, int place, int problemRating) {
+        ItemStack template = templates.get(itemId);
+        if (template == null) {
+            if (templates.containsKey(itemId)) {
+                return null;
+            }
+            template = createTemplate(itemId);
+            templates.put(itemId, template);
+            if (template == null) {
+                CFQuestMod.LOGGER.warn("Không tìm thấy item: {}", itemId);
+                return null;
+            }
+        }
+
+        ItemStack stack = template.copyWithCount(count);
+        stack.set(DataComponentTypes.LORE, getLore(place, problemRating));
+        return stack;
+    }
+
+    private LoreComponent getLore(int place, int problemRating) {
+        long key = ((long) place << 32) | (problemRating & 0xFFFFFFFFL);
+        return loreCache.computeIfAbsent(key, k -> new LoreComponent(List.of(
+                Text.literal("Hạng " + place).formatted(RewardManager.getPlaceFormatting(place)),
+                Text.literal("Độ khó: " + problemRating).formatted(RewardManager.getRatingFormatting(problemRating)),
+                LORE_FOOTER)));
+    }
+}
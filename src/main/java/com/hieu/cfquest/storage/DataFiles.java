@@ -0,0 +1,126 @@
+package com.hieu.cfquest.storage;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.util.Deadline;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Shared writer cho các file dữ liệu trong {@code <world>/cfquest/}.
+ * Ghi lại thời gian và số byte đã ghi theo từng store.
+ * Mỗi lần ghi là atomic (file tạm + rename), nên nhiều store có thể flush song song khi tắt server.
+ * Lần tải đầu tiên của mỗi store chạy song song trên background thread ({@link #loadAsync}).
+ */
+public final class DataFiles {
+    // Startup loads and shutdown flushes of stores without an executor of their own; idle threads exit
+    private static final ExecutorService IO = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "CFQuest-IO");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private DataFiles() {
+    }
+
+    public static void writeString(Path path, String content, String store) throws IOException {
+        long start = System.nanoTime();
+        byte[] data = content.getBytes(StandardCharsets.UTF_8);
+
+        Files.createDirectories(path.getParent());
+
+        // Write a sibling temp file, sync it and rename it over the target: a crash leaves
+        // either the old or the new file, never a truncated one
+        Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        Metrics.recordSave(store, start, data.length);
+    }
+
+    public static CompletableFuture<Void> loadAsync(String store, Runnable load) {
+        return loadAsync(store, IO, load);
+    }
+
+    /**
+     * Run every store's flush in parallel, waiting for them at most until {@code deadline}.
+     *
+     * @return stores whose flush had not finished by the deadline
+     */
+    public static List<String> flushAll(Map<String, Runnable> flushes, Deadline deadline) {
+        Map<String, CompletableFuture<Void>> running = new LinkedHashMap<>();
+        flushes.forEach((store, flush) -> running.put(store, CompletableFuture.runAsync(flush, IO)
+                .exceptionally(e -> {
+                    CFQuestMod.LOGGER.error("Lỗi khi lưu {}: {}", store, e.getMessage());
+                    return null;
+                })));
+
+        try {
+            CompletableFuture.allOf(running.values().toArray(new CompletableFuture[0]))
+                    .get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // Reported below per store
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<String> unfinished = new ArrayList<>();
+        running.forEach((store, future) -> {
+            if (!future.isDone()) {
+                unfinished.add(store);
+            }
+        });
+        return unfinished;
+    }
+
+    /**
+     * Run a store's initial load on {@code executor}. Stores that save on a single-thread
+     * executor pass it here so no save can overtake the load.
+     *
+     * @return a future that completes once the load has finished; failures are logged and the
+     *         store starts empty, as with an unreadable file
+     */
+    public static CompletableFuture<Void> loadAsync(String store, Executor executor, Runnable load) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.nanoTime();
+            load.run();
+            CFQuestMod.LOGGER.debug("Đã tải {} trong {} ms", store, (System.nanoTime() - start) / 1_000_000);
+        }, executor).exceptionally(e -> {
+            CFQuestMod.LOGGER.error("Lỗi khi tải {}: {}", store, e.getMessage());
+            return null;
+        });
+    }
+}
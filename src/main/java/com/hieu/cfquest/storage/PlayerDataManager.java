@@ -4,9 +4,10 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import com.hieu.cfquest.CFQuestMod;
-import net.minecraft.server.MinecraftServer;
+import com.hieu.cfquest.engine.EngineClock;
+import com.hieu.cfquest.engine.PlayerDirectory;
+import com.hieu.cfquest.util.Deadline;
 import net.minecraft.server.network.ServerPlayerEntity;
-import net.minecraft.util.WorldSavePath;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
@@ -14,7 +15,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -29,12 +30,17 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * - Thread-safe ConcurrentHashMap
  * - Async save with dirty flag (không block main thread)
  * - Periodic auto-save thay vì save mỗi thay đổi
+ * - players.json được tải trên thread save, không block server khi khởi động
+ *
+ * Everything keyed by identifier works without a server; the {@link ServerPlayerEntity}
+ * overloads are conveniences for commands and connection events.
  */
 public class PlayerDataManager {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final int AUTO_SAVE_INTERVAL_SECONDS = 60; // Auto-save mỗi 60s
 
-    private final MinecraftServer server;
+    private final PlayerDirectory players;
+    private final EngineClock clock;
     private final Path dataPath;
 
     // Thread-safe map
@@ -45,12 +51,14 @@ public class PlayerDataManager {
 
     // Async save executor
     private final ScheduledExecutorService saveExecutor;
+    private final CompletableFuture<Void> ready;
 
     public static class PlayerData {
         private String identifier;
         private String playerName;
         private String cfHandle;
         private long linkTime;
+        private long lastSeen;
         private int totalSolves;
         private int totalWins;
         private boolean isPremium;
@@ -96,6 +104,14 @@ public class PlayerDataManager {
             this.linkTime = linkTime;
         }
 
+        public long getLastSeen() {
+            return lastSeen;
+        }
+
+        public void setLastSeen(long lastSeen) {
+            this.lastSeen = lastSeen;
+        }
+
         public int getTotalSolves() {
             return totalSolves;
         }
@@ -125,9 +141,13 @@ public class PlayerDataManager {
         }
     }
 
-    public PlayerDataManager(MinecraftServer server) {
-        this.server = server;
-        this.dataPath = server.getSavePath(WorldSavePath.ROOT).resolve("cfquest").resolve("players.json");
+    /**
+     * @param dataDir the {@code cfquest} data directory
+     */
+    public PlayerDataManager(Path dataDir, PlayerDirectory players, EngineClock clock) {
+        this.players = players;
+        this.clock = clock;
+        this.dataPath = dataDir.resolve("players.json");
 
         // Create save executor with daemon thread
         this.saveExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
@@ -136,8 +156,8 @@ public class PlayerDataManager {
             return t;
         });
 
-        // Load data synchronously on startup
-        load();
+        // Load in the background; queued before any save on the same executor
+        this.ready = DataFiles.loadAsync("players", saveExecutor, this::load);
 
         // Schedule periodic auto-save
         saveExecutor.scheduleAtFixedRate(
@@ -148,6 +168,13 @@ public class PlayerDataManager {
         );
     }
 
+    /**
+     * @return a future that completes once players.json has been loaded
+     */
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
     /**
      * Mark data as dirty (needs save)
      */
@@ -168,7 +195,7 @@ public class PlayerDataManager {
      * Get the unique identifier for a player.
      */
     public String getPlayerIdentifier(ServerPlayerEntity player) {
-        if (server.isOnlineMode()) {
+        if (players.isOnlineMode()) {
             return player.getUuid().toString();
         } else {
             return "offline:" + player.getName().getString().toLowerCase();
@@ -186,9 +213,15 @@ public class PlayerDataManager {
      * Get the player data for a player
      */
     public PlayerData getPlayerData(ServerPlayerEntity player) {
-        String identifier = getPlayerIdentifier(player);
+        return getPlayerData(getPlayerIdentifier(player), player.getName().getString());
+    }
+
+    /**
+     * Get the player data for an identifier, creating it with {@code playerName} if missing
+     */
+    public PlayerData getPlayerData(String identifier, String playerName) {
         return playerData.computeIfAbsent(identifier, k ->
-            new PlayerData(identifier, player.getName().getString(), server.isOnlineMode())
+            new PlayerData(identifier, playerName, !isOfflinePlayer(identifier))
         );
     }
 
@@ -199,14 +232,29 @@ public class PlayerDataManager {
         return playerData.get(identifier);
     }
 
+    /**
+     * Record that a player joined or left just now
+     */
+    public void markSeen(ServerPlayerEntity player) {
+        getPlayerData(player).setLastSeen(clock.currentTimeMillis());
+        markDirty();
+    }
+
     /**
      * Link a player to a Codeforces handle
      */
     public void linkPlayer(ServerPlayerEntity player, String cfHandle) {
-        PlayerData data = getPlayerData(player);
+        linkPlayer(getPlayerIdentifier(player), player.getName().getString(), cfHandle);
+    }
+
+    /**
+     * Link a player identifier to a Codeforces handle
+     */
+    public void linkPlayer(String identifier, String playerName, String cfHandle) {
+        PlayerData data = getPlayerData(identifier, playerName);
         data.setCfHandle(cfHandle);
-        data.setLinkTime(System.currentTimeMillis());
-        data.setPlayerName(player.getName().getString());
+        data.setLinkTime(clock.currentTimeMillis());
+        data.setPlayerName(playerName);
         markDirty();
     }
 
@@ -301,23 +349,6 @@ public class PlayerDataManager {
         }
     }
 
-    /**
-     * Get a ServerPlayerEntity by identifier
-     */
-    public ServerPlayerEntity getOnlinePlayer(String identifier) {
-        if (isOfflinePlayer(identifier)) {
-            String username = identifier.substring("offline:".length());
-            return server.getPlayerManager().getPlayer(username);
-        } else {
-            try {
-                UUID uuid = UUID.fromString(identifier);
-                return server.getPlayerManager().getPlayer(uuid);
-            } catch (IllegalArgumentException e) {
-                return server.getPlayerManager().getPlayer(identifier);
-            }
-        }
-    }
-
     /**
      * Public save method - schedules async save
      */
@@ -332,11 +363,10 @@ public class PlayerDataManager {
      */
     private void saveInternal() {
         try {
-            Files.createDirectories(dataPath.getParent());
             // Create snapshot of data for thread-safety
             Map<String, PlayerData> snapshot = new HashMap<>(playerData);
             String json = GSON.toJson(snapshot);
-            Files.writeString(dataPath, json);
+            DataFiles.writeString(dataPath, json, "players");
             CFQuestMod.LOGGER.debug("Đã lưu {} player data", snapshot.size());
         } catch (IOException e) {
             CFQuestMod.LOGGER.error("Lỗi khi lưu player data: {}", e.getMessage());
@@ -350,7 +380,8 @@ public class PlayerDataManager {
                 Type type = new TypeToken<Map<String, PlayerData>>() {}.getType();
                 Map<String, PlayerData> loaded = GSON.fromJson(json, type);
                 if (loaded != null) {
-                    playerData.putAll(loaded);
+                    // Entries touched while loading are newer than the file
+                    loaded.forEach(playerData::putIfAbsent);
                 }
                 CFQuestMod.LOGGER.info("Đã tải {} player data", playerData.size());
             } catch (IOException e) {
@@ -362,19 +393,14 @@ public class PlayerDataManager {
     /**
      * Shutdown - save and cleanup
      */
-    public void shutdown() {
+    public void shutdown(Deadline deadline) {
+        // Never overwrite players.json with a partially loaded map
+        ready.join();
+
+        // Let a running periodic save finish first so it cannot land after the final one
+        deadline.awaitTermination(saveExecutor);
+
         // Force final save
         saveInternal();
-
-        // Shutdown executor
-        saveExecutor.shutdown();
-        try {
-            if (!saveExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                saveExecutor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            saveExecutor.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
     }
 }
@@ -0,0 +1,425 @@
+package com.hieu.cfquest.storage;
+
+import com.google.gson.Gson;
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.api.CodeforcesAPI;
+import com.hieu.cfquest.api.model.Problem;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.util.AliasTable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Local copy of the Codeforces problemset for scheduled quests.
+ *
+ * Optimizations:
+ * - Persist vào {@code problemset.json}, không cần gọi API khi bắt đầu quest
+ * - Refresh nền định kỳ; merge theo (contestId, index) và chỉ rebuild index khi có thay đổi
+ * - Index theo rating bucket (alias table mỗi bucket → chọn ngẫu nhiên có trọng số O(1)) và theo tag (BitSet)
+ *
+ * Only rated PROGRAMMING problems are indexed. Weight favours problems with more solves
+ * (well-tested statements) without letting the most popular ones dominate.
+ */
+public class ProblemCatalog {
+    private static final Gson GSON = new Gson();
+    private static final int REJECTION_ATTEMPTS = 64;
+
+    private final Path catalogPath;
+    private final CodeforcesAPI api;
+    private volatile int refreshHours;
+    private boolean started = false;
+    private final ScheduledExecutorService executor;
+
+    // Guarded by this; index is swapped atomically for lock-free reads
+    private CatalogData data = new CatalogData();
+    private volatile Index index = Index.build(List.of());
+
+    private static class CatalogData {
+        long lastRefresh;
+        Map<String, CatalogEntry> problems = new LinkedHashMap<>();
+    }
+
+    public static class CatalogEntry {
+        private int contestId;
+        private String index;
+        private String name;
+        private String type;
+        private int rating;
+        private String[] tags;
+        private int solvedCount;
+
+        public CatalogEntry() {
+        }
+
+        CatalogEntry(Problem problem, int solvedCount) {
+            this.contestId = problem.getContestId();
+            this.index = problem.getIndex();
+            this.name = problem.getName();
+            this.type = problem.getType();
+            this.rating = problem.getRating();
+            this.tags = problem.getTags() != null ? problem.getTags() : new String[0];
+            this.solvedCount = solvedCount;
+        }
+
+        boolean isSelectable() {
+            return rating > 0 && (type == null || "PROGRAMMING".equals(type));
+        }
+
+        boolean sameAs(CatalogEntry other) {
+            return rating == other.rating && solvedCount == other.solvedCount
+                    && Objects.equals(name, other.name)
+                    && Arrays.equals(tags, other.tags);
+        }
+
+        double weight() {
+            return 1.0 + Math.log1p(solvedCount);
+        }
+
+        public int getContestId() {
+            return contestId;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        public int getRating() {
+            return rating;
+        }
+
+        public String[] getTags() {
+            return tags;
+        }
+
+        public Problem toProblem() {
+            Problem problem = new Problem();
+            problem.setContestId(contestId);
+            problem.setIndex(index);
+            problem.setName(name);
+            problem.setType(type);
+            problem.setRating(rating);
+            problem.setTags(tags != null ? tags.clone() : null);
+            return problem;
+        }
+    }
+
+    /**
+     * Immutable search structure over selectable entries.
+     */
+    private static final class Index {
+        final CatalogEntry[] entries;
+        final int[] bucketRatings;
+        final int[][] bucketMembers;
+        final AliasTable[] bucketAlias;
+        final double[] bucketWeight;
+        final Map<String, BitSet> tagIndex;
+
+        private Index(CatalogEntry[] entries, int[] bucketRatings, int[][] bucketMembers,
+                      AliasTable[] bucketAlias, double[] bucketWeight, Map<String, BitSet> tagIndex) {
+            this.entries = entries;
+            this.bucketRatings = bucketRatings;
+            this.bucketMembers = bucketMembers;
+            this.bucketAlias = bucketAlias;
+            this.bucketWeight = bucketWeight;
+            this.tagIndex = tagIndex;
+        }
+
+        static Index build(Collection<CatalogEntry> all) {
+            List<CatalogEntry> selectable = new ArrayList<>();
+            for (CatalogEntry entry : all) {
+                if (entry.isSelectable()) {
+                    selectable.add(entry);
+                }
+            }
+
+            CatalogEntry[] entries = selectable.toArray(new CatalogEntry[0]);
+            TreeMap<Integer, List<Integer>> byRating = new TreeMap<>();
+            Map<String, BitSet> tagIndex = new HashMap<>();
+
+            for (int i = 0; i < entries.length; i++) {
+                byRating.computeIfAbsent(entries[i].rating, k -> new ArrayList<>()).add(i);
+                String[] tags = entries[i].tags != null ? entries[i].tags : new String[0];
+                for (String tag : tags) {
+                    tagIndex.computeIfAbsent(tag.toLowerCase(), k -> new BitSet(entries.length)).set(i);
+                }
+            }
+
+            int buckets = byRating.size();
+            int[] bucketRatings = new int[buckets];
+            int[][] bucketMembers = new int[buckets][];
+            AliasTable[] bucketAlias = new AliasTable[buckets];
+            double[] bucketWeight = new double[buckets];
+
+            int b = 0;
+            for (Map.Entry<Integer, List<Integer>> bucket : byRating.entrySet()) {
+                List<Integer> members = bucket.getValue();
+                bucketRatings[b] = bucket.getKey();
+                bucketMembers[b] = new int[members.size()];
+                double[] weights = new double[members.size()];
+                for (int i = 0; i < members.size(); i++) {
+                    bucketMembers[b][i] = members.get(i);
+                    weights[i] = entries[members.get(i)].weight();
+                }
+                bucketAlias[b] = new AliasTable(weights);
+                bucketWeight[b] = bucketAlias[b].getTotalWeight();
+                b++;
+            }
+
+            return new Index(entries, bucketRatings, bucketMembers, bucketAlias, bucketWeight, tagIndex);
+        }
+
+        /**
+         * First bucket with rating >= value.
+         */
+        int lowerBound(int value) {
+            int lo = 0;
+            int hi = bucketRatings.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (bucketRatings[mid] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * @param dataDir the {@code cfquest} data directory
+     */
+    public ProblemCatalog(Path dataDir, CodeforcesAPI api, int refreshHours) {
+        this.catalogPath = dataDir.resolve("problemset.json");
+        this.api = api;
+        this.refreshHours = Math.max(1, refreshHours);
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "CFQuest-Catalog");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Metrics.REGISTRY.gauge("cfquest_catalog_problems", "Selectable problems in the local catalog",
+                () -> index.entries.length);
+    }
+
+    /**
+     * Load the persisted catalog and schedule background refreshes. The first refresh runs
+     * immediately if the catalog is missing or stale.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        executor.execute(this::load);
+
+        // Cheap staleness check; the actual download happens at most once per refreshHours
+        executor.scheduleAtFixedRate(() -> {
+            long refreshMillis = TimeUnit.HOURS.toMillis(refreshHours);
+            long age;
+            synchronized (this) {
+                age = System.currentTimeMillis() - data.lastRefresh;
+            }
+            if (age >= refreshMillis) {
+                refresh();
+            }
+        }, 30, 30, TimeUnit.MINUTES);
+    }
+
+    public void setRefreshHours(int refreshHours) {
+        this.refreshHours = Math.max(1, refreshHours);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isEmpty() {
+        return index.entries.length == 0;
+    }
+
+    public int size() {
+        return index.entries.length;
+    }
+
+    /**
+     * Fetch problemset.problems and merge it into the catalog.
+     */
+    public CompletableFuture<Void> refresh() {
+        return api.getProblemset().thenAccept(problemset -> {
+            if (problemset == null || problemset.problems.isEmpty()) {
+                CFQuestMod.LOGGER.warn("Không thể làm mới problemset catalog");
+                return;
+            }
+            merge(problemset);
+        });
+    }
+
+    private void merge(CodeforcesAPI.Problemset problemset) {
+        int added = 0;
+        int updated = 0;
+        String json = null;
+
+        synchronized (this) {
+            for (Problem problem : problemset.problems) {
+                String key = problem.getContestId() + "/" + problem.getIndex();
+                CatalogEntry fresh = new CatalogEntry(problem, problemset.solvedCounts.getOrDefault(key, 0));
+                CatalogEntry existing = data.problems.put(key, fresh);
+
+                if (existing == null) {
+                    added++;
+                } else if (!existing.sameAs(fresh)) {
+                    updated++;
+                }
+            }
+            data.lastRefresh = System.currentTimeMillis();
+
+            if (added > 0 || updated > 0) {
+                index = Index.build(data.problems.values());
+            }
+            // Always persist so lastRefresh survives restarts
+            json = GSON.toJson(data);
+        }
+
+        save(json);
+        CFQuestMod.LOGGER.info("Đã làm mới problemset catalog: {} bài ({} mới, {} cập nhật, {} có thể chọn)",
+                problemset.problems.size(), added, updated, index.entries.length);
+    }
+
+    private void save(String json) {
+        try {
+            DataFiles.writeString(catalogPath, json, "problemset");
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi lưu problemset catalog: {}", e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (Files.exists(catalogPath)) {
+            try {
+                CatalogData loaded = GSON.fromJson(Files.readString(catalogPath), CatalogData.class);
+                if (loaded != null && loaded.problems != null) {
+                    synchronized (this) {
+                        data = loaded;
+                        index = Index.build(data.problems.values());
+                    }
+                    CFQuestMod.LOGGER.info("Đã tải problemset catalog: {} bài có thể chọn", index.entries.length);
+                }
+            } catch (Exception e) {
+                CFQuestMod.LOGGER.error("Lỗi khi tải problemset catalog: {}", e.getMessage());
+            }
+        }
+
+        long age;
+        synchronized (this) {
+            age = System.currentTimeMillis() - data.lastRefresh;
+        }
+        if (age >= TimeUnit.HOURS.toMillis(refreshHours)) {
+            refresh();
+        }
+    }
+
+    /**
+     * Pick a random problem within the given constraints.
+     *
+     * @param minRating   lowest rating, 0 = unbounded
+     * @param maxRating   highest rating, 0 = unbounded
+     * @param tags        accept problems having any of these tags (empty = any)
+     * @param contestPool accept only these contests (empty = any)
+     * @param accept      extra per-problem filter (e.g. not already solved by most online players)
+     * @return a fresh Problem, or null if nothing matches
+     */
+    public Problem pick(int minRating, int maxRating, Collection<String> tags, Collection<Integer> contestPool,
+                        Predicate<CatalogEntry> accept, Random random) {
+        Index idx = index;
+
+        int from = idx.lowerBound(minRating > 0 ? minRating : Integer.MIN_VALUE);
+        int to = maxRating > 0 ? idx.lowerBound(maxRating + 1) : idx.bucketRatings.length;
+        if (from >= to) {
+            return null;
+        }
+
+        BitSet tagFilter = null;
+        if (!tags.isEmpty()) {
+            tagFilter = new BitSet(idx.entries.length);
+            for (String tag : tags) {
+                BitSet members = idx.tagIndex.get(tag.toLowerCase());
+                if (members != null) {
+                    tagFilter.or(members);
+                }
+            }
+            if (tagFilter.isEmpty()) {
+                return null;
+            }
+        }
+
+        Set<Integer> pool = contestPool.isEmpty() ? null : new HashSet<>(contestPool);
+
+        // Bucket choice weighted by bucket total, then O(1) alias sample inside the bucket
+        double[] weights = new double[to - from];
+        System.arraycopy(idx.bucketWeight, from, weights, 0, weights.length);
+        AliasTable buckets = new AliasTable(weights);
+
+        for (int attempt = 0; attempt < REJECTION_ATTEMPTS; attempt++) {
+            int bucket = from + buckets.sample(random);
+            int entry = idx.bucketMembers[bucket][idx.bucketAlias[bucket].sample(random)];
+            if (matches(idx, entry, tagFilter, pool, accept)) {
+                return idx.entries[entry].toProblem();
+            }
+        }
+
+        // Narrow filters: fall back to an exact scan of the candidate buckets
+        List<Integer> candidates = new ArrayList<>();
+        for (int bucket = from; bucket < to; bucket++) {
+            for (int entry : idx.bucketMembers[bucket]) {
+                if (matches(idx, entry, tagFilter, pool, accept)) {
+                    candidates.add(entry);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        double[] candidateWeights = new double[candidates.size()];
+        for (int i = 0; i < candidateWeights.length; i++) {
+            candidateWeights[i] = idx.entries[candidates.get(i)].weight();
+        }
+        int chosen = candidates.get(new AliasTable(candidateWeights).sample(random));
+        return idx.entries[chosen].toProblem();
+    }
+
+    private static boolean matches(Index idx, int entry, BitSet tagFilter, Set<Integer> pool,
+                                   Predicate<CatalogEntry> accept) {
+        if (tagFilter != null && !tagFilter.get(entry)) {
+            return false;
+        }
+        if (pool != null && !pool.contains(idx.entries[entry].contestId)) {
+            return false;
+        }
+        return accept == null || accept.test(idx.entries[entry]);
+    }
+}
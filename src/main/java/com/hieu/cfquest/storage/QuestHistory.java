@@ -5,8 +5,6 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import com.hieu.cfquest.CFQuestMod;
 import com.hieu.cfquest.quest.Quest;
-import net.minecraft.server.MinecraftServer;
-import net.minecraft.util.WorldSavePath;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
@@ -18,15 +16,21 @@ import java.util.List;
 
 /**
  * Stores history of completed quests.
+ *
+ * Optimizations:
+ * - Tải lazy ở lần truy cập đầu tiên (lệnh history/leaderboard, quest kết thúc): không tốn thời gian khởi động
+ *
+ * Thread-safe: quests are added by the history subscriber of the quest event bus while
+ * commands read on the main thread.
  */
 public class QuestHistory {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
     private static final int MAX_HISTORY_SIZE = 100;
 
-    private final MinecraftServer server;
     private final Path historyPath;
 
-    private List<QuestRecord> history = new ArrayList<>();
+    private List<QuestRecord> history; // null until first access
+    private volatile long version = 0;
 
     public static class QuestRecord {
         private int contestId;
@@ -40,13 +44,13 @@ public class QuestHistory {
         public QuestRecord() {
         }
 
-        public QuestRecord(Quest quest) {
+        public QuestRecord(Quest quest, long endTime) {
             this.contestId = quest.getContestId();
             this.problemIndex = quest.getProblemIndex();
             this.problemName = quest.getProblemName();
             this.problemRating = quest.getProblemRating();
             this.startTime = quest.getStartTime();
-            this.endTime = System.currentTimeMillis();
+            this.endTime = endTime;
 
             for (Quest.Winner winner : quest.getWinners()) {
                 winners.add(new WinnerRecord(winner));
@@ -131,50 +135,75 @@ public class QuestHistory {
         }
     }
 
-    public QuestHistory(MinecraftServer server) {
-        this.server = server;
-        this.historyPath = server.getSavePath(WorldSavePath.ROOT).resolve("cfquest").resolve("history.json");
-        load();
+    /**
+     * @param dataDir the {@code cfquest} data directory
+     */
+    public QuestHistory(Path dataDir) {
+        this.historyPath = dataDir.resolve("history.json");
     }
 
-    public void addQuest(Quest quest) {
-        QuestRecord record = new QuestRecord(quest);
-        history.add(record);
+    private synchronized List<QuestRecord> history() {
+        if (history == null) {
+            history = new ArrayList<>();
+            load();
+        }
+        return history;
+    }
 
-        // Trim history if too large
-        while (history.size() > MAX_HISTORY_SIZE) {
-            history.remove(0);
+    /**
+     * @param endTime epoch millis the quest ended at
+     */
+    public void addQuest(Quest quest, long endTime) {
+        QuestRecord record = new QuestRecord(quest, endTime);
+        synchronized (this) {
+            List<QuestRecord> records = history();
+            records.add(record);
+
+            // Trim history if too large
+            while (records.size() > MAX_HISTORY_SIZE) {
+                records.remove(0);
+            }
+            version++;
         }
 
         save();
     }
 
-    public List<QuestRecord> getHistory() {
-        return new ArrayList<>(history);
+    /**
+     * Changes whenever a quest is added; lets readers cache anything derived from the history.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public synchronized List<QuestRecord> getHistory() {
+        return new ArrayList<>(history());
     }
 
-    public List<QuestRecord> getRecentHistory(int count) {
-        int start = Math.max(0, history.size() - count);
-        return new ArrayList<>(history.subList(start, history.size()));
+    public synchronized List<QuestRecord> getRecentHistory(int count) {
+        List<QuestRecord> records = history();
+        int start = Math.max(0, records.size() - count);
+        return new ArrayList<>(records.subList(start, records.size()));
     }
 
-    public QuestRecord getLastQuest() {
-        if (history.isEmpty()) {
+    public synchronized QuestRecord getLastQuest() {
+        List<QuestRecord> records = history();
+        if (records.isEmpty()) {
             return null;
         }
-        return history.get(history.size() - 1);
+        return records.get(records.size() - 1);
     }
 
     /**
      * Get leaderboard stats for all players
      */
-    public List<LeaderboardEntry> getLeaderboard() {
+    public synchronized List<LeaderboardEntry> getLeaderboard() {
         List<LeaderboardEntry> leaderboard = new ArrayList<>();
 
         // Aggregate stats from history
         java.util.Map<String, LeaderboardEntry> stats = new java.util.HashMap<>();
 
-        for (QuestRecord quest : history) {
+        for (QuestRecord quest : history()) {
             for (WinnerRecord winner : quest.getWinners()) {
                 String id = winner.getPlayerIdentifier();
                 LeaderboardEntry entry = stats.computeIfAbsent(id, k -> {
@@ -224,10 +253,17 @@ public class QuestHistory {
     }
 
     public void save() {
+        String json;
+        synchronized (this) {
+            // Never loaded means never changed
+            if (history == null) {
+                return;
+            }
+            json = GSON.toJson(history);
+        }
+
         try {
-            Files.createDirectories(historyPath.getParent());
-            String json = GSON.toJson(history);
-            Files.writeString(historyPath, json);
+            DataFiles.writeString(historyPath, json, "history");
         } catch (IOException e) {
             CFQuestMod.LOGGER.error("Lỗi khi lưu quest history: {}", e.getMessage());
         }
@@ -0,0 +1,245 @@
+package com.hieu.cfquest.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.util.Deadline;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persisted queue of rewards that have been awarded but not yet delivered, keyed by player identifier.
+ * Winners who are offline at quest end receive their rewards the next time they join.
+ *
+ * Optimizations:
+ * - Save chạy trên daemon thread riêng, không block server thread
+ * - Mỗi thay đổi chỉ enqueue một lần save (coalesce)
+ * - File được tải trên thread save khi khởi động, không block server thread
+ */
+public class RewardMailbox {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final Path dataPath;
+    private final Map<String, List<PendingReward>> pending = new HashMap<>();
+    private final ExecutorService saveExecutor;
+    private final CompletableFuture<Void> ready;
+    private boolean saveQueued = false;
+
+    public static class PendingReward {
+        private String id;
+        private String questIdentifier;
+        private String problemName;
+        private int problemRating;
+        private int place;
+        private List<ItemGrant> items = new ArrayList<>();
+        private String effect;
+        private long createdAt;
+
+        public PendingReward() {
+        }
+
+        public PendingReward(String questIdentifier, String problemName, int problemRating, int place,
+                             List<ItemGrant> items, String effect) {
+            this.id = questIdentifier + "#" + place;
+            this.questIdentifier = questIdentifier;
+            this.problemName = problemName;
+            this.problemRating = problemRating;
+            this.place = place;
+            this.items = items;
+            this.effect = effect;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getQuestIdentifier() {
+            return questIdentifier;
+        }
+
+        public String getProblemName() {
+            return problemName;
+        }
+
+        public int getProblemRating() {
+            return problemRating;
+        }
+
+        public int getPlace() {
+            return place;
+        }
+
+        public List<ItemGrant> getItems() {
+            return items;
+        }
+
+        public String getEffect() {
+            return effect;
+        }
+
+        public boolean hasEffect() {
+            return effect != null && !effect.isEmpty();
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+    }
+
+    public static class ItemGrant {
+        private String itemId;
+        private int count;
+
+        public ItemGrant() {
+        }
+
+        public ItemGrant(String itemId, int count) {
+            this.itemId = itemId;
+            this.count = count;
+        }
+
+        public String getItemId() {
+            return itemId;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * @param dataDir the {@code cfquest} data directory
+     */
+    public RewardMailbox(Path dataDir) {
+        this.dataPath = dataDir.resolve("pending_rewards.json");
+
+        this.saveExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "CFQuest-MailboxSaver");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.ready = DataFiles.loadAsync("pending_rewards", saveExecutor, this::load);
+    }
+
+    /**
+     * @return a future that completes once pending_rewards.json has been loaded
+     */
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    public synchronized void add(String identifier, PendingReward reward) {
+        List<PendingReward> rewards = pending.computeIfAbsent(identifier, k -> new ArrayList<>());
+        for (PendingReward existing : rewards) {
+            if (existing.getId().equals(reward.getId())) {
+                return;
+            }
+        }
+        rewards.add(reward);
+        scheduleSave();
+    }
+
+    public synchronized List<PendingReward> getPending(String identifier) {
+        List<PendingReward> rewards = pending.get(identifier);
+        return rewards != null ? new ArrayList<>(rewards) : List.of();
+    }
+
+    public synchronized boolean hasPending(String identifier) {
+        List<PendingReward> rewards = pending.get(identifier);
+        return rewards != null && !rewards.isEmpty();
+    }
+
+    /**
+     * @return true if the reward was still pending, i.e. the caller now owns its delivery
+     */
+    public synchronized boolean remove(String identifier, String rewardId) {
+        List<PendingReward> rewards = pending.get(identifier);
+        if (rewards == null || !rewards.removeIf(reward -> reward.getId().equals(rewardId))) {
+            return false;
+        }
+
+        if (rewards.isEmpty()) {
+            pending.remove(identifier);
+        }
+        scheduleSave();
+        return true;
+    }
+
+    public synchronized int size() {
+        int total = 0;
+        for (List<PendingReward> rewards : pending.values()) {
+            total += rewards.size();
+        }
+        return total;
+    }
+
+    private void scheduleSave() {
+        if (saveQueued) {
+            return;
+        }
+        saveQueued = true;
+        saveExecutor.execute(this::save);
+    }
+
+    public void save() {
+        String json;
+        synchronized (this) {
+            saveQueued = false;
+            json = GSON.toJson(pending);
+        }
+
+        try {
+            DataFiles.writeString(dataPath, json, "pending_rewards");
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi lưu pending rewards: {}", e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (Files.exists(dataPath)) {
+            try {
+                String json = Files.readString(dataPath);
+                Type type = new TypeToken<Map<String, List<PendingReward>>>() {}.getType();
+                Map<String, List<PendingReward>> loaded = GSON.fromJson(json, type);
+                if (loaded != null) {
+                    // Rewards added while loading are kept; their save is already queued behind this load
+                    synchronized (this) {
+                        loaded.forEach((identifier, rewards) -> {
+                            List<PendingReward> merged = pending.computeIfAbsent(identifier, k -> new ArrayList<>());
+                            for (PendingReward reward : rewards) {
+                                if (merged.stream().noneMatch(r -> r.getId().equals(reward.getId()))) {
+                                    merged.add(reward);
+                                }
+                            }
+                        });
+                    }
+                }
+                CFQuestMod.LOGGER.info("Đã tải {} phần thưởng đang chờ", size());
+            } catch (IOException e) {
+                CFQuestMod.LOGGER.error("Lỗi khi tải pending rewards: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Shutdown - final save and cleanup
+     */
+    public void shutdown(Deadline deadline) {
+        ready.join();
+        deadline.awaitTermination(saveExecutor);
+        save();
+    }
+}
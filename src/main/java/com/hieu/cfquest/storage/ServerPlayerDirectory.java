@@ -0,0 +1,47 @@
+package com.hieu.cfquest.storage;
+
+import com.hieu.cfquest.engine.PlayerDirectory;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+
+import java.util.UUID;
+
+/**
+ * {@link PlayerDirectory} backed by the server's player list; also resolves identifiers to
+ * player entities for code that talks to Minecraft directly (announcements, rewards).
+ */
+public class ServerPlayerDirectory implements PlayerDirectory {
+    private final MinecraftServer server;
+
+    public ServerPlayerDirectory(MinecraftServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public boolean isOnlineMode() {
+        return server.isOnlineMode();
+    }
+
+    @Override
+    public String getOnlineName(String identifier) {
+        ServerPlayerEntity player = getPlayer(identifier);
+        return player != null ? player.getName().getString() : null;
+    }
+
+    /**
+     * Get a ServerPlayerEntity by identifier (UUID or {@code offline:<name>})
+     */
+    public ServerPlayerEntity getPlayer(String identifier) {
+        if (identifier.startsWith("offline:")) {
+            String username = identifier.substring("offline:".length());
+            return server.getPlayerManager().getPlayer(username);
+        } else {
+            try {
+                UUID uuid = UUID.fromString(identifier);
+                return server.getPlayerManager().getPlayer(uuid);
+            } catch (IllegalArgumentException e) {
+                return server.getPlayerManager().getPlayer(identifier);
+            }
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.hieu.cfquest.storage;
+
+import com.google.gson.Gson;
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.api.CodeforcesAPI;
+import com.hieu.cfquest.api.model.Submission;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.util.Deadline;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Per-handle bitmap of solved problems, built from {@code user.status}.
+ *
+ * Optimizations:
+ * - Mỗi bài được gán một int id (dictionary "contestId/index"), mỗi handle là một BitSet → lookup O(1)
+ * - Sync incremental: chỉ tải các submission mới hơn {@code lastSubmissionId}
+ * - Sync chạy tuần tự trên daemon thread riêng; persist dạng bitmap nén (Base64) với dirty flag
+ * - File được tải trên chính thread đó khi khởi động, trước mọi lần sync/save
+ * - Sync là việc nền: nhường slot rate limit cho request đang chờ và giới hạn số trang mỗi phút
+ *
+ * The bitmaps answer "has this handle solved this problem (as far as we know)?". They are a
+ * fast pre-filter: quest solves are still verified against submission times before counting.
+ */
+public class SolvedProblemIndex {
+    private static final Gson GSON = new Gson();
+    private static final int PAGE_SIZE = 1000;
+    private static final int MAX_PAGES = 50;
+    private static final int AUTO_SAVE_INTERVAL_SECONDS = 120;
+    private static final long RESYNC_AFTER_MS = 60 * 60 * 1000L;
+    // Background budget: leaves most rate-limit slots to standings polls and verifications
+    private static final int BACKGROUND_PAGES_PER_MINUTE = 10;
+    private static final long YIELD_POLL_MS = 250;
+
+    private final Path dataPath;
+    private final CodeforcesAPI api;
+    private final ScheduledExecutorService executor;
+    private final CompletableFuture<Void> ready;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    // Problem dictionary; ids are dense and never reused
+    private final List<String> problemKeys = new ArrayList<>();
+    private final ConcurrentHashMap<String, Integer> problemIds = new ConcurrentHashMap<>();
+
+    // Lowercase handle → bitmap
+    private final ConcurrentHashMap<String, HandleBits> handles = new ConcurrentHashMap<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final Set<String> onlineHandles = ConcurrentHashMap.newKeySet();
+
+    // Page budget window; only touched on the index thread
+    private long budgetWindowStart;
+    private int budgetPagesUsed;
+
+    private static class HandleBits {
+        private final BitSet solved;
+        private long lastSubmissionId;
+        private long syncedAt;
+
+        HandleBits(BitSet solved, long lastSubmissionId, long syncedAt) {
+            this.solved = solved;
+            this.lastSubmissionId = lastSubmissionId;
+            this.syncedAt = syncedAt;
+        }
+
+        synchronized boolean get(int id) {
+            return solved.get(id);
+        }
+
+        synchronized void set(int id) {
+            solved.set(id);
+        }
+
+        /**
+         * Merge a bitmap loaded from disk into an entry created before the load finished.
+         */
+        synchronized void merge(BitSet stored, long storedLastSubmissionId, long storedSyncedAt) {
+            solved.or(stored);
+            lastSubmissionId = Math.max(lastSubmissionId, storedLastSubmissionId);
+            syncedAt = Math.max(syncedAt, storedSyncedAt);
+        }
+    }
+
+    private static class StoredIndex {
+        List<String> problems = new ArrayList<>();
+        Map<String, StoredHandle> handles = new HashMap<>();
+    }
+
+    private static class StoredHandle {
+        String bits;
+        long lastSubmissionId;
+        long syncedAt;
+    }
+
+    /**
+     * @param dataDir the {@code cfquest} data directory
+     */
+    public SolvedProblemIndex(Path dataDir, CodeforcesAPI api) {
+        this.dataPath = dataDir.resolve("solved_index.json");
+        this.api = api;
+
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "CFQuest-SolvedIndex");
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.ready = DataFiles.loadAsync("solved_index", executor, this::load);
+
+        executor.scheduleAtFixedRate(this::saveIfDirty,
+                AUTO_SAVE_INTERVAL_SECONDS, AUTO_SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        // Keep online players' bitmaps reasonably fresh between quests
+        executor.scheduleAtFixedRate(() -> onlineHandles.forEach(this::syncIfStale), 10, 10, TimeUnit.MINUTES);
+
+        Metrics.REGISTRY.gauge("cfquest_solved_index_handles", "Handles with a solved-problem bitmap",
+                handles::size);
+        Metrics.REGISTRY.gauge("cfquest_solved_index_problems", "Problems in the solved-index dictionary",
+                problemIds::size);
+    }
+
+    public static String key(int contestId, String index) {
+        return contestId + "/" + index.toUpperCase();
+    }
+
+    /**
+     * O(1): whether {@code handle} is known to have solved {@code problemKey}.
+     */
+    public boolean isSolved(String handle, String problemKey) {
+        Integer id = problemIds.get(problemKey);
+        if (id == null) {
+            return false;
+        }
+        HandleBits bits = handles.get(handle.toLowerCase());
+        return bits != null && bits.get(id);
+    }
+
+    /**
+     * Fraction of currently online linked players that have solved {@code problemKey}.
+     */
+    public double getOnlineSolvedFraction(String problemKey) {
+        if (onlineHandles.isEmpty()) {
+            return 0.0;
+        }
+
+        Integer id = problemIds.get(problemKey);
+        if (id == null) {
+            return 0.0;
+        }
+
+        int solved = 0;
+        int total = 0;
+        for (String handle : onlineHandles) {
+            HandleBits bits = handles.get(handle);
+            total++;
+            if (bits != null && bits.get(id)) {
+                solved++;
+            }
+        }
+        return total == 0 ? 0.0 : (double) solved / total;
+    }
+
+    /**
+     * Incremental update from a verified solve.
+     */
+    public void recordSolve(String handle, String problemKey) {
+        handles.computeIfAbsent(handle.toLowerCase(), k -> new HandleBits(new BitSet(), 0, 0))
+                .set(intern(problemKey));
+        dirty.set(true);
+    }
+
+    public void onPlayerOnline(String handle) {
+        String key = handle.toLowerCase();
+        onlineHandles.add(key);
+        syncIfStale(key);
+    }
+
+    public void onPlayerOffline(String handle) {
+        onlineHandles.remove(handle.toLowerCase());
+    }
+
+    /**
+     * Sync every online handle whose bitmap is older than {@code maxAgeMillis}, e.g. right
+     * before a scheduled quest takes its pre-solved snapshot.
+     */
+    public void refreshOnline(long maxAgeMillis) {
+        long now = System.currentTimeMillis();
+        for (String handle : onlineHandles) {
+            HandleBits bits = handles.get(handle);
+            if (bits == null || now - bits.syncedAt >= maxAgeMillis) {
+                requestSync(handle);
+            }
+        }
+    }
+
+    private void syncIfStale(String handle) {
+        HandleBits bits = handles.get(handle);
+        if (bits == null || System.currentTimeMillis() - bits.syncedAt >= RESYNC_AFTER_MS) {
+            requestSync(handle);
+        }
+    }
+
+    /**
+     * Queue an incremental {@code user.status} sync for a handle (deduplicated).
+     */
+    public void requestSync(String handle) {
+        String key = handle.toLowerCase();
+        if (queued.add(key)) {
+            try {
+                executor.execute(() -> {
+                    queued.remove(key);
+                    sync(key);
+                });
+            } catch (Exception e) {
+                queued.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Runs on the index thread; pages through user.status newest-first until it reaches
+     * the last submission seen by the previous sync.
+     */
+    private void sync(String handle) {
+        HandleBits bits = handles.computeIfAbsent(handle, k -> new HandleBits(new BitSet(), 0, 0));
+        long lastSeen = bits.lastSubmissionId;
+        long newest = lastSeen;
+        List<Integer> solvedIds = new ArrayList<>();
+        boolean complete = false;
+
+        for (int page = 0; page < MAX_PAGES; page++) {
+            if (!awaitBackgroundSlot()) {
+                break;
+            }
+
+            List<Submission> submissions;
+            try {
+                submissions = api.getUserSubmissions(handle, 1 + page * PAGE_SIZE, PAGE_SIZE).join();
+            } catch (Exception e) {
+                submissions = null;
+            }
+
+            if (submissions == null) {
+                CFQuestMod.LOGGER.warn("Không thể đồng bộ bài đã giải của {}", handle);
+                break;
+            }
+
+            boolean reachedSeen = false;
+            for (Submission submission : submissions) {
+                if (submission.getId() <= lastSeen) {
+                    reachedSeen = true;
+                    break;
+                }
+                newest = Math.max(newest, submission.getId());
+
+                if (submission.isAccepted() && submission.getProblem() != null
+                        && submission.getProblem().getIndex() != null) {
+                    int contestId = submission.getProblem().getContestId() > 0
+                            ? submission.getProblem().getContestId() : submission.getContestId();
+                    solvedIds.add(intern(key(contestId, submission.getProblem().getIndex())));
+                }
+            }
+
+            if (reachedSeen || submissions.size() < PAGE_SIZE) {
+                complete = true;
+                break;
+            }
+        }
+
+        // Solves are facts even from a partial sync; only advance the cursor when nothing was skipped
+        for (int id : solvedIds) {
+            bits.set(id);
+        }
+        if (complete) {
+            synchronized (bits) {
+                bits.lastSubmissionId = newest;
+                bits.syncedAt = System.currentTimeMillis();
+            }
+        }
+        dirty.set(true);
+    }
+
+    /**
+     * Runs on the index thread before each {@code user.status} page: waits while other requests
+     * are queued for a rate-limit slot, then takes a page from the per-minute budget, so a long
+     * first sync can never hold up a standings poll by more than the page already in flight.
+     *
+     * @return false if interrupted (shutdown); the sync stops without advancing its cursor
+     */
+    private boolean awaitBackgroundSlot() {
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                if (now - budgetWindowStart >= 60_000L) {
+                    budgetWindowStart = now;
+                    budgetPagesUsed = 0;
+                }
+
+                if (CodeforcesAPI.getRateLimitQueueDepth() == 0 && budgetPagesUsed < BACKGROUND_PAGES_PER_MINUTE) {
+                    budgetPagesUsed++;
+                    return true;
+                }
+                Thread.sleep(YIELD_POLL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private int intern(String problemKey) {
+        Integer id = problemIds.get(problemKey);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (problemKeys) {
+            id = problemIds.get(problemKey);
+            if (id == null) {
+                id = problemKeys.size();
+                problemKeys.add(problemKey);
+                problemIds.put(problemKey, id);
+            }
+            return id;
+        }
+    }
+
+    private void saveIfDirty() {
+        if (dirty.compareAndSet(true, false)) {
+            save();
+        }
+    }
+
+    private void save() {
+        StoredIndex stored = new StoredIndex();
+        synchronized (problemKeys) {
+            stored.problems = new ArrayList<>(problemKeys);
+        }
+
+        handles.forEach((handle, bits) -> {
+            StoredHandle entry = new StoredHandle();
+            synchronized (bits) {
+                entry.bits = Base64.getEncoder().encodeToString(bits.solved.toByteArray());
+                entry.lastSubmissionId = bits.lastSubmissionId;
+                entry.syncedAt = bits.syncedAt;
+            }
+            stored.handles.put(handle, entry);
+        });
+
+        try {
+            DataFiles.writeString(dataPath, GSON.toJson(stored), "solved_index");
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi lưu solved index: {}", e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(dataPath)) {
+            return;
+        }
+
+        try {
+            StoredIndex stored = GSON.fromJson(Files.readString(dataPath), StoredIndex.class);
+            if (stored == null || stored.problems == null || stored.handles == null) {
+                return;
+            }
+
+            // recordSolve may have interned keys before the load: map the file's ids onto ours
+            int[] remap = new int[stored.problems.size()];
+            for (int i = 0; i < remap.length; i++) {
+                remap[i] = intern(stored.problems.get(i));
+            }
+
+            stored.handles.forEach((handle, entry) -> {
+                BitSet solved = new BitSet();
+                if (entry.bits != null) {
+                    BitSet storedBits = BitSet.valueOf(Base64.getDecoder().decode(entry.bits));
+                    for (int i = storedBits.nextSetBit(0); i >= 0 && i < remap.length; i = storedBits.nextSetBit(i + 1)) {
+                        solved.set(remap[i]);
+                    }
+                }
+
+                HandleBits existing = handles.putIfAbsent(handle,
+                        new HandleBits(solved, entry.lastSubmissionId, entry.syncedAt));
+                if (existing != null) {
+                    existing.merge(solved, entry.lastSubmissionId, entry.syncedAt);
+                }
+            });
+
+            CFQuestMod.LOGGER.info("Đã tải solved index: {} handle, {} bài", handles.size(), problemKeys.size());
+        } catch (Exception e) {
+            CFQuestMod.LOGGER.error("Lỗi khi tải solved index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return a future that completes once solved_index.json has been loaded
+     */
+    public CompletableFuture<Void> ready() {
+        return ready;
+    }
+
+    /**
+     * Shutdown - final save and cleanup
+     */
+    public void shutdown(Deadline deadline) {
+        // The load is queued first on the executor; wait for it so the final save is complete
+        ready.join();
+
+        // Syncs may be waiting on the API: interrupt them, but let a running save finish
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        save();
+    }
+}
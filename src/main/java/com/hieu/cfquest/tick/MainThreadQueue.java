@@ -0,0 +1,232 @@
+package com.hieu.cfquest.tick;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.engine.MainThreadExecutor;
+import com.hieu.cfquest.metrics.Histogram;
+import com.hieu.cfquest.metrics.Metrics;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.sound.SoundEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Main-thread job queue với time budget mỗi tick.
+ *
+ * Thay cho {@code server.execute()}: mọi công việc cfquest cần chạy trên server thread
+ * (broadcast, áp dụng kết quả poll, ...) được submit vào đây và được drain ở cuối mỗi tick
+ * cho tới khi hết budget. Job lớn (ví dụ broadcast tới 500 người chơi) được chia thành
+ * nhiều step và tự động trải ra nhiều tick.
+ *
+ * Jobs chạy theo thứ tự FIFO: job sau chỉ bắt đầu khi job trước xong, nên thứ tự thông báo
+ * (bắt đầu quest → người giải → kết thúc) luôn được giữ nguyên.
+ */
+public class MainThreadQueue implements MainThreadExecutor {
+
+    /**
+     * A unit of main-thread work that may be split across ticks.
+     */
+    @FunctionalInterface
+    public interface Job {
+        /**
+         * Run one slice of work.
+         *
+         * @return true when the job has finished
+         */
+        boolean step();
+    }
+
+    private static final Histogram TICK_TIME = Metrics.REGISTRY.histogram(
+            "cfquest_main_thread_tick_seconds", "Time spent draining the cfquest job queue per tick",
+            Metrics.TICK_BUCKETS);
+    private static final Histogram JOB_LATENCY = Metrics.REGISTRY.histogram(
+            "cfquest_main_thread_job_latency_seconds", "Time from job submission to completion",
+            Metrics.LATENCY_BUCKETS);
+
+    private final MinecraftServer server;
+    private final ConcurrentLinkedQueue<QueuedJob> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger(0);
+
+    // Only touched on the server thread
+    private final ArrayDeque<QueuedJob> active = new ArrayDeque<>();
+
+    private volatile long budgetNanos;
+
+    private static class QueuedJob {
+        private final String name;
+        private final Job job;
+        private final long submittedAt = System.nanoTime();
+        private long runNanos;
+
+        private QueuedJob(String name, Job job) {
+            this.name = name;
+            this.job = job;
+        }
+    }
+
+    public MainThreadQueue(MinecraftServer server, int tickBudgetMillis) {
+        this.server = server;
+        setTickBudgetMillis(tickBudgetMillis);
+
+        Metrics.REGISTRY.gauge("cfquest_main_thread_queue_depth",
+                "Jobs waiting or in progress on the cfquest main-thread queue", pending::get);
+    }
+
+    public void setTickBudgetMillis(int tickBudgetMillis) {
+        this.budgetNanos = Math.max(1, tickBudgetMillis) * 1_000_000L;
+    }
+
+    /**
+     * Submit a job that is stepped until it reports completion.
+     */
+    public void submitJob(String name, Job job) {
+        pending.incrementAndGet();
+        incoming.add(new QueuedJob(name, job));
+    }
+
+    /**
+     * Submit a single-step task (drop-in replacement for {@code server.execute()}).
+     */
+    @Override
+    public void submit(String name, Runnable task) {
+        submitJob(name, () -> {
+            task.run();
+            return true;
+        });
+    }
+
+    /**
+     * Run {@code perPlayer} for every player online when the job starts, one player per step.
+     */
+    public void broadcast(String name, Consumer<ServerPlayerEntity> perPlayer) {
+        submitJob(name, new PlayerBroadcastJob(perPlayer));
+    }
+
+    /**
+     * Send pre-built packets to everyone through {@code PlayerManager.sendToAll}, one packet per step,
+     * then play {@code sound} (nullable) for each recipient.
+     */
+    public void broadcastPackets(String name, List<Packet<?>> packets, SoundEvent sound) {
+        submitJob(name, new PacketBroadcastJob(packets, sound));
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Drain jobs until the tick budget is spent. Always makes progress on at least one step.
+     * Called from END_SERVER_TICK.
+     */
+    public void tick() {
+        runJobs(budgetNanos);
+    }
+
+    /**
+     * Run every queued job to completion regardless of budget (server shutdown).
+     */
+    public void drainAll() {
+        while (!incoming.isEmpty() || !active.isEmpty()) {
+            runJobs(Long.MAX_VALUE);
+        }
+    }
+
+    private void runJobs(long budget) {
+        QueuedJob queued;
+        while ((queued = incoming.poll()) != null) {
+            active.addLast(queued);
+        }
+
+        if (active.isEmpty()) {
+            return;
+        }
+
+        long tickStart = System.nanoTime();
+        long now = tickStart;
+
+        do {
+            QueuedJob job = active.peekFirst();
+            boolean done;
+
+            try {
+                done = job.job.step();
+            } catch (Exception e) {
+                CFQuestMod.LOGGER.error("Lỗi khi chạy main-thread job {}: {}", job.name, e.getMessage());
+                done = true;
+            }
+
+            long stepEnd = System.nanoTime();
+            job.runNanos += stepEnd - now;
+            now = stepEnd;
+
+            if (done) {
+                active.pollFirst();
+                pending.decrementAndGet();
+                Metrics.mainThreadTask(job.name).observe(job.runNanos / 1_000_000_000.0);
+                JOB_LATENCY.observeNanosSince(job.submittedAt);
+            }
+        } while (!active.isEmpty() && now - tickStart < budget);
+
+        TICK_TIME.observe((now - tickStart) / 1_000_000_000.0);
+    }
+
+    private class PacketBroadcastJob implements Job {
+        private final List<Packet<?>> packets;
+        private final SoundEvent sound;
+        private int packetIndex;
+        private PlayerBroadcastJob soundJob;
+
+        private PacketBroadcastJob(List<Packet<?>> packets, SoundEvent sound) {
+            this.packets = packets;
+            this.sound = sound;
+        }
+
+        @Override
+        public boolean step() {
+            if (packetIndex < packets.size()) {
+                server.getPlayerManager().sendToAll(packets.get(packetIndex++));
+                return packetIndex >= packets.size() && sound == null;
+            }
+            if (sound == null) {
+                return true;
+            }
+
+            if (soundJob == null) {
+                soundJob = new PlayerBroadcastJob(player -> player.playSound(sound, 1.0f, 1.0f));
+            }
+            return soundJob.step();
+        }
+    }
+
+    private class PlayerBroadcastJob implements Job {
+        private final Consumer<ServerPlayerEntity> perPlayer;
+        private List<ServerPlayerEntity> recipients;
+        private int index;
+
+        private PlayerBroadcastJob(Consumer<ServerPlayerEntity> perPlayer) {
+            this.perPlayer = perPlayer;
+        }
+
+        @Override
+        public boolean step() {
+            if (recipients == null) {
+                recipients = new ArrayList<>(server.getPlayerManager().getPlayerList());
+            }
+
+            if (index < recipients.size()) {
+                ServerPlayerEntity player = recipients.get(index++);
+                if (!player.isDisconnected()) {
+                    perPlayer.accept(player);
+                }
+            }
+
+            return index >= recipients.size();
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.hieu.cfquest.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Standard 5-field cron expression: {@code minute hour dayOfMonth month dayOfWeek}.
+ *
+ * Supports {@code *}, {@code ?}, lists ({@code 1,15}), ranges ({@code MON-FRI}), steps
+ * ({@code *}{@code /15}, {@code 8-20/4}), month/day names and the {@code @hourly}, {@code @daily},
+ * {@code @weekly}, {@code @monthly}, {@code @yearly} macros. As in Vixie cron, when both
+ * day-of-month and day-of-week are restricted a day matching either one fires.
+ *
+ * Optimizations:
+ * - Mỗi field được parse một lần thành bitmask; so khớp là phép AND bit
+ * - Tính lần chạy kế tiếp bằng cách nhảy thẳng tới bit kế tiếp của từng field (tháng → ngày → giờ → phút)
+ *   thay vì duyệt từng phút/ngày
+ */
+public final class CronExpression {
+    private static final Map<String, String> MACROS = Map.of(
+            "@hourly", "0 * * * *",
+            "@daily", "0 0 * * *",
+            "@midnight", "0 0 * * *",
+            "@weekly", "0 0 * * 0",
+            "@monthly", "0 0 1 * *",
+            "@yearly", "0 0 1 1 *",
+            "@annually", "0 0 1 1 *");
+
+    private static final String[] MONTH_NAMES = {
+            "JAN", "FEB", "MAR", "APR", "MAY", "JUN", "JUL", "AUG", "SEP", "OCT", "NOV", "DEC"};
+    private static final String[] DAY_NAMES = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+
+    // Leap-day-only expressions need up to 8 years to fire again
+    private static final int MAX_YEARS_AHEAD = 8;
+
+    private final String expression;
+    private final long minutes;      // bits 0-59
+    private final long hours;        // bits 0-23
+    private final long daysOfMonth;  // bits 1-31
+    private final long months;       // bits 1-12
+    private final long daysOfWeek;   // bits 0-6, Sunday = 0
+    private final boolean domRestricted;
+    private final boolean dowRestricted;
+
+    private CronExpression(String expression, String[] fields) {
+        this.expression = expression;
+        this.minutes = parseField(fields[0], 0, 59, null, "minute");
+        this.hours = parseField(fields[1], 0, 23, null, "hour");
+        this.daysOfMonth = parseField(fields[2], 1, 31, null, "day of month");
+        this.months = parseField(fields[3], 1, 12, MONTH_NAMES, "month");
+
+        long dow = parseField(fields[4], 0, 7, DAY_NAMES, "day of week");
+        if ((dow & (1L << 7)) != 0) {
+            dow = (dow | 1L) & ~(1L << 7);
+        }
+        this.daysOfWeek = dow;
+
+        this.domRestricted = !isWildcard(fields[2]);
+        this.dowRestricted = !isWildcard(fields[4]);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    public static CronExpression parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("empty cron expression");
+        }
+
+        String trimmed = expression.trim();
+        String expanded = MACROS.getOrDefault(trimmed.toLowerCase(Locale.ROOT), trimmed);
+        String[] fields = expanded.split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("expected 5 fields, got " + fields.length + ": " + expression);
+        }
+
+        return new CronExpression(trimmed, fields);
+    }
+
+    /**
+     * First fire time strictly after {@code after}, in {@code after}'s zone.
+     *
+     * @return the next fire time, or null if the expression can never fire (e.g. 31 FEB)
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        LocalDateTime t = after.toLocalDateTime().truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        int lastYear = t.getYear() + MAX_YEARS_AHEAD;
+
+        while (t.getYear() <= lastYear) {
+            int month = nextBit(months, t.getMonthValue());
+            if (month < 0) {
+                t = LocalDateTime.of(t.getYear() + 1, 1, 1, 0, 0);
+                continue;
+            }
+            if (month != t.getMonthValue()) {
+                t = LocalDateTime.of(t.getYear(), month, 1, 0, 0);
+                continue;
+            }
+
+            if (!matchesDay(t.toLocalDate())) {
+                t = t.toLocalDate().plusDays(1).atStartOfDay();
+                continue;
+            }
+
+            int hour = nextBit(hours, t.getHour());
+            if (hour < 0) {
+                t = t.toLocalDate().plusDays(1).atStartOfDay();
+                continue;
+            }
+            if (hour != t.getHour()) {
+                t = t.withHour(hour).withMinute(0);
+                continue;
+            }
+
+            int minute = nextBit(minutes, t.getMinute());
+            if (minute < 0) {
+                t = t.withMinute(0).plusHours(1);
+                continue;
+            }
+
+            ZonedDateTime candidate = ZonedDateTime.of(t.withMinute(minute), after.getZone());
+            // DST gaps shift a local time forward; overlaps may map back before "after"
+            if (candidate.isAfter(after)) {
+                return candidate;
+            }
+            t = t.withMinute(minute).plusMinutes(1);
+        }
+
+        return null;
+    }
+
+    private boolean matchesDay(LocalDate date) {
+        boolean dom = (daysOfMonth & (1L << date.getDayOfMonth())) != 0;
+        boolean dow = (daysOfWeek & (1L << (date.getDayOfWeek().getValue() % 7))) != 0;
+
+        if (domRestricted && dowRestricted) {
+            return dom || dow;
+        }
+        return dom && dow;
+    }
+
+    /**
+     * Lowest set bit at or above {@code from}, or -1.
+     */
+    private static int nextBit(long mask, int from) {
+        long masked = mask & (-1L << from);
+        return masked == 0 ? -1 : Long.numberOfTrailingZeros(masked);
+    }
+
+    private static boolean isWildcard(String field) {
+        return field.equals("*") || field.equals("?");
+    }
+
+    private static long parseField(String field, int min, int max, String[] names, String fieldName) {
+        long mask = 0;
+
+        for (String part : field.split(",")) {
+            if (part.isEmpty()) {
+                throw new IllegalArgumentException("empty list item in " + fieldName + ": " + field);
+            }
+
+            String range = part;
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                range = part.substring(0, slash);
+                step = parseNumber(part.substring(slash + 1), fieldName);
+                if (step <= 0) {
+                    throw new IllegalArgumentException("step must be positive in " + fieldName + ": " + part);
+                }
+            }
+
+            int start;
+            int end;
+            if (isWildcard(range)) {
+                start = min;
+                end = max;
+            } else {
+                int dash = range.indexOf('-');
+                if (dash > 0) {
+                    start = parseValue(range.substring(0, dash), names, min, fieldName);
+                    end = parseValue(range.substring(dash + 1), names, min, fieldName);
+                } else {
+                    start = parseValue(range, names, min, fieldName);
+                    // "5/15" means from 5 to the end of the range
+                    end = slash >= 0 ? max : start;
+                }
+            }
+
+            if (start < min || end > max || start > end) {
+                throw new IllegalArgumentException(fieldName + " out of range " + min + "-" + max + ": " + part);
+            }
+
+            for (int value = start; value <= end; value += step) {
+                mask |= 1L << value;
+            }
+        }
+
+        return mask;
+    }
+
+    private static int parseValue(String token, String[] names, int min, String fieldName) {
+        if (names != null) {
+            String upper = token.toUpperCase(Locale.ROOT);
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(upper)) {
+                    return i + min;
+                }
+            }
+        }
+        return parseNumber(token, fieldName);
+    }
+
+    private static int parseNumber(String token, String fieldName) {
+        try {
+            return Integer.parseInt(token);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + fieldName + " value: " + token);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
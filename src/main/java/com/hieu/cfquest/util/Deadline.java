@@ -0,0 +1,47 @@
+package com.hieu.cfquest.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed point in (monotonic) time shared by several blocking steps, e.g. the shutdown phase:
+ * each step waits only for what is left of the overall budget instead of its own timeout.
+ */
+public final class Deadline {
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Shut {@code executor} down, letting running tasks finish until the deadline and
+     * interrupting whatever is still running after that.
+     *
+     * @return true if the executor terminated in time
+     */
+    public boolean awaitTermination(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(remainingMillis(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package com.hieu.cfquest.util;
+
+import com.hieu.cfquest.metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns Codeforces handles (case-insensitive) into dense int ids.
+ *
+ * Optimizations:
+ * - Id dày đặc bắt đầu từ 0: dùng trực tiếp làm index cho mảng primitive (standings dạng cột, bitmap)
+ * - Lookup handle → id qua ConcurrentHashMap, id → handle là truy cập mảng
+ * - Nhớ cả chuỗi gốc (đúng chữ hoa/thường) đã gặp: lookup lặp lại không cần {@code toLowerCase()}
+ * - Id không bao giờ bị thu hồi nên có thể giữ lâu dài trong các cấu trúc khác
+ */
+public final class HandleDictionary {
+    public static final HandleDictionary GLOBAL = new HandleDictionary();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    // Exact spellings seen so far (e.g. "Tourist" as linked, "tourist" from standings)
+    private final ConcurrentHashMap<String, Integer> aliases = new ConcurrentHashMap<>();
+    private volatile String[] handles = new String[64];
+    private int size = 0;
+
+    private HandleDictionary() {
+        Metrics.REGISTRY.gauge("cfquest_handle_dictionary_size", "Distinct Codeforces handles interned",
+                ids::size);
+    }
+
+    /**
+     * @return the id for {@code handle}, assigning a new one on first sight
+     */
+    public int intern(String handle) {
+        Integer id = aliases.get(handle);
+        if (id != null) {
+            return id;
+        }
+
+        String key = handle.toLowerCase(Locale.ROOT);
+        id = ids.get(key);
+        if (id != null) {
+            aliases.put(handle, id);
+            return id;
+        }
+
+        synchronized (this) {
+            id = ids.get(key);
+            if (id != null) {
+                aliases.put(handle, id);
+                return id;
+            }
+
+            if (size == handles.length) {
+                handles = Arrays.copyOf(handles, size * 2);
+            }
+            id = size;
+            handles[size++] = key;
+            // Publish the array slot before the id becomes visible to lock-free readers
+            ids.put(key, id);
+            aliases.put(handle, id);
+            return id;
+        }
+    }
+
+    /**
+     * @return the id for {@code handle}, or -1 if it was never interned
+     */
+    public int lookup(String handle) {
+        Integer id = aliases.get(handle);
+        if (id == null) {
+            id = ids.get(handle.toLowerCase(Locale.ROOT));
+        }
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @return the lowercase handle for {@code id}
+     */
+    public String handle(int id) {
+        return handles[id];
+    }
+
+    /**
+     * Upper bound (exclusive) of ids handed out so far; sizes id-indexed arrays.
+     */
+    public int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,253 @@
+package com.hieu.cfquest.util;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.engine.EngineClock;
+import com.hieu.cfquest.metrics.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hierarchical timer wheel for wall-clock deadlines (quest end, reminders, announcements).
+ *
+ * Optimizations:
+ * - Schedule/cancel là O(1); mỗi tick chỉ xử lý đúng một slot
+ * - 4 tầng x 64 slot: tầng cao được "cascade" xuống tầng thấp khi tới lượt
+ * - Một thread duy nhất cho mọi timer thay vì mỗi tính năng tự poll thời hạn
+ *
+ * A timeout fires on the first wheel tick at or after its deadline, i.e. never early and
+ * at most one tick late. Tasks run on the timer thread and must be short: hand real work
+ * to the MainThreadQueue or a dedicated executor.
+ */
+public class TimerWheel {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final EngineClock clock;
+    private final long startMillis;
+    @SuppressWarnings("unchecked")
+    private final Queue<Timeout>[][] wheel = new Queue[LEVELS][SLOTS];
+    private final ConcurrentLinkedQueue<Timeout> additions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private long currentTick = 0;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> tickTask;
+
+    public static class Timeout {
+        private final String name;
+        private final long deadlineMillis;
+        private final long deadlineTick;
+        private final Runnable task;
+        private volatile boolean cancelled = false;
+        private volatile boolean fired = false;
+
+        private Timeout(String name, long deadlineMillis, long deadlineTick, Runnable task) {
+            this.name = name;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        /**
+         * @return true if this call prevented the task from running
+         */
+        public boolean cancel() {
+            if (fired || cancelled) {
+                return false;
+            }
+            cancelled = true;
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public boolean isFired() {
+            return fired;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+    }
+
+    public TimerWheel(long tickMillis) {
+        this(tickMillis, EngineClock.SYSTEM);
+    }
+
+    public TimerWheel(long tickMillis, EngineClock clock) {
+        this.tickMillis = Math.max(1, tickMillis);
+        this.clock = clock;
+        this.startMillis = clock.currentTimeMillis();
+
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheel[level][slot] = new ArrayDeque<>();
+            }
+        }
+
+        Metrics.REGISTRY.gauge("cfquest_timer_pending", "Timers scheduled but not yet fired or cancelled",
+                pending::get);
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "CFQuest-Timer");
+            t.setDaemon(true);
+            return t;
+        });
+        tickTask = executor.scheduleAtFixedRate(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+
+        CFQuestMod.LOGGER.info("Đã bắt đầu Timer Wheel (tick: {}ms)", tickMillis);
+    }
+
+    /**
+     * Stop ticking; a timer task that is already running may finish until {@code deadline}.
+     */
+    public synchronized void stop(Deadline deadline) {
+        if (tickTask != null) {
+            tickTask.cancel(false);
+            tickTask = null;
+        }
+
+        if (executor != null) {
+            deadline.awaitTermination(executor);
+            executor = null;
+        }
+    }
+
+    /**
+     * Schedule {@code task} to run at {@code deadlineMillis} (epoch millis). Safe from any thread;
+     * deadlines in the past fire on the next tick.
+     */
+    public Timeout schedule(String name, long deadlineMillis, Runnable task) {
+        long offset = deadlineMillis - startMillis;
+        long deadlineTick = offset <= 0 ? 0 : (offset + tickMillis - 1) / tickMillis;
+
+        Timeout timeout = new Timeout(name, deadlineMillis, deadlineTick, task);
+        additions.add(timeout);
+        pending.incrementAndGet();
+        return timeout;
+    }
+
+    public Timeout scheduleAfter(String name, long delayMillis, Runnable task) {
+        return schedule(name, clock.currentTimeMillis() + delayMillis, task);
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Advance the wheel up to the clock's current time, firing due timeouts on the calling
+     * thread. Runs on the timer thread only, unless the wheel was never started and the caller
+     * drives it with a virtual clock (replay).
+     * New timeouts are placed at the start of each tick so that already-due ones land in
+     * the slot that is about to fire.
+     */
+    public void advance() {
+        long targetTick = (clock.currentTimeMillis() - startMillis) / tickMillis;
+
+        try {
+            while (currentTick < targetTick) {
+                currentTick++;
+                drainAdditions();
+                cascade();
+                fire(wheel[0][(int) (currentTick & SLOT_MASK)]);
+            }
+        } catch (Exception e) {
+            CFQuestMod.LOGGER.error("Lỗi trong Timer Wheel: {}", e.getMessage());
+        }
+    }
+
+    private void drainAdditions() {
+        Timeout timeout;
+        while ((timeout = additions.poll()) != null) {
+            place(timeout);
+        }
+    }
+
+    private void place(Timeout timeout) {
+        if (timeout.cancelled) {
+            pending.decrementAndGet();
+            return;
+        }
+
+        long deadlineTick = Math.max(timeout.deadlineTick, currentTick);
+        long delta = deadlineTick - currentTick;
+
+        if (delta >= MAX_SPAN) {
+            // Beyond the wheel's range: park in the furthest slot and re-place on cascade
+            deadlineTick = currentTick + MAX_SPAN - 1;
+            delta = MAX_SPAN - 1;
+        }
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+
+        int slot = (int) ((deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        wheel[level][slot].add(timeout);
+    }
+
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                return;
+            }
+
+            Queue<Timeout> bucket = wheel[level][(int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK)];
+            for (int i = bucket.size(); i > 0; i--) {
+                place(bucket.poll());
+            }
+        }
+    }
+
+    private void fire(Queue<Timeout> bucket) {
+        Timeout timeout;
+        int count = bucket.size();
+
+        // Bounded by the initial size: re-placed timeouts may land back in this slot
+        for (int i = 0; i < count && (timeout = bucket.poll()) != null; i++) {
+            if (timeout.cancelled) {
+                pending.decrementAndGet();
+                continue;
+            }
+            if (timeout.deadlineTick > currentTick) {
+                // Was parked beyond the wheel's range; move it closer to its real deadline
+                place(timeout);
+                continue;
+            }
+
+            pending.decrementAndGet();
+            timeout.fired = true;
+
+            try {
+                timeout.task.run();
+            } catch (Exception e) {
+                CFQuestMod.LOGGER.error("Lỗi khi chạy timer {}: {}", timeout.name, e.getMessage());
+            }
+        }
+    }
+}
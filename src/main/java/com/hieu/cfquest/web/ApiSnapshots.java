@@ -0,0 +1,283 @@
+package com.hieu.cfquest.web;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.hieu.cfquest.engine.QuestEvent;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.quest.Quest;
+import com.hieu.cfquest.quest.QuestManager;
+import com.hieu.cfquest.storage.QuestHistory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pre-serialized responses of the JSON API.
+ *
+ * The live quest is rebuilt on the main thread by a quest event bus subscriber (the only
+ * thread that changes a quest); everything derived from the history is rebuilt by the first
+ * request after {@link QuestHistory#getVersion()} changes. Requests themselves only read a
+ * volatile field.
+ */
+public final class ApiSnapshots {
+    static final int HISTORY_PAGE_SIZE = 20;
+    private static final int RECENT_RESULTS = 10;
+
+    private final QuestManager questManager;
+    private final QuestHistory questHistory;
+
+    private volatile JsonSnapshot quest = build("quest", questJson(null));
+    private volatile HistoryViews history;
+
+    private record HistoryViews(long version, JsonSnapshot leaderboard, List<JsonSnapshot> pages,
+                                Map<String, JsonSnapshot> players) {
+    }
+
+    public ApiSnapshots(QuestManager questManager, QuestHistory questHistory) {
+        this.questManager = questManager;
+        this.questHistory = questHistory;
+    }
+
+    /**
+     * Quest event bus subscriber (main thread).
+     */
+    public void onEvent(QuestEvent event) {
+        // Wrong answers are not part of the live quest view
+        if (!(event instanceof QuestEvent.WrongAnswer)) {
+            refreshQuest();
+        }
+    }
+
+    /**
+     * Rebuild the live quest from the active quest; main thread (also once at startup, for a
+     * quest restored from disk).
+     */
+    public void refreshQuest() {
+        quest = build("quest", questJson(questManager.getActiveQuest()));
+    }
+
+    JsonSnapshot quest() {
+        return quest;
+    }
+
+    JsonSnapshot leaderboard() {
+        return history().leaderboard();
+    }
+
+    /**
+     * @param page 1-based, newest quests first
+     * @return null if there is no such page
+     */
+    JsonSnapshot historyPage(int page) {
+        List<JsonSnapshot> pages = history().pages();
+        return page >= 1 && page <= pages.size() ? pages.get(page - 1) : null;
+    }
+
+    /**
+     * @return stats of the player with this (case-insensitive) name, or null if they never won
+     */
+    JsonSnapshot player(String playerName) {
+        return history().players().get(playerName.toLowerCase(Locale.ROOT));
+    }
+
+    private HistoryViews history() {
+        HistoryViews views = history;
+        if (views != null && views.version() == questHistory.getVersion()) {
+            return views;
+        }
+
+        synchronized (this) {
+            views = history;
+            long version = questHistory.getVersion();
+            if (views == null || views.version() != version) {
+                views = buildHistory(version);
+                history = views;
+            }
+            return views;
+        }
+    }
+
+    private HistoryViews buildHistory(long version) {
+        List<QuestHistory.QuestRecord> records = questHistory.getHistory();
+        Collections.reverse(records);
+
+        JsonArray leaderboard = new JsonArray();
+        int rank = 0;
+        for (QuestHistory.LeaderboardEntry entry : questHistory.getLeaderboard()) {
+            JsonObject row = new JsonObject();
+            row.addProperty("rank", ++rank);
+            row.addProperty("playerName", entry.playerName);
+            row.addProperty("score", entry.getScore());
+            row.addProperty("firstPlaces", entry.firstPlaces);
+            row.addProperty("secondPlaces", entry.secondPlaces);
+            row.addProperty("thirdPlaces", entry.thirdPlaces);
+            row.addProperty("totalSolves", entry.totalSolves);
+            leaderboard.add(row);
+        }
+        JsonObject leaderboardJson = new JsonObject();
+        leaderboardJson.add("players", leaderboard);
+
+        int pageCount = Math.max(1, (records.size() + HISTORY_PAGE_SIZE - 1) / HISTORY_PAGE_SIZE);
+        List<JsonSnapshot> pages = new ArrayList<>(pageCount);
+        for (int page = 0; page < pageCount; page++) {
+            JsonArray quests = new JsonArray();
+            int end = Math.min(records.size(), (page + 1) * HISTORY_PAGE_SIZE);
+            for (QuestHistory.QuestRecord record : records.subList(page * HISTORY_PAGE_SIZE, end)) {
+                quests.add(recordJson(record));
+            }
+
+            JsonObject json = new JsonObject();
+            json.addProperty("page", page + 1);
+            json.addProperty("pageSize", HISTORY_PAGE_SIZE);
+            json.addProperty("pages", pageCount);
+            json.addProperty("total", records.size());
+            json.add("quests", quests);
+            pages.add(build("history", json));
+        }
+
+        return new HistoryViews(version, build("leaderboard", leaderboardJson), List.copyOf(pages),
+                buildPlayers(records));
+    }
+
+    /**
+     * @param records newest first
+     */
+    private static Map<String, JsonSnapshot> buildPlayers(List<QuestHistory.QuestRecord> records) {
+        Map<String, PlayerStats> stats = new LinkedHashMap<>();
+        for (QuestHistory.QuestRecord record : records) {
+            for (QuestHistory.WinnerRecord winner : record.getWinners()) {
+                stats.computeIfAbsent(winner.getPlayerIdentifier(), id -> new PlayerStats(winner))
+                        .add(record, winner);
+            }
+        }
+
+        Map<String, JsonSnapshot> players = new HashMap<>();
+        for (PlayerStats player : stats.values()) {
+            // The first record seen is the newest, so the name is the one the player uses now
+            players.putIfAbsent(player.name.toLowerCase(Locale.ROOT), build("player", player.toJson()));
+        }
+        return Map.copyOf(players);
+    }
+
+    private static final class PlayerStats {
+        final String name;
+        final String cfHandle;
+        int totalSolves;
+        int firstPlaces;
+        int secondPlaces;
+        int thirdPlaces;
+        long bestSolveTimeSeconds = Long.MAX_VALUE;
+        final ArrayDeque<JsonObject> recent = new ArrayDeque<>();
+
+        PlayerStats(QuestHistory.WinnerRecord newest) {
+            this.name = newest.getPlayerName() != null ? newest.getPlayerName() : newest.getPlayerIdentifier();
+            this.cfHandle = newest.getCfHandle();
+        }
+
+        void add(QuestHistory.QuestRecord record, QuestHistory.WinnerRecord winner) {
+            totalSolves++;
+            switch (winner.getPlace()) {
+                case 1 -> firstPlaces++;
+                case 2 -> secondPlaces++;
+                case 3 -> thirdPlaces++;
+                default -> {
+                }
+            }
+            bestSolveTimeSeconds = Math.min(bestSolveTimeSeconds, winner.getSolveTimeSeconds());
+
+            if (recent.size() < RECENT_RESULTS) {
+                JsonObject result = new JsonObject();
+                result.addProperty("contestId", record.getContestId());
+                result.addProperty("problemIndex", record.getProblemIndex());
+                result.addProperty("problemName", record.getProblemName());
+                result.addProperty("endTime", record.getEndTime());
+                result.addProperty("place", winner.getPlace());
+                result.addProperty("solveTimeSeconds", winner.getSolveTimeSeconds());
+                result.addProperty("penaltyMinutes", winner.getPenaltyMinutes());
+                recent.addLast(result);
+            }
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("playerName", name);
+            json.addProperty("cfHandle", cfHandle);
+            json.addProperty("score", firstPlaces * 3 + secondPlaces * 2 + thirdPlaces);
+            json.addProperty("totalSolves", totalSolves);
+            json.addProperty("firstPlaces", firstPlaces);
+            json.addProperty("secondPlaces", secondPlaces);
+            json.addProperty("thirdPlaces", thirdPlaces);
+            json.addProperty("bestSolveTimeSeconds", bestSolveTimeSeconds);
+            JsonArray results = new JsonArray();
+            recent.forEach(results::add);
+            json.add("recent", results);
+            return json;
+        }
+    }
+
+    private static JsonObject questJson(Quest quest) {
+        JsonObject json = new JsonObject();
+        json.addProperty("active", quest != null);
+        if (quest == null) {
+            return json;
+        }
+
+        json.addProperty("contestId", quest.getContestId());
+        json.addProperty("problemIndex", quest.getProblemIndex());
+        json.addProperty("problemName", quest.getProblemName());
+        json.addProperty("rating", quest.getProblemRating());
+        json.addProperty("url", quest.getProblemUrl());
+        json.addProperty("startTime", quest.getStartTime());
+        json.addProperty("endTime", quest.getEndTime());
+        json.addProperty("timeoutMinutes", quest.getTimeoutMinutes());
+
+        JsonArray winners = new JsonArray();
+        for (Quest.Winner winner : quest.getWinners()) {
+            winners.add(winnerJson(winner.getPlace(), winner.getPlayerName(), winner.getCfHandle(),
+                    winner.getSolveTimeSeconds(), winner.getPenaltyMinutes()));
+        }
+        json.add("winners", winners);
+        return json;
+    }
+
+    private static JsonObject recordJson(QuestHistory.QuestRecord record) {
+        JsonObject json = new JsonObject();
+        json.addProperty("contestId", record.getContestId());
+        json.addProperty("problemIndex", record.getProblemIndex());
+        json.addProperty("problemName", record.getProblemName());
+        json.addProperty("rating", record.getProblemRating());
+        json.addProperty("startTime", record.getStartTime());
+        json.addProperty("endTime", record.getEndTime());
+
+        JsonArray winners = new JsonArray();
+        for (QuestHistory.WinnerRecord winner : record.getWinners()) {
+            winners.add(winnerJson(winner.getPlace(), winner.getPlayerName(), winner.getCfHandle(),
+                    winner.getSolveTimeSeconds(), winner.getPenaltyMinutes()));
+        }
+        json.add("winners", winners);
+        return json;
+    }
+
+    static JsonObject winnerJson(int place, String playerName, String cfHandle, long solveTimeSeconds,
+                                 int penaltyMinutes) {
+        JsonObject row = new JsonObject();
+        row.addProperty("place", place);
+        row.addProperty("playerName", playerName);
+        row.addProperty("cfHandle", cfHandle);
+        row.addProperty("solveTimeSeconds", solveTimeSeconds);
+        row.addProperty("penaltyMinutes", penaltyMinutes);
+        return row;
+    }
+
+    private static JsonSnapshot build(String snapshot, JsonObject json) {
+        Metrics.REGISTRY.counter("cfquest_web_snapshot_builds_total", "JSON API snapshots rebuilt by snapshot",
+                "snapshot", snapshot).inc();
+        return JsonSnapshot.of(json);
+    }
+}
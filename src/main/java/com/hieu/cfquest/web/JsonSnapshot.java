@@ -0,0 +1,43 @@
+package com.hieu.cfquest.web;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * One API response, serialized once and served as-is until the data behind it changes.
+ *
+ * @param body     UTF-8 JSON
+ * @param gzipped  gzip-compressed body, or null if the body is too small to be worth it
+ * @param etag     strong entity tag derived from the content, so it survives restarts
+ */
+record JsonSnapshot(byte[] body, byte[] gzipped, String etag) {
+    private static final Gson GSON = new Gson();
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    static JsonSnapshot of(JsonElement json) {
+        byte[] body = GSON.toJson(json).getBytes(StandardCharsets.UTF_8);
+
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        String etag = String.format("\"%08x-%x\"", crc.getValue(), body.length);
+
+        return new JsonSnapshot(body, body.length >= GZIP_MIN_BYTES ? gzip(body) : null, etag);
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
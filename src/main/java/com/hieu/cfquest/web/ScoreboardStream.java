@@ -0,0 +1,377 @@
+package com.hieu.cfquest.web;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.engine.EngineClock;
+import com.hieu.cfquest.engine.QuestEvent;
+import com.hieu.cfquest.metrics.Counter;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.quest.Quest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live scoreboard pushed as Server-Sent Events ({@code GET /api/scoreboard/stream}) for stream
+ * overlays and projector displays.
+ *
+ * Events: {@code quest} (full state, sent on connect and when a quest starts), {@code wrong_answer},
+ * {@code solved}, {@code rank} (winners whose place changed because of a solve with less total
+ * time), {@code time} (seconds remaining, every second) and {@code ended}.
+ *
+ * Subscribed to the quest event bus as an async subscriber and keeps its own copy of the
+ * standings, so it never reads the live quest's winners and never runs on the main thread.
+ * If the bus had to drop events, that copy is rebuilt from a main-thread snapshot of the live
+ * quest ({@link #resync}) and every client gets the full state again.
+ *
+ * Optimizations:
+ * - Mỗi event serialize một lần thành frame byte[], sau đó chỉ chia sẻ cho mọi client
+ * - Mỗi client có buffer giới hạn {@value #CLIENT_BUFFER_FRAMES} frame: client đọc chậm làm đầy buffer
+ *   thì bị ngắt thay vì giữ bộ nhớ hay làm chậm các client khác
+ * - Fan-out chỉ là {@code offer} không block; việc ghi socket nằm trên virtual thread của từng client
+ * - Không có client thì không serialize frame nào
+ */
+public final class ScoreboardStream {
+    static final int CLIENT_BUFFER_FRAMES = 64;
+    private static final long TICK_MILLIS = 1000;
+    private static final int KEEPALIVE_TICKS = 15;
+
+    private static final Gson GSON = new Gson();
+    private static final byte[] RETRY = "retry: 3000\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KEEPALIVE = ": keepalive\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CLOSE = new byte[0];
+
+    private static final Comparator<Standing> BY_TOTAL_TIME = Comparator.comparingLong(Standing::totalTimeSeconds);
+
+    private final EngineClock clock;
+    private final ConfigStore config;
+    private final ScheduledThreadPoolExecutor ticker;
+    private final Counter droppedClients;
+
+    // Guarded by this
+    private final List<Client> clients = new ArrayList<>();
+    private final List<Standing> standings = new ArrayList<>();
+    private QuestView quest;
+    private byte[] stateFrame;
+    private int idleTicks;
+
+    private volatile int clientCount;
+
+    private record QuestView(int contestId, String problemIndex, String problemName, int rating, String url,
+                             long startTime, long endTime) {
+        static QuestView of(Quest quest) {
+            return new QuestView(quest.getContestId(), quest.getProblemIndex(), quest.getProblemName(),
+                    quest.getProblemRating(), quest.getProblemUrl(), quest.getStartTime(), quest.getEndTime());
+        }
+    }
+
+    /**
+     * A winner as of the solve event; places are derived from the order of {@link #standings}.
+     */
+    private record Standing(String playerName, String cfHandle, long solveTimeSeconds, int penaltyMinutes) {
+        static Standing of(Quest.Winner winner) {
+            return new Standing(winner.getPlayerName(), winner.getCfHandle(), winner.getSolveTimeSeconds(),
+                    winner.getPenaltyMinutes());
+        }
+
+        long totalTimeSeconds() {
+            return solveTimeSeconds + penaltyMinutes * 60L;
+        }
+    }
+
+    public ScoreboardStream(EngineClock clock, ConfigStore config) {
+        this.clock = clock;
+        this.config = config;
+        this.ticker = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "CFQuest-Scoreboard");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        this.droppedClients = Metrics.REGISTRY.counter("cfquest_web_stream_clients_dropped_total",
+                "Scoreboard stream clients disconnected because they fell behind");
+        Metrics.REGISTRY.gauge("cfquest_web_stream_clients", "Connected scoreboard stream clients",
+                () -> clientCount);
+    }
+
+    /**
+     * Take over a quest restored from disk, which has no start event; main thread, once at startup.
+     */
+    public void restore(Quest activeQuest) {
+        resync(activeQuest).run();
+    }
+
+    /**
+     * Resync hook for the quest event bus: snapshot {@code activeQuest} now (main thread) and
+     * return the task that replaces the stream's copy with it and resends the full state.
+     */
+    public Runnable resync(Quest activeQuest) {
+        QuestView view = activeQuest != null ? QuestView.of(activeQuest) : null;
+        List<Standing> snapshot = new ArrayList<>();
+        if (activeQuest != null) {
+            activeQuest.getWinners().forEach(winner -> snapshot.add(Standing.of(winner)));
+        }
+
+        return () -> {
+            synchronized (this) {
+                quest = view;
+                standings.clear();
+                standings.addAll(snapshot);
+                stateFrame = null;
+                if (!clients.isEmpty()) {
+                    broadcast("quest", state());
+                }
+            }
+        };
+    }
+
+    /**
+     * Bus filter: wrong answers are only streamed, never kept, so they are skipped while no
+     * client is connected.
+     */
+    public boolean wants(QuestEvent event) {
+        return !(event instanceof QuestEvent.WrongAnswer) || clientCount > 0;
+    }
+
+    /**
+     * Quest event bus subscriber (async).
+     */
+    public synchronized void onEvent(QuestEvent event) {
+        switch (event) {
+            case QuestEvent.Started started -> {
+                quest = QuestView.of(started.quest());
+                standings.clear();
+                stateFrame = null;
+                if (!clients.isEmpty()) {
+                    broadcast("quest", state());
+                }
+            }
+            case QuestEvent.WrongAnswer wrong -> {
+                if (quest == null || clients.isEmpty()) {
+                    return;
+                }
+                JsonObject json = new JsonObject();
+                json.addProperty("cfHandle", wrong.cfHandle());
+                json.addProperty("newWrongs", wrong.newWrongs());
+                json.addProperty("totalWrongs", wrong.totalWrongs());
+                json.addProperty("penaltyMinutes", wrong.penaltyMinutes());
+                broadcast("wrong_answer", frame("wrong_answer", json));
+            }
+            case QuestEvent.Solved solved -> {
+                if (quest == null) {
+                    return;
+                }
+                solved(Standing.of(solved.winner()));
+            }
+            case QuestEvent.Ended ended -> {
+                if (quest == null) {
+                    return;
+                }
+                if (!clients.isEmpty()) {
+                    JsonObject json = new JsonObject();
+                    json.addProperty("cancelled", ended.cancelled());
+                    json.add("standings", standingsJson());
+                    broadcast("ended", frame("ended", json));
+                }
+                quest = null;
+                standings.clear();
+                stateFrame = null;
+            }
+        }
+    }
+
+    private void solved(Standing winner) {
+        Map<String, Integer> previousPlaces = new HashMap<>();
+        for (int i = 0; i < standings.size(); i++) {
+            previousPlaces.put(standings.get(i).cfHandle(), i + 1);
+        }
+
+        // Same order as Quest.addWinner: append, then a stable sort by total time
+        standings.add(winner);
+        standings.sort(BY_TOTAL_TIME);
+        stateFrame = null;
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        JsonArray changes = new JsonArray();
+        int place = 0;
+        for (int i = 0; i < standings.size(); i++) {
+            Standing standing = standings.get(i);
+            Integer previous = previousPlaces.get(standing.cfHandle());
+            if (standing == winner) {
+                place = i + 1;
+            } else if (previous != null && previous != i + 1) {
+                JsonObject change = new JsonObject();
+                change.addProperty("playerName", standing.playerName());
+                change.addProperty("cfHandle", standing.cfHandle());
+                change.addProperty("from", previous);
+                change.addProperty("to", i + 1);
+                changes.add(change);
+            }
+        }
+
+        JsonObject json = ApiSnapshots.winnerJson(place, winner.playerName(), winner.cfHandle(),
+                winner.solveTimeSeconds(), winner.penaltyMinutes());
+        json.add("standings", standingsJson());
+        broadcast("solved", frame("solved", json));
+
+        if (!changes.isEmpty()) {
+            JsonObject rank = new JsonObject();
+            rank.add("changes", changes);
+            broadcast("rank", frame("rank", rank));
+        }
+    }
+
+    private synchronized void tick() {
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        if (quest != null) {
+            JsonObject json = new JsonObject();
+            json.addProperty("remainingSeconds", remainingSeconds());
+            broadcast("time", frame("time", json));
+            idleTicks = 0;
+        } else if (++idleTicks >= KEEPALIVE_TICKS) {
+            // Keeps proxies from closing an idle connection between quests
+            broadcast("keepalive", KEEPALIVE);
+            idleTicks = 0;
+        }
+    }
+
+    /**
+     * @return the new client, already holding the current state, or null if the stream is full
+     */
+    synchronized Client connect() {
+        if (clients.size() >= config.current().getWeb().getMaxStreamClients()) {
+            return null;
+        }
+
+        Client client = new Client();
+        client.queue.offer(RETRY);
+        client.queue.offer(state());
+        clients.add(client);
+        clientCount = clients.size();
+        return client;
+    }
+
+    /**
+     * Disconnect every client, e.g. when the HTTP server stops.
+     */
+    synchronized void closeAll() {
+        clients.forEach(Client::drop);
+        clients.clear();
+        clientCount = 0;
+    }
+
+    public void shutdown() {
+        ticker.shutdownNow();
+        closeAll();
+    }
+
+    private synchronized void disconnect(Client client) {
+        if (clients.remove(client)) {
+            clientCount = clients.size();
+        }
+    }
+
+    private void broadcast(String type, byte[] frame) {
+        Metrics.REGISTRY.counter("cfquest_web_stream_events_total", "Scoreboard stream events sent by type",
+                "type", type).inc();
+
+        Iterator<Client> it = clients.iterator();
+        while (it.hasNext()) {
+            Client client = it.next();
+            if (!client.queue.offer(frame)) {
+                it.remove();
+                client.drop();
+                droppedClients.inc();
+            }
+        }
+        clientCount = clients.size();
+    }
+
+    private byte[] state() {
+        if (stateFrame != null) {
+            return stateFrame;
+        }
+
+        JsonObject json = new JsonObject();
+        json.addProperty("active", quest != null);
+        if (quest != null) {
+            json.addProperty("contestId", quest.contestId());
+            json.addProperty("problemIndex", quest.problemIndex());
+            json.addProperty("problemName", quest.problemName());
+            json.addProperty("rating", quest.rating());
+            json.addProperty("url", quest.url());
+            json.addProperty("startTime", quest.startTime());
+            json.addProperty("endTime", quest.endTime());
+            json.addProperty("remainingSeconds", remainingSeconds());
+            json.add("standings", standingsJson());
+        }
+        // remainingSeconds goes stale, but every client also gets a time event each second
+        stateFrame = frame("quest", json);
+        return stateFrame;
+    }
+
+    private long remainingSeconds() {
+        return Math.max(0, (quest.endTime() - clock.currentTimeMillis() + 999) / 1000);
+    }
+
+    private JsonArray standingsJson() {
+        JsonArray json = new JsonArray();
+        for (int i = 0; i < standings.size(); i++) {
+            Standing standing = standings.get(i);
+            json.add(ApiSnapshots.winnerJson(i + 1, standing.playerName(), standing.cfHandle(),
+                    standing.solveTimeSeconds(), standing.penaltyMinutes()));
+        }
+        return json;
+    }
+
+    private static byte[] frame(String event, JsonObject data) {
+        return ("event: " + event + "\ndata: " + GSON.toJson(data) + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * One connected client; its frames are written by the HTTP request's own (virtual) thread.
+     */
+    final class Client {
+        private final ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(CLIENT_BUFFER_FRAMES);
+
+        /**
+         * Wait for the next frames and move all that are buffered into {@code frames}.
+         *
+         * @return false once the client has been dropped or the stream closed
+         */
+        boolean awaitFrames(List<byte[]> frames) throws InterruptedException {
+            frames.add(queue.take());
+            queue.drainTo(frames);
+            return !frames.contains(CLOSE);
+        }
+
+        /**
+         * The connection ended on the client's side.
+         */
+        void close() {
+            disconnect(this);
+        }
+
+        private void drop() {
+            // Frees the buffer right away; the writer stops once it sees CLOSE
+            queue.clear();
+            queue.offer(CLOSE);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.hieu.cfquest.web;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.config.ModConfig;
+import com.hieu.cfquest.metrics.Metrics;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Read-only JSON API for dashboards, bound only to the configured host (default 127.0.0.1):
+ * - {@code GET /api/quest}: the active quest and its winners so far
+ * - {@code GET /api/leaderboard}: all-time leaderboard
+ * - {@code GET /api/history?page=N}: finished quests, newest first, 20 per page
+ * - {@code GET /api/players/<name>}: one player's stats and recent results
+ * - {@code GET /api/scoreboard/stream}: live scoreboard as Server-Sent Events ({@link ScoreboardStream})
+ *
+ * Optimizations:
+ * - Response là snapshot đã serialize sẵn ({@link ApiSnapshots}), chỉ build lại khi dữ liệu đổi:
+ *   request không bao giờ đụng tới server thread hay serialize JSON
+ * - ETag + {@code If-None-Match}: dashboard poll khi không có gì đổi chỉ nhận 304 không body
+ * - Body lớn được gzip sẵn một lần cho mọi client
+ * - Mỗi request chạy trên một virtual thread, không có pool cố định: vài trăm kết nối stream giữ lâu
+ *   chỉ tốn vài trăm virtual thread
+ */
+public class WebApiServer {
+    private static final byte[] NOT_FOUND = "{\"error\":\"not found\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] STREAM_FULL = "{\"error\":\"too many stream clients\"}".getBytes(StandardCharsets.UTF_8);
+
+    private final ConfigStore configStore;
+    private final ApiSnapshots snapshots;
+    private final ScoreboardStream scoreboard;
+
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+
+    public WebApiServer(ConfigStore configStore, ApiSnapshots snapshots, ScoreboardStream scoreboard) {
+        this.configStore = configStore;
+        this.snapshots = snapshots;
+        this.scoreboard = scoreboard;
+    }
+
+    /**
+     * Start with the current web config; stop() + start() applies a reloaded one.
+     */
+    public void start() {
+        ModConfig.WebConfig config = configStore.current().getWeb();
+        int port = config.getHttpPort();
+        if (port <= 0) {
+            return;
+        }
+
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(config.getHttpHost(), port), 0);
+            httpServer.createContext("/api/", this::handle);
+            httpExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("CFQuest-Web-", 0).factory());
+            httpServer.setExecutor(httpExecutor);
+            httpServer.start();
+            CFQuestMod.LOGGER.info("Web API: http://{}:{}/api/", config.getHttpHost(), port);
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Không thể mở web API: {}", e.getMessage());
+            httpServer = null;
+        }
+    }
+
+    public void stop() {
+        // Stream writers are parked on their buffers; let them finish before the sockets close
+        scoreboard.closeAll();
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        if (httpExecutor != null) {
+            httpExecutor.shutdownNow();
+            httpExecutor = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                respond(exchange, "other", 405, null);
+                return;
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/api/scoreboard/stream")) {
+                stream(exchange);
+                return;
+            }
+
+            String endpoint;
+            JsonSnapshot snapshot;
+            if (path.equals("/api/quest")) {
+                endpoint = "quest";
+                snapshot = snapshots.quest();
+            } else if (path.equals("/api/leaderboard")) {
+                endpoint = "leaderboard";
+                snapshot = snapshots.leaderboard();
+            } else if (path.equals("/api/history")) {
+                endpoint = "history";
+                int page = pageParameter(exchange.getRequestURI().getRawQuery());
+                snapshot = page > 0 ? snapshots.historyPage(page) : null;
+            } else if (path.startsWith("/api/players/") && path.length() > "/api/players/".length()) {
+                endpoint = "player";
+                snapshot = snapshots.player(URLDecoder.decode(path.substring("/api/players/".length()),
+                        StandardCharsets.UTF_8));
+            } else {
+                endpoint = "other";
+                snapshot = null;
+            }
+
+            if (snapshot == null) {
+                respond(exchange, endpoint, 404, NOT_FOUND);
+                return;
+            }
+
+            Headers headers = exchange.getResponseHeaders();
+            headers.set("ETag", snapshot.etag());
+            // Always revalidate: cheap thanks to the ETag, and never shows a stale quest
+            headers.set("Cache-Control", "no-cache");
+            if (notModified(exchange.getRequestHeaders().getFirst("If-None-Match"), snapshot.etag())) {
+                respond(exchange, endpoint, 304, null);
+                return;
+            }
+
+            byte[] body = snapshot.body();
+            if (snapshot.gzipped() != null) {
+                headers.set("Vary", "Accept-Encoding");
+                String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                if (accept != null && accept.contains("gzip")) {
+                    headers.set("Content-Encoding", "gzip");
+                    body = snapshot.gzipped();
+                }
+            }
+            respond(exchange, endpoint, 200, body);
+        }
+    }
+
+    /**
+     * Serve the scoreboard stream until the client disconnects, falls behind or the server stops.
+     */
+    private void stream(HttpExchange exchange) throws IOException {
+        ScoreboardStream.Client client = scoreboard.connect();
+        if (client == null) {
+            respond(exchange, "scoreboard_stream", 503, STREAM_FULL);
+            return;
+        }
+
+        try {
+            countRequest("scoreboard_stream", 200);
+            Headers headers = exchange.getResponseHeaders();
+            corsHeaders(headers);
+            headers.set("Content-Type", "text/event-stream; charset=utf-8");
+            headers.set("Cache-Control", "no-cache");
+            // Reverse proxies (nginx) must not buffer the stream
+            headers.set("X-Accel-Buffering", "no");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, 0);
+
+            OutputStream out = exchange.getResponseBody();
+            List<byte[]> frames = new ArrayList<>(ScoreboardStream.CLIENT_BUFFER_FRAMES);
+            while (client.awaitFrames(frames)) {
+                for (byte[] frame : frames) {
+                    out.write(frame);
+                }
+                out.flush();
+                frames.clear();
+            }
+        } catch (IOException e) {
+            // Client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            client.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, String endpoint, int status, byte[] body) throws IOException {
+        countRequest(endpoint, status);
+
+        Headers headers = exchange.getResponseHeaders();
+        corsHeaders(headers);
+
+        if (body == null || "HEAD".equals(exchange.getRequestMethod())) {
+            if (body != null) {
+                headers.set("Content-Type", "application/json; charset=utf-8");
+            }
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        headers.set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void countRequest(String endpoint, int status) {
+        Metrics.REGISTRY.counter("cfquest_web_requests_total", "JSON API requests by endpoint and status",
+                "endpoint", endpoint, "status", String.valueOf(status)).inc();
+    }
+
+    private void corsHeaders(Headers headers) {
+        String corsOrigin = configStore.current().getWeb().getCorsOrigin();
+        if (!corsOrigin.isEmpty()) {
+            headers.set("Access-Control-Allow-Origin", corsOrigin);
+            headers.set("Access-Control-Expose-Headers", "ETag");
+        }
+    }
+
+    /**
+     * @return the 1-based page, or 0 if the parameter is malformed
+     */
+    private static int pageParameter(String query) {
+        if (query == null) {
+            return 1;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("page=")) {
+                try {
+                    return Math.max(0, Integer.parseInt(parameter.substring("page=".length())));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private static boolean notModified(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,367 @@
+package com.hieu.cfquest.webhook;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.config.ConfigSnapshot;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.config.ModConfig;
+import com.hieu.cfquest.metrics.Counter;
+import com.hieu.cfquest.metrics.Histogram;
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.storage.DataFiles;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivery state of one webhook: its queue, spool file, rate limit and retries.
+ *
+ * Confined to the webhook thread: every method runs there, so nothing is locked. At most one
+ * request is in flight per endpoint, which keeps messages in order.
+ */
+final class WebhookEndpoint {
+    private static final Gson GSON = new Gson();
+    // Discord's limit for message content
+    private static final int MAX_CONTENT = 2000;
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 5 * 60_000L;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final double[] DELIVERY_BUCKETS = {0.5, 1, 2.5, 5, 10, 30, 60, 300, 1800};
+
+    private final String name;
+    private final URI uri;
+    private final boolean slack;
+    private final long minIntervalMillis;
+    private final Path spoolPath;
+    private final ScheduledExecutorService scheduler;
+    private final HttpClient client;
+    private final ConfigStore config;
+
+    private final ArrayDeque<WebhookMessage> queue = new ArrayDeque<>();
+    private int spooled;
+    private WebhookMessage inFlight;
+    private long nextSendAt;
+    private ScheduledFuture<?> wakeup;
+    private boolean closed;
+    private volatile int depth;
+
+    private final Histogram delivery;
+    private final Histogram requestTime;
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter expired;
+    private final Counter spooledTotal;
+
+    WebhookEndpoint(ConfigSnapshot.Webhook webhook, Path spoolPath, ScheduledExecutorService scheduler,
+                    HttpClient client, ConfigStore config) {
+        ModConfig.WebhookEndpoint endpoint = webhook.settings();
+        this.name = endpoint.getName();
+        this.uri = webhook.uri();
+        this.slack = "slack".equals(endpoint.getFormat());
+        this.minIntervalMillis = endpoint.getMinIntervalMillis();
+        this.spoolPath = spoolPath;
+        this.scheduler = scheduler;
+        this.client = client;
+        this.config = config;
+
+        this.delivery = Metrics.REGISTRY.histogram("cfquest_webhook_delivery_seconds",
+                "Time from a webhook message being created to the endpoint accepting it", DELIVERY_BUCKETS,
+                "endpoint", name);
+        this.requestTime = Metrics.REGISTRY.histogram("cfquest_webhook_request_seconds",
+                "Webhook HTTP request latency", Metrics.LATENCY_BUCKETS, "endpoint", name);
+        this.sent = messages("sent");
+        this.retried = messages("retried");
+        this.failed = messages("failed");
+        this.expired = messages("expired");
+        this.spooledTotal = messages("spooled");
+        Metrics.REGISTRY.gauge("cfquest_webhook_queue_depth",
+                "Webhook messages not yet delivered (in memory, in flight and spooled)", () -> depth,
+                "endpoint", name);
+    }
+
+    private Counter messages(String result) {
+        return Metrics.REGISTRY.counter("cfquest_webhook_messages_total", "Webhook messages by outcome",
+                "endpoint", name, "result", result);
+    }
+
+    /**
+     * Pick up messages spooled before the last shutdown and start sending.
+     */
+    void start() {
+        try {
+            if (Files.exists(spoolPath)) {
+                spooled = readSpool().size();
+                if (spooled > 0) {
+                    CFQuestMod.LOGGER.info("Webhook {}: {} tin nhắn chưa gửi từ lần chạy trước", name, spooled);
+                }
+            }
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi đọc spool webhook {}: {}", name, e.getMessage());
+        }
+        pump();
+    }
+
+    void enqueue(WebhookMessage message) {
+        if (closed) {
+            return;
+        }
+
+        // Once anything is spooled, newer messages go behind it to keep the order
+        if (spooled == 0 && queue.size() < config.current().getWebhooks().getQueueCapacity()) {
+            queue.addLast(message);
+        } else {
+            appendSpool(message);
+        }
+        pump();
+    }
+
+    /**
+     * Write everything undelivered to the spool (the in-flight message too: it may be sent
+     * twice, but is never lost) and stop.
+     */
+    void shutdown() {
+        closed = true;
+        if (wakeup != null) {
+            wakeup.cancel(false);
+        }
+
+        List<String> lines = new ArrayList<>();
+        if (inFlight != null) {
+            lines.add(GSON.toJson(inFlight));
+        }
+        for (WebhookMessage message : queue) {
+            lines.add(GSON.toJson(message));
+        }
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (spooled > 0) {
+                lines.addAll(readSpool());
+            }
+            DataFiles.writeString(spoolPath, String.join("\n", lines) + "\n", "webhook_spool");
+            CFQuestMod.LOGGER.info("Webhook {}: đã lưu {} tin nhắn chưa gửi", name, lines.size());
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi lưu spool webhook {}: {}", name, e.getMessage());
+        }
+        queue.clear();
+    }
+
+    private void pump() {
+        if (closed || inFlight != null) {
+            return;
+        }
+        if (queue.isEmpty() && spooled > 0) {
+            refill();
+        }
+        if (queue.isEmpty()) {
+            updateDepth();
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now < nextSendAt) {
+            if (wakeup == null || wakeup.isDone()) {
+                wakeup = scheduler.schedule(this::pump, nextSendAt - now, TimeUnit.MILLISECONDS);
+            }
+            updateDepth();
+            return;
+        }
+
+        send(now);
+    }
+
+    private void send(long now) {
+        long maxAge = config.current().getWebhooks().getMaxMessageAgeMinutes() * 60_000L;
+
+        // Everything queued behind the head goes out in the same request while it fits: a
+        // burst (or a backlog built up during a rate limit) costs one request instead of many
+        WebhookMessage message = null;
+        WebhookMessage next;
+        while ((next = queue.pollFirst()) != null) {
+            if (now - next.getCreatedAt() > maxAge) {
+                expired.inc();
+                continue;
+            }
+            if (message == null) {
+                message = next;
+            } else if (message.getText().length() + 1 + next.getText().length() <= MAX_CONTENT) {
+                message = message.merge(next);
+            } else {
+                queue.addFirst(next);
+                break;
+            }
+        }
+        if (message == null) {
+            pump();
+            return;
+        }
+
+        WebhookMessage sending = message;
+        sending.addAttempt();
+        inFlight = sending;
+        updateDepth();
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body(sending.getText()), StandardCharsets.UTF_8))
+                .build();
+
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenCompleteAsync((response, error) -> {
+                    requestTime.observeNanosSince(start);
+                    onResult(sending, response, error);
+                }, scheduler);
+    }
+
+    private void onResult(WebhookMessage message, HttpResponse<Void> response, Throwable error) {
+        if (closed) {
+            return;
+        }
+        inFlight = null;
+
+        long now = System.currentTimeMillis();
+        nextSendAt = now + minIntervalMillis;
+        int status = response != null ? response.statusCode() : 0;
+
+        if (error == null && status / 100 == 2) {
+            sent.inc();
+            delivery.observe((now - message.getCreatedAt()) / 1000.0);
+        } else if (error == null && status / 100 == 4 && status != 429) {
+            // Bad payload or the webhook was deleted: retrying cannot help
+            failed.inc();
+            CFQuestMod.LOGGER.warn("Webhook {} từ chối tin nhắn (HTTP {}), bỏ qua", name, status);
+        } else if (message.getAttempts() >= config.current().getWebhooks().getMaxAttempts()) {
+            failed.inc();
+            CFQuestMod.LOGGER.warn("Webhook {} vẫn lỗi sau {} lần thử, bỏ tin nhắn: {}", name,
+                    message.getAttempts(), error != null ? error.getMessage() : "HTTP " + status);
+        } else {
+            long delay = status == 429 ? retryAfterMillis(response, message.getAttempts())
+                    : backoffMillis(message.getAttempts());
+            nextSendAt = Math.max(nextSendAt, now + delay);
+            queue.addFirst(message);
+            retried.inc();
+            CFQuestMod.LOGGER.debug("Webhook {} lỗi ({}), thử lại sau {} ms", name,
+                    error != null ? error.getMessage() : "HTTP " + status, delay);
+        }
+
+        pump();
+    }
+
+    private static long retryAfterMillis(HttpResponse<Void> response, int attempts) {
+        // Seconds, possibly fractional (Discord)
+        return response.headers().firstValue("Retry-After").map(value -> {
+            try {
+                return (long) Math.ceil(Double.parseDouble(value) * 1000);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }).orElseGet(() -> backoffMillis(attempts));
+    }
+
+    private static long backoffMillis(int attempts) {
+        long base = Math.min(MAX_BACKOFF_MILLIS, INITIAL_BACKOFF_MILLIS << Math.min(20, attempts - 1));
+        // Jitter so that several endpoints failing together do not retry in lockstep
+        return base + ThreadLocalRandom.current().nextLong(base / 4 + 1);
+    }
+
+    private String body(String text) {
+        if (text.length() > MAX_CONTENT) {
+            text = text.substring(0, MAX_CONTENT - 1) + "…";
+        }
+
+        JsonObject body = new JsonObject();
+        if (slack) {
+            body.addProperty("text", text);
+        } else {
+            body.addProperty("content", text);
+            // Player names must never ping anyone
+            JsonObject mentions = new JsonObject();
+            mentions.add("parse", new JsonArray());
+            body.add("allowed_mentions", mentions);
+        }
+        return body.toString();
+    }
+
+    private void appendSpool(WebhookMessage message) {
+        try {
+            Files.createDirectories(spoolPath.getParent());
+            Files.writeString(spoolPath, GSON.toJson(message) + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            spooled++;
+            spooledTotal.inc();
+        } catch (IOException e) {
+            failed.inc();
+            CFQuestMod.LOGGER.error("Lỗi khi ghi spool webhook {}: {}", name, e.getMessage());
+        }
+        updateDepth();
+    }
+
+    /**
+     * Move the oldest spooled messages back into memory, up to the queue capacity.
+     */
+    private void refill() {
+        try {
+            List<String> lines = readSpool();
+            int take = Math.min(lines.size(), config.current().getWebhooks().getQueueCapacity());
+            for (String line : lines.subList(0, take)) {
+                try {
+                    queue.addLast(GSON.fromJson(line, WebhookMessage.class));
+                } catch (JsonParseException e) {
+                    CFQuestMod.LOGGER.warn("Bỏ qua dòng spool webhook {} không hợp lệ", name);
+                }
+            }
+
+            List<String> rest = lines.subList(take, lines.size());
+            if (rest.isEmpty()) {
+                Files.deleteIfExists(spoolPath);
+            } else {
+                DataFiles.writeString(spoolPath, String.join("\n", rest) + "\n", "webhook_spool");
+            }
+            spooled = rest.size();
+        } catch (IOException e) {
+            CFQuestMod.LOGGER.error("Lỗi khi đọc spool webhook {}: {}", name, e.getMessage());
+            spooled = 0;
+        }
+    }
+
+    private List<String> readSpool() throws IOException {
+        if (!Files.exists(spoolPath)) {
+            return new ArrayList<>();
+        }
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(spoolPath, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private void updateDepth() {
+        depth = queue.size() + spooled + (inFlight != null ? 1 : 0);
+    }
+}
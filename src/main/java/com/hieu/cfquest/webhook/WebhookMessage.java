@@ -0,0 +1,46 @@
+package com.hieu.cfquest.webhook;
+
+/**
+ * One chat message waiting for an endpoint. Also the line format of the spool file.
+ */
+final class WebhookMessage {
+    private String text;
+    private long createdAt;
+    private int attempts;
+
+    WebhookMessage() {
+    }
+
+    WebhookMessage(String text, long createdAt) {
+        this.text = text;
+        this.createdAt = createdAt;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    /**
+     * Epoch millis the (oldest part of the) message was created; survives a restart via the spool.
+     */
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    int getAttempts() {
+        return attempts;
+    }
+
+    void addAttempt() {
+        attempts++;
+    }
+
+    /**
+     * @return a message with both texts, one per line, as old as the older of the two
+     */
+    WebhookMessage merge(WebhookMessage next) {
+        WebhookMessage merged = new WebhookMessage(text + "\n" + next.text, Math.min(createdAt, next.createdAt));
+        merged.attempts = attempts;
+        return merged;
+    }
+}
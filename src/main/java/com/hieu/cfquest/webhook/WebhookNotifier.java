@@ -0,0 +1,183 @@
+package com.hieu.cfquest.webhook;
+
+import com.hieu.cfquest.CFQuestMod;
+import com.hieu.cfquest.config.ConfigSnapshot;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.engine.QuestEvent;
+import com.hieu.cfquest.quest.Quest;
+import com.hieu.cfquest.util.Deadline;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mirrors quest start, solves and results to chat webhooks (Discord, Slack).
+ *
+ * Subscribed to the quest event bus as an async subscriber; messages are rendered there and
+ * everything else (coalescing, queues, rate limits, retries, spool files under
+ * {@code cfquest/webhooks/}) runs on one daemon thread, {@code CFQuest-Webhook}.
+ *
+ * Optimizations:
+ * - Không bao giờ chạy trên server thread hay thread của QuestManager; HTTP gửi async, thread webhook
+ *   không block chờ response
+ * - Nhiều lượt giải trong {@code coalesceMillis} gộp thành một tin nhắn; tin nhắn xếp hàng sau rate
+ *   limit cũng được gộp khi gửi (tối đa 2000 ký tự)
+ * - Hàng đợi trong bộ nhớ có giới hạn, phần dư và phần chưa gửi khi tắt server ghi ra spool trên đĩa
+ * - Toàn bộ trạng thái chỉ thuộc về một thread: không lock
+ */
+public final class WebhookNotifier {
+    private final ConfigStore config;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final List<WebhookEndpoint> endpoints = new ArrayList<>();
+
+    // Webhook thread only
+    private final List<String> pendingSolves = new ArrayList<>();
+    private long pendingSince;
+    private ScheduledFuture<?> solveFlush;
+
+    /**
+     * @param dataDir the {@code cfquest} data directory
+     */
+    public WebhookNotifier(Path dataDir, ConfigStore config) {
+        this.config = config;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "CFQuest-Webhook");
+            t.setDaemon(true);
+            return t;
+        });
+        // Pending wakeups must not hold up shutdown; their messages are spooled instead
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(scheduler)
+                .build();
+
+        Path spoolDir = dataDir.resolve("webhooks");
+        for (ConfigSnapshot.Webhook webhook : config.snapshot().webhooks()) {
+            endpoints.add(new WebhookEndpoint(webhook, spoolDir.resolve(webhook.settings().getName() + ".jsonl"),
+                    scheduler, client, config));
+        }
+
+        scheduler.execute(() -> endpoints.forEach(WebhookEndpoint::start));
+        CFQuestMod.LOGGER.info("Đã bật {} webhook", endpoints.size());
+    }
+
+    /**
+     * Quest event bus subscriber.
+     */
+    public void onEvent(QuestEvent event) {
+        String text = render(event);
+        if (text == null) {
+            return;
+        }
+
+        boolean solve = event instanceof QuestEvent.Solved;
+        long createdAt = System.currentTimeMillis();
+        try {
+            scheduler.execute(() -> accept(text, solve, createdAt));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Flush pending solves and spool everything undelivered, waiting at most until the deadline.
+     */
+    public void shutdown(Deadline deadline) {
+        try {
+            scheduler.execute(() -> {
+                flushSolves();
+                endpoints.forEach(WebhookEndpoint::shutdown);
+            });
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        if (!deadline.awaitTermination(scheduler)) {
+            CFQuestMod.LOGGER.warn("Hết thời gian lưu tin nhắn webhook chưa gửi");
+        }
+    }
+
+    private void accept(String text, boolean solve, long createdAt) {
+        if (!solve) {
+            // Keep the order: solves waiting for their window go out before what came after them
+            flushSolves();
+            broadcast(text, createdAt);
+            return;
+        }
+
+        if (pendingSolves.isEmpty()) {
+            pendingSince = createdAt;
+        }
+        pendingSolves.add(text);
+
+        int window = config.current().getWebhooks().getCoalesceMillis();
+        if (window == 0) {
+            flushSolves();
+        } else if (solveFlush == null) {
+            solveFlush = scheduler.schedule(this::flushSolves, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushSolves() {
+        if (solveFlush != null) {
+            solveFlush.cancel(false);
+            solveFlush = null;
+        }
+        if (pendingSolves.isEmpty()) {
+            return;
+        }
+
+        broadcast(String.join("\n", pendingSolves), pendingSince);
+        pendingSolves.clear();
+    }
+
+    private void broadcast(String text, long createdAt) {
+        for (WebhookEndpoint endpoint : endpoints) {
+            endpoint.enqueue(new WebhookMessage(text, createdAt));
+        }
+    }
+
+    private static String render(QuestEvent event) {
+        return switch (event) {
+            case QuestEvent.Started started -> {
+                Quest quest = started.quest();
+                yield "NHIỆM VỤ MỚI: " + quest.getProblemDisplayName()
+                        + " | Độ khó: " + quest.getProblemRating()
+                        + " | Thời gian: " + quest.getTimeoutMinutes() + " phút\n"
+                        + quest.getProblemUrl();
+            }
+            case QuestEvent.Solved solved -> {
+                Quest.Winner winner = solved.winner();
+                yield winner.getPlayerName() + " đã giải được bài! Hạng " + solved.place()
+                        + " | Thời gian: " + winner.getFormattedTime()
+                        + " | Phạt: " + winner.getPenaltyMinutes() + " phút";
+            }
+            case QuestEvent.Ended ended -> ended.cancelled()
+                    ? "Nhiệm vụ " + ended.quest().getProblemDisplayName() + " đã bị hủy bởi admin."
+                    : renderResults(ended.quest());
+            case QuestEvent.WrongAnswer wrong -> null;
+        };
+    }
+
+    private static String renderResults(Quest quest) {
+        StringBuilder text = new StringBuilder("KẾT THÚC NHIỆM VỤ: ").append(quest.getProblemDisplayName());
+        if (quest.getWinners().isEmpty()) {
+            return text.append("\nKhông có ai giải được bài!").toString();
+        }
+
+        for (Quest.Winner winner : quest.getWinners()) {
+            text.append("\n#").append(winner.getPlace()).append(' ').append(winner.getPlayerName())
+                    .append(" (").append(winner.getCfHandle()).append(") - ").append(winner.getFormattedTime())
+                    .append(" | Phạt: ").append(winner.getPenaltyMinutes()).append(" phút");
+        }
+        return text.toString();
+    }
+}
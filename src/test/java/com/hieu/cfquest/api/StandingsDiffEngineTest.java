@@ -0,0 +1,186 @@
+package com.hieu.cfquest.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.hieu.cfquest.util.HandleDictionary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StandingsDiffEngineTest {
+    private static final HandleDictionary HANDLES = HandleDictionary.GLOBAL;
+
+    private final StandingsDiffEngine engine = new StandingsDiffEngine(HANDLES, "B");
+
+    /**
+     * One row of a {@code contest.standings} result; only column B is read.
+     */
+    private record Row(String handle, int rank, double points, int rejected, long bestTime) {
+    }
+
+    private static JsonObject result(Row... rows) {
+        JsonArray problems = new JsonArray();
+        for (String index : new String[]{"A", "B"}) {
+            JsonObject problem = new JsonObject();
+            problem.addProperty("index", index);
+            problems.add(problem);
+        }
+
+        JsonArray rowsJson = new JsonArray();
+        for (Row row : rows) {
+            JsonObject member = new JsonObject();
+            member.addProperty("handle", row.handle());
+            JsonArray members = new JsonArray();
+            members.add(member);
+            JsonObject party = new JsonObject();
+            party.add("members", members);
+
+            JsonArray results = new JsonArray();
+            results.add(cell(0, 0, -1));
+            results.add(cell(row.points(), row.rejected(), row.bestTime()));
+
+            JsonObject json = new JsonObject();
+            json.add("party", party);
+            json.addProperty("rank", row.rank());
+            json.add("problemResults", results);
+            rowsJson.add(json);
+        }
+
+        JsonObject result = new JsonObject();
+        result.add("problems", problems);
+        result.add("rows", rowsJson);
+        return result;
+    }
+
+    private static JsonObject cell(double points, int rejected, long bestTime) {
+        JsonObject cell = new JsonObject();
+        cell.addProperty("points", points);
+        cell.addProperty("rejectedAttemptCount", rejected);
+        if (bestTime >= 0) {
+            cell.addProperty("bestSubmissionTimeSeconds", bestTime);
+        }
+        return cell;
+    }
+
+    private static StandingsEvent event(StandingsEvent.Type type, String handle, long value, long previous) {
+        return new StandingsEvent(type, HANDLES.intern(handle), value, previous);
+    }
+
+    @Test
+    void reportsOnlyChanges() {
+        Set<String> requested = Set.of("diff_a", "diff_b");
+        List<StandingsEvent> first = engine.apply(result(
+                new Row("diff_a", 1, 0, 1, -1),
+                new Row("diff_b", 2, 0, 0, -1)), requested);
+        assertEquals(List.of(event(StandingsEvent.Type.WRONG_ANSWER, "diff_a", 1, 0)), first);
+
+        assertTrue(engine.apply(result(
+                new Row("diff_a", 1, 0, 1, -1),
+                new Row("diff_b", 2, 0, 0, -1)), requested).isEmpty());
+
+        List<StandingsEvent> second = engine.apply(result(
+                new Row("diff_b", 1, 1, 2, 900),
+                new Row("diff_a", 2, 0, 3, -1)), requested);
+        assertEquals(List.of(
+                event(StandingsEvent.Type.WRONG_ANSWER, "diff_b", 2, 0),
+                event(StandingsEvent.Type.ACCEPTED, "diff_b", 900, -1),
+                event(StandingsEvent.Type.RANK_CHANGED, "diff_b", 1, 2),
+                event(StandingsEvent.Type.WRONG_ANSWER, "diff_a", 3, 1),
+                event(StandingsEvent.Type.RANK_CHANGED, "diff_a", 2, 1)), second);
+    }
+
+    @Test
+    void handleLeftOutOfRequestKeepsItsRow() {
+        engine.apply(result(
+                new Row("carry_hot", 1, 0, 0, -1),
+                new Row("carry_warm", 2, 0, 2, -1)), Set.of("carry_hot", "carry_warm"));
+
+        // Warm handle skipped for a few cycles
+        for (int i = 0; i < 3; i++) {
+            assertTrue(engine.apply(result(new Row("carry_hot", 1, 0, 0, -1)), Set.of("carry_hot")).isEmpty());
+        }
+
+        // Back in the request: only its real changes are reported, not a brand-new row
+        List<StandingsEvent> events = engine.apply(result(
+                new Row("carry_hot", 1, 0, 0, -1),
+                new Row("carry_warm", 3, 0, 3, -1)), Set.of("carry_hot", "carry_warm"));
+        assertEquals(List.of(
+                event(StandingsEvent.Type.WRONG_ANSWER, "carry_warm", 3, 2),
+                event(StandingsEvent.Type.RANK_CHANGED, "carry_warm", 3, 2)), events);
+    }
+
+    @Test
+    void tierRotationReportsEachChangeOnce() {
+        // HOT every cycle, WARM every third, COLD only on the final poll (as CodeforcesPoller does)
+        Set<String> hot = Set.of("tier_hot");
+        Set<String> hotWarm = Set.of("tier_hot", "tier_warm");
+        Set<String> all = Set.of("tier_hot", "tier_warm", "tier_cold");
+        Row hotRow = new Row("tier_hot", 1, 0, 0, -1);
+
+        engine.apply(result(hotRow, new Row("tier_warm", 2, 0, 1, -1), new Row("tier_cold", 3, 0, 2, -1)), all);
+
+        int warmWrong = 1;
+        for (int cycle = 1; cycle <= 9; cycle++) {
+            if (cycle % 3 == 0) {
+                // The warm handle got one more reject since it was last polled
+                warmWrong++;
+                assertEquals(List.of(event(StandingsEvent.Type.WRONG_ANSWER, "tier_warm", warmWrong, warmWrong - 1)),
+                        engine.apply(result(hotRow, new Row("tier_warm", 2, 0, warmWrong, -1)), hotWarm),
+                        "cycle " + cycle);
+            } else {
+                assertTrue(engine.apply(result(hotRow), hot).isEmpty(), "cycle " + cycle);
+            }
+        }
+
+        // Final poll: the cold handle solved it while skipped, nothing else changed
+        assertEquals(List.of(event(StandingsEvent.Type.ACCEPTED, "tier_cold", 1500, -1)),
+                engine.apply(result(hotRow,
+                        new Row("tier_warm", 2, 0, warmWrong, -1),
+                        new Row("tier_cold", 3, 1, 2, 1500)), all));
+    }
+
+    @Test
+    void requestedHandleMissingFromResponseIsDropped() {
+        engine.apply(result(new Row("drop_a", 1, 0, 1, -1)), Set.of("drop_a"));
+        engine.apply(result(), Set.of("drop_a"));
+
+        assertTrue(engine.exportRows().isEmpty());
+    }
+
+    @Test
+    void retriedAcceptIsReportedAgainEvenWhenSkipped() {
+        engine.apply(result(new Row("retry_a", 1, 1, 0, 300)), Set.of("retry_a"));
+        engine.retryAccept(HANDLES.intern("retry_a"));
+
+        // Not requested this cycle: the forgotten accept is carried forward as unsolved
+        assertTrue(engine.apply(result(), Set.of("retry_other")).isEmpty());
+
+        assertEquals(List.of(event(StandingsEvent.Type.ACCEPTED, "retry_a", 300, 300)),
+                engine.apply(result(new Row("retry_a", 1, 1, 0, 300)), Set.of("retry_a")));
+    }
+
+    @Test
+    void checkpointRoundTrip() {
+        engine.apply(result(
+                new Row("cp_a", 1, 1, 0, 120),
+                new Row("cp_b", 2, 0, 4, -1)), Set.of("cp_a", "cp_b"));
+
+        StandingsDiffEngine restored = new StandingsDiffEngine(HANDLES, "B");
+        List<Integer> accepted = restored.importRows(engine.exportRows());
+        assertEquals(List.of(HANDLES.intern("cp_a")), accepted);
+
+        assertTrue(restored.apply(result(
+                new Row("cp_a", 1, 1, 0, 120),
+                new Row("cp_b", 2, 0, 4, -1)), Set.of("cp_a", "cp_b")).isEmpty());
+    }
+
+    @Test
+    void unknownProblemYieldsNoEvents() {
+        StandingsDiffEngine other = new StandingsDiffEngine(HANDLES, "Z");
+        assertTrue(other.apply(result(new Row("unknown_a", 1, 1, 3, 60)), Set.of()).isEmpty());
+    }
+}
@@ -0,0 +1,73 @@
+package com.hieu.cfquest.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConfigSnapshotTest {
+    @TempDir
+    Path dir;
+
+    private void writeConfig(String json) throws IOException {
+        Files.writeString(dir.resolve("config.json"), json);
+    }
+
+    @Test
+    void schedulesAndWebhooksAreParsedOnce() throws IOException {
+        writeConfig("""
+                {"schedule": {"timezone": "Asia/Ho_Chi_Minh", "schedules": [
+                    {"name": "weekly", "cron": "0 18 * * SAT"},
+                    {"name": "daily", "cron": "30 12 * * *", "timezone": "UTC"}]},
+                 "webhooks": {"endpoints": [{"name": "ops", "url": "https://example.com/hook"}]}}
+                """);
+
+        ConfigSnapshot snapshot = new ConfigStore(dir).snapshot();
+
+        List<ConfigSnapshot.Schedule> schedules = snapshot.schedules();
+        assertEquals(List.of("weekly", "daily"), schedules.stream().map(ConfigSnapshot.Schedule::name).toList());
+        assertEquals(ZoneId.of("Asia/Ho_Chi_Minh"), schedules.get(0).zone());
+        assertEquals(ZoneId.of("UTC"), schedules.get(1).zone());
+        assertEquals("example.com", snapshot.webhooks().get(0).uri().getHost());
+    }
+
+    @Test
+    void legacyScheduleBecomesTheDefaultOne() throws IOException {
+        writeConfig("""
+                {"schedule": {"cron": "0 18 * * SUN", "timezone": "UTC"}}
+                """);
+
+        List<ConfigSnapshot.Schedule> schedules = new ConfigStore(dir).snapshot().schedules();
+
+        assertEquals(1, schedules.size());
+        assertEquals("default", schedules.get(0).name());
+        assertEquals(ZoneId.of("UTC"), schedules.get(0).zone());
+    }
+
+    @Test
+    void publishedConfigCannotBeModified() throws IOException {
+        writeConfig("""
+                {"quest": {"reminderMinutes": [10, 1]}, "schedule": {"tags": ["dp"]}}
+                """);
+
+        ConfigStore store = new ConfigStore(dir);
+        ModConfig config = store.current();
+
+        assertThrows(UnsupportedOperationException.class, () -> config.getQuest().getReminderMinutes().add(5));
+        assertThrows(UnsupportedOperationException.class, () -> config.getSchedule().getTags().clear());
+        assertThrows(UnsupportedOperationException.class,
+                () -> config.getRewards().getTiers().get("basic").getItems().add("minecraft:dirt"));
+
+        // A reload builds a new snapshot instead of touching the published one
+        assertNotSame(config, store.reload().config());
+        assertEquals(List.of(10, 1), config.getQuest().getReminderMinutes());
+    }
+}
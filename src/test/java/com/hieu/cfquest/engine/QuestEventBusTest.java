@@ -0,0 +1,163 @@
+package com.hieu.cfquest.engine;
+
+import com.hieu.cfquest.metrics.Metrics;
+import com.hieu.cfquest.util.Deadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuestEventBusTest {
+    // Main thread of the test: tasks run when the test drains them
+    private final ConcurrentLinkedQueue<Runnable> mainThread = new ConcurrentLinkedQueue<>();
+    private final QuestEventBus bus = new QuestEventBus((name, task) -> mainThread.add(task));
+
+    private final CountDownLatch firstStarted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> received = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        bus.shutdown(Deadline.after(5000));
+    }
+
+    /**
+     * Records the event and parks on the first one until the test releases it, so that
+     * everything published meanwhile has to wait in the subscriber's queue.
+     */
+    private void blockingHandler(QuestEvent event) {
+        received.add(label(event));
+        firstStarted.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String label(QuestEvent event) {
+        return event.type() + event.at();
+    }
+
+    private static QuestEvent solved(long id) {
+        return new QuestEvent.Solved(null, id, null, 1);
+    }
+
+    private static QuestEvent wrong(long id) {
+        return new QuestEvent.WrongAnswer(null, id, "uuid", "handle", 20, 1, 1);
+    }
+
+    private static QuestEvent ended(long id) {
+        return new QuestEvent.Ended(null, id, false);
+    }
+
+    private static long dropped(String subscriber) {
+        return Metrics.REGISTRY.counter("cfquest_quest_events_dropped_total",
+                "Quest events dropped because an async subscriber's queue was full", "subscriber", subscriber).get();
+    }
+
+    private void drainMainThread() {
+        Runnable task;
+        while ((task = mainThread.poll()) != null) {
+            task.run();
+        }
+    }
+
+    @Test
+    void fullQueueDropsAndCounts() throws InterruptedException {
+        bus.subscribeAsync("test_drop", 2, this::blockingHandler);
+
+        bus.publish(solved(0));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 5; i++) {
+            bus.publish(solved(i));
+        }
+        release.countDown();
+        bus.shutdown(Deadline.after(5000));
+
+        // One in the handler, two queued; the rest were dropped
+        assertEquals(List.of("solved0", "solved1", "solved2"), received);
+        assertEquals(3, dropped("test_drop"));
+    }
+
+    @Test
+    void filteredEventsNeverTakeAQueueSlot() throws InterruptedException {
+        bus.subscribeAsync("test_filter", 1, event -> !(event instanceof QuestEvent.WrongAnswer),
+                this::blockingHandler);
+
+        bus.publish(solved(0));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 100; i++) {
+            bus.publish(wrong(i));
+        }
+        bus.publish(ended(101));
+        release.countDown();
+        bus.shutdown(Deadline.after(5000));
+
+        assertEquals(List.of("solved0", "ended101"), received);
+        assertEquals(0, dropped("test_filter"));
+    }
+
+    @Test
+    void losslessLaneKeepsEveryEvent() throws InterruptedException {
+        bus.subscribeAsyncLossless("test_lossless", event -> event instanceof QuestEvent.Ended,
+                this::blockingHandler);
+
+        bus.publish(ended(0));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        List<String> expected = new ArrayList<>(List.of("ended0"));
+        for (int i = 1; i <= 500; i++) {
+            bus.publish(wrong(i));
+            bus.publish(ended(i));
+            expected.add("ended" + i);
+        }
+        release.countDown();
+        bus.shutdown(Deadline.after(5000));
+
+        assertEquals(expected, received);
+        assertEquals(0, dropped("test_lossless"));
+    }
+
+    @Test
+    void droppedEventsAreReplacedByAResync() throws InterruptedException {
+        List<String> state = new CopyOnWriteArrayList<>(List.of("live0"));
+        bus.subscribeAsync("test_resync", 1, event -> true, this::blockingHandler, () -> {
+            // Main thread: take the live state now, apply it later on the subscriber's thread
+            String snapshot = "resync" + state;
+            return () -> received.add(snapshot);
+        });
+
+        bus.publish(solved(0));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        bus.publish(solved(1));
+        state.add("live2");
+        bus.publish(solved(2));
+        state.add("live3");
+        bus.publish(solved(3));
+        assertTrue(mainThread.isEmpty());
+
+        // Once the handler frees a slot, the resync is scheduled on the main thread (and tried
+        // again if the queue filled up before it ran)
+        release.countDown();
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (received.stream().noneMatch(label -> label.startsWith("resync")) && System.nanoTime() < waitUntil) {
+            drainMainThread();
+            Thread.sleep(5);
+        }
+        bus.publish(solved(4));
+        bus.shutdown(Deadline.after(5000));
+
+        assertEquals(List.of("solved0", "solved1", "resync[live0, live2, live3]", "solved4"), received);
+        assertEquals(2, dropped("test_resync"));
+        assertTrue(mainThread.isEmpty());
+    }
+}
@@ -0,0 +1,236 @@
+package com.hieu.cfquest.replay;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuestReplayTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final long END = START + 30 * 60_000L;
+    private static final long POLL_MILLIS = 30_000L;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * Standings cell for problem A: {points, rejectedAttemptCount, bestSubmissionTimeSeconds or -1}.
+     */
+    private static JsonObject standings(long sentAt, int[] alice, int[] bob) {
+        JsonArray problems = new JsonArray();
+        JsonObject problem = new JsonObject();
+        problem.addProperty("index", "A");
+        problems.add(problem);
+
+        JsonArray rows = new JsonArray();
+        rows.add(row("alice", 1, alice));
+        rows.add(row("bob", 2, bob));
+
+        JsonObject result = new JsonObject();
+        result.add("problems", problems);
+        result.add("rows", rows);
+
+        JsonObject params = new JsonObject();
+        params.addProperty("contestId", "1000");
+        params.addProperty("handles", "alice;bob");
+        params.addProperty("showUnofficial", "true");
+        return request("contest.standings", params, sentAt, result);
+    }
+
+    private static JsonObject row(String handle, int rank, int[] cell) {
+        JsonObject member = new JsonObject();
+        member.addProperty("handle", handle);
+        JsonArray members = new JsonArray();
+        members.add(member);
+        JsonObject party = new JsonObject();
+        party.add("members", members);
+
+        JsonObject result = new JsonObject();
+        result.addProperty("points", cell[0]);
+        result.addProperty("rejectedAttemptCount", cell[1]);
+        if (cell[2] >= 0) {
+            result.addProperty("bestSubmissionTimeSeconds", cell[2]);
+        }
+        JsonArray results = new JsonArray();
+        results.add(result);
+
+        JsonObject row = new JsonObject();
+        row.add("party", party);
+        row.addProperty("rank", rank);
+        row.add("problemResults", results);
+        return row;
+    }
+
+    /**
+     * The accept verification: {@code rejected} wrong answers after the start, then an accept.
+     */
+    private static JsonObject status(long sentAt, String handle, int rejected, long acceptedAfterSeconds) {
+        long startSeconds = START / 1000;
+        JsonArray submissions = new JsonArray();
+        for (int i = 0; i <= rejected; i++) {
+            JsonObject problem = new JsonObject();
+            problem.addProperty("contestId", 1000);
+            problem.addProperty("index", "A");
+
+            JsonObject submission = new JsonObject();
+            submission.addProperty("id", i + 1);
+            submission.addProperty("creationTimeSeconds",
+                    i < rejected ? startSeconds + 10 + i : startSeconds + acceptedAfterSeconds);
+            submission.add("problem", problem);
+            submission.addProperty("verdict", i < rejected ? "WRONG_ANSWER" : "OK");
+            submissions.add(submission);
+        }
+
+        JsonObject params = new JsonObject();
+        params.addProperty("contestId", "1000");
+        params.addProperty("handle", handle);
+        return request("contest.status", params, sentAt, submissions);
+    }
+
+    private static JsonObject request(String method, JsonObject params, long sentAt, JsonElement result) {
+        JsonObject response = new JsonObject();
+        response.addProperty("status", "OK");
+        response.add("result", result);
+
+        JsonObject request = new JsonObject();
+        request.addProperty("type", "request");
+        request.addProperty("at", sentAt + 100);
+        request.addProperty("method", method);
+        request.add("params", params);
+        request.addProperty("sentAt", sentAt);
+        request.add("response", response);
+        return request;
+    }
+
+    private static JsonObject winner(int place, String handle, long solveTimeSeconds, int penaltyMinutes) {
+        JsonObject winner = new JsonObject();
+        winner.addProperty("place", place);
+        winner.addProperty("handle", handle);
+        winner.addProperty("solveTimeSeconds", solveTimeSeconds);
+        winner.addProperty("penaltyMinutes", penaltyMinutes);
+        return winner;
+    }
+
+    /**
+     * A 30-minute quest: alice gets two wrong answers at 5 minutes and solves it at 10, bob gets
+     * one wrong answer at 10 and solves it at 20. The recording server verified each accept with
+     * one contest.status request and made no other submission lookups. With the penalty, bob
+     * (1200 s + 20 min) places ahead of alice (600 s + 40 min).
+     */
+    private Path writeTrace(JsonArray recordedWinners) throws IOException {
+        return writeTrace(recordedWinners, 3);
+    }
+
+    private Path writeTrace(JsonArray recordedWinners, int maxWinners) throws IOException {
+        Path trace = dir.resolve("trace.jsonl.gz");
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(trace)),
+                StandardCharsets.UTF_8)) {
+            JsonObject session = new JsonObject();
+            session.addProperty("type", "session");
+            session.addProperty("at", START);
+            session.addProperty("version", 1);
+            writer.write(session + "\n");
+
+            JsonObject quest = new JsonObject();
+            quest.addProperty("contestId", 1000);
+            quest.addProperty("problemIndex", "A");
+            quest.addProperty("problemName", "Test");
+            quest.addProperty("problemRating", 1500);
+            quest.addProperty("timeoutMinutes", 30);
+            quest.addProperty("startTime", START);
+            quest.addProperty("endTime", END);
+
+            JsonObject players = new JsonObject();
+            players.addProperty("uuid-a", "Alice");
+            players.addProperty("uuid-b", "bob");
+
+            JsonObject questConfig = new JsonObject();
+            questConfig.addProperty("defaultTimeoutMinutes", 30);
+            questConfig.addProperty("penaltyMinutes", 20);
+            questConfig.addProperty("maxWinners", maxWinners);
+
+            JsonObject questStart = new JsonObject();
+            questStart.addProperty("type", "quest_start");
+            questStart.addProperty("at", START);
+            questStart.add("quest", quest);
+            questStart.add("players", players);
+            questStart.add("questConfig", questConfig);
+            writer.write(questStart + "\n");
+
+            for (long at = START + POLL_MILLIS; at < END; at += POLL_MILLIS) {
+                long minute = (at - START) / 60_000L;
+                int[] alice = minute < 5 ? new int[]{0, 0, -1} : minute < 10 ? new int[]{0, 2, -1} : new int[]{1, 2, 600};
+                int[] bob = minute < 10 ? new int[]{0, 0, -1} : minute < 20 ? new int[]{0, 1, -1} : new int[]{1, 1, 1200};
+                writer.write(standings(at, alice, bob) + "\n");
+                if (at == START + 10 * 60_000L) {
+                    writer.write(status(at + 500, "alice", 2, 600) + "\n");
+                }
+                if (at == START + 20 * 60_000L) {
+                    writer.write(status(at + 500, "bob", 1, 1200) + "\n");
+                }
+            }
+
+            JsonObject questEnd = new JsonObject();
+            questEnd.addProperty("type", "quest_end");
+            questEnd.addProperty("at", END);
+            questEnd.add("winners", recordedWinners);
+            writer.write(questEnd + "\n");
+        }
+        return trace;
+    }
+
+    private static JsonArray winners(JsonObject... winners) {
+        JsonArray array = new JsonArray();
+        for (JsonObject winner : winners) {
+            array.add(winner);
+        }
+        return array;
+    }
+
+    @Test
+    void replayReproducesRecordedWinners() throws IOException {
+        Path trace = writeTrace(winners(winner(1, "bob", 1200, 20), winner(2, "alice", 600, 40)));
+
+        List<QuestReplay.Result> results = QuestReplay.replay(trace);
+
+        assertEquals(1, results.size());
+        QuestReplay.Result result = results.get(0);
+        assertTrue(result.matches(), () -> "replay: " + result.actual());
+        assertEquals(END - START + 1000, result.virtualMillis());
+    }
+
+    @Test
+    void fullQuestEndsAfterItsFinalPoll() throws IOException {
+        Path trace = writeTrace(winners(winner(1, "bob", 1200, 20), winner(2, "alice", 600, 40)), 2);
+
+        QuestReplay.Result result = QuestReplay.replay(trace).get(0);
+
+        assertTrue(result.matches(), () -> "replay: " + result.actual());
+        // Closed once bob's accept (polled at 20 minutes) filled the second slot, not at the deadline
+        assertEquals(40, result.pollCycles());
+    }
+
+    @Test
+    void differingRecordedWinnersAreReported() throws IOException {
+        Path trace = writeTrace(winners(winner(1, "alice", 600, 40), winner(2, "bob", 1200, 20)));
+
+        QuestReplay.Result result = QuestReplay.replay(trace).get(0);
+
+        assertFalse(result.matches());
+        assertEquals(2, result.actual().size());
+    }
+}
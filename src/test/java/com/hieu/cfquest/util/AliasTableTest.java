@@ -0,0 +1,55 @@
+package com.hieu.cfquest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AliasTableTest {
+    private static final int SAMPLES = 200_000;
+
+    private static int[] histogram(AliasTable table, long seed) {
+        Random random = new Random(seed);
+        int[] counts = new int[table.size()];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[table.sample(random)]++;
+        }
+        return counts;
+    }
+
+    @Test
+    void samplesProportionallyToWeights() {
+        double[] weights = {1, 2, 3, 4};
+        AliasTable table = new AliasTable(weights);
+        assertEquals(10.0, table.getTotalWeight(), 1e-9);
+
+        int[] counts = histogram(table, 42);
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / 10.0, counts[i] / (double) SAMPLES, 0.01, "index " + i);
+        }
+    }
+
+    @Test
+    void zeroWeightIsNeverSampled() {
+        int[] counts = histogram(new AliasTable(new double[]{0, 5, 0, 1}), 7);
+        assertEquals(0, counts[0]);
+        assertEquals(0, counts[2]);
+        assertEquals(SAMPLES, counts[1] + counts[3]);
+    }
+
+    @Test
+    void singleWeightAlwaysSampled() {
+        int[] counts = histogram(new AliasTable(new double[]{0.3}), 1);
+        assertEquals(SAMPLES, counts[0]);
+    }
+
+    @Test
+    void rejectsInvalidWeights() {
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{1, -1}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{Double.NaN}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{0, 0}));
+    }
+}
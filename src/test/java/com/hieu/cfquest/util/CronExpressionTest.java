@@ -0,0 +1,83 @@
+package com.hieu.cfquest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CronExpressionTest {
+    private static ZonedDateTime utc(int year, int month, int day, int hour, int minute) {
+        return ZonedDateTime.of(year, month, day, hour, minute, 0, 0, ZoneOffset.UTC);
+    }
+
+    private static ZonedDateTime next(String cron, ZonedDateTime after) {
+        return CronExpression.parse(cron).next(after);
+    }
+
+    @Test
+    void nextIsStrictlyAfter() {
+        assertEquals(utc(2025, 3, 10, 20, 1), next("* * * * *", utc(2025, 3, 10, 20, 0)));
+        assertEquals(utc(2025, 3, 11, 20, 0), next("0 20 * * *", utc(2025, 3, 10, 20, 0)));
+        assertEquals(utc(2025, 3, 10, 20, 0), next("0 20 * * *", utc(2025, 3, 10, 19, 59).plusSeconds(30)));
+    }
+
+    @Test
+    void stepsRangesAndLists() {
+        assertEquals(utc(2025, 3, 10, 20, 15), next("*/15 * * * *", utc(2025, 3, 10, 20, 7)));
+        assertEquals(utc(2025, 3, 10, 12, 0), next("0 8-20/4 * * *", utc(2025, 3, 10, 8, 0)));
+        assertEquals(utc(2025, 3, 15, 0, 0), next("0 0 1,15 * *", utc(2025, 3, 2, 0, 0)));
+    }
+
+    @Test
+    void namesAndSundayAsSeven() {
+        // 2025-03-10 is a Monday
+        assertEquals(utc(2025, 3, 14, 19, 0), next("0 19 * * FRI", utc(2025, 3, 10, 0, 0)));
+        assertEquals(utc(2025, 3, 11, 19, 0), next("0 19 * * MON-FRI", utc(2025, 3, 10, 20, 0)));
+        assertEquals(utc(2025, 3, 16, 0, 0), next("0 0 * * 7", utc(2025, 3, 10, 0, 0)));
+        assertEquals(utc(2025, 6, 1, 0, 0), next("0 0 1 jun *", utc(2025, 3, 10, 0, 0)));
+    }
+
+    @Test
+    void dayOfMonthOrDayOfWeekWhenBothRestricted() {
+        // Vixie cron: the 13th or any Friday, whichever comes first
+        assertEquals(utc(2025, 3, 13, 0, 0), next("0 0 13 * FRI", utc(2025, 3, 10, 0, 0)));
+        assertEquals(utc(2025, 3, 14, 0, 0), next("0 0 13 * FRI", utc(2025, 3, 13, 0, 0)));
+    }
+
+    @Test
+    void macros() {
+        assertEquals(utc(2025, 3, 11, 0, 0), next("@daily", utc(2025, 3, 10, 5, 0)));
+        assertEquals(utc(2025, 3, 16, 0, 0), next("@weekly", utc(2025, 3, 10, 5, 0)));
+        assertEquals(utc(2026, 1, 1, 0, 0), next("@yearly", utc(2025, 3, 10, 5, 0)));
+    }
+
+    @Test
+    void leapDayAndImpossibleDates() {
+        assertEquals(utc(2028, 2, 29, 0, 0), next("0 0 29 2 *", utc(2025, 3, 1, 0, 0)));
+        assertNull(next("0 0 31 2 *", utc(2025, 1, 1, 0, 0)));
+    }
+
+    @Test
+    void dstGapShiftsForward() {
+        // 2025-03-09 02:30 does not exist in New York: the run moves to 03:30 EDT that day
+        ZoneId newYork = ZoneId.of("America/New_York");
+        ZonedDateTime after = ZonedDateTime.of(2025, 3, 9, 0, 0, 0, 0, newYork);
+        assertEquals(ZonedDateTime.of(2025, 3, 9, 3, 30, 0, 0, newYork), next("30 2 * * *", after));
+        assertEquals(ZonedDateTime.of(2025, 3, 10, 2, 30, 0, 0, newYork),
+                next("30 2 * * *", ZonedDateTime.of(2025, 3, 9, 3, 30, 0, 0, newYork)));
+    }
+
+    @Test
+    void rejectsMalformedExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse(""));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("* * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("60 * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("0 0 * * FOO"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("*/0 * * * *"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.hieu.cfquest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeadlineTest {
+    @Test
+    void remainingCountsDownToZero() throws InterruptedException {
+        Deadline deadline = Deadline.after(50);
+        assertFalse(deadline.isExpired());
+        assertTrue(deadline.remainingMillis() <= 50);
+
+        Thread.sleep(80);
+        assertTrue(deadline.isExpired());
+        assertEquals(0, deadline.remainingMillis());
+    }
+
+    @Test
+    void zeroBudgetIsAlreadyExpired() {
+        Deadline deadline = Deadline.after(0);
+        assertTrue(deadline.isExpired());
+        assertEquals(0, deadline.remainingMillis());
+    }
+
+    @Test
+    void awaitTerminationLetsShortTasksFinish() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        AtomicBoolean done = new AtomicBoolean();
+        executor.submit(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                return;
+            }
+            done.set(true);
+        });
+
+        assertTrue(Deadline.after(5_000).awaitTermination(executor));
+        assertTrue(done.get());
+    }
+
+    @Test
+    void awaitTerminationInterruptsStuckTasksAfterDeadline() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        executor.submit(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        started.await();
+
+        long start = System.nanoTime();
+        assertFalse(Deadline.after(50).awaitTermination(executor));
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 5_000);
+        interrupted.await();
+        assertTrue(executor.isShutdown());
+    }
+}
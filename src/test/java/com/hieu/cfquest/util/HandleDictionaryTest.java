@@ -0,0 +1,79 @@
+package com.hieu.cfquest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class HandleDictionaryTest {
+    private static final HandleDictionary HANDLES = HandleDictionary.GLOBAL;
+
+    @Test
+    void internIsCaseInsensitiveAndStable() {
+        int id = HANDLES.intern("Dict_Tourist");
+        assertEquals(id, HANDLES.intern("dict_tourist"));
+        assertEquals(id, HANDLES.intern("DICT_TOURIST"));
+        assertEquals(id, HANDLES.lookup("dIcT_tOuRiSt"));
+        assertEquals("dict_tourist", HANDLES.handle(id));
+
+        assertNotEquals(id, HANDLES.intern("dict_petr"));
+    }
+
+    @Test
+    void lookupDoesNotAssignIds() {
+        int size = HANDLES.size();
+        assertEquals(-1, HANDLES.lookup("dict_never_seen"));
+        assertEquals(size, HANDLES.size());
+    }
+
+    @Test
+    void idsAreDenseAndSurviveGrowth() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(HANDLES.intern("dict_grow_" + i));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertEquals("dict_grow_" + i, HANDLES.handle(ids.get(i)));
+            assertEquals(ids.get(0) + i, ids.get(i));
+        }
+    }
+
+    @Test
+    void concurrentInternAgreesOnOneId() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            Set<Integer> seen = ConcurrentHashMap.newKeySet();
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                tasks.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        String handle = "dict_race_" + i;
+                        int id = HANDLES.intern(thread % 2 == 0 ? handle : handle.toUpperCase());
+                        if (i == 7) {
+                            seen.add(id);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+
+            assertEquals(1, seen.size());
+            for (int i = 0; i < 500; i++) {
+                assertEquals("dict_race_" + i, HANDLES.handle(HANDLES.lookup("dict_race_" + i)));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.hieu.cfquest.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IntIntMapTest {
+    @Test
+    void putGetAndOverwrite() {
+        IntIntMap map = new IntIntMap();
+        assertTrue(map.isEmpty());
+        assertEquals(-7, map.get(3, -7));
+
+        map.put(3, 10);
+        map.put(0, 4);
+        assertEquals(10, map.get(3, -1));
+        assertEquals(4, map.get(0, -1));
+        assertTrue(map.containsKey(0));
+        assertFalse(map.containsKey(5));
+
+        map.put(3, 11);
+        assertEquals(11, map.get(3, -1));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    void growsPastInitialCapacity() {
+        IntIntMap map = new IntIntMap(2);
+        for (int key = 0; key < 5000; key++) {
+            map.put(key * 31, key);
+        }
+
+        assertEquals(5000, map.size());
+        for (int key = 0; key < 5000; key++) {
+            assertEquals(key, map.get(key * 31, -1));
+        }
+        assertFalse(map.containsKey(31 * 5000));
+    }
+
+    @Test
+    void negativeKeysAreRejectedOnPutAndAbsentOnGet() {
+        IntIntMap map = new IntIntMap();
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1, 1));
+        assertFalse(map.containsKey(-1));
+        assertEquals(9, map.get(-1, 9));
+    }
+
+    @Test
+    void clearAndForEach() {
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int key = 0; key < 100; key += 3) {
+            map.put(key, key * key);
+            expected.put(key, key * key);
+        }
+
+        Map<Integer, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(3));
+        map.forEach((key, value) -> {
+            throw new AssertionError("visited " + key);
+        });
+
+        map.put(3, 1);
+        assertEquals(1, map.get(3, -1));
+    }
+}
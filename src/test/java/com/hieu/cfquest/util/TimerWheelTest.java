@@ -0,0 +1,100 @@
+package com.hieu.cfquest.util;
+
+import com.hieu.cfquest.engine.VirtualClock;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+    private static final long START = 1_000_000L;
+
+    private final VirtualClock clock = new VirtualClock(START);
+    private final TimerWheel wheel = new TimerWheel(100, clock);
+    private final List<String> fired = new ArrayList<>();
+
+    private void advanceTo(long millis) {
+        clock.advanceTo(millis);
+        wheel.advance();
+    }
+
+    @Test
+    void firesOnFirstTickAtOrAfterDeadline() {
+        TimerWheel.Timeout timeout = wheel.schedule("a", START + 250, () -> fired.add("a"));
+
+        advanceTo(START + 200);
+        assertTrue(fired.isEmpty());
+        assertFalse(timeout.isFired());
+
+        advanceTo(START + 300);
+        assertEquals(List.of("a"), fired);
+        assertTrue(timeout.isFired());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() {
+        advanceTo(START + 1000);
+        wheel.schedule("late", START, () -> fired.add("late"));
+
+        advanceTo(START + 1100);
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void cancelledTimeoutNeverRuns() {
+        TimerWheel.Timeout timeout = wheel.schedule("a", START + 500, () -> fired.add("a"));
+        assertEquals(1, wheel.getPendingCount());
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        advanceTo(START + 1000);
+
+        assertTrue(fired.isEmpty());
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    void cascadesFromHigherLevelsAtExactTick() {
+        // 64 * 64 * 3 + 17 ticks: starts on level 2 and cascades down twice
+        long deadline = START + (64L * 64 * 3 + 17) * 100;
+        wheel.schedule("far", deadline, () -> fired.add("far"));
+        wheel.schedule("near", START + 100, () -> fired.add("near"));
+
+        advanceTo(deadline - 100);
+        assertEquals(List.of("near"), fired);
+
+        advanceTo(deadline);
+        assertEquals(List.of("near", "far"), fired);
+    }
+
+    @Test
+    void deadlineBeyondWheelRangeIsReplaced() {
+        TimerWheel fine = new TimerWheel(1, clock);
+        // More than 64^4 ticks ahead: parked in the last slot, then moved closer
+        long deadline = START + (1L << 24) + 12_345;
+        fine.schedule("beyond", deadline, () -> fired.add("beyond"));
+
+        clock.advanceTo(deadline - 1);
+        fine.advance();
+        assertTrue(fired.isEmpty());
+
+        clock.advanceTo(deadline);
+        fine.advance();
+        assertEquals(List.of("beyond"), fired);
+    }
+
+    @Test
+    void firesInDeadlineOrderAcrossTicks() {
+        wheel.schedule("c", START + 900, () -> fired.add("c"));
+        wheel.schedule("a", START + 100, () -> fired.add("a"));
+        wheel.schedule("b", START + 450, () -> fired.add("b"));
+
+        advanceTo(START + 1000);
+        assertEquals(List.of("a", "b", "c"), fired);
+    }
+}
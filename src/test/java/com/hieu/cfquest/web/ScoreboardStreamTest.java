@@ -0,0 +1,109 @@
+package com.hieu.cfquest.web;
+
+import com.hieu.cfquest.api.model.Problem;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.engine.QuestEvent;
+import com.hieu.cfquest.engine.VirtualClock;
+import com.hieu.cfquest.quest.Quest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScoreboardStreamTest {
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private ScoreboardStream stream;
+
+    @AfterEach
+    void shutdown() {
+        if (stream != null) {
+            stream.shutdown();
+        }
+    }
+
+    private static Quest quest() {
+        Problem problem = new Problem();
+        problem.setContestId(1000);
+        problem.setIndex("A");
+        problem.setName("Test");
+        problem.setRating(1500);
+        return new Quest(1000, problem, 30, START);
+    }
+
+    /**
+     * Frames buffered for {@code client}, without the once-a-second time frames.
+     */
+    private static List<String> frames(ScoreboardStream.Client client) throws InterruptedException {
+        List<byte[]> frames = new ArrayList<>();
+        assertTrue(client.awaitFrames(frames));
+        List<String> text = new ArrayList<>();
+        for (byte[] frame : frames) {
+            String event = new String(frame, StandardCharsets.UTF_8);
+            if (!event.startsWith("event: time\n")) {
+                text.add(event);
+            }
+        }
+        return text;
+    }
+
+    @Test
+    void resyncReplacesStandingsAndResendsState() throws InterruptedException {
+        stream = new ScoreboardStream(new VirtualClock(START), new ConfigStore(dir));
+        Quest quest = quest();
+        stream.onEvent(new QuestEvent.Started(quest, START));
+        ScoreboardStream.Client client = stream.connect();
+        frames(client);
+
+        // The stream saw alice's solve; bob's was dropped by the bus
+        Quest.Winner alice = quest.addWinner("a", "Alice", "alice", 600, 40);
+        stream.onEvent(new QuestEvent.Solved(quest, START + 1, alice, alice.getPlace()));
+        quest.addWinner("b", "Bob", "bob", 1200, 20);
+        frames(client);
+
+        stream.resync(quest).run();
+
+        List<String> frames = frames(client);
+        assertEquals(1, frames.size());
+        String state = frames.get(0);
+        assertTrue(state.startsWith("event: quest\n"), state);
+        assertTrue(state.indexOf("\"cfHandle\":\"bob\"") < state.indexOf("\"cfHandle\":\"alice\""), state);
+    }
+
+    @Test
+    void resyncAfterDroppedEndClearsTheQuest() throws InterruptedException {
+        stream = new ScoreboardStream(new VirtualClock(START), new ConfigStore(dir));
+        stream.onEvent(new QuestEvent.Started(quest(), START));
+        ScoreboardStream.Client client = stream.connect();
+        frames(client);
+
+        stream.resync(null).run();
+
+        String state = frames(client).get(0);
+        assertTrue(state.contains("\"active\":false"), state);
+    }
+
+    @Test
+    void wrongAnswersAreOnlyWantedWithClients() {
+        stream = new ScoreboardStream(new VirtualClock(START), new ConfigStore(dir));
+        QuestEvent wrong = new QuestEvent.WrongAnswer(quest(), START, "a", "alice", 20, 1, 1);
+        QuestEvent solved = new QuestEvent.Solved(quest(), START, null, 1);
+
+        assertFalse(stream.wants(wrong));
+        assertTrue(stream.wants(solved));
+
+        stream.connect();
+        assertTrue(stream.wants(wrong));
+    }
+}
@@ -0,0 +1,154 @@
+package com.hieu.cfquest.webhook;
+
+import com.google.gson.JsonParser;
+import com.hieu.cfquest.api.model.Problem;
+import com.hieu.cfquest.config.ConfigStore;
+import com.hieu.cfquest.engine.QuestEvent;
+import com.hieu.cfquest.quest.Quest;
+import com.hieu.cfquest.util.Deadline;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookNotifierTest {
+    private static final long START = 1_700_000_000_000L;
+
+    @TempDir
+    Path dir;
+
+    private HttpServer server;
+    // Request bodies' text, with the time each one arrived
+    private final BlockingQueue<Request> requests = new LinkedBlockingQueue<>();
+    // Scripted answers, one per request; 204 once they run out
+    private final ConcurrentLinkedQueue<Answer> answers = new ConcurrentLinkedQueue<>();
+    private WebhookNotifier notifier;
+
+    private record Request(String text, long at) {
+    }
+
+    private record Answer(int status, String retryAfter) {
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/hook", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        if (notifier != null) {
+            notifier.shutdown(Deadline.after(5000));
+        }
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requests.add(new Request(JsonParser.parseString(body).getAsJsonObject().get("text").getAsString(),
+                System.currentTimeMillis()));
+
+        Answer answer = answers.poll();
+        if (answer != null && answer.retryAfter() != null) {
+            exchange.getResponseHeaders().add("Retry-After", answer.retryAfter());
+        }
+        exchange.sendResponseHeaders(answer != null ? answer.status() : 204, -1);
+        exchange.close();
+    }
+
+    private ConfigStore config(int coalesceMillis) throws IOException {
+        Files.writeString(dir.resolve("config.json"), """
+                {"webhooks": {"coalesceMillis": %d, "maxAttempts": 5, "endpoints": [
+                    {"name": "test", "url": "http://127.0.0.1:%d/hook", "format": "slack", "minIntervalMillis": 0}]}}
+                """.formatted(coalesceMillis, server.getAddress().getPort()));
+        return new ConfigStore(dir);
+    }
+
+    private static Quest quest() {
+        Problem problem = new Problem();
+        problem.setContestId(1000);
+        problem.setIndex("A");
+        problem.setName("Test");
+        problem.setRating(1500);
+        return new Quest(1000, problem, 30, START);
+    }
+
+    private static QuestEvent solved(Quest quest, String name, long solveTimeSeconds) {
+        Quest.Winner winner = quest.addWinner(name, name, name.toLowerCase(), solveTimeSeconds, 0);
+        return new QuestEvent.Solved(quest, START, winner, winner.getPlace());
+    }
+
+    private Request nextRequest() throws InterruptedException {
+        Request request = requests.poll(5, TimeUnit.SECONDS);
+        assertNotNull(request, "no webhook request");
+        return request;
+    }
+
+    @Test
+    void solvesWithinTheWindowGoOutTogether() throws Exception {
+        notifier = new WebhookNotifier(dir, config(300));
+        Quest quest = quest();
+
+        notifier.onEvent(solved(quest, "Alice", 600));
+        // Bob is faster: the event carries the place he took, Alice's live winner now says 2
+        notifier.onEvent(solved(quest, "Bob", 300));
+
+        assertEquals("Alice đã giải được bài! Hạng 1 | Thời gian: 10:00 | Phạt: 0 phút\n"
+                + "Bob đã giải được bài! Hạng 1 | Thời gian: 5:00 | Phạt: 0 phút", nextRequest().text());
+        assertNull(requests.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void rateLimitedMessageIsRetriedAfterRetryAfter() throws Exception {
+        answers.add(new Answer(429, "0.4"));
+        notifier = new WebhookNotifier(dir, config(0));
+
+        notifier.onEvent(new QuestEvent.Ended(quest(), START, true));
+
+        Request limited = nextRequest();
+        Request retried = nextRequest();
+        assertEquals(limited.text(), retried.text());
+        assertTrue(retried.at() - limited.at() >= 400, () -> "retried after " + (retried.at() - limited.at()) + " ms");
+    }
+
+    @Test
+    void undeliveredMessagesAreSpooledAndSentAfterRestart() throws Exception {
+        // A server error backs off for at least a second, long enough to shut down meanwhile
+        answers.add(new Answer(503, null));
+        notifier = new WebhookNotifier(dir, config(0));
+        notifier.onEvent(new QuestEvent.Ended(quest(), START, true));
+        String text = nextRequest().text();
+
+        notifier.shutdown(Deadline.after(5000));
+        Path spool = dir.resolve("webhooks").resolve("test.jsonl");
+        assertTrue(Files.readString(spool).contains("bị hủy bởi admin"));
+
+        notifier = new WebhookNotifier(dir, config(0));
+        assertEquals(text, nextRequest().text());
+        long waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (Files.exists(spool) && System.nanoTime() < waitUntil) {
+            Thread.sleep(10);
+        }
+        assertFalse(Files.exists(spool));
+    }
+}